@@ -8,14 +8,14 @@
 package org.eclipse.cdt.cmake.core.internal;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -37,8 +37,6 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.osgi.service.prefs.BackingStoreException;
 import org.osgi.service.prefs.Preferences;
 
-import com.google.gson.Gson;
-
 public class CMakeBuildConfiguration extends CBuildConfiguration {
 
 	public static final String CMAKE_GENERATOR = "cmake.generator"; //$NON-NLS-1$
@@ -264,20 +262,16 @@ public class CMakeBuildConfiguration extends CBuildConfiguration {
 		Path commandsFile = getBuildDirectory().resolve("compile_commands.json"); //$NON-NLS-1$
 		if (Files.exists(commandsFile)) {
 			monitor.setTaskName(Messages.CMakeBuildConfiguration_ProcCompJson);
-			try (FileReader reader = new FileReader(commandsFile.toFile())) {
-				Gson gson = new Gson();
-				CompileCommand[] commands = gson.fromJson(reader, CompileCommand[].class);
-				Map<String, CompileCommand> dedupedCmds = new HashMap<>();
-				for (CompileCommand command : commands) {
-					dedupedCmds.put(command.getFile(), command);
-				}
-				for (CompileCommand command : dedupedCmds.values()) {
-					processLine(command.getCommand());
-				}
+			try (CompileCommandsReader reader = new CompileCommandsReader(
+					Files.newBufferedReader(commandsFile, StandardCharsets.UTF_8))) {
+				processCompileCommands(reader, monitor);
 				shutdown();
 			} catch (IOException e) {
 				throw new CoreException(
 						Activator.errorStatus(String.format(Messages.CMakeBuildConfiguration_ProcCompCmds, project.getName()), e));
+			} catch (UncheckedIOException e) {
+				throw new CoreException(
+						Activator.errorStatus(String.format(Messages.CMakeBuildConfiguration_ProcCompCmds, project.getName()), e.getCause()));
 			}
 		}
 	}
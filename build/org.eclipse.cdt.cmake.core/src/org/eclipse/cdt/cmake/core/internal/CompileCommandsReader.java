@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.cmake.core.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Streams the command lines out of a compile_commands.json file, one entry at a time, so the
+ * whole database never needs to be held in memory. Errors reading the file are thrown as
+ * {@link UncheckedIOException}.
+ */
+public class CompileCommandsReader implements Iterator<String>, Closeable {
+
+	private final JsonReader reader;
+	private String next;
+	private boolean started;
+
+	public CompileCommandsReader(Reader reader) {
+		this.reader = new JsonReader(reader);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null) {
+			try {
+				next = readNext();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public String next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		String command = next;
+		next = null;
+		return command;
+	}
+
+	private String readNext() throws IOException {
+		if (!started) {
+			reader.beginArray();
+			started = true;
+		}
+		while (reader.hasNext()) {
+			String command = null;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if ("command".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) { //$NON-NLS-1$
+					command = reader.nextString();
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+			if (command != null) {
+				return command;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+}
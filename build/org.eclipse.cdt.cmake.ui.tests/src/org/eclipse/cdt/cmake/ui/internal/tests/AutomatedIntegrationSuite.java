@@ -11,7 +11,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
-@Suite.SuiteClasses({ NewCMakeProjectTest.class })
+@Suite.SuiteClasses({ NewCMakeProjectTest.class, CompileCommandsReaderTest.class })
 public class AutomatedIntegrationSuite {
 
 }
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.cmake.ui.internal.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.eclipse.cdt.cmake.core.internal.CompileCommandsReader;
+import org.junit.Test;
+
+@SuppressWarnings("nls")
+public class CompileCommandsReaderTest {
+
+	@Test
+	public void readsCommands() throws IOException {
+		assertEquals(Arrays.asList("gcc -c a.c", "gcc -c b.c"),
+				read("[{\"directory\": \"/build\", \"command\": \"gcc -c a.c\", \"file\": \"a.c\"},"
+						+ "{\"file\": \"b.c\", \"command\": \"gcc -c b.c\"}]"));
+	}
+
+	@Test
+	public void emptyDatabase() throws IOException {
+		assertEquals(Collections.emptyList(), read("[]"));
+	}
+
+	@Test
+	public void skipsEntriesWithoutCommand() throws IOException {
+		assertEquals(Arrays.asList("gcc -c b.c"),
+				read("[{\"directory\": \"/build\", \"arguments\": [\"gcc\", \"-c\", \"a.c\"], \"file\": \"a.c\"},"
+						+ "{\"command\": \"gcc -c b.c\", \"file\": \"b.c\"}, {}]"));
+	}
+
+	@Test
+	public void skipsNonStringCommands() throws IOException {
+		assertEquals(Arrays.asList("gcc -c d.c"),
+				read("[{\"command\": 1, \"file\": \"a.c\"}, {\"command\": [\"gcc\", \"-c\", \"b.c\"]},"
+						+ "{\"command\": {\"nested\": \"gcc -c c.c\"}}, {\"command\": null},"
+						+ "{\"command\": \"gcc -c d.c\"}]"));
+	}
+
+	@Test
+	public void malformedJson() throws IOException {
+		try (CompileCommandsReader reader = new CompileCommandsReader(
+				new StringReader("[{\"command\": \"gcc -c a.c\"}, {\"command\": ]"))) {
+			assertEquals("gcc -c a.c", reader.next());
+			reader.hasNext();
+			fail("hasNext() should fail on malformed input");
+		} catch (UncheckedIOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void truncatedJson() throws IOException {
+		try (CompileCommandsReader reader = new CompileCommandsReader(
+				new StringReader("[{\"command\": \"gcc -c a.c\""))) {
+			reader.next();
+			fail("next() should fail on truncated input");
+		} catch (UncheckedIOException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void nextAfterLastCommand() throws IOException {
+		try (CompileCommandsReader reader = new CompileCommandsReader(new StringReader("[{\"command\": \"gcc\"}]"))) {
+			reader.next();
+			assertFalse(reader.hasNext());
+			reader.next();
+		}
+	}
+
+	private static List<String> read(String json) throws IOException {
+		List<String> commands = new ArrayList<>();
+		try (CompileCommandsReader reader = new CompileCommandsReader(new StringReader(json))) {
+			while (reader.hasNext()) {
+				commands.add(reader.next());
+			}
+		}
+		return commands;
+	}
+}
@@ -20,7 +20,9 @@ import org.eclipse.cdt.build.core.scannerconfig.tests.GCCSpecsConsoleParserTest;
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.dom.IPDOMManager;
 import org.eclipse.cdt.managedbuilder.core.regressions.RegressionTests;
+import org.eclipse.cdt.managedbuilder.core.tests.BuildActionLogTests;
 import org.eclipse.cdt.managedbuilder.core.tests.BuildDescriptionModelTests;
+import org.eclipse.cdt.managedbuilder.core.tests.BuildObjectCacheTests;
 import org.eclipse.cdt.managedbuilder.core.tests.BuildSystem40Tests;
 import org.eclipse.cdt.managedbuilder.core.tests.ManagedBuildCoreTests;
 import org.eclipse.cdt.managedbuilder.core.tests.ManagedBuildCoreTests20;
@@ -37,6 +39,7 @@ import org.eclipse.cdt.managedbuilder.core.tests.ManagedProjectUpdateTests;
 import org.eclipse.cdt.managedbuilder.core.tests.MultiVersionSupportTests;
 import org.eclipse.cdt.managedbuilder.core.tests.OptionCategoryEnablementTests;
 import org.eclipse.cdt.managedbuilder.core.tests.OptionEnablementTests;
+import org.eclipse.cdt.managedbuilder.core.tests.ParallelBuilderTests;
 import org.eclipse.cdt.managedbuilder.core.tests.PathConverterTest;
 import org.eclipse.cdt.managedbuilder.core.tests.ResourceBuildCoreTests;
 import org.eclipse.cdt.managedbuilder.language.settings.providers.tests.AllLanguageSettingsProvidersMBSTests;
@@ -88,6 +91,9 @@ public class AutomatedIntegrationSuite {
 		suite.addTest(OptionCategoryEnablementTests.suite());
 		suite.addTest(ManagedBuildDependencyCalculatorTests.suite());
 		suite.addTest(BuildDescriptionModelTests.suite());
+		suite.addTest(BuildActionLogTests.suite());
+		suite.addTest(ParallelBuilderTests.suite());
+		suite.addTest(BuildObjectCacheTests.suite());
 		suite.addTest(PathConverterTest.suite());
 
 		// managedbuilder.templateengine.tests
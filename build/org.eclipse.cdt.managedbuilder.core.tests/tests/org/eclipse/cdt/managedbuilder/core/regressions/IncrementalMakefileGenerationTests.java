@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * 		Eclipse CDT contributors - Initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.core.regressions;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.eclipse.cdt.managedbuilder.testplugin.AbstractBuilderTest;
+import org.eclipse.core.resources.IBuildConfiguration;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * Tests that an incremental build regenerates exactly the makefiles affected by
+ * the changed resources.
+ */
+public class IncrementalMakefileGenerationTests extends AbstractBuilderTest {
+	private IProject app;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		setWorkspace("regressions");
+		app = loadProject("helloworldC");
+		setActiveConfigurationByName(app, "Debug");
+	}
+
+	public void testSourceInNewFolder() throws Exception {
+		build(IncrementalProjectBuilder.FULL_BUILD);
+		assertFalse("1.1", app.getFile("Debug/lib/subdir.mk").exists());
+
+		app.getFolder("lib").create(true, true, null);
+		createFile("lib/util.c", "int util(void) { return 0; }\n");
+		build(IncrementalProjectBuilder.INCREMENTAL_BUILD);
+
+		IFile subdir = app.getFile("Debug/lib/subdir.mk");
+		assertTrue("2.1", subdir.exists());
+		assertTrue("2.2", read(subdir).contains("util.c"));
+		assertTrue("2.3", read(app.getFile("Debug/sources.mk")).contains("lib \\"));
+		assertTrue("2.4", read(app.getFile("Debug/makefile")).contains("lib/subdir.mk"));
+		assertTrue("2.5", read(app.getFile("Debug/makefile")).contains("src/subdir.mk"));
+	}
+
+	public void testEmptiedFolder() throws Exception {
+		app.getFolder("lib").create(true, true, null);
+		IFile util = createFile("lib/util.c", "int util(void) { return 0; }\n");
+		build(IncrementalProjectBuilder.FULL_BUILD);
+		assertTrue("1.1", read(app.getFile("Debug/lib/subdir.mk")).contains("util.c"));
+
+		util.delete(true, null);
+		build(IncrementalProjectBuilder.INCREMENTAL_BUILD);
+		assertFalse("2.1", read(app.getFile("Debug/lib/subdir.mk")).contains("util.c"));
+
+		// The emptied folder is no longer a source folder of the configuration.
+		touch("src/helloworldC.c");
+		build(IncrementalProjectBuilder.INCREMENTAL_BUILD);
+		assertFalse("3.1", read(app.getFile("Debug/sources.mk")).contains("lib \\"));
+		assertFalse("3.2", read(app.getFile("Debug/makefile")).contains("lib/subdir.mk"));
+		assertTrue("3.3", read(app.getFile("Debug/sources.mk")).contains("src \\"));
+	}
+
+	public void testUnchangedSubdirNotRewritten() throws Exception {
+		app.getFolder("lib").create(true, true, null);
+		createFile("lib/util.c", "int util(void) { return 0; }\n");
+		build(IncrementalProjectBuilder.FULL_BUILD);
+
+		// Back-date the fragments, a rewrite is then visible even on file systems
+		// with a coarse timestamp resolution.
+		File libSubdir = app.getFile("Debug/lib/subdir.mk").getLocation().toFile();
+		File srcSubdir = app.getFile("Debug/src/subdir.mk").getLocation().toFile();
+		long stamp = (System.currentTimeMillis() - 60000) / 1000 * 1000;
+		assertTrue("1.1", libSubdir.setLastModified(stamp));
+		assertTrue("1.2", srcSubdir.setLastModified(stamp));
+		long libStamp = libSubdir.lastModified();
+		long srcStamp = srcSubdir.lastModified();
+
+		touch("src/helloworldC.c");
+		build(IncrementalProjectBuilder.INCREMENTAL_BUILD);
+
+		// The folder of the changed source is regenerated, but its fragment is the same.
+		assertEquals("2.1", srcStamp, srcSubdir.lastModified());
+		// The other folder is not regenerated at all.
+		assertEquals("2.2", libStamp, libSubdir.lastModified());
+	}
+
+	public void testModifiedFragmentIsRewritten() throws Exception {
+		build(IncrementalProjectBuilder.FULL_BUILD);
+		IFile subdir = app.getFile("Debug/src/subdir.mk");
+		String contents = read(subdir);
+
+		// The generator remembers the fragment it wrote, but must notice the edit
+		subdir.setContents(new ByteArrayInputStream("# edited\n".getBytes()), true, false, null);
+		touch("src/helloworldC.c");
+		build(IncrementalProjectBuilder.INCREMENTAL_BUILD);
+		assertEquals("1.1", contents, read(subdir));
+	}
+
+	private void build(int kind) throws CoreException {
+		getWorkspace().getRoot().refreshLocal(IResource.DEPTH_INFINITE, null);
+		getWorkspace().build(new IBuildConfiguration[] {app.getActiveBuildConfig()}, kind, true, null);
+		app.refreshLocal(IResource.DEPTH_INFINITE, null);
+	}
+
+	private IFile createFile(String path, String contents) throws CoreException {
+		IFile file = app.getFile(path);
+		file.create(new ByteArrayInputStream(contents.getBytes()), true, null);
+		return file;
+	}
+
+	private void touch(String path) throws CoreException, IOException {
+		IFile file = app.getFile(path);
+		String contents = read(file) + "\n";
+		file.setContents(new ByteArrayInputStream(contents.getBytes()), true, false, null);
+	}
+
+	private static String read(IFile file) throws IOException {
+		assertTrue(file.getFullPath().toString(), file.exists());
+		return new String(Files.readAllBytes(file.getLocation().toFile().toPath()));
+	}
+}
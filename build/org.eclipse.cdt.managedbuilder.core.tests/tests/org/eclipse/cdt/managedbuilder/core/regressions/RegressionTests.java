@@ -26,6 +26,8 @@ public class RegressionTests extends TestCase {
 
 		// Test that common builder does the correct amount of work.
 		suite.addTestSuite(Bug_303953.class);
+		// Test that incremental builds regenerate only the affected makefiles.
+		suite.addTestSuite(IncrementalMakefileGenerationTests.class);
 
 		return suite;
 	}
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.core.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildCommand;
+import org.eclipse.cdt.managedbuilder.core.ManagedBuilderCorePlugin;
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.BuildActionLog;
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.BuildCommand;
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.BuildStateManager;
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.IConfigurationBuildState;
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.IProjectBuildState;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.Path;
+
+public class BuildActionLogTests extends TestCase {
+	private File fDir;
+	private long fTime = 1000000000000L;
+
+	public static Test suite() {
+		return new TestSuite(BuildActionLogTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fDir = Files.createTempDirectory("actionLog").toFile(); //$NON-NLS-1$
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		delete(fDir);
+	}
+
+	static void delete(File file) {
+		File children[] = file.listFiles();
+		if(children != null){
+			for(File child : children){
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	/**
+	 * Writes the file and gives it a time stamp different from all previous ones.
+	 */
+	File write(String name, String contents) throws IOException {
+		File file = new File(fDir, name);
+		Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+		fTime += 10000;
+		file.setLastModified(fTime);
+		return file;
+	}
+
+	static IBuildCommand[] commands(String... args) {
+		return new IBuildCommand[] {new BuildCommand(new Path("gcc"), args, null, new Path("/build"), null)};
+	}
+
+	static TestBuildStep compileStep(File source, File object) {
+		return new TestBuildStep(object.getName(),
+				new TestBuildResource[] {new TestBuildResource(source)},
+				new TestBuildResource[] {new TestBuildResource(object)});
+	}
+
+	public void testTouchedInputIsUpToDate() throws Exception {
+		File source = write("a.c", "int a;");
+		File object = write("a.o", "object");
+		TestBuildStep step = compileStep(source, object);
+		IBuildCommand cmds[] = commands("-O2", "-c", "a.c");
+
+		BuildActionLog log = new BuildActionLog();
+		String key = log.getKey(step, cmds);
+		assertNotNull(key);
+		assertFalse(log.isUpToDate(step, key));
+		log.stepStarted(step);
+		log.stepBuilt(step, key);
+		assertTrue(log.isUpToDate(step, key));
+
+		// A new time stamp with the same contents, e.g. after switching branches
+		source.setLastModified(source.lastModified() + 20000);
+		assertEquals(key, log.getKey(step, cmds));
+		assertTrue(log.isUpToDate(step, key));
+
+		// Other commands or contents
+		assertFalse(log.isUpToDate(step, log.getKey(step, commands("-O0", "-c", "a.c"))));
+		write("a.c", "int b;");
+		assertFalse(key.equals(log.getKey(step, cmds)));
+
+		// Missing output
+		write("a.c", "int a;");
+		assertEquals(key, log.getKey(step, cmds));
+		object.delete();
+		assertFalse(log.isUpToDate(step, key));
+	}
+
+	public void testFailedStepIsNotUpToDate() throws Exception {
+		File source = write("a.c", "int a;");
+		File object = write("a.o", "object of a");
+		TestBuildStep step = compileStep(source, object);
+		IBuildCommand cmds[] = commands("-c", "a.c");
+
+		BuildActionLog log = new BuildActionLog();
+		String keyX = log.getKey(step, cmds);
+		log.stepStarted(step);
+		log.stepBuilt(step, keyX);
+
+		// The input changes and the compilation fails after writing part of the output
+		write("a.c", "int b;");
+		String keyY = log.getKey(step, cmds);
+		assertFalse(log.isUpToDate(step, keyY));
+		log.stepStarted(step);
+		write("a.o", "part of the object of b");
+
+		// The input is reverted, the output must not be kept
+		write("a.c", "int a;");
+		assertEquals(keyX, log.getKey(step, cmds));
+		assertFalse(log.isUpToDate(step, keyX));
+	}
+
+	public void testStoreAndLoad() throws Exception {
+		File source1 = write("a.c", "int a;");
+		File object1 = write("a.o", "object of a");
+		File source2 = write("b.c", "int b;");
+		File object2 = write("b.o", "object of b");
+		TestBuildStep step1 = compileStep(source1, object1);
+		TestBuildStep step2 = compileStep(source2, object2);
+		IBuildCommand cmds[] = commands("-c");
+
+		BuildActionLog log = new BuildActionLog();
+		String key1 = log.getKey(step1, cmds);
+		String key2 = log.getKey(step2, cmds);
+		log.stepBuilt(step1, key1);
+		log.stepBuilt(step2, key2);
+		assertTrue(log.isDirty());
+		ByteArrayOutputStream oStream = new ByteArrayOutputStream();
+		log.store(oStream);
+		assertFalse(log.isDirty());
+
+		// Starting a step invalidates its entry and has to be stored
+		log.stepStarted(step2);
+		assertTrue(log.isDirty());
+
+		BuildActionLog loaded = new BuildActionLog();
+		loaded.load(new ByteArrayInputStream(oStream.toByteArray()));
+		assertFalse(loaded.isDirty());
+		assertTrue(loaded.isUpToDate(step1, key1));
+		assertTrue(loaded.isUpToDate(step2, key2));
+
+		// Rebuilding with the same key does not change the log
+		loaded.stepBuilt(step1, key1);
+		assertFalse(loaded.isDirty());
+	}
+
+	public void testLogKeptWhenStateIsReset() throws Exception {
+		File source = write("a.c", "int a;");
+		File object = write("a.o", "object of a");
+		TestBuildStep step = compileStep(source, object);
+		IBuildCommand cmds[] = commands("-c");
+		String cfgId = "cfg";
+
+		IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject("actionLog_" + getName());
+		BuildStateManager manager = BuildStateManager.getInstance();
+		try {
+			// A successful build
+			IProjectBuildState pbs = manager.getProjectBuildState(project);
+			IConfigurationBuildState cbs = pbs.getConfigurationBuildState(cfgId, true);
+			String key = cbs.getActionLog().getKey(step, cmds);
+			cbs.getActionLog().stepBuilt(step, key);
+			cbs.setState(0);
+			manager.setProjectBuildState(project, pbs);
+
+			// The configuration is cleaned
+			pbs = manager.getProjectBuildState(project);
+			assertNotNull(pbs.getConfigurationBuildState(cfgId, false));
+			pbs.removeConfigurationBuildState(cfgId);
+			manager.setProjectBuildState(project, pbs);
+
+			// The next build needs to rebuild, but still finds the log
+			pbs = manager.getProjectBuildState(project);
+			assertNull(pbs.getConfigurationBuildState(cfgId, false));
+			cbs = pbs.getConfigurationBuildState(cfgId, true);
+			assertTrue(cbs.getActionLog().isUpToDate(step, key));
+
+			// The log goes away with the configuration
+			pbs.removeConfiguration(cfgId);
+			manager.setProjectBuildState(project, pbs);
+			cbs = manager.getProjectBuildState(project).getConfigurationBuildState(cfgId, true);
+			assertFalse(cbs.getActionLog().isUpToDate(step, key));
+		} finally {
+			delete(ManagedBuilderCorePlugin.getDefault().getStateLocation()
+					.append("buildState").append(project.getName()).toFile());
+		}
+	}
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.core.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.BuildCommand;
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.BuildObjectCache;
+import org.eclipse.core.runtime.Path;
+
+public class BuildObjectCacheTests extends TestCase {
+	// Size of an entry with one output of 20 bytes and no console output
+	private static final int ENTRY_SIZE = 48;
+
+	private File fDir;
+	private File fCacheDir;
+
+	public static Test suite() {
+		return new TestSuite(BuildObjectCacheTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fDir = Files.createTempDirectory("objectCache").toFile(); //$NON-NLS-1$
+		fCacheDir = new File(fDir, "cache"); //$NON-NLS-1$
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		BuildActionLogTests.delete(fDir);
+	}
+
+	private File write(String name, String contents) throws IOException {
+		File file = new File(fDir, name);
+		Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+	private TestBuildStep step(String name, String object) throws IOException {
+		return BuildActionLogTests.compileStep(write(name + ".c", "int " + name + ";"), write(name + ".o", object));
+	}
+
+	private File getEntryFile(String key) {
+		return new File(new File(fCacheDir, key.substring(0, 2)), key.substring(2));
+	}
+
+	public void testStoreAndRestore() throws Exception {
+		BuildObjectCache cache = new BuildObjectCache(fCacheDir, 1 << 20);
+		TestBuildStep step = step("a", "object of a");
+		File object = ((TestBuildResource)step.getOutputResources()[0]).getFile();
+		assertFalse(cache.restore("aa0001", step, null, null));
+
+		cache.store("aa0001", step, "warning: a".getBytes(StandardCharsets.UTF_8), new byte[0]);
+		write("a.o", "other object");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		assertTrue(cache.restore("aa0001", step, out, err));
+		assertEquals("object of a", read(object));
+		assertEquals("warning: a", new String(out.toByteArray(), StandardCharsets.UTF_8));
+		assertEquals(0, err.size());
+		assertFalse(cache.restore("aa0002", step, out, err));
+
+		// A step with a missing output is not stored
+		TestBuildStep missing = step("b", "object of b");
+		((TestBuildResource)missing.getOutputResources()[0]).getFile().delete();
+		cache.store("bb0001", missing, new byte[0], new byte[0]);
+		assertFalse(getEntryFile("bb0001").exists());
+	}
+
+	public void testEviction() throws Exception {
+		BuildObjectCache cache = new BuildObjectCache(fCacheDir, 2 * ENTRY_SIZE + 14);
+		long now = System.currentTimeMillis();
+		cache.store("aa0001", step("a", "20 bytes of object a"), new byte[0], new byte[0]);
+		cache.store("bb0001", step("b", "20 bytes of object b"), new byte[0], new byte[0]);
+		assertEquals(ENTRY_SIZE, getEntryFile("aa0001").length());
+		getEntryFile("aa0001").setLastModified(now - 20000);
+		getEntryFile("bb0001").setLastModified(now - 10000);
+
+		// A hit makes the entry the most recently used one
+		TestBuildStep stepA = step("a", "");
+		assertTrue(cache.restore("aa0001", stepA, null, null));
+
+		// The least recently used entry is evicted, until the cache is below 90% of its maximum size
+		cache.store("cc0001", step("c", "20 bytes of object c"), new byte[0], new byte[0]);
+		assertTrue(getEntryFile("aa0001").exists());
+		assertFalse(getEntryFile("bb0001").exists());
+		assertTrue(getEntryFile("cc0001").exists());
+	}
+
+	public void testWorkingDirectoryWithDebugInfo() throws Exception {
+		// Two projects with the same layout and contents
+		File dir1 = new File(fDir, "project1/Debug"); //$NON-NLS-1$
+		File dir2 = new File(fDir, "project2/Debug"); //$NON-NLS-1$
+		dir1.mkdirs();
+		dir2.mkdirs();
+		write("project1/a.c", "int a;"); //$NON-NLS-1$ //$NON-NLS-2$
+		write("project2/a.c", "int a;"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		BuildObjectCache cache = new BuildObjectCache(fCacheDir, 1 << 20);
+		String release1 = cache.getKey("tool", compile(dir1)); //$NON-NLS-1$
+		if(release1 == null)
+			return; // no gcc on the path
+		String release2 = cache.getKey("tool", compile(dir2)); //$NON-NLS-1$
+		// Without -fno-working-directory gcc puts the working directory into the output of
+		// the preprocessor, other compilers do not.
+		String debug1 = cache.getKey("tool", compile(dir1, "-g", "-fno-working-directory")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		String debug2 = cache.getKey("tool", compile(dir2, "-g", "-fno-working-directory")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertNotNull(debug1);
+		assertNotNull(debug2);
+
+		// The debug information refers to the working directory
+		assertFalse(debug1.equals(debug2));
+		assertFalse(debug1.equals(release1));
+		// Without it, the outputs are the same
+		assertEquals(release1, release2);
+		assertEquals(release1, cache.getKey("tool", compile(dir2, "-g", "-g0"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	private static BuildCommand compile(File cwd, String... options) {
+		String args[] = Arrays.copyOf(options, options.length + 4);
+		args[options.length] = "-c"; //$NON-NLS-1$
+		args[options.length + 1] = "-o"; //$NON-NLS-1$
+		args[options.length + 2] = "a.o"; //$NON-NLS-1$
+		args[options.length + 3] = "../a.c"; //$NON-NLS-1$
+		return new BuildCommand(new Path("gcc"), args, null, new Path(cwd.getAbsolutePath()), null); //$NON-NLS-1$
+	}
+
+	public void testPreprocessorArguments() throws Exception {
+		assertEquals(Arrays.asList("-O2", "-Iinc", "-DX=1", "src/a.c", "-E"),
+				Arrays.asList(BuildObjectCache.getPreprocessorArguments(new String[] {
+						"-O2", "-Iinc", "-DX=1", "-MMD", "-MP", "-MF", "src/a.d", "-MTsrc/a.o",
+						"-c", "-o", "src/a.o", "src/a.c"})));
+		assertEquals(Arrays.asList("src/a.c", "-E"),
+				Arrays.asList(BuildObjectCache.getPreprocessorArguments(new String[] {
+						"-c", "-osrc/a.o", "src/a.c"})));
+		// Not a compilation
+		assertNull(BuildObjectCache.getPreprocessorArguments(new String[] {"-o", "a.out", "a.o"}));
+		assertNull(BuildObjectCache.getPreprocessorArguments(new String[] {"-S", "-c", "a.c"}));
+		assertNull(BuildObjectCache.getPreprocessorArguments(null));
+	}
+}
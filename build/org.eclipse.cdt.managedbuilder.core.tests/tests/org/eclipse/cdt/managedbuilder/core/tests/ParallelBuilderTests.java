@@ -0,0 +1,306 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.core.tests;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import javax.management.ObjectName;
+
+import junit.framework.AssertionFailedError;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildCommand;
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.BuildCommand;
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.BuildProcessManager;
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.GenDirInfo;
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.ParallelBuilder;
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.ProcessLauncher;
+import org.eclipse.cdt.managedbuilder.internal.core.Builder;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Tests the scheduling of the internal builder with stubbed build steps and
+ * processes. A stubbed process runs until the builder waits for a termination,
+ * then the oldest running process completes.
+ */
+public class ParallelBuilderTests extends TestCase {
+	private static final IPath CWD = new Path("/build"); //$NON-NLS-1$
+
+	/** Launches and terminations of the stubbed processes, in order */
+	private final List<String> fEvents = new ArrayList<String>();
+
+	public static Test suite() {
+		return new TestSuite(ParallelBuilderTests.class);
+	}
+
+	/**
+	 * Process that does not run anything, it is completed by {@link TestProcessManager}.
+	 */
+	class TestProcessLauncher extends ProcessLauncher {
+		final String fName;
+
+		TestProcessLauncher(IBuildCommand cmd, IPath cwd, IProgressMonitor monitor) {
+			super(cmd.getCommand(), cmd.getArgs(), null, cwd, null, null, monitor, false);
+			fName = cmd.getCommand().toString();
+		}
+
+		@Override
+		public void launch() {
+			state = STATE_RUNNING;
+			fEvents.add("start " + fName); //$NON-NLS-1$
+		}
+
+		@Override
+		public int queryState() {
+			return state;
+		}
+
+		@Override
+		public int getExitCode() {
+			return 0;
+		}
+
+		void terminate() {
+			state = STATE_DONE;
+			fEvents.add("end " + fName); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Process manager with a fixed number of slots for {@link TestProcessLauncher}s.
+	 */
+	class TestProcessManager extends BuildProcessManager {
+		final LinkedList<TestProcessLauncher> fRunning = new LinkedList<TestProcessLauncher>();
+		/** Commands whose next launch is refused although a slot is free */
+		final Set<String> fRefused = new HashSet<String>();
+		int fWaits;
+
+		TestProcessManager(int slots) {
+			super(null, null, false, slots);
+		}
+
+		@Override
+		public ProcessLauncher launchProcess(IBuildCommand cmd, IPath cwd, IProgressMonitor monitor) {
+			if (fRunning.size() >= maxProcesses || fRefused.remove(cmd.getCommand().toString()))
+				return null;
+			TestProcessLauncher process = new TestProcessLauncher(cmd, cwd, monitor);
+			process.launch();
+			fRunning.add(process);
+			return process;
+		}
+
+		@Override
+		public boolean hasEmpty() {
+			return fRunning.size() < maxProcesses;
+		}
+
+		@Override
+		public void waitForTermination(long timeout) {
+			if (++fWaits > 1000)
+				throw new AssertionFailedError("The build does not terminate"); //$NON-NLS-1$
+			if (!fRunning.isEmpty())
+				fRunning.removeFirst().terminate();
+		}
+
+		int getLimit(int running, int cpus, double load) {
+			cpuNumber = cpus;
+			osBean = new TestOperatingSystem(cpus, load);
+			return getProcessLimit(running);
+		}
+	}
+
+	static class TestOperatingSystem implements OperatingSystemMXBean {
+		private final int fProcessors;
+		private final double fLoad;
+
+		TestOperatingSystem(int processors, double load) {
+			fProcessors = processors;
+			fLoad = load;
+		}
+
+		@Override
+		public ObjectName getObjectName() {
+			return ManagementFactory.getOperatingSystemMXBean().getObjectName();
+		}
+
+		@Override
+		public String getName() {
+			return "test"; //$NON-NLS-1$
+		}
+
+		@Override
+		public String getArch() {
+			return "test"; //$NON-NLS-1$
+		}
+
+		@Override
+		public String getVersion() {
+			return "1"; //$NON-NLS-1$
+		}
+
+		@Override
+		public int getAvailableProcessors() {
+			return fProcessors;
+		}
+
+		@Override
+		public double getSystemLoadAverage() {
+			return fLoad;
+		}
+	}
+
+	static class TestParallelBuilder extends ParallelBuilder {
+		TestParallelBuilder() {
+			super(CWD, new GenDirInfo(ResourcesPlugin.getWorkspace().getRoot().getProject("parallelBuilder")), //$NON-NLS-1$
+					null, null, new NullProgressMonitor(), false, false);
+		}
+
+		/**
+		 * Builds the given steps, the earlier steps are queued first.
+		 */
+		int build(BuildProcessManager mgr, TestBuildStep... steps) {
+			for (int i = 0; i < steps.length; i++) {
+				addElement(steps[i], i);
+			}
+			sortQueue();
+			return dispatch(mgr);
+		}
+	}
+
+	private static TestBuildResource resource(String name) {
+		return new TestBuildResource(new File(name));
+	}
+
+	/**
+	 * Creates a step running one command per name, each command is labeled with its name.
+	 */
+	private static TestBuildStep step(TestBuildResource inputs[], TestBuildResource output, String... cmdNames) {
+		TestBuildStep step = new TestBuildStep(cmdNames[0], inputs, new TestBuildResource[] {output});
+		IBuildCommand cmds[] = new IBuildCommand[cmdNames.length];
+		for (int i = 0; i < cmdNames.length; i++) {
+			cmds[i] = new BuildCommand(new Path(cmdNames[i]), new String[0], null, CWD, null);
+		}
+		step.setCommands(cmds);
+		return step;
+	}
+
+	private void assertBefore(String first, String second) {
+		int firstIndex = fEvents.indexOf(first);
+		int secondIndex = fEvents.indexOf(second);
+		assertTrue(fEvents.toString(), firstIndex >= 0);
+		assertTrue(fEvents.toString(), secondIndex >= 0);
+		assertTrue(fEvents.toString(), firstIndex < secondIndex);
+	}
+
+	public void testDependencyOrder() throws Exception {
+		TestBuildResource a = resource("a.o"); //$NON-NLS-1$
+		TestBuildResource b = resource("b.o"); //$NON-NLS-1$
+		TestBuildResource c = resource("c.o"); //$NON-NLS-1$
+		TestBuildStep link = step(new TestBuildResource[] {a, b, c}, resource("app"), "link"); //$NON-NLS-1$ //$NON-NLS-2$
+		TestBuildStep compileA = step(new TestBuildResource[] {resource("a.c")}, a, "cc_a"); //$NON-NLS-1$ //$NON-NLS-2$
+		TestBuildStep compileB = step(new TestBuildResource[] {resource("b.c")}, b, "cc_b"); //$NON-NLS-1$ //$NON-NLS-2$
+		TestBuildStep compileC = step(new TestBuildResource[] {resource("c.c")}, c, "cc_c"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		// The link step is queued first, it still has to wait for the compilations.
+		TestProcessManager mgr = new TestProcessManager(2);
+		assertEquals(ParallelBuilder.STATUS_OK, new TestParallelBuilder().build(mgr, link, compileA, compileB, compileC));
+		assertEquals(8, fEvents.size());
+		assertBefore("end cc_a", "start link"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertBefore("end cc_b", "start link"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertBefore("end cc_c", "start link"); //$NON-NLS-1$ //$NON-NLS-2$
+		// Two compilations run at once.
+		assertEquals("start cc_a", fEvents.get(0)); //$NON-NLS-1$
+		assertEquals("start cc_b", fEvents.get(1)); //$NON-NLS-1$
+		assertBefore("start cc_b", "end cc_a"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testCriticalPathFirst() throws Exception {
+		TestBuildResource generated = resource("gen.c"); //$NON-NLS-1$
+		TestBuildStep other = step(new TestBuildResource[] {resource("other.c")}, resource("other.o"), "cc_other"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		TestBuildStep generate = step(new TestBuildResource[] {resource("gen.y")}, generated, "yacc"); //$NON-NLS-1$ //$NON-NLS-2$
+		TestBuildStep compile = step(new TestBuildResource[] {generated}, resource("gen.o"), "cc_gen"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		// With a single slot, the start of the longer chain is built first
+		// although the other step is queued before it.
+		TestProcessManager mgr = new TestProcessManager(1);
+		assertEquals(ParallelBuilder.STATUS_OK, new TestParallelBuilder().build(mgr, other, generate, compile));
+		assertEquals("start yacc", fEvents.get(0)); //$NON-NLS-1$
+		assertBefore("end yacc", "start cc_gen"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(fEvents.contains("end cc_other")); //$NON-NLS-1$
+	}
+
+	public void testCycleIsBuiltAtTheEnd() throws Exception {
+		TestBuildResource x = resource("x"); //$NON-NLS-1$
+		TestBuildResource y = resource("y"); //$NON-NLS-1$
+		TestBuildResource z = resource("z"); //$NON-NLS-1$
+		TestBuildStep first = step(new TestBuildResource[] {resource("in")}, z, "first"); //$NON-NLS-1$ //$NON-NLS-2$
+		// stepX and stepY need the output of each other.
+		TestBuildStep stepX = step(new TestBuildResource[] {y, z}, x, "make_x"); //$NON-NLS-1$
+		TestBuildStep stepY = step(new TestBuildResource[] {x}, y, "make_y"); //$NON-NLS-1$
+
+		TestProcessManager mgr = new TestProcessManager(2);
+		assertEquals(ParallelBuilder.STATUS_OK, new TestParallelBuilder().build(mgr, first, stepX, stepY));
+		assertEquals(6, fEvents.size());
+		assertBefore("end first", "start make_x"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertBefore("end first", "start make_y"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(fEvents.contains("end make_x")); //$NON-NLS-1$
+		assertTrue(fEvents.contains("end make_y")); //$NON-NLS-1$
+	}
+
+	public void testRetryWhenNoSlotIsFree() throws Exception {
+		TestBuildResource object = resource("a.o"); //$NON-NLS-1$
+		TestBuildStep compile = step(new TestBuildResource[] {resource("a.c")}, object, "cc_a", "strip_a"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		TestBuildStep link = step(new TestBuildResource[] {object}, resource("app"), "link"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		// The second command of the compile step and the link step do not get
+		// a process on their first attempt.
+		TestProcessManager mgr = new TestProcessManager(1);
+		mgr.fRefused.add("strip_a"); //$NON-NLS-1$
+		mgr.fRefused.add("link"); //$NON-NLS-1$
+		assertEquals(ParallelBuilder.STATUS_OK, new TestParallelBuilder().build(mgr, compile, link));
+		assertTrue(mgr.fRefused.isEmpty());
+		assertEquals(6, fEvents.size());
+		assertBefore("end cc_a", "start strip_a"); //$NON-NLS-1$ //$NON-NLS-2$
+		// The compile step is not complete before its last command has run.
+		assertBefore("end strip_a", "start link"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(fEvents.contains("end link")); //$NON-NLS-1$
+	}
+
+	public void testProcessLimit() throws Exception {
+		// An explicit number of jobs is not affected by the load.
+		assertEquals(4, new TestProcessManager(4).getLimit(0, 8, 100.0));
+		assertEquals(16, new TestProcessManager(16).getLimit(12, 4, 0.0));
+
+		TestProcessManager mgr = new TestProcessManager(Builder.UNLIMITED_JOBS);
+		// Idle processors allow more processes than processors.
+		assertEquals(9, mgr.getLimit(6, 4, 1.0));
+		assertEquals(7, mgr.getLimit(6, 4, 2.5));
+		assertEquals(6, mgr.getLimit(6, 4, 3.5));
+		// At least one process per processor.
+		assertEquals(4, mgr.getLimit(0, 4, 1.0));
+		assertEquals(4, mgr.getLimit(6, 4, 12.0));
+		// No limit without a load average.
+		assertEquals(Builder.UNLIMITED_JOBS, mgr.getLimit(6, 4, -1.0));
+	}
+}
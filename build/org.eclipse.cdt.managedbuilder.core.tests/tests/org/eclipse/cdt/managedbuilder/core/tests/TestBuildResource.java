@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.core.tests;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildDescription;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildIOType;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildResource;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildStep;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Build resource for a file outside of the workspace, used with {@link TestBuildStep}.
+ */
+public class TestBuildResource implements IBuildResource {
+	private final File fFile;
+	IBuildStep fProducer;
+	final List<IBuildStep> fDependents = new ArrayList<IBuildStep>();
+
+	public TestBuildResource(File file){
+		fFile = file;
+	}
+
+	public File getFile(){
+		return fFile;
+	}
+
+	@Override
+	public IPath getLocation() {
+		return new Path(fFile.getAbsolutePath());
+	}
+
+	@Override
+	public IPath getFullPath() {
+		return null;
+	}
+
+	@Override
+	public URI getLocationURI() {
+		return fFile.toURI();
+	}
+
+	@Override
+	public IBuildIOType getProducerIOType() {
+		return null;
+	}
+
+	@Override
+	public IBuildIOType[] getDependentIOTypes() {
+		return new IBuildIOType[0];
+	}
+
+	@Override
+	public IBuildStep getProducerStep() {
+		return fProducer;
+	}
+
+	@Override
+	public IBuildStep[] getDependentSteps() {
+		return fDependents.toArray(new IBuildStep[fDependents.size()]);
+	}
+
+	@Override
+	public boolean needsRebuild() {
+		return true;
+	}
+
+	@Override
+	public boolean isProjectResource() {
+		return false;
+	}
+
+	@Override
+	public boolean isRemoved() {
+		return false;
+	}
+
+	@Override
+	public IBuildDescription getBuildDescription() {
+		return null;
+	}
+}
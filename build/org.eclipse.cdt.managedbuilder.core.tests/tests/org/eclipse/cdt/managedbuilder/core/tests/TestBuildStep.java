@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.core.tests;
+
+import java.util.Map;
+
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildCommand;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildDescription;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildIOType;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildResource;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildStep;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * Build step with fixed inputs, outputs and commands, for testing the internal builder
+ * without a managed build project.
+ */
+public class TestBuildStep implements IBuildStep {
+	private final String fName;
+	private final TestBuildResource fInputs[];
+	private final TestBuildResource fOutputs[];
+	private IBuildCommand fCommands[] = new IBuildCommand[0];
+	private IBuildDescription fDescription;
+
+	public TestBuildStep(String name, TestBuildResource inputs[], TestBuildResource outputs[]){
+		fName = name;
+		fInputs = inputs;
+		fOutputs = outputs;
+		for(TestBuildResource input : inputs){
+			input.fDependents.add(this);
+		}
+		for(TestBuildResource output : outputs){
+			output.fProducer = this;
+		}
+	}
+
+	public void setCommands(IBuildCommand cmds[]){
+		fCommands = cmds;
+	}
+
+	public void setBuildDescription(IBuildDescription des){
+		fDescription = des;
+	}
+
+	@Override
+	public IBuildIOType[] getInputIOTypes() {
+		return new IBuildIOType[0];
+	}
+
+	@Override
+	public IBuildIOType[] getOutputIOTypes() {
+		return new IBuildIOType[0];
+	}
+
+	@Override
+	public boolean needsRebuild() {
+		return true;
+	}
+
+	@Override
+	public IBuildResource[] getInputResources() {
+		return fInputs.clone();
+	}
+
+	@Override
+	public IBuildResource[] getOutputResources() {
+		return fOutputs.clone();
+	}
+
+	@Override
+	public boolean isRemoved() {
+		return false;
+	}
+
+	@Override
+	public IBuildDescription getBuildDescription() {
+		return fDescription;
+	}
+
+	@Override
+	public IBuildCommand[] getCommands(IPath cwd, Map inStepMap, Map outStepMap, boolean resolveAll) {
+		return fCommands.clone();
+	}
+
+	@Override
+	public String toString() {
+		return fName;
+	}
+}
@@ -19,6 +19,7 @@ import org.eclipse.cdt.managedbuilder.internal.buildmodel.BuildStateManager;
 import org.eclipse.cdt.managedbuilder.internal.buildmodel.DbgUtil;
 import org.eclipse.cdt.managedbuilder.internal.core.BuilderFactory;
 import org.eclipse.cdt.managedbuilder.internal.core.GeneratedMakefileBuilder;
+import org.eclipse.cdt.managedbuilder.internal.core.MakefileGeneratorCache;
 import org.eclipse.cdt.managedbuilder.internal.dataprovider.ProjectConverter;
 import org.eclipse.cdt.managedbuilder.internal.scannerconfig.ManagedBuildCPathEntryContainer;
 import org.eclipse.cdt.managedbuilder.internal.scannerconfig.ManagedBuildPathEntryContainerInitializer;
@@ -178,6 +179,7 @@ public class ManagedBuilderCorePlugin extends Plugin {
 		BuildStateManager.getInstance().shutdown();
 
 		CfgDiscoveredPathManager.stop();
+		MakefileGeneratorCache.stop();
 //		if (fDiscoveryPathManager != null) {
 //			fDiscoveryPathManager.shutdown();
 //			fDiscoveryPathManager = null;
@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.internal.buildmodel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildCommand;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildResource;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildStep;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * Persistent log of the steps performed by the internal builder, similar to the build log of ninja.
+ *
+ * For every step the log stores an action key, a digest of the step's command lines and of the
+ * contents of its inputs, including the header dependencies discovered for the step. A step whose
+ * key did not change since it was last built successfully and whose outputs still exist does not
+ * have to be executed again, even though the timestamps of its inputs changed, e.g. after switching
+ * branches in a version control system.
+ *
+ * The environment of the commands is not part of the key.
+ */
+public class BuildActionLog {
+	private static final String DIGEST_ALGORITHM = "SHA-1"; //$NON-NLS-1$
+	private static final String VERSION = "1"; //$NON-NLS-1$
+	private static final String MISSING = "-"; //$NON-NLS-1$
+	private static final char[] HEX = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+	private Map<String, String> fStepToKeyMap = new HashMap<String, String>();
+	private Map<String, FileDigest> fFileDigests = new HashMap<String, FileDigest>();
+	private boolean fIsDirty;
+
+	/**
+	 * Content digest of a file, valid as long as its size and time stamp do not change.
+	 * Avoids reading headers shared by many steps more than once per build.
+	 */
+	private static class FileDigest {
+		final long fLastModified;
+		final long fLength;
+		final String fDigest;
+
+		FileDigest(long lastModified, long length, String digest){
+			fLastModified = lastModified;
+			fLength = length;
+			fDigest = digest;
+		}
+	}
+
+	/**
+	 * Computes the action key of a step.
+	 *
+	 * @param step the step
+	 * @param cmds the commands the step is built with
+	 * @return the key or <code>null</code> if the step cannot be tracked by the log
+	 */
+	public String getKey(IBuildStep step, IBuildCommand[] cmds){
+		if(cmds == null || cmds.length == 0 || getStepId(step) == null)
+			return null;
+
+		MessageDigest md = createDigest();
+		update(md, VERSION);
+		for(IBuildCommand cmd : cmds){
+			update(md, String.valueOf(cmd.getCWD()));
+			update(md, String.valueOf(cmd.getCommand()));
+			String args[] = cmd.getArgs();
+			if(args != null){
+				for(String arg : args){
+					update(md, arg);
+				}
+			}
+			update(md, ""); //$NON-NLS-1$
+		}
+
+		IBuildResource inputs[] = step.getInputResources();
+		String locations[] = new String[inputs.length];
+		for(int i = 0; i < inputs.length; i++){
+			IPath location = inputs[i].getLocation();
+			if(location == null)
+				return null;
+			locations[i] = location.toOSString();
+		}
+		Arrays.sort(locations);
+		for(String location : locations){
+			String digest = getFileDigest(location);
+			if(digest == null)
+				return null;
+			update(md, location);
+			update(md, digest);
+		}
+		return toHex(md.digest());
+	}
+
+	/**
+	 * Returns whether the step was last built successfully with the given key
+	 * and all its outputs still exist.
+	 */
+	public boolean isUpToDate(IBuildStep step, String key){
+		String id = getStepId(step);
+		if(id == null || !key.equals(fStepToKeyMap.get(id)))
+			return false;
+
+		for(IBuildResource rc : step.getOutputResources()){
+			IPath location = rc.getLocation();
+			if(location == null || !location.toFile().exists())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Records that the step is about to be executed. From now on its outputs may be
+	 * overwritten or removed, the key of its last successful build is no longer valid.
+	 */
+	public void stepStarted(IBuildStep step){
+		String id = getStepId(step);
+		if(id != null && fStepToKeyMap.remove(id) != null)
+			fIsDirty = true;
+	}
+
+	/**
+	 * Records that the step was built successfully with the given key.
+	 */
+	public void stepBuilt(IBuildStep step, String key){
+		String id = getStepId(step);
+		if(id == null)
+			return;
+
+		// The outputs were rewritten, do not trust their digests any more.
+		for(IBuildResource rc : step.getOutputResources()){
+			IPath location = rc.getLocation();
+			if(location != null)
+				fFileDigests.remove(location.toOSString());
+		}
+		if(!key.equals(fStepToKeyMap.put(id, key)))
+			fIsDirty = true;
+	}
+
+	public boolean isDirty(){
+		return fIsDirty;
+	}
+
+	public void load(InputStream iStream) throws IOException{
+		Properties props = new Properties();
+		props.load(iStream);
+		for (Entry<Object, Object> entry : props.entrySet()) {
+			fStepToKeyMap.put((String)entry.getKey(), (String)entry.getValue());
+		}
+		fIsDirty = false;
+	}
+
+	public void store(OutputStream oStream) throws IOException{
+		Properties props = new Properties();
+		props.putAll(fStepToKeyMap);
+		props.store(oStream, ""); //$NON-NLS-1$
+		fIsDirty = false;
+	}
+
+	/**
+	 * Steps are identified by their outputs, steps without outputs are not tracked.
+	 */
+	private static String getStepId(IBuildStep step){
+		IBuildResource outputs[] = step.getOutputResources();
+		if(outputs.length == 0)
+			return null;
+
+		String paths[] = new String[outputs.length];
+		for(int i = 0; i < outputs.length; i++){
+			IPath path = outputs[i].getFullPath();
+			if(path == null)
+				path = outputs[i].getLocation();
+			if(path == null)
+				return null;
+			paths[i] = path.toString();
+		}
+		Arrays.sort(paths);
+		StringBuilder buf = new StringBuilder(paths[0]);
+		for(int i = 1; i < paths.length; i++){
+			buf.append(File.pathSeparatorChar).append(paths[i]);
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Returns the digest of the file's contents, {@link #MISSING} if it does not exist
+	 * or <code>null</code> if it cannot be read.
+	 */
+	private String getFileDigest(String location){
+		File file = new File(location);
+		long lastModified = file.lastModified();
+		if(lastModified == 0)
+			return MISSING;
+
+		long length = file.length();
+		FileDigest digest = fFileDigests.get(location);
+		if(digest != null && digest.fLastModified == lastModified && digest.fLength == length)
+			return digest.fDigest;
+
+		MessageDigest md = createDigest();
+		byte buf[] = new byte[8192];
+		try {
+			InputStream iStream = new FileInputStream(file);
+			try {
+				int n;
+				while((n = iStream.read(buf)) > 0){
+					md.update(buf, 0, n);
+				}
+			} finally {
+				iStream.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+		String result = toHex(md.digest());
+		fFileDigests.put(location, new FileDigest(lastModified, length, result));
+		return result;
+	}
+
+	static MessageDigest createDigest(){
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-1
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static void update(MessageDigest md, String str){
+		md.update(str.getBytes(StandardCharsets.UTF_8));
+		md.update((byte)0);
+	}
+
+	static String toHex(byte bytes[]){
+		char chars[] = new char[bytes.length * 2];
+		for(int i = 0; i < bytes.length; i++){
+			chars[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+			chars[2 * i + 1] = HEX[bytes[i] & 0xf];
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,547 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.internal.buildmodel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildCommand;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildResource;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildStep;
+import org.eclipse.cdt.managedbuilder.core.IBuildObject;
+import org.eclipse.cdt.managedbuilder.core.IConfiguration;
+import org.eclipse.cdt.managedbuilder.core.ITool;
+import org.eclipse.cdt.managedbuilder.core.ManagedBuilderCorePlugin;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * Content addressed cache of the outputs of compilation steps, similar to ccache.
+ *
+ * An entry is keyed by a digest of the output of the preprocessor for the step's compilation,
+ * of the compilation's arguments other than its output file, and of the identity of the tool
+ * and its executable. When the compilation generates debug information, the working directory
+ * is part of the key, too, since the debug information refers to it. As in the preprocessor mode of ccache, the key does not depend on the
+ * header dependencies known to the build, the preprocessor reports every header that is read.
+ * An entry holds the outputs of the step and its console output, which is replayed when the
+ * entry is used, such that the error parsers see the same warnings as for an actual compilation.
+ *
+ * Only steps with a single command compiling with a GNU compatible compiler (<code>-c</code>)
+ * are cached, since the preprocessor has to be run with <code>-E</code>.
+ *
+ * The cache is kept in the state location of the plug-in and shared by all projects. Its size
+ * is bounded by the system property {@value #MAX_SIZE_PROPERTY}, in bytes, a size of 0 disables
+ * the cache. When the size is exceeded, the least recently used entries are removed.
+ */
+public class BuildObjectCache {
+	public static final String MAX_SIZE_PROPERTY = "org.eclipse.cdt.managedbuilder.objectCache.maxSize"; //$NON-NLS-1$
+	private static final long DEFAULT_MAX_SIZE = 1L << 30;
+	private static final String CACHE_LOCATION = "objectCache"; //$NON-NLS-1$
+	private static final String TMP_SUFFIX = ".tmp"; //$NON-NLS-1$
+	private static final int MAGIC = 0x4344434F;
+	private static final int VERSION = 3;
+	/** Names of GNU compatible compilers, optionally with a target prefix and a version suffix */
+	private static final Pattern COMPILER_NAME = Pattern.compile("(.*-)?(gcc|g\\+\\+|cc|c\\+\\+|clang|clang\\+\\+)(-[0-9.]+)?(\\.exe)?"); //$NON-NLS-1$
+	/** After an eviction the cache is filled to this fraction of the maximum size */
+	private static final double EVICTION_RATIO = 0.9;
+
+	private static BuildObjectCache fInstance;
+
+	private final File fDir;
+	private final long fMaxSize;
+	private long fSize = -1;
+
+	/**
+	 * Hit and miss counts of a single build.
+	 */
+	public static class Statistics {
+		private int fHits;
+		private int fMisses;
+
+		public synchronized void hit(){
+			fHits++;
+		}
+
+		public synchronized void miss(){
+			fMisses++;
+		}
+
+		public synchronized int getHits(){
+			return fHits;
+		}
+
+		public synchronized int getMisses(){
+			return fMisses;
+		}
+
+		/**
+		 * @return the percentage of the lookups that were hits
+		 */
+		public synchronized int getHitRate(){
+			int lookups = fHits + fMisses;
+			return lookups == 0 ? 0 : (int)Math.round(100.0 * fHits / lookups);
+		}
+	}
+
+	/**
+	 * Creates a cache kept in the given directory.
+	 *
+	 * @param dir the directory of the cache
+	 * @param maxSize the maximum size of the cache in bytes
+	 */
+	public BuildObjectCache(File dir, long maxSize){
+		fDir = dir;
+		fMaxSize = maxSize;
+	}
+
+	/**
+	 * @return the shared cache or <code>null</code> if the cache is disabled
+	 */
+	public static synchronized BuildObjectCache getInstance(){
+		if(fInstance == null){
+			long maxSize = Long.getLong(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE).longValue();
+			ManagedBuilderCorePlugin plugin = ManagedBuilderCorePlugin.getDefault();
+			if(maxSize <= 0 || plugin == null)
+				return null;
+			File dir = plugin.getStateLocation().append(CACHE_LOCATION).toFile();
+			fInstance = new BuildObjectCache(dir, maxSize);
+		}
+		return fInstance;
+	}
+
+	/**
+	 * Computes the cache key of a step. Runs the preprocessor for the step's compilation.
+	 *
+	 * @param step the step
+	 * @param cmds the commands the step is built with
+	 * @return the key or <code>null</code> if the outputs of the step are not cached
+	 */
+	public String getKey(IBuildStep step, IBuildCommand[] cmds){
+		if(!(step instanceof BuildStep) || cmds == null || cmds.length != 1)
+			return null;
+
+		// Only the compilation steps are cached, not the ones building the final artifact.
+		ITool tool = ((BuildStep)step).getTool();
+		if(tool == null)
+			return null;
+		IConfiguration cfg = step.getBuildDescription().getConfiguration();
+		ITool targetTool = cfg != null ? cfg.getTargetTool() : null;
+		if(targetTool != null && targetTool.getId().equals(tool.getId()))
+			return null;
+
+		IBuildObject parent = tool.getParent();
+		return getKey(tool.getId() + '/' + (parent != null ? parent.getId() : ""), cmds[0]); //$NON-NLS-1$
+	}
+
+	/**
+	 * Computes the cache key of a compilation. Runs the preprocessor for the compilation.
+	 *
+	 * @param toolId identifies the tool the compilation is run for
+	 * @param cmd the command of the compilation
+	 * @return the key or <code>null</code> if the outputs of the compilation are not cached
+	 */
+	public String getKey(String toolId, IBuildCommand cmd){
+		File executable = findExecutable(cmd);
+		if(executable == null || !COMPILER_NAME.matcher(executable.getName()).matches())
+			return null;
+		String args[] = getPreprocessorArguments(cmd.getArgs());
+		if(args == null)
+			return null;
+		String preprocessed = preprocess(executable, args, cmd);
+		if(preprocessed == null)
+			return null;
+
+		MessageDigest md = BuildActionLog.createDigest();
+		BuildActionLog.update(md, Integer.toString(VERSION));
+		BuildActionLog.update(md, toolId);
+		BuildActionLog.update(md, executable.getPath());
+		BuildActionLog.update(md, Long.toString(executable.length()));
+		BuildActionLog.update(md, Long.toString(executable.lastModified()));
+		for(String arg : args){
+			BuildActionLog.update(md, arg);
+		}
+		BuildActionLog.update(md, preprocessed);
+		// The debug information refers to the working directory, and to the files given by
+		// paths relative to it. Compilations in different directories have different outputs.
+		if(hasDebugInfo(args)){
+			IPath cwd = cmd.getCWD();
+			BuildActionLog.update(md, cwd != null ? cwd.toString() : ""); //$NON-NLS-1$
+		}
+		return BuildActionLog.toHex(md.digest());
+	}
+
+	/**
+	 * Computes the arguments running only the preprocessor for the given arguments of a
+	 * compilation. The options naming the output file and the dependency options are removed.
+	 *
+	 * @param args the arguments of a compilation
+	 * @return the arguments for the preprocessor or <code>null</code> if the arguments do not
+	 * compile a single file with <code>-c</code>
+	 */
+	public static String[] getPreprocessorArguments(String args[]){
+		if(args == null)
+			return null;
+
+		boolean compile = false;
+		List<String> result = new ArrayList<String>(args.length + 1);
+		for(int i = 0; i < args.length; i++){
+			String arg = args[i];
+			if(arg.equals("-c")){ //$NON-NLS-1$
+				compile = true;
+			} else if(arg.equals("-o") || arg.equals("-MF") || arg.equals("-MT") || arg.equals("-MQ")){ //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				i++;
+			} else if(arg.startsWith("-o") || arg.startsWith("-M")){ //$NON-NLS-1$ //$NON-NLS-2$
+				// Output file or dependency file generation
+			} else if(arg.equals("-E") || arg.equals("-S")){ //$NON-NLS-1$ //$NON-NLS-2$
+				return null;
+			} else {
+				result.add(arg);
+			}
+		}
+		if(!compile)
+			return null;
+		result.add("-E"); //$NON-NLS-1$
+		return result.toArray(new String[result.size()]);
+	}
+
+	/**
+	 * Returns whether the compilation with the given arguments generates debug information.
+	 */
+	private static boolean hasDebugInfo(String args[]){
+		boolean debug = false;
+		for(String arg : args){
+			if(arg.startsWith("-g") && !arg.startsWith("-gno-")) //$NON-NLS-1$ //$NON-NLS-2$
+				debug = !arg.equals("-g0") && !arg.equals("-ggdb0"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return debug;
+	}
+
+	/**
+	 * Runs the preprocessor and returns the digest of its output, or <code>null</code>
+	 * if it fails.
+	 */
+	private static String preprocess(File executable, String args[], IBuildCommand cmd){
+		List<String> command = new ArrayList<String>(args.length + 1);
+		command.add(executable.getPath());
+		Collections.addAll(command, args);
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectErrorStream(true);
+		IPath cwd = cmd.getCWD();
+		if(cwd != null)
+			builder.directory(cwd.toFile());
+		Map<String, String> env = cmd.getEnvironment();
+		if(env != null){
+			builder.environment().clear();
+			builder.environment().putAll(env);
+		}
+
+		MessageDigest md = BuildActionLog.createDigest();
+		try {
+			Process process = builder.start();
+			InputStream in = process.getInputStream();
+			try {
+				byte buf[] = new byte[8192];
+				int n;
+				while((n = in.read(buf)) > 0){
+					md.update(buf, 0, n);
+				}
+			} finally {
+				in.close();
+			}
+			if(process.waitFor() != 0)
+				return null;
+		} catch (IOException e) {
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		return BuildActionLog.toHex(md.digest());
+	}
+
+	/**
+	 * Restores the outputs of the step and replays its console output from the cache.
+	 *
+	 * @return whether the cache contains an entry for the key
+	 */
+	public boolean restore(String key, IBuildStep step, OutputStream out, OutputStream err){
+		File entry = getEntryFile(key);
+		if(!entry.isFile())
+			return false;
+
+		File outputs[] = getOutputFiles(step);
+		if(outputs == null)
+			return false;
+
+		byte stdout[];
+		byte stderr[];
+		List<File> restored = new ArrayList<File>(outputs.length);
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entry)));
+			try {
+				if(in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != outputs.length)
+					return false;
+				for(File output : outputs){
+					File tmp = new File(output.getPath() + TMP_SUFFIX);
+					long length = in.readLong();
+					OutputStream oStream = new BufferedOutputStream(new FileOutputStream(tmp));
+					try {
+						copy(in, oStream, length);
+					} finally {
+						oStream.close();
+					}
+					restored.add(tmp);
+				}
+				stdout = new byte[in.readInt()];
+				in.readFully(stdout);
+				stderr = new byte[in.readInt()];
+				in.readFully(stderr);
+			} finally {
+				in.close();
+			}
+
+			for(int i = 0; i < outputs.length; i++){
+				Files.move(restored.get(i).toPath(), outputs[i].toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			restored.clear();
+		} catch (IOException e) {
+			if(DbgUtil.DEBUG)
+				DbgUtil.trace("failed to restore cache entry " + key + ", error: " + e.getLocalizedMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+			return false;
+		} finally {
+			for(File tmp : restored){
+				tmp.delete();
+			}
+		}
+
+		// Mark the entry as recently used
+		entry.setLastModified(System.currentTimeMillis());
+
+		write(out, stdout);
+		write(err, stderr);
+		return true;
+	}
+
+	/**
+	 * Adds the outputs of a step that has been built successfully to the cache.
+	 */
+	public void store(String key, IBuildStep step, byte[] stdout, byte[] stderr){
+		File outputs[] = getOutputFiles(step);
+		if(outputs == null)
+			return;
+
+		long size = 0;
+		for(File output : outputs){
+			if(!output.isFile())
+				return;
+			size += output.length();
+		}
+		if(size > fMaxSize)
+			return;
+
+		File entry = getEntryFile(key);
+		File tmp = new File(entry.getPath() + '.' + Thread.currentThread().getId() + TMP_SUFFIX);
+		try {
+			entry.getParentFile().mkdirs();
+			DataOutputStream oStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+			try {
+				oStream.writeInt(MAGIC);
+				oStream.writeInt(VERSION);
+				oStream.writeInt(outputs.length);
+				for(File output : outputs){
+					InputStream in = new FileInputStream(output);
+					try {
+						long length = output.length();
+						oStream.writeLong(length);
+						copy(in, oStream, length);
+					} finally {
+						in.close();
+					}
+				}
+				oStream.writeInt(stdout.length);
+				oStream.write(stdout);
+				oStream.writeInt(stderr.length);
+				oStream.write(stderr);
+			} finally {
+				oStream.close();
+			}
+			long entrySize = tmp.length();
+			long oldSize = entry.isFile() ? entry.length() : 0;
+			try {
+				Files.move(tmp.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			added(entrySize - oldSize);
+		} catch (IOException e) {
+			tmp.delete();
+			if(DbgUtil.DEBUG)
+				DbgUtil.trace("failed to store cache entry " + key + ", error: " + e.getLocalizedMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Accounts for an entry added to the cache and evicts the least recently used
+	 * entries if the cache grew too large.
+	 */
+	private synchronized void added(long size){
+		if(fSize < 0){
+			fSize = 0;
+			for(File entry : listEntries()){
+				fSize += entry.length();
+			}
+		} else {
+			fSize += size;
+		}
+		if(fSize <= fMaxSize)
+			return;
+
+		// Recount, entries may have been replaced in the meantime
+		List<File> entries = listEntries();
+		final Map<File, Long> lastModified = new HashMap<File, Long>();
+		fSize = 0;
+		for(File entry : entries){
+			lastModified.put(entry, Long.valueOf(entry.lastModified()));
+			fSize += entry.length();
+		}
+		Collections.sort(entries, new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				return lastModified.get(f1).compareTo(lastModified.get(f2));
+			}
+		});
+
+		long limit = (long)(fMaxSize * EVICTION_RATIO);
+		for(int i = 0; i < entries.size() && fSize > limit; i++){
+			File entry = entries.get(i);
+			long length = entry.length();
+			if(entry.delete())
+				fSize -= length;
+		}
+	}
+
+	private List<File> listEntries(){
+		File dirs[] = fDir.listFiles();
+		if(dirs == null)
+			return Collections.emptyList();
+
+		List<File> entries = new ArrayList<File>();
+		for(File dir : dirs){
+			File files[] = dir.listFiles();
+			if(files == null)
+				continue;
+			for(File file : files){
+				if(!file.getName().endsWith(TMP_SUFFIX))
+					entries.add(file);
+			}
+		}
+		return entries;
+	}
+
+	private File getEntryFile(String key){
+		return new File(new File(fDir, key.substring(0, 2)), key.substring(2));
+	}
+
+	/**
+	 * Returns the output files of the step in a stable order, or <code>null</code>
+	 * if the step has no outputs or one of them has no location.
+	 */
+	private static File[] getOutputFiles(IBuildStep step){
+		IBuildResource rcs[] = step.getOutputResources();
+		if(rcs.length == 0)
+			return null;
+
+		File files[] = new File[rcs.length];
+		for(int i = 0; i < rcs.length; i++){
+			IPath location = rcs[i].getLocation();
+			if(location == null)
+				return null;
+			files[i] = location.toFile();
+		}
+		Arrays.sort(files);
+		return files;
+	}
+
+	/**
+	 * Finds the executable of the command, either given by an absolute path
+	 * or on the path of the command's environment.
+	 */
+	private static File findExecutable(IBuildCommand cmd){
+		IPath command = cmd.getCommand();
+		if(command == null)
+			return null;
+		if(command.isAbsolute()){
+			File file = command.toFile();
+			return file.isFile() ? file : null;
+		}
+		if(command.segmentCount() != 1)
+			return null;
+
+		Map<String, String> env = cmd.getEnvironment();
+		String path = env != null ? env.get("PATH") : null; //$NON-NLS-1$
+		if(path == null)
+			path = System.getenv("PATH"); //$NON-NLS-1$
+		if(path == null)
+			return null;
+
+		String name = command.toOSString();
+		for(String dir : path.split(File.pathSeparator)){
+			File file = new File(dir, name);
+			if(file.isFile())
+				return file;
+			file = new File(dir, name + ".exe"); //$NON-NLS-1$
+			if(file.isFile())
+				return file;
+		}
+		return null;
+	}
+
+	private static void copy(InputStream in, OutputStream out, long length) throws IOException{
+		byte buf[] = new byte[8192];
+		while(length > 0){
+			int n = in.read(buf, 0, (int)Math.min(buf.length, length));
+			if(n < 0)
+				throw new IOException("Unexpected end of file"); //$NON-NLS-1$
+			out.write(buf, 0, n);
+			length -= n;
+		}
+	}
+
+	private static void write(OutputStream out, byte[] bytes){
+		if(out == null || bytes.length == 0)
+			return;
+		try {
+			out.write(bytes);
+			out.flush();
+		} catch (IOException e) {
+			// ignore
+		}
+	}
+}
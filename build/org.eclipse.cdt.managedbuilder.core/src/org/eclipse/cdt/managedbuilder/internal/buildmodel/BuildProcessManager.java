@@ -12,6 +12,8 @@
 package org.eclipse.cdt.managedbuilder.internal.buildmodel;
 
 import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -20,6 +22,7 @@ import java.util.Set;
 import java.util.Vector;
 
 import org.eclipse.cdt.managedbuilder.buildmodel.IBuildCommand;
+import org.eclipse.cdt.managedbuilder.internal.core.Builder;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 
@@ -32,6 +35,19 @@ public class BuildProcessManager {
 	protected boolean show;
 	protected Vector<ProcessLauncher> processes;
 	protected int maxProcesses;
+	protected int cpuNumber;
+	protected OperatingSystemMXBean osBean;
+	protected final Object terminationLock = new Object();
+	protected boolean terminated;
+	protected Runnable terminationListener = new Runnable() {
+		@Override
+		public void run() {
+			synchronized (terminationLock) {
+				terminated = true;
+				terminationLock.notifyAll();
+			}
+		}
+	};
 	
 	/**
 	 * Initializes process manager
@@ -46,6 +62,8 @@ public class BuildProcessManager {
 		show = _show;
 		maxProcesses = _procNumber;
 		processes = new Vector<ProcessLauncher>(Math.min(10, maxProcesses), 10);
+		cpuNumber = Runtime.getRuntime().availableProcessors();
+		osBean = ManagementFactory.getOperatingSystemMXBean();
 	}
 	
 	/**
@@ -68,6 +86,7 @@ public class BuildProcessManager {
 		for (int i = 0; i < maxProcesses; i++) {
 			if (i >= processes.size()) {
 				ProcessLauncher process = new ProcessLauncher(cmd.getCommand(), cmd.getArgs(), mapToStringArray(cmd.getEnvironment()), cwd, out, err, monitor, show);
+				process.setTerminationListener(terminationListener);
 				processes.add(process);
 				process.launch();
 				return process;
@@ -75,6 +94,7 @@ public class BuildProcessManager {
 			}
 			if (processes.get(i).queryState() == ProcessLauncher.STATE_DONE) {
 				ProcessLauncher process = new ProcessLauncher(cmd.getCommand(), cmd.getArgs(), mapToStringArray(cmd.getEnvironment()), cwd, out, err, monitor, show);
+				process.setTerminationListener(terminationListener);
 				processes.set(i, process);
 				process.launch();
 				return process;
@@ -99,17 +119,54 @@ public class BuildProcessManager {
 	}
 
 	/**
-	 * Checks states of all currently running processes. 
+	 * Checks whether another process may be launched, taking the
+	 * system load into account, see {@link #getProcessLimit(int)}.
 	 */
 	public boolean hasEmpty() {
-		if (processes.size() < maxProcesses)
-			return true;
-		
+		int running = 0;
 		for (ProcessLauncher process : processes) {
-			if (process.queryState() != ProcessLauncher.STATE_RUNNING) 
-				return true;
+			if (process.queryState() == ProcessLauncher.STATE_RUNNING) 
+				running++;
+		}
+		return running < getProcessLimit(running);
+	}
+
+	/**
+	 * Returns the number of processes that may currently run. An explicit
+	 * number of jobs applies as is, like for make -jN. With an unlimited
+	 * number of jobs, processes beyond the number of processors are only
+	 * launched while the system load average leaves processors idle.
+	 * 
+	 * @param running Number of processes currently running
+	 */
+	protected int getProcessLimit(int running) {
+		if (maxProcesses != Builder.UNLIMITED_JOBS)
+			return maxProcesses;
+		double load = osBean.getSystemLoadAverage();
+		if (load < 0) // not available on this platform
+			return maxProcesses;
+		long limit = running + (long) Math.floor(cpuNumber - load);
+		return (int) Math.min(maxProcesses, Math.max(cpuNumber, limit));
+	}
+
+	/**
+	 * Waits until one of the launched processes terminates, at most for the
+	 * given time. Returns immediately if a process has terminated since the
+	 * previous call.
+	 * 
+	 * @param timeout Maximum time to wait in milliseconds
+	 */
+	public void waitForTermination(long timeout) {
+		synchronized (terminationLock) {
+			if (!terminated) {
+				try {
+					terminationLock.wait(timeout);
+				} catch (InterruptedException e) {
+					// do nothing
+				}
+			}
+			terminated = false;
 		}
-		return false;
 	}
 
 	/**
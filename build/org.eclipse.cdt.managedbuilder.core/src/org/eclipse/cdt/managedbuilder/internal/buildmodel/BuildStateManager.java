@@ -98,15 +98,11 @@ public class BuildStateManager {
 				ICDescriptionDelta[] children = delta.getChildren();
 				for(int i = 0; i < children.length; i++){
 					if(children[i].getDeltaKind() == ICDescriptionDelta.REMOVED){
-						if(pbs == null){
+						if(pbs == null)
 							pbs = getProjectBuildState(event.getProject());
-							String id = children[i].getSetting().getId();
-							IConfigurationBuildState cbs = pbs.getConfigurationBuildState(id, false);
-							if(cbs != null){
-								apply = true;
-								pbs.removeConfigurationBuildState(id);
-							}
-						}
+						// The action log may exist without a build state
+						pbs.removeConfiguration(children[i].getSetting().getId());
+						apply = true;
 					}
 				}
 				break;
@@ -33,6 +33,7 @@ public class ConfigurationBuildState implements IConfigurationBuildState {
 	private String fCfgId;
 	private IProject fProject;
 	private int fState;
+	private BuildActionLog fActionLog = new BuildActionLog();
 
 	ConfigurationBuildState(IProject project, String cfgId){
 		fCfgId = cfgId;
@@ -213,6 +214,11 @@ public class ConfigurationBuildState implements IConfigurationBuildState {
 		return fProject;
 	}
 
+	@Override
+	public BuildActionLog getActionLog() {
+		return fActionLog;
+	}
+
 	public boolean exists(){
 		return fState == 0;
 	}
@@ -41,6 +41,7 @@ import org.eclipse.core.runtime.SubProgressMonitor;
 public class DescriptionBuilder implements IBuildModelBuilder {
 	private static final String BUILDER_MSG_HEADER = "InternalBuilder.msg.header"; //$NON-NLS-1$
 	private static final String BUILDER_NOTHING_TODO = "InternalBuilder.nothing.todo"; //$NON-NLS-1$
+	private static final String BUILDER_CACHE_STATISTICS = "InternalBuilder.cache.statistics"; //$NON-NLS-1$
 	private static final String LINE_SEPARATOR = System.getProperty("line.separator", "\n"); //$NON-NLS-1$ //$NON-NLS-2$
 
 
@@ -52,6 +53,8 @@ public class DescriptionBuilder implements IBuildModelBuilder {
 	private int fNumCommands = -1;
 	private GenDirInfo fDir;
 	private IResourceRebuildStateContainer fRebuildStateContainer;
+	private BuildObjectCache fObjectCache;
+	private BuildObjectCache.Statistics fCacheStatistics = new BuildObjectCache.Statistics();
 
 	private class BuildStepVisitor implements IStepVisitor{
 		private OutputStream fOut;
@@ -137,6 +140,8 @@ public class DescriptionBuilder implements IBuildModelBuilder {
 			fCWD = fDes.getDefaultBuildDirLocation();
 
 		fRebuildStateContainer = rs;
+		if(rs instanceof IConfigurationBuildState)
+			fObjectCache = BuildObjectCache.getInstance();
 	}
 
 	/* (non-Javadoc)
@@ -174,6 +179,16 @@ public class DescriptionBuilder implements IBuildModelBuilder {
 
 		monitor.done();
 
+		if(fCacheStatistics.getHits() + fCacheStatistics.getMisses() > 0){
+			printMessage(
+					ManagedMakeMessages.getFormattedString(BUILDER_CACHE_STATISTICS,
+							new String[] {
+									Integer.toString(fCacheStatistics.getHits()),
+									Integer.toString(fCacheStatistics.getMisses()),
+									Integer.toString(fCacheStatistics.getHitRate())}),
+					out);
+		}
+
 		if(status == STATUS_OK)
 			clearRebuildStates();
 
@@ -200,6 +215,7 @@ public class DescriptionBuilder implements IBuildModelBuilder {
 		StepBuilder b = fStepToStepBuilderMap.get(step);
 		if(b == null){
 			b = new StepBuilder(step, fCWD, fResumeOnErrs, fDir, fRebuildStateContainer);
+			b.setObjectCache(fObjectCache, fCacheStatistics);
 			fStepToStepBuilderMap.put(step, b);
 		}
 		return b;
@@ -17,4 +17,9 @@ public interface IConfigurationBuildState extends IResourceRebuildStateContainer
 	String getConfigurationId();
 	
 	IProject getProject();
+
+	/**
+	 * @return the log of the steps performed for the configuration, never <code>null</code>
+	 */
+	BuildActionLog getActionLog();
 }
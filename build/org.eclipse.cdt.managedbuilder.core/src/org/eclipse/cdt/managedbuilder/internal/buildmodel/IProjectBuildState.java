@@ -17,7 +17,15 @@ public interface IProjectBuildState extends IRebuildState {
 	
 	IConfigurationBuildState getConfigurationBuildState(String id, boolean create);
 
+	/**
+	 * Marks the configuration as to be rebuilt. Its action log is kept.
+	 */
 	void removeConfigurationBuildState(String id);
+
+	/**
+	 * Removes the build state and the action log of a configuration that no longer exists.
+	 */
+	void removeConfiguration(String id);
 	
 	IProject getProject();
 }
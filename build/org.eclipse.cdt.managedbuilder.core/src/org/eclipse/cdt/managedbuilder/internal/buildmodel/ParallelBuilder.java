@@ -12,12 +12,18 @@ package org.eclipse.cdt.managedbuilder.internal.buildmodel;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
-import java.util.Vector;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.managedbuilder.buildmodel.IBuildCommand;
@@ -45,6 +51,7 @@ public class ParallelBuilder {
 	public static final int STATUS_ERROR = 1;
 	public static final int STATUS_CANCELED = 2;
 	public static final int STATUS_INVALID = -1;
+	/** Maximum time the main loop waits for a process to terminate before checking for cancellation */
 	public static final long MAIN_LOOP_DELAY = 50L;
 	
 	private static final String BUILDER_MSG_HEADER = "InternalBuilder.msg.header"; //$NON-NLS-1$ 
@@ -59,9 +66,11 @@ public class ParallelBuilder {
 	protected OutputStream err;
 	protected boolean resumeOnErrors;
 	protected boolean buildIncrementally;
+	protected BuildActionLog actionLog;
 	protected HashSet<BuildQueueElement> unsorted = new HashSet<BuildQueueElement>();
 	protected HashMap<IBuildStep, BuildQueueElement> queueHash = new HashMap<IBuildStep, BuildQueueElement>();
 	protected LinkedList<BuildQueueElement> queue = new LinkedList<BuildQueueElement>();
+	protected Set<BuildQueueElement> waiting = new LinkedHashSet<BuildQueueElement>();
 
 	/**
 	 * This class implements queue element
@@ -69,6 +78,14 @@ public class ParallelBuilder {
 	protected class BuildQueueElement implements Comparable<BuildQueueElement> {
 		protected IBuildStep step;
 		protected int level;
+		/** Position in the sorted queue */
+		protected int order;
+		/** Number of steps on the longest chain of queued steps starting with this one */
+		protected int criticalPath;
+		/** Number of queued steps producing inputs of this one that have not completed yet */
+		protected int prerequisites;
+		/** Queued steps consuming outputs of this one */
+		protected Set<BuildQueueElement> successors = new LinkedHashSet<BuildQueueElement>();
 		
 		public BuildQueueElement(IBuildStep _step, int _level) {
 			step = _step;
@@ -124,14 +141,22 @@ public class ParallelBuilder {
 	 * This class stores information about step being built
 	 */
 	protected class ActiveBuildStep {
+		protected BuildQueueElement element;
 		protected IPath stepCwd;
 		protected GenDirInfo stepDirs;
 		protected IBuildStep step;
 		protected IBuildCommand[] cmds;
 		protected int activeCmd;
 		protected boolean done;
+		protected boolean failed;
+		protected String actionKey;
 		protected ProcessLauncher launcher;
 		
+		public ActiveBuildStep(BuildQueueElement _element) {
+			this(_element.getStep());
+			element = _element;
+		}
+
 		public ActiveBuildStep(IBuildStep _step) {
 			step = _step;
 			
@@ -149,6 +174,11 @@ public class ParallelBuilder {
 			createOutDirs();
 		}
 		
+		/**
+		 * Launches the next command of the step. Returns false if there is no
+		 * command left, then the step is done, or if the process pool has no
+		 * room for it, then the attempt can be repeated later.
+		 */
 		public boolean launchNextCmd(BuildProcessManager mgr) {
 			if (monitor.isCanceled()) {
 				done = true;
@@ -157,14 +187,44 @@ public class ParallelBuilder {
 			if (activeCmd + 1 >= cmds.length)
 				done = true;
 			else {
-				IBuildCommand cmd = cmds[++activeCmd];
-				launcher = mgr.launchProcess(cmd, stepCwd, monitor); 
-				if (launcher != null) return true;
-				activeCmd--;
-				done = true; // temporary
+				if (activeCmd < 0 && actionLog != null)
+					actionLog.stepStarted(step);
+				IBuildCommand cmd = cmds[activeCmd + 1];
+				ProcessLauncher next = mgr.launchProcess(cmd, stepCwd, monitor); 
+				if (next != null) {
+					activeCmd++;
+					launcher = next;
+					return true;
+				}
 			}
 			return false;
 		}
+
+		/**
+		 * Returns true if the step does not need to be executed according to
+		 * the action log, then the step is done
+		 */
+		public boolean isUpToDate() {
+			if (actionLog == null)
+				return false;
+			actionKey = actionLog.getKey(step, cmds);
+			if (actionKey != null && actionLog.isUpToDate(step, actionKey)) {
+				done = true;
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Returns true if all commands of the step have been run successfully
+		 */
+		public boolean isSucceeded() {
+			return done && !failed && cmds != null && activeCmd + 1 >= cmds.length && !monitor.isCanceled();
+		}
+
+		public BuildQueueElement getElement() {
+			return element;
+		}
 		
 		public boolean isDone() {
 			return done;
@@ -190,7 +250,8 @@ public class ParallelBuilder {
 	 * Build process is divided into following steps:
 	 * 1. Resources enqueueing & levelling
 	 * 2. Queue sorting
-	 * 3. Queue dispatching
+	 * 3. Queue dispatching, steps are started as soon as their prerequisites
+	 *    are built, the ones with the longest critical path first
 	 * 
 	 * @param des Build description
 	 * @param cwd Working directory
@@ -205,6 +266,17 @@ public class ParallelBuilder {
 	 *         ParallelBuilder#STATUS_INVALID}. *
 	 */
 	static public int build(IBuildDescription des, IPath cwd, GenDirInfo dirs, OutputStream out, OutputStream err, IProgressMonitor monitor, boolean resumeOnErrors, boolean buildIncrementally) {
+		return build(des, cwd, dirs, out, err, monitor, resumeOnErrors, buildIncrementally, null);
+	}
+
+	/**
+	 * Builds the description like {@link #build(IBuildDescription, IPath, GenDirInfo, OutputStream, OutputStream, IProgressMonitor, boolean, boolean)},
+	 * skipping the steps that are up to date according to the given action log
+	 * and recording the steps built successfully in it.
+	 *
+	 * @param actionLog the action log or <code>null</code>
+	 */
+	static public int build(IBuildDescription des, IPath cwd, GenDirInfo dirs, OutputStream out, OutputStream err, IProgressMonitor monitor, boolean resumeOnErrors, boolean buildIncrementally, BuildActionLog actionLog) {
 		IConfiguration cfg = des.getConfiguration();
 		if(dirs == null) dirs = new GenDirInfo(cfg);
 		if(cwd == null)  cwd = des.getDefaultBuildDirLocation();
@@ -213,6 +285,7 @@ public class ParallelBuilder {
 			threads = ((Configuration)cfg).getParallelNumber();
 		}
 		ParallelBuilder builder = new ParallelBuilder(cwd, dirs, out, err, monitor, resumeOnErrors, buildIncrementally);
+		builder.actionLog = actionLog;
 		builder.enqueueAll(des);
 		builder.sortQueue();
 		monitor.beginTask("", builder.queue.size()); //$NON-NLS-1$
@@ -294,15 +367,92 @@ public class ParallelBuilder {
 		queueHash.put(step, elem);
 	}
 	
+	/**
+	 * Links each queued step with the queued steps producing its inputs and
+	 * computes the critical paths. Returns the steps that can be built right
+	 * away, the remaining ones are kept in {@link #waiting}.
+	 */
+	protected PriorityQueue<BuildQueueElement> initSchedule() {
+		Map<IBuildStep, BuildQueueElement> elements = new HashMap<IBuildStep, BuildQueueElement>();
+		int order = 0;
+		for (BuildQueueElement elem : queue) {
+			elem.order = order++;
+			elements.put(elem.getStep(), elem);
+		}
+		for (BuildQueueElement elem : queue) {
+			for (IBuildResource bldRes : elem.getStep().getInputResources()) {
+				BuildQueueElement producer = elements.get(bldRes.getProducerStep());
+				if (producer != null && producer != elem && producer.successors.add(elem))
+					elem.prerequisites++;
+			}
+		}
+
+		for (BuildQueueElement elem : queue) {
+			elem.criticalPath = -1;
+		}
+		for (BuildQueueElement elem : queue) {
+			computeCriticalPath(elem);
+		}
+
+		PriorityQueue<BuildQueueElement> ready = new PriorityQueue<BuildQueueElement>(Math.max(1, queue.size()),
+				new Comparator<BuildQueueElement>() {
+					@Override
+					public int compare(BuildQueueElement elem1, BuildQueueElement elem2) {
+						if (elem1.criticalPath != elem2.criticalPath)
+							return elem1.criticalPath > elem2.criticalPath ? -1 : 1;
+						return elem1.order - elem2.order;
+					}
+				});
+		for (BuildQueueElement elem : queue) {
+			if (elem.prerequisites == 0)
+				ready.add(elem);
+			else
+				waiting.add(elem);
+		}
+		return ready;
+	}
+
+	/**
+	 * Computes the length of the longest chain of queued steps starting with
+	 * the given one. A dependency cycle is cut where it is detected.
+	 */
+	protected int computeCriticalPath(BuildQueueElement elem) {
+		if (elem.criticalPath >= 0)
+			return elem.criticalPath;
+		elem.criticalPath = 0; // in progress
+		int longest = 0;
+		for (BuildQueueElement successor : elem.successors) {
+			longest = Math.max(longest, computeCriticalPath(successor));
+		}
+		elem.criticalPath = longest + 1;
+		return elem.criticalPath;
+	}
+
+	/**
+	 * Records a completed step and moves the steps that only waited for it to
+	 * the ready queue
+	 */
+	protected void stepCompleted(ActiveBuildStep buildStep, PriorityQueue<BuildQueueElement> ready) {
+		refreshOutputs(buildStep.getStep());
+		if (buildStep.actionKey != null && buildStep.isSucceeded())
+			actionLog.stepBuilt(buildStep.getStep(), buildStep.actionKey);
+		monitor.worked(1);
+		BuildQueueElement elem = buildStep.getElement();
+		if (elem != null) {
+			for (BuildQueueElement successor : elem.successors) {
+				if (--successor.prerequisites == 0 && waiting.remove(successor))
+					ready.add(successor);
+			}
+		}
+	}
+
 	/**
 	 * Dispatches the build queue and returns build status
 	 */
 	protected int dispatch(BuildProcessManager mgr) {
-		int maxProcesses = mgr.getMaxProcesses();
-		Vector<ActiveBuildStep> active = new Vector<ActiveBuildStep>(Math.min(maxProcesses, 10), 10);
+		PriorityQueue<BuildQueueElement> ready = initSchedule();
+		List<ActiveBuildStep> active = new ArrayList<ActiveBuildStep>();
 		
-		int activeCount = 0;
-		int maxLevel = 0;
 		int status = STATUS_OK;
 		String errorMsg = null;
 		
@@ -325,128 +475,62 @@ public class ParallelBuilder {
 				errorMsg = launcher.getErrorMessage();
 				break main_loop;
 			}
-			// Everything goes OK.
-			boolean proceed = true;
-			
-			// Check if there is room for new process
-			if (!mgr.hasEmpty()) {
-				proceed = false;
-			} else {
-				// Check "active steps" list for completed ones
-				for (ActiveBuildStep buildStep : active) {
-					ProcessLauncher pl = buildStep.getLauncher();
-					if (pl == null) continue; 
-					if (pl.queryState() == ProcessLauncher.STATE_DONE) {
-						// If process has terminated with error, break loop
-						// (except resumeOnErrors == true)
-						
-						if (!resumeOnErrors && pl.getExitCode() != 0) {
-							status = STATUS_ERROR;
-							break main_loop;
-						}
-						// Try to launch next command for the current active step
-						if (buildStep.isDone()) continue;
-						if (buildStep.launchNextCmd(mgr)) {
-							// Command has been launched. Check if process pool is not maximized yet
-							if (!mgr.hasEmpty()) {
-								proceed = false;
-								break;
-							}
-						} else {
-							// Command has not been launched: step complete
-							refreshOutputs(buildStep.getStep());
-							activeCount--;
-							monitor.worked(1);
-						}
+			boolean progress = false;
+
+			// Check "active steps" list for completed commands
+			for (Iterator<ActiveBuildStep> iter = active.iterator(); iter.hasNext();) {
+				ActiveBuildStep buildStep = iter.next();
+				ProcessLauncher pl = buildStep.getLauncher();
+				if (pl != null && pl.queryState() != ProcessLauncher.STATE_DONE)
+					continue;
+				// If process has terminated with error, break loop
+				// (except resumeOnErrors == true)
+				if (pl != null && pl.getExitCode() != 0) {
+					buildStep.failed = true;
+					if (!resumeOnErrors) {
+						status = STATUS_ERROR;
+						break main_loop;
 					}
 				}
-			}
-			
-			// If nothing to do, then sleep and continue main loop
-			if (!proceed) {
-				try {
-					Thread.sleep(MAIN_LOOP_DELAY);
-				} catch (InterruptedException e) {
-					// do nothing
+				// Try to launch next command for the current active step
+				if (buildStep.launchNextCmd(mgr)) {
+					progress = true;
+				} else if (buildStep.isDone()) {
+					// Command has not been launched: step complete
+					iter.remove();
+					stepCompleted(buildStep, ready);
+					progress = true;
 				}
-				continue main_loop;
 			}
-			
-			// Check if we need to schedule another process
-			if (queue.size() != 0 && activeCount < maxProcesses) {
-				// Need to schedule another process 
-				Iterator<BuildQueueElement> iter = queue.iterator();
-
-				// Iterate over build queue
-				while (iter.hasNext()) {
-					BuildQueueElement elem = iter.next();
-					
-					// If "active steps" list reaches maximum, then break loop
-					if (activeCount == maxProcesses)
-						break;
-					
-					// If current element's level exceeds maximum level of currently built
-					// resources, then stop iteration (we can not build it anyway)
-					if (elem.getLevel() > maxLevel + 1)
-						break;
-
-					//Check if all prerequisites are built
-					boolean prereqBuilt = true;
-					for (IBuildResource bldRes : elem.getStep().getInputResources()) {
-						IBuildStep step = bldRes.getProducerStep(); // step which produces input for curr
-						boolean built = true;
-						if (step != step.getBuildDescription().getInputStep()) {
-							for (ActiveBuildStep buildStep : active) {
-								if (buildStep != null && buildStep.getStep().equals(step) && !buildStep.isDone()) {
-									built = false;
-									break;
-								}
-							}
-						}
-						if (!built) {
-							prereqBuilt = false;
-							break;
-						}
-					}
 
-					if (prereqBuilt) {
-						// All prereqs are built
-						IBuildStep step = elem.getStep();
-						
-						// Remove element from the build queue and add it to the
-						// "active steps" list.
-						iter.remove();
-						for (int i = 0; i < maxProcesses; i++) {
-							if (i >= active.size()) {
-								// add new item
-								ActiveBuildStep buildStep = new ActiveBuildStep(step);
-								active.add(buildStep);
-								if (buildStep.launchNextCmd(mgr))
-									activeCount++;
-								break;
-							}
-							if (active.get(i).isDone()) {
-								// replace old item
-								ActiveBuildStep buildStep = new ActiveBuildStep(step);
-								active.set(i, buildStep);
-								if (buildStep.launchNextCmd(mgr))
-									activeCount++;
-								break;
-							}
-						}
-						
-						// Update maxLevel
-						if (elem.getLevel() > maxLevel)
-							maxLevel = elem.getLevel();
-						// We don't need to start new process immediately since
-						// it will be done on the next main loop iteration
-					}
+			// Launch the ready steps while there is room for new processes
+			while (!ready.isEmpty() && mgr.hasEmpty()) {
+				ActiveBuildStep buildStep = new ActiveBuildStep(ready.poll());
+				progress = true;
+				if (buildStep.isUpToDate()) {
+					// Built before with the same commands and inputs
+					stepCompleted(buildStep, ready);
+				} else if (buildStep.launchNextCmd(mgr) || !buildStep.isDone()) {
+					active.add(buildStep);
+				} else {
+					// Nothing to launch: step complete
+					stepCompleted(buildStep, ready);
 				}
 			}
-			
+
 			// Now finally, check if we're done
-			if (activeCount <= 0 && queue.size() == 0) 
-				break main_loop;
+			if (active.isEmpty() && ready.isEmpty()) {
+				if (waiting.isEmpty())
+					break main_loop;
+				// The remaining steps depend on each other, build them anyway
+				ready.addAll(waiting);
+				waiting.clear();
+				continue main_loop;
+			}
+
+			// If nothing has changed, wait for a process to terminate
+			if (!progress)
+				mgr.waitForTermination(MAIN_LOOP_DELAY);
 		}
 
 		if (status != STATUS_OK && errorMsg != null) 
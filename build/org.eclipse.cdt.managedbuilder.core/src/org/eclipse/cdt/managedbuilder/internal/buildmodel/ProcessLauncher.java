@@ -42,6 +42,7 @@ public class ProcessLauncher {
 	protected Process process;
 	protected ProcessClosure closure = null;
 	protected int state;
+	protected Runnable terminationListener;
 
 	/**
 	 * Returns command line as a string array
@@ -119,6 +120,14 @@ public class ProcessLauncher {
 		lineSeparator = System.getProperty("line.separator", "\n"); //$NON-NLS-1$ //$NON-NLS-2$
 	}
 	
+	/**
+	 * Sets a listener that is notified, on another thread, when the process
+	 * has terminated or failed to launch. Has to be set before launching.
+	 */
+	public void setTerminationListener(Runnable listener) {
+		terminationListener = listener;
+	}
+
 	/**
 	 * Launches a process
 	 */
@@ -129,6 +138,7 @@ public class ProcessLauncher {
 			state = STATE_RUNNING;
 			process = ProcessFactory.getFactory().exec(cmd, env, cwd); 
 			closure = new ProcessClosure(process, out, err);
+			closure.setTerminationListener(terminationListener);
 			// Close the input of the process since we will never write to it
 			try {
 				process.getOutputStream().close();
@@ -139,6 +149,8 @@ public class ProcessLauncher {
 		} catch (IOException e) {
 			error = e.getMessage();
 			closure = null;
+			if (terminationListener != null)
+				terminationListener.run();
 		}
 	}
 	
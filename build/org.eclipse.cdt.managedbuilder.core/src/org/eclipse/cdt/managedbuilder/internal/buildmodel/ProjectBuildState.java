@@ -20,6 +20,7 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -31,8 +32,11 @@ import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.IPath;
 
 public class ProjectBuildState implements IProjectBuildState {
+	private static final String ACTION_LOG_SUFFIX = ".actions"; //$NON-NLS-1$
+
 	private Properties fCfgIdToFileNameProps;
 	private Map<String, ConfigurationBuildState> fCfgIdToStateMap = new HashMap<String, ConfigurationBuildState>();
+	private Set<String> fRemovedCfgIds = new HashSet<String>();
 	private IProject fProject;
 	private boolean fIsMapInfoDirty;
 
@@ -75,9 +79,25 @@ public class ProjectBuildState implements IProjectBuildState {
 				ManagedBuilderCorePlugin.log(e);
 			}
 		}
+
+		// The action log outlives the state of a configuration that needs to be rebuilt.
+		File logFile = file != null ? getActionLogFile(file) : null;
+		if(logFile != null && logFile.exists()){
+			try {
+				InputStream iStream = new FileInputStream(logFile);
+				bs.getActionLog().load(iStream);
+				iStream.close();
+			} catch (IOException e) {
+				ManagedBuilderCorePlugin.log(e);
+			}
+		}
 		return bs;
 	}
 
+	private File getActionLogFile(File cfgFile){
+		return new File(cfgFile.getPath() + ACTION_LOG_SUFFIX);
+	}
+
 	@Override
 	public IConfigurationBuildState[] getConfigurationBuildStates() {
 		Properties props = getIdToNameProperties();
@@ -100,6 +120,12 @@ public class ProjectBuildState implements IProjectBuildState {
 		}
 	}
 
+	@Override
+	public void removeConfiguration(String id) {
+		fCfgIdToStateMap.remove(id);
+		fRemovedCfgIds.add(id);
+	}
+
 	@Override
 	public int getState() {
 		// TODO Auto-generated method stub
@@ -196,18 +222,27 @@ public class ProjectBuildState implements IProjectBuildState {
 	}
 
 	void serialize(){
+		for (String id : fRemovedCfgIds) {
+			File file = getFileForCfg(id, false);
+			if(file != null){
+				file.delete();
+				getActionLogFile(file).delete();
+				getFileName(id, OP_REMOVE);
+			}
+		}
+		fRemovedCfgIds.clear();
 
 		Collection<ConfigurationBuildState> cbStates = fCfgIdToStateMap.values();
 		for (ConfigurationBuildState s : cbStates) {
 			String id = s.getConfigurationId();
+			File file;
 			if(!s.exists()){
-				File file = getFileForCfg(id, false);
-				if(file != null && file.exists()){
+				// Keep the file name of the configuration, it also names the action log.
+				file = getFileForCfg(id, false);
+				if(file != null)
 					file.delete();
-					getFileName(id, OP_REMOVE);
-				}
 			} else {
-				File file = getFileForCfg(id, true);
+				file = getFileForCfg(id, true);
 				File parent = file.getParentFile();
 				if(!parent.exists())
 					parent.mkdirs();
@@ -222,6 +257,17 @@ public class ProjectBuildState implements IProjectBuildState {
 					ManagedBuilderCorePlugin.log(e);
 				}
 			}
+
+			BuildActionLog log = s.getActionLog();
+			if(file != null && log.isDirty()){
+				try {
+					FileOutputStream oStream = new FileOutputStream(getActionLogFile(file));
+					log.store(oStream);
+					oStream.close();
+				} catch (IOException e) {
+					ManagedBuilderCorePlugin.log(e);
+				}
+			}
 		}
 
 		if(fIsMapInfoDirty)
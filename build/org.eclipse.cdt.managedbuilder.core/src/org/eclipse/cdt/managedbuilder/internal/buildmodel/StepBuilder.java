@@ -10,6 +10,8 @@
  *******************************************************************************/
 package org.eclipse.cdt.managedbuilder.internal.buildmodel;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 
 import org.eclipse.cdt.managedbuilder.buildmodel.BuildDescriptionManager;
@@ -45,8 +47,48 @@ public class StepBuilder implements IBuildModelBuilder {
 	private GenDirInfo fDirs;
 	private boolean fResumeOnErrs;
 	private int fNumCommands = -1;
+	private IBuildCommand fCommands[];
 	private CommandBuilder fCommandBuilders[];
 	private IResourceRebuildStateContainer fRebuildStateContainer;
+	private BuildActionLog fActionLog;
+	private BuildObjectCache fObjectCache;
+	private BuildObjectCache.Statistics fCacheStatistics;
+
+	/**
+	 * Forwards the output to a stream and keeps a copy of it
+	 */
+	private static class CapturingOutputStream extends OutputStream {
+		private OutputStream fOut;
+		private ByteArrayOutputStream fCopy = new ByteArrayOutputStream();
+
+		public CapturingOutputStream(OutputStream out){
+			fOut = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			fCopy.write(b);
+			if(fOut != null)
+				fOut.write(b);
+		}
+
+		@Override
+		public void write(byte b[], int off, int len) throws IOException {
+			fCopy.write(b, off, len);
+			if(fOut != null)
+				fOut.write(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if(fOut != null)
+				fOut.flush();
+		}
+
+		public byte[] getCopy(){
+			return fCopy.toByteArray();
+		}
+	}
 
 	public StepBuilder(IBuildStep step, IResourceRebuildStateContainer rs){
 		this(step, null, rs);
@@ -69,6 +111,20 @@ public class StepBuilder implements IBuildModelBuilder {
 			fCWD = fStep.getBuildDescription().getDefaultBuildDirLocation();
 
 		fRebuildStateContainer = rs;
+		if(rs instanceof IConfigurationBuildState)
+			fActionLog = ((IConfigurationBuildState)rs).getActionLog();
+	}
+
+	/**
+	 * Makes the builder reuse the outputs of identical compilations from the given cache.
+	 * The cache is only used together with the action log of the configuration build state.
+	 *
+	 * @param cache the cache or <code>null</code>
+	 * @param statistics receives the hits and misses, may be <code>null</code>
+	 */
+	public void setObjectCache(BuildObjectCache cache, BuildObjectCache.Statistics statistics){
+		fObjectCache = cache;
+		fCacheStatistics = statistics;
 	}
 
 	/* (non-Javadoc)
@@ -83,6 +139,37 @@ public class StepBuilder implements IBuildModelBuilder {
 
 		int status = STATUS_OK;
 		CommandBuilder bs[] = getCommandBuilders();
+		String key = null;
+		if(bs.length > 0 && fActionLog != null){
+			key = fActionLog.getKey(fStep, fCommands);
+			if(key != null && fActionLog.isUpToDate(fStep, key)){
+				if(DbgUtil.DEBUG)
+					DbgUtil.trace("step " + DbgUtil.stepName(fStep) + " is up to date"); //$NON-NLS-1$ //$NON-NLS-2$
+				clearRebuildState();
+				monitor.done();
+				return status;
+			}
+		}
+		if(bs.length > 0 && fActionLog != null)
+			fActionLog.stepStarted(fStep);
+		String cacheKey = null;
+		if(key != null && fObjectCache != null)
+			cacheKey = fObjectCache.getKey(fStep, fCommands);
+		if(cacheKey != null){
+			createOutDirs(new NullProgressMonitor());
+			if(fObjectCache.restore(cacheKey, fStep, out, err)){
+				if(fCacheStatistics != null)
+					fCacheStatistics.hit();
+				status = postProcess(status, new NullProgressMonitor());
+				fActionLog.stepBuilt(fStep, key);
+				monitor.done();
+				return status;
+			}
+			if(fCacheStatistics != null)
+				fCacheStatistics.miss();
+			out = new CapturingOutputStream(out);
+			err = new CapturingOutputStream(err);
+		}
 		if(bs.length > 0){
 			//TODO: monitor
 			createOutDirs(new NullProgressMonitor());
@@ -110,6 +197,10 @@ public class StepBuilder implements IBuildModelBuilder {
 			}
 			//TODO: monitor
 			status = postProcess(status, new NullProgressMonitor());
+			if(status == STATUS_OK && key != null)
+				fActionLog.stepBuilt(fStep, key);
+			if(status == STATUS_OK && cacheKey != null)
+				fObjectCache.store(cacheKey, fStep, ((CapturingOutputStream)out).getCopy(), ((CapturingOutputStream)err).getCopy());
 		}
 		monitor.done();
 		return status;
@@ -221,6 +312,7 @@ public class StepBuilder implements IBuildModelBuilder {
 	protected CommandBuilder[] getCommandBuilders(){
 		if(fCommandBuilders == null){
 			IBuildCommand cmds[] = fStep.getCommands(fCWD, null, null, true);
+			fCommands = cmds;
 			if(cmds == null)
 				fCommandBuilders = new CommandBuilder[0];
 			else {
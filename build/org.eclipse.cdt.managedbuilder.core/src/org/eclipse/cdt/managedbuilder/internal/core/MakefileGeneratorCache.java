@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Eclipse CDT contributors - Initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.internal.core;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.eclipse.cdt.managedbuilder.core.IConfiguration;
+import org.eclipse.cdt.managedbuilder.makegen.IManagedDependencyInfo;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * What the last generation of the makefiles of a configuration found out, such that an incremental
+ * generation does not have to compute it again.
+ * <p>
+ * The data is kept with the configuration object and goes away with it. It is dropped when
+ * the project of the configuration is closed, deleted or moved.
+ */
+public class MakefileGeneratorCache implements IResourceChangeListener {
+	private static final String DIGEST_ALGORITHM = "SHA-1"; //$NON-NLS-1$
+
+	private static MakefileGeneratorCache fInstance;
+
+	private final Map<IConfiguration, ConfigurationData> fData = new WeakHashMap<IConfiguration, ConfigurationData>();
+
+	/**
+	 * The data of one configuration.
+	 */
+	public static class ConfigurationData {
+		private Set<IPath> fSourceFolders;
+		private final Map<IPath, Map<String, IManagedDependencyInfo>> fDependencyInfos = new HashMap<IPath, Map<String, IManagedDependencyInfo>>();
+		private final Map<IPath, FileContents> fContents = new HashMap<IPath, FileContents>();
+
+		/**
+		 * Returns the project relative paths of the folders contributing sources to the build,
+		 * or <code>null</code> if they are not known.
+		 */
+		public synchronized Set<IPath> getSourceFolders() {
+			return fSourceFolders;
+		}
+
+		/**
+		 * Remembers the project relative paths of the folders contributing sources to the build.
+		 */
+		public synchronized void setSourceFolders(Set<IPath> folders) {
+			fSourceFolders = folders;
+		}
+
+		/**
+		 * Returns the dependency information last computed for the source file, or <code>null</code>.
+		 */
+		public synchronized IManagedDependencyInfo getDependencyInfo(IResource source) {
+			Map<String, IManagedDependencyInfo> infos = fDependencyInfos.get(source.getFullPath().removeLastSegments(1));
+			return infos != null ? infos.get(source.getName()) : null;
+		}
+
+		public synchronized void setDependencyInfo(IResource source, IManagedDependencyInfo info) {
+			IPath folder = source.getFullPath().removeLastSegments(1);
+			Map<String, IManagedDependencyInfo> infos = fDependencyInfos.get(folder);
+			if(infos == null){
+				infos = new HashMap<String, IManagedDependencyInfo>();
+				fDependencyInfos.put(folder, infos);
+			}
+			infos.put(source.getName(), info);
+		}
+
+		/**
+		 * Drops the dependency information of the sources directly contained in the folder.
+		 */
+		public synchronized void removeDependencyInfos(IPath folderFullPath) {
+			fDependencyInfos.remove(folderFullPath);
+		}
+
+		public synchronized void clearDependencyInfos() {
+			fDependencyInfos.clear();
+		}
+
+		/**
+		 * Checks whether the file has the given contents, as it was written or compared by
+		 * the generator and has not been modified since. The file is not read.
+		 *
+		 * @param digest the digest of the contents, see {@link MakefileGeneratorCache#digest(byte[])}
+		 */
+		public synchronized boolean hasContents(IFile file, byte[] digest) {
+			FileContents contents = fContents.get(file.getFullPath());
+			return contents != null && file.exists()
+					&& contents.fModificationStamp == file.getModificationStamp()
+					&& contents.fLocalTimeStamp == file.getLocalTimeStamp()
+					&& Arrays.equals(contents.fDigest, digest);
+		}
+
+		/**
+		 * Remembers that the file has the contents with the given digest.
+		 */
+		public synchronized void setContents(IFile file, byte[] digest) {
+			fContents.put(file.getFullPath(),
+					new FileContents(file.getModificationStamp(), file.getLocalTimeStamp(), digest));
+		}
+	}
+
+	private static class FileContents {
+		final long fModificationStamp;
+		final long fLocalTimeStamp;
+		final byte[] fDigest;
+
+		FileContents(long modificationStamp, long localTimeStamp, byte[] digest){
+			fModificationStamp = modificationStamp;
+			fLocalTimeStamp = localTimeStamp;
+			fDigest = digest;
+		}
+	}
+
+	private MakefileGeneratorCache() {
+	}
+
+	public static synchronized MakefileGeneratorCache getInstance() {
+		if(fInstance == null){
+			fInstance = new MakefileGeneratorCache();
+			fInstance.startup();
+		}
+		return fInstance;
+	}
+
+	public static synchronized void stop() {
+		if(fInstance != null){
+			fInstance.shutdown();
+			fInstance = null;
+		}
+	}
+
+	private void startup() {
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(this,
+				IResourceChangeEvent.POST_CHANGE
+				| IResourceChangeEvent.PRE_DELETE
+				| IResourceChangeEvent.PRE_CLOSE);
+	}
+
+	private void shutdown() {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+		synchronized (fData) {
+			fData.clear();
+		}
+	}
+
+	/**
+	 * Returns the data of the configuration, never <code>null</code>.
+	 */
+	public ConfigurationData getData(IConfiguration cfg) {
+		synchronized (fData) {
+			ConfigurationData data = fData.get(cfg);
+			if(data == null){
+				data = new ConfigurationData();
+				fData.put(cfg, data);
+			}
+			return data;
+		}
+	}
+
+	/**
+	 * Drops the data of all configurations of the given project.
+	 */
+	public void removeData(IProject project) {
+		synchronized (fData) {
+			for (Iterator<IConfiguration> iter = fData.keySet().iterator(); iter.hasNext();) {
+				IResource owner = iter.next().getOwner();
+				if(owner == null || project.equals(owner.getProject()))
+					iter.remove();
+			}
+		}
+	}
+
+	/**
+	 * Computes the digest of the contents of a generated file.
+	 */
+	public static byte[] digest(byte[] contents) {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM).digest(contents);
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-1
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public void resourceChanged(IResourceChangeEvent event) {
+		if(!(event.getSource() instanceof IWorkspace))
+			return;
+
+		switch(event.getType()){
+		case IResourceChangeEvent.PRE_CLOSE:
+		case IResourceChangeEvent.PRE_DELETE:
+			IResource rc = event.getResource();
+			if(rc instanceof IProject)
+				removeData((IProject)rc);
+			break;
+		case IResourceChangeEvent.POST_CHANGE:
+			IResourceDelta delta = event.getDelta();
+			if(delta != null){
+				// Moved projects show up as removed
+				for (IResourceDelta child : delta.getAffectedChildren(IResourceDelta.REMOVED)) {
+					if(child.getResource() instanceof IProject)
+						removeData((IProject)child.getResource());
+				}
+			}
+			break;
+		}
+	}
+}
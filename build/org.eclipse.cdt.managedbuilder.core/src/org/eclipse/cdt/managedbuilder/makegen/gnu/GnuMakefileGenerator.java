@@ -27,13 +27,16 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Vector;
+import java.util.regex.Pattern;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.settings.model.CSourceEntry;
@@ -61,6 +64,7 @@ import org.eclipse.cdt.managedbuilder.core.ITool;
 import org.eclipse.cdt.managedbuilder.core.ManagedBuildManager;
 import org.eclipse.cdt.managedbuilder.core.ManagedBuilderCorePlugin;
 import org.eclipse.cdt.managedbuilder.internal.core.ManagedMakeMessages;
+import org.eclipse.cdt.managedbuilder.internal.core.MakefileGeneratorCache;
 import org.eclipse.cdt.managedbuilder.internal.core.Tool;
 import org.eclipse.cdt.managedbuilder.internal.macros.BuildMacroProvider;
 import org.eclipse.cdt.managedbuilder.internal.macros.FileContextData;
@@ -365,6 +369,13 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 	private Vector<String> ruleList;
 	private Vector<String> depLineList;				//  String's of additional dependency lines
 	private Vector<String> depRuleList;				//  String's of rules for generating dependency files
+	//  Mirrors of the lists above and of the build variable lists, avoiding linear searches for duplicates
+	private final Set<String> ruleSet = new HashSet<String>();
+	private final Set<String> depLineSet = new HashSet<String>();
+	private final Set<String> depRuleSet = new HashSet<String>();
+	private final Map<List<IPath>, Set<IPath>> buildVarSets = new IdentityHashMap<List<IPath>, Set<IPath>>();
+	//  Whether the options of a tool reference explicit file macros
+	private final Map<ITool, Boolean> toolFileMacroRefs = new HashMap<ITool, Boolean>();
 	/** Collection of Containers which contribute source files to the build */
 	private Collection<IContainer> subdirList;
 	private IPath topBuildDir;				//  Build directory - relative to the workspace
@@ -382,6 +393,8 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 
 	private ICSourceEntry srcEntries[];
 
+	private static final Pattern SPECIAL_CHARACTERS = Pattern.compile("\\s|[\\{\\}\\(\\)\\$\\@%=;]"); //$NON-NLS-1$
+
 
 	public GnuMakefileGenerator() {
 		super();
@@ -636,13 +649,16 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 
 		// Get all the subdirectories participating in the build
 		updateMonitor(ManagedMakeMessages.getFormattedString("MakefileGenerator.message.finding.sources", project.getName()));	//$NON-NLS-1$
-		ResourceProxyVisitor resourceVisitor = new ResourceProxyVisitor(this, config);
-		project.accept(resourceVisitor, IResource.NONE);
+		if (!loadSourceFolders()) {
+			ResourceProxyVisitor resourceVisitor = new ResourceProxyVisitor(this, config);
+			project.accept(resourceVisitor, IResource.NONE);
+		}
 		checkCancel();
 
 		// Bug 303953: Ensure that if all resources have been removed from a folder, than the folder still
 		// appears in the subdir list so it's subdir.mk is correctly regenerated
 		getSubdirList().addAll(getModifiedList());
+		storeSourceFolders();
 
 		// Make sure there is something to build
 		if (getSubdirList().isEmpty()) {
@@ -671,6 +687,7 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 		IFile srcsFileHandle = createFile(srcsFilePath);
 		buildSrcVars.clear();
 		buildOutVars.clear();
+		buildVarSets.clear();
 		buildDepVars.clear();
 		topBuildOutVars.clear();
 		populateSourcesMakefile(srcsFileHandle);
@@ -701,6 +718,11 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 			deleteBuildTarget(deletedFile);
 		}
 
+		// The sources of the modified directories may have been replaced
+		for (IResource res : getModifiedList()) {
+			getGeneratorData().removeDependencyInfos(res.getFullPath());
+		}
+
 		// Regenerate any fragments for modified directories
 		for (IResource res : getModifiedList()) {
 			IContainer subDir = (IContainer)res;
@@ -814,7 +836,14 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 		return false;
 	}
 	
-	private static void save(StringBuffer buffer, IFile file) throws CoreException {
+	/**
+	 * Writes the contents to the file unless it has them already.
+	 *
+	 * @param data the generator data of the configuration, which records the contents written,
+	 *     or <code>null</code>
+	 */
+	private static void save(StringBuffer buffer, IFile file, MakefileGeneratorCache.ConfigurationData data)
+			throws CoreException {
 		String encoding = null;
 		try {
 			encoding = file.getCharset();
@@ -832,10 +861,53 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 			bytes = buffer.toString().getBytes();
 		}
 
-		ByteArrayInputStream stream = new ByteArrayInputStream(bytes);
-		// use a platform operation to update the resource contents
-		boolean force = true;
-		file.setContents(stream, force, false, null); // Don't record history
+		// Leave the file untouched if its contents did not change, make will not reread it
+		// and no resource delta is generated for it. The file needs to be read only if it was
+		// modified since the last generation.
+		byte[] digest = data != null ? MakefileGeneratorCache.digest(bytes) : null;
+		if (data != null && data.hasContents(file, digest))
+			return;
+		if (!hasContents(file, bytes)) {
+			ByteArrayInputStream stream = new ByteArrayInputStream(bytes);
+			// use a platform operation to update the resource contents
+			boolean force = true;
+			file.setContents(stream, force, false, null); // Don't record history
+		}
+		if (data != null)
+			data.setContents(file, digest);
+	}
+
+	private static boolean hasContents(IFile file, byte[] bytes) {
+		if (!file.exists())
+			return false;
+		IPath location = file.getLocation();
+		if (location != null && location.toFile().length() != bytes.length)
+			return false;
+
+		try {
+			InputStream in = file.getContents(true);
+			try {
+				byte[] buf = new byte[8192];
+				int pos = 0;
+				int n;
+				while ((n = in.read(buf)) > 0) {
+					if (pos + n > bytes.length)
+						return false;
+					for (int i = 0; i < n; i++) {
+						if (buf[i] != bytes[pos + i])
+							return false;
+					}
+					pos += n;
+				}
+				return pos == bytes.length;
+			} finally {
+				in.close();
+			}
+		} catch (CoreException e) {
+			return false;
+		} catch (IOException e) {
+			return false;
+		}
 	}
 
 	/* (non-Javadoc)
@@ -892,9 +964,12 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 	@Override
 	public MultiStatus regenerateMakefiles() throws CoreException {
 		MultiStatus status;
+		// The build settings may have changed
+		getGeneratorData().clearDependencyInfos();
 		// Visit the resources in the project
 		ResourceProxyVisitor visitor = new ResourceProxyVisitor(this, config);
 		project.accept(visitor, IResource.NONE);
+		storeSourceFolders();
 
 		// See if the user has cancelled the build
 		checkCancel();
@@ -926,6 +1001,7 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 		IFile srcsFileHandle = createFile(srcsFilePath);
 		buildSrcVars.clear();
 		buildOutVars.clear();
+		buildVarSets.clear();
 		buildDepVars.clear();
 		topBuildOutVars.clear();
 		populateSourcesMakefile(srcsFileHandle);
@@ -1018,7 +1094,7 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 		makeBuf.append(addSources(module));
 
 		// Save the files
-		save(makeBuf, modMakefile);
+		save(makeBuf, modMakefile, getGeneratorData());
 	}
 
 	/**
@@ -1078,7 +1154,7 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 		}
 
  		// For now, just save the buffer that was populated when the rules were created
-		save(macroBuffer, fileHandle);
+		save(macroBuffer, fileHandle, getGeneratorData());
 
 	}
 
@@ -1164,7 +1240,7 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 		buffer.append(NEWLINE).append(addSubdirectories());
 
 		// Save the file
-		save(buffer, fileHandle);
+		save(buffer, fileHandle, getGeneratorData());
 	}
 
 	/**
@@ -1195,7 +1271,7 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 		buffer.append(targetRules);
 
 		// Save the file
-		save(buffer, fileHandle);
+		save(buffer, fileHandle, getGeneratorData());
 	}
 
 
@@ -1683,10 +1759,7 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 		buildRule += calculatedDependencies;
 
 		// We can't have duplicates in a makefile
-		if (getRuleList().contains(buildRule)) {
-		}
-		else {
-			getRuleList().add(buildRule);
+		if (addUnique(getRuleList(), ruleSet, buildRule)) {
 			buffer.append(buildRule).append(NEWLINE);
 			if (bTargetTool) {
 				buffer.append(TAB).append(AT).append(escapedEcho(MESSAGE_START_BUILD + WHITESPACE + OUT_MACRO));
@@ -1783,8 +1856,7 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 			for (int i=0; i<addlOutputs.size(); i++) {
 				String output = addlOutputs.get(i);
 				String depLine = output + COLON + WHITESPACE + primaryOutput + WHITESPACE + calculatedDependencies + NEWLINE;
-				if (!getDepLineList().contains(depLine)) {
-					getDepLineList().add(depLine);
+				if (addUnique(getDepLineList(), depLineSet, depLine)) {
 					buffer.append(depLine);
 				}
 			}
@@ -2233,10 +2305,9 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 		//  Add the resource to the list of all resources associated with a variable.
 		//  Do not allow duplicates - there is no reason to and it can be 'bad' -
 		//  e.g., having the same object in the OBJS list can cause duplicate symbol errors from the linker
-		if ((varList != null) && !(varList.contains(sourceLocation))) {
+		if (varList != null && addUnique(varList, getBuildVarSet(varList), sourceLocation)) {
 			//  Since we don't know how these files will be used, we store them using a "location"
 			//  path rather than a relative path
-			varList.add(sourceLocation);
 			if (!buildVarToRuleStringMap.containsKey(varName)) {
 				//  TODO - is this an error?
 			} else {
@@ -2383,7 +2454,7 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 					doDepGen = (calcType == IManagedDependencyGeneratorType.TYPE_BUILD_COMMANDS);
 					IBuildObject buildContext = rcInfo;//(resConfig != null) ? (IBuildObject)resConfig : (IBuildObject)config;
 
-					depInfo = depGen.getDependencySourceInfo(resource.getProjectRelativePath(), resource, buildContext, tool, getBuildWorkingDir());
+					depInfo = getDependencySourceInfo(depGen, resource, buildContext, tool);
 
 					if (calcType == IManagedDependencyGeneratorType.TYPE_BUILD_COMMANDS) {
 						depCommands = (IManagedDependencyCommands)depInfo;
@@ -2446,7 +2517,7 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 						.getProjectRelativePath().toString()));
 
 		boolean needExplicitRuleForFile = resourceNameRequiresExplicitRule ||
-			BuildMacroProvider.getReferencedExplitFileMacros(tool).length > 0
+			referencesExplicitFileMacros(tool)
 				|| BuildMacroProvider.getReferencedExplitFileMacros(tool
 						.getToolCommand(), IBuildMacroProvider.CONTEXT_FILE,
 						new FileContextData(sourceLocation, outputLocation,
@@ -2589,12 +2660,7 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 		buildRule += COLON + WHITESPACE + (patternRule ? patternBuildRuleDependencies : buildRuleDependencies);
 
 		// No duplicates in a makefile.  If we already have this rule, don't add it or the commands to build the file
-		if (getRuleList().contains(buildRule)) {
-			//  TODO:  Should we assert that this is a pattern rule?
-		}
-		else {
-			getRuleList().add(buildRule);
-
+		if (addUnique(getRuleList(), ruleSet, buildRule)) {
 			// Echo starting message
 			buffer.append(buildRule).append(NEWLINE);
 			buffer.append(TAB).append(AT).append(escapedEcho(MESSAGE_START_FILE + WHITESPACE + IN_MACRO));
@@ -2830,8 +2896,7 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 
 		if (calculatedDependencies != null) {
 			depLine = primaryOutputName + COLON + calculatedDependencies + NEWLINE;
-			if (!getDepLineList().contains(depLine)) {
-				getDepLineList().add(depLine);
+			if (addUnique(getDepLineList(), depLineSet, depLine)) {
 				addedDepLines = true;
 				buffer.append(depLine);
 			}
@@ -2852,8 +2917,7 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 			depLine = escapeWhitespaces(addlOutputs.get(i).toString()) + COLON + WHITESPACE + primaryOutputName;
 			if (calculatedDependencies != null) depLine += calculatedDependencies;
 			depLine += NEWLINE;
-			if (!getDepLineList().contains(depLine)) {
-				getDepLineList().add(depLine);
+			if (addUnique(getDepLineList(), depLineSet, depLine)) {
 				addedDepLines = true;
 				buffer.append(depLine);
 			}
@@ -2885,8 +2949,7 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 					}
 				}
 				depLine += COLON + WHITESPACE + (patternRule ? patternBuildRuleDependencies : buildRuleDependencies);
-				if (!getDepRuleList().contains(depLine)) {
-					getDepRuleList().add(depLine);
+				if (addUnique(getDepRuleList(), depRuleSet, depLine)) {
 					addedDepLines = true;
 					buffer.append(depLine).append(NEWLINE);
 					buffer.append(TAB).append(AT).append(escapedEcho(MESSAGE_START_DEPENDENCY + WHITESPACE + OUT_MACRO));
@@ -3597,7 +3660,7 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 			if (bufferLine.endsWith(":")) { //$NON-NLS-1$
 				StringBuffer outBuffer = addDefaultHeader();
 				outBuffer.append(inBuffer);
-				save(outBuffer, makefile);
+				save(outBuffer, makefile, null);
 				return true;
 			}
 		}
@@ -3736,7 +3799,7 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 
 		// Write them out to the makefile
 		if (save) {
-			save(outBuffer, makefile);
+			save(outBuffer, makefile, null);
 			return true;
 		}
 		return false;
@@ -3781,7 +3844,7 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 
 	static public boolean containsSpecialCharacters(String path)
 	{
-		return path.matches(".*(\\s|[\\{\\}\\(\\)\\$\\@%=;]).*"); //$NON-NLS-1$
+		return SPECIAL_CHARACTERS.matcher(path).find();
 	}
 
 	/**
@@ -4558,6 +4621,133 @@ public class GnuMakefileGenerator implements IManagedBuilderMakefileGenerator2 {
 		return subdirList;
 	}
 
+	/**
+	 * Adds the folders contributing sources to the build, as known from the last generation
+	 * of the makefiles, to the list of subdirectories.
+	 *
+	 * @return <code>false</code> if the folders are not known and the project has to be visited
+	 */
+	private boolean loadSourceFolders() {
+		Set<IPath> folders = getGeneratorData().getSourceFolders();
+		if (folders == null)
+			return false;
+
+		for (IPath path : folders) {
+			IContainer container = path.isEmpty() ? project : project.getFolder(path);
+			if (container.exists())
+				getSubdirList().add(container);
+		}
+		return true;
+	}
+
+	/**
+	 * Remembers the folders contributing sources to the build for the next incremental generation.
+	 * Modified folders that no longer contain buildable sources are left out.
+	 */
+	private void storeSourceFolders() throws CoreException {
+		Set<IPath> folders = new LinkedHashSet<IPath>();
+		for (IContainer container : getSubdirList()) {
+			if (!container.exists())
+				continue;
+			if (getModifiedList().contains(container) && !hasBuildableSources(container))
+				continue;
+			folders.add(container.getProjectRelativePath());
+		}
+		getGeneratorData().setSourceFolders(folders);
+	}
+
+	private MakefileGeneratorCache.ConfigurationData getGeneratorData() {
+		return MakefileGeneratorCache.getInstance().getData(config);
+	}
+
+	/**
+	 * Returns the dependency information for the source. The information of the default GCC
+	 * dependency calculators depends only on the source path, the build context, the tool and
+	 * the build directory. It is kept for the next incremental generation, until the folder of
+	 * the source is modified or the makefiles are regenerated.
+	 */
+	private IManagedDependencyInfo getDependencySourceInfo(IManagedDependencyGenerator2 depGen,
+			IResource resource, IBuildObject buildContext, ITool tool) {
+		IPath source = resource.getProjectRelativePath();
+		IPath buildDir = getBuildWorkingDir();
+		Class<?> depGenClass = depGen.getClass();
+		boolean keep = buildDir != null && !resource.isLinked(IResource.CHECK_ANCESTORS)
+				&& (depGenClass == DefaultGCCDependencyCalculator2.class
+						|| depGenClass == DefaultGCCDependencyCalculator3.class
+						|| depGenClass == DefaultGCCDependencyCalculatorPreBuild.class);
+		if (!keep)
+			return depGen.getDependencySourceInfo(source, resource, buildContext, tool, buildDir);
+
+		MakefileGeneratorCache.ConfigurationData data = getGeneratorData();
+		IManagedDependencyInfo depInfo = data.getDependencyInfo(resource);
+		if (depInfo != null && depInfo.getTool() == tool && depInfo.getBuildContext() == buildContext
+				&& source.equals(depInfo.getSource()) && buildDir.equals(depInfo.getTopBuildDirectory()))
+			return depInfo;
+
+		depInfo = depGen.getDependencySourceInfo(source, resource, buildContext, tool, buildDir);
+		if (depInfo != null)
+			data.setDependencyInfo(resource, depInfo);
+		return depInfo;
+	}
+
+	/**
+	 * Checks whether the folder directly contains files the configuration builds, the same way
+	 * the {@link ResourceProxyVisitor} does.
+	 */
+	private boolean hasBuildableSources(IContainer container) throws CoreException {
+		for (IResource resource : container.members()) {
+			if (resource.getType() != IResource.FILE)
+				continue;
+			IPath path = resource.getProjectRelativePath();
+			if (!isSource(path))
+				continue;
+			IResourceInfo rcInfo = config.getResourceInfo(path, false);
+			if (!(rcInfo instanceof IFolderInfo))
+				return true;
+			if (((IFolderInfo)rcInfo).buildsFileType(resource.getFileExtension()) && !isGeneratedResource(resource))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Adds the element to the list unless it is contained already. The set mirrors the list
+	 * such that the check does not need to search the list.
+	 *
+	 * @return <code>true</code> if the element was added
+	 */
+	private static <T> boolean addUnique(List<T> list, Set<T> set, T element) {
+		if (set.size() != list.size()) {
+			set.clear();
+			set.addAll(list);
+		}
+		if (!set.add(element))
+			return false;
+		list.add(element);
+		return true;
+	}
+
+	private Set<IPath> getBuildVarSet(List<IPath> varList) {
+		Set<IPath> set = buildVarSets.get(varList);
+		if (set == null) {
+			set = new HashSet<IPath>();
+			buildVarSets.put(varList, set);
+		}
+		return set;
+	}
+
+	/**
+	 * @return <code>true</code> if the options of the tool reference the explicit file macros
+	 */
+	private boolean referencesExplicitFileMacros(ITool tool) {
+		Boolean result = toolFileMacroRefs.get(tool);
+		if (result == null) {
+			result = Boolean.valueOf(BuildMacroProvider.getReferencedExplitFileMacros(tool).length > 0);
+			toolFileMacroRefs.put(tool, result);
+		}
+		return result.booleanValue();
+	}
+
 	private void removeGeneratedDirectory(IContainer subDir) {
 		try {
 			// The source directory isn't empty
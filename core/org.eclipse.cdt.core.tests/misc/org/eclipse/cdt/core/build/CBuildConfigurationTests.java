@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright (c) 2018 QNX Software Systems and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.core.build;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.cdt.core.envvar.IEnvironmentVariable;
+import org.eclipse.cdt.core.model.CoreModel;
+import org.eclipse.cdt.core.parser.ExtendedScannerInfo;
+import org.eclipse.cdt.core.parser.IExtendedScannerInfo;
+import org.eclipse.cdt.core.resources.IConsole;
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.core.resources.IBuildConfiguration;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.PlatformObject;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests for the handling of compile commands by {@link CBuildConfiguration}.
+ */
+public class CBuildConfigurationTests extends BaseTestCase {
+	public static Test suite() {
+		return new TestSuite(CBuildConfigurationTests.class);
+	}
+
+	private IProject fProject;
+	private TestToolChain fToolChain;
+	private TestBuildConfiguration fConfig;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fProject = ResourcesPlugin.getWorkspace().getRoot().getProject("cbuildconfig_" + getName());
+		fProject.create(new NullProgressMonitor());
+		fProject.open(new NullProgressMonitor());
+		fToolChain = new TestToolChain(fProject);
+		fConfig = new TestBuildConfiguration(fProject.getActiveBuildConfig(), fToolChain);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		CoreModel.getDefault().removeElementChangedListener(fConfig);
+		fProject.delete(true, new NullProgressMonitor());
+		super.tearDown();
+	}
+
+	public void testStripArgs() throws Exception {
+		// The expected arguments are the ones the implementation before 6.5 split the lines into.
+		String[][] cases = {
+				{ "gcc -c foo.c -o foo.o", "gcc", "-c", "foo.c", "-o", "foo.o" },
+				{ "gcc -DFOO=\"bar baz\" -c a.c", "gcc", "-DFOO=\"bar baz\"", "-c", "a.c" },
+				{ "gcc -DFOO='bar baz' -c a.c", "gcc", "-DFOO='bar baz'", "-c", "a.c" },
+				{ "gcc '-I/path with space' -c a.c", "gcc", "-I/path with space", "-c", "a.c" },
+				{ "gcc -I/usr/include   -c   a.c   ", "gcc", "-I/usr/include", "-c", "a.c" },
+				{ "gcc -DX=1 -DY=a=b a.c", "gcc", "-DX=1", "-DY=a=b", "a.c" },
+				{ "gcc \"-Iquoted dir\" a.c", "gcc", "\"-Iquoted", "dir\"", "a.c" },
+				{ "gcc -DSTR=\\\"x\\\" a.c", "gcc", "-DSTR=\\\"x\\\"", "a.c" },
+				{ "gcc '' a.c", "gcc", "", "a.c" },
+				{ "gcc -c\ta.c", "gcc", "-c", "a.c" },
+				{ "gcc -DA=\"1\" -DB=\"2\" a.c", "gcc", "-DA=\"1\"", "-DB=\"2\"", "a.c" },
+				{ "gcc -o 'out dir/a.o' 'src dir/a.c'", "gcc", "-o", "out dir/a.o", "src dir/a.c" },
+				{ "gcc -DMSG=\"hello   world\" a.c", "gcc", "-DMSG=\"hello   world\"", "a.c" },
+				{ "gcc -D'NAME'=1 a.c", "gcc", "-D'NAME'=1", "a.c" },
+				{ "/usr/bin/gcc -std=c++11 -I'inc dir' -c a.c", "/usr/bin/gcc", "-std=c++11", "-I'inc", "dir'", "-c",
+						"a.c" },
+				// Lines that are not split into a compile command
+				{ " gcc -c a.c" },
+				{ "gcc -c a.c\n-o a.o" },
+				{ "-c a.c" },
+		};
+		for (String[] c : cases) {
+			fToolChain.fCommands.clear();
+			fConfig.processLine(c[0]);
+			List<String> expected = Arrays.asList(c).subList(1, c.length);
+			if (expected.isEmpty()) {
+				assertEquals(c[0], 0, fToolChain.fCommands.size());
+			} else {
+				assertEquals(c[0], 1, fToolChain.fCommands.size());
+				assertEquals(c[0], expected, fToolChain.fCommands.get(0));
+			}
+		}
+	}
+
+	public void testLastCommandForResourceWins() throws Exception {
+		IFile a = fProject.getFile("a.c");
+		IFile b = fProject.getFile("b.c");
+		fConfig.processCompileCommands("gcc -DA=1 -c a.c", "gcc -DB=1 -c b.c", "gcc -DA=2 -c a.c");
+
+		ScannerInfoCache cache = fConfig.getScannerInfoCache();
+		assertEquals(Collections.singletonMap("A", "2"), cache.getScannerInfo(a).getDefinedSymbols());
+		assertEquals(Collections.singletonMap("B", "1"), cache.getScannerInfo(b).getDefinedSymbols());
+		assertTrue(cache.hasResource(Arrays.asList("gcc", "-DA=2", "-c"), a));
+		assertFalse(cache.hasResource(Arrays.asList("gcc", "-DA=1", "-c"), a));
+	}
+
+	public void testIdenticalFlagsShareScannerInfo() throws Exception {
+		IFile a = fProject.getFile("a.c");
+		IFile b = fProject.getFile("b.c");
+		IFile c = fProject.getFile("c.c");
+		fConfig.processCompileCommands("gcc -DX=1 -c a.c", "gcc -DX=1 -c b.c", "gcc -DY=1 -c c.c");
+
+		ScannerInfoCache cache = fConfig.getScannerInfoCache();
+		assertNotNull(cache.getScannerInfo(a));
+		assertSame(cache.getScannerInfo(a), cache.getScannerInfo(b));
+		assertNotSame(cache.getScannerInfo(a), cache.getScannerInfo(c));
+		// The toolchain is run once per set of flags
+		assertEquals(2, fToolChain.fScannerInfoCommands.size());
+	}
+
+	private static class TestBuildConfiguration extends CBuildConfiguration {
+		public TestBuildConfiguration(IBuildConfiguration config, IToolChain toolChain) {
+			super(config, "test", toolChain);
+		}
+
+		@Override
+		public IProject[] build(int kind, Map<String, String> args, IConsole console, IProgressMonitor monitor)
+				throws CoreException {
+			return null;
+		}
+
+		@Override
+		public void clean(IConsole console, IProgressMonitor monitor) throws CoreException {
+		}
+
+		@Override
+		protected Path findCommand(String command) {
+			return Paths.get(command);
+		}
+
+		@Override
+		protected ScannerInfoCache getScannerInfoCache() {
+			return super.getScannerInfoCache();
+		}
+
+		void processCompileCommands(String... lines) throws CoreException {
+			processCompileCommands(Arrays.asList(lines).iterator(), new NullProgressMonitor());
+		}
+	}
+
+	/**
+	 * Resolves the argument naming a C source to a file of the project and returns the
+	 * -D options as the scanner info.
+	 */
+	private static class TestToolChain extends PlatformObject implements IToolChain {
+		final List<List<String>> fCommands = Collections.synchronizedList(new ArrayList<>());
+		final List<List<String>> fScannerInfoCommands = Collections.synchronizedList(new ArrayList<>());
+		private final IProject fProject;
+
+		TestToolChain(IProject project) {
+			fProject = project;
+		}
+
+		@Override
+		public IResource[] getResourcesFromCommand(List<String> command, URI buildDirectoryURI) {
+			fCommands.add(new ArrayList<>(command));
+			for (String arg : command) {
+				if (arg.endsWith(".c")) {
+					return new IResource[] { fProject.getFile(arg) };
+				}
+			}
+			return new IResource[0];
+		}
+
+		@Override
+		public List<String> stripCommand(List<String> command, IResource[] resources) {
+			List<String> stripped = new ArrayList<>(command);
+			for (IResource resource : resources) {
+				stripped.remove(resource.getProjectRelativePath().toString());
+			}
+			return stripped;
+		}
+
+		@Override
+		public IExtendedScannerInfo getScannerInfo(IBuildConfiguration buildConfig, List<String> command,
+				IExtendedScannerInfo baseScannerInfo, IResource resource, URI buildDirectoryURI) {
+			fScannerInfoCommands.add(new ArrayList<>(command));
+			Map<String, String> symbols = new HashMap<>();
+			for (String arg : command) {
+				if (arg.startsWith("-D")) {
+					String[] define = arg.substring(2).split("=", 2);
+					symbols.put(define[0], define.length > 1 ? define[1] : "");
+				}
+			}
+			return new ExtendedScannerInfo(symbols, new String[0]);
+		}
+
+		@Override
+		public String[] getCompileCommands() {
+			return new String[] { "gcc" };
+		}
+
+		@Override
+		public String getTypeId() {
+			return "test";
+		}
+
+		@Override
+		public IToolChainProvider getProvider() {
+			return null;
+		}
+
+		@Override
+		public String getId() {
+			return "test";
+		}
+
+		@Override
+		public String getVersion() {
+			return "1";
+		}
+
+		@Override
+		public String getName() {
+			return "Test";
+		}
+
+		@Override
+		public String getProperty(String key) {
+			return null;
+		}
+
+		@Override
+		public void setProperty(String key, String value) {
+		}
+
+		@Override
+		public IEnvironmentVariable[] getVariables() {
+			return new IEnvironmentVariable[0];
+		}
+
+		@Override
+		public IEnvironmentVariable getVariable(String name) {
+			return null;
+		}
+
+		@Override
+		public String[] getErrorParserIds() {
+			return new String[0];
+		}
+
+		@Override
+		public String getBinaryParserId() {
+			return null;
+		}
+
+		@Override
+		public Path getCommandPath(Path command) {
+			return command;
+		}
+	}
+}
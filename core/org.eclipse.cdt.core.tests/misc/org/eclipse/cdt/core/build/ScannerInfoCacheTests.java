@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2018 QNX Software Systems and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.core.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.cdt.core.parser.ExtendedScannerInfo;
+import org.eclipse.cdt.core.parser.IExtendedScannerInfo;
+import org.eclipse.cdt.core.parser.IParserSettings;
+import org.eclipse.cdt.core.parser.IParserSettings2;
+import org.eclipse.cdt.core.parser.IncludeExportPatterns;
+import org.eclipse.cdt.core.parser.ParserSettings;
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests for the binary form of the {@link ScannerInfoCache}.
+ */
+public class ScannerInfoCacheTests extends BaseTestCase {
+	public static Test suite() {
+		return new TestSuite(ScannerInfoCacheTests.class);
+	}
+
+	private IProject fProject;
+	private File fCacheFile;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fProject = ResourcesPlugin.getWorkspace().getRoot().getProject("scannerinfo_" + getName());
+		fProject.create(new NullProgressMonitor());
+		fProject.open(new NullProgressMonitor());
+		fCacheFile = File.createTempFile("scannerInfo", ".bin");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fCacheFile.delete();
+		fProject.delete(true, new NullProgressMonitor());
+		super.tearDown();
+	}
+
+	public void testRoundTrip() throws Exception {
+		Map<String, String> symbols = new HashMap<>();
+		symbols.put("VALUE", "1");
+		symbols.put("DEFINED", null);
+		symbols.put("EMPTY", "");
+		ExtendedScannerInfo info1 = new ExtendedScannerInfo(symbols, new String[] { "/usr/include", "/opt/include" },
+				null, new String[] { "config.h" }, null);
+		info1.setIncludeExportPatterns(new IncludeExportPatterns("export", null, "end"));
+		ParserSettings settings = new ParserSettings();
+		settings.setMaximumTrivialExpressionsInAggregateInitializers(500);
+		info1.setParserSettings(settings);
+
+		ExtendedScannerInfo info2 = new ExtendedScannerInfo(symbols, null);
+		info2.setParserSettings(new IParserSettings2.Default() {
+			@Override
+			public boolean shouldLimitTokensPerTranslationUnit() {
+				return true;
+			}
+
+			@Override
+			public int getMaximumTokensPerTranslationUnit() {
+				return 12345;
+			}
+		});
+
+		List<String> command1 = Arrays.asList("gcc", "-DVALUE=1", "-c", "a.c");
+		List<String> command2 = Arrays.asList("gcc", "-c", "b.c");
+		IFile a = fProject.getFile("a.c");
+		IFile b = fProject.getFile("b.c");
+		IFile c = fProject.getFile("c.c");
+		ScannerInfoCache cache = new ScannerInfoCache();
+		cache.initCache();
+		cache.addScannerInfo(command1, info1, a);
+		cache.addResource(command1, c);
+		cache.addScannerInfo(command2, info2, b);
+
+		cache.write(fCacheFile);
+		// The file is replaced when it exists.
+		cache.write(fCacheFile);
+		ScannerInfoCache restored = ScannerInfoCache.read(fCacheFile);
+
+		assertTrue(restored.hasResource(command1, a));
+		assertTrue(restored.hasResource(command1, c));
+		assertTrue(restored.hasResource(command2, b));
+		assertSame(restored.getScannerInfo(a), restored.getScannerInfo(c));
+		assertSame(restored.getScannerInfo(command1), restored.getScannerInfo(a));
+
+		IExtendedScannerInfo restored1 = restored.getScannerInfo(a);
+		assertScannerInfo(info1, restored1);
+		assertTrue(restored1.getDefinedSymbols().containsKey("DEFINED"));
+		assertNull(restored1.getDefinedSymbols().get("DEFINED"));
+		assertEquals("", restored1.getDefinedSymbols().get("EMPTY"));
+		IncludeExportPatterns patterns = ((ExtendedScannerInfo) restored1).getIncludeExportPatterns();
+		assertEquals("export", patterns.getIncludeExportPattern().pattern());
+		assertNull(patterns.getIncludeBeginExportsPattern());
+		assertEquals("end", patterns.getIncludeEndExportsPattern().pattern());
+		IParserSettings settings1 = ((ExtendedScannerInfo) restored1).getParserSettings();
+		assertFalse(settings1 instanceof IParserSettings2);
+		assertEquals(500, settings1.getMaximumTrivialExpressionsInAggregateInitializers());
+
+		IExtendedScannerInfo restored2 = restored.getScannerInfo(b);
+		assertScannerInfo(info2, restored2);
+		assertNull(((ExtendedScannerInfo) restored2).getIncludeExportPatterns());
+		IParserSettings2 settings2 = (IParserSettings2) ((ExtendedScannerInfo) restored2).getParserSettings();
+		assertTrue(settings2.shouldLimitTokensPerTranslationUnit());
+		assertEquals(12345, settings2.getMaximumTokensPerTranslationUnit());
+		assertEquals(-1, settings2.getMaximumTrivialExpressionsInAggregateInitializers());
+		// Identical macro maps are shared.
+		assertSame(restored1.getDefinedSymbols(), restored2.getDefinedSymbols());
+	}
+
+	public void testWithoutParserSettings() throws Exception {
+		ScannerInfoCache cache = new ScannerInfoCache();
+		cache.initCache();
+		List<String> command = Arrays.asList("gcc", "-c", "a.c");
+		cache.addScannerInfo(command, new ExtendedScannerInfo(null, null), fProject.getFile("a.c"));
+		cache.write(fCacheFile);
+
+		ExtendedScannerInfo restored = (ExtendedScannerInfo) ScannerInfoCache.read(fCacheFile).getScannerInfo(command);
+		assertNull(restored.getParserSettings());
+		assertTrue(restored.getDefinedSymbols().isEmpty());
+		assertEquals(0, restored.getIncludePaths().length);
+	}
+
+	public void testCorruptFile() throws Exception {
+		ScannerInfoCache cache = new ScannerInfoCache();
+		cache.initCache();
+		cache.addScannerInfo(Arrays.asList("gcc", "-c", "a.c"), new ExtendedScannerInfo(null, null),
+				fProject.getFile("a.c"));
+		cache.write(fCacheFile);
+		byte[] bytes = Files.readAllBytes(fCacheFile.toPath());
+		Files.write(fCacheFile.toPath(), Arrays.copyOf(bytes, bytes.length - 4));
+		try {
+			ScannerInfoCache.read(fCacheFile);
+			fail();
+		} catch (IOException e) {
+		}
+	}
+
+	private static void assertScannerInfo(IExtendedScannerInfo expected, IExtendedScannerInfo actual) {
+		assertEquals(expected.getDefinedSymbols(), actual.getDefinedSymbols());
+		assertTrue(Arrays.equals(expected.getIncludePaths(), actual.getIncludePaths()));
+		assertTrue(Arrays.equals(expected.getMacroFiles(), actual.getMacroFiles()));
+		assertTrue(Arrays.equals(expected.getIncludeFiles(), actual.getIncludeFiles()));
+		assertTrue(Arrays.equals(expected.getLocalIncludePath(), actual.getLocalIncludePath()));
+	}
+}
@@ -12,6 +12,7 @@
 package org.eclipse.cdt.core.internal.errorparsers.tests;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -28,6 +29,7 @@ import org.eclipse.cdt.core.errorparsers.RegexErrorPattern;
 import org.eclipse.cdt.core.testplugin.CTestPlugin;
 import org.eclipse.cdt.core.testplugin.ResourceHelper;
 import org.eclipse.cdt.internal.errorparsers.ErrorParserExtensionManager;
+import org.eclipse.cdt.internal.errorparsers.ErrorParserPrefilter;
 import org.eclipse.cdt.internal.errorparsers.GASErrorParser;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
@@ -744,5 +746,64 @@ public class RegexErrorParserTests extends TestCase {
 		assertEquals(0, errorList.size());
 	}
 
+	/**
+	 * Check the literal text required by error patterns.
+	 *
+	 * @throws Exception...
+	 */
+	public void testRegexErrorPatternAnchor() throws Exception {
+		assertEquals(" undeclared ", ErrorParserPrefilter.getAnchor("(.*?):(\\d+):(\\d+:)? [Ee]rror: ([`'\"](.*)['\"] undeclared .*)"));
+		assertEquals("]: Entering directory ", ErrorParserPrefilter.getAnchor("make\\[(.*)\\]: Entering directory [`'](.*)'"));
+		assertEquals("skip me", ErrorParserPrefilter.getAnchor("(.*)!(skip me)!(.*)!(.*)"));
+		assertEquals("bar", ErrorParserPrefilter.getAnchor("(?:foo)?bar"));
+		assertEquals("ab", ErrorParserPrefilter.getAnchor("ab+c"));
+		assertEquals("BC", ErrorParserPrefilter.getAnchor("\\x41BC"));
+		// Alternatives, case-insensitive patterns and quotations are not analyzed
+		assertNull(ErrorParserPrefilter.getAnchor("error|warning"));
+		assertNull(ErrorParserPrefilter.getAnchor("(?i)error"));
+		assertNull(ErrorParserPrefilter.getAnchor("\\Qerror\\E"));
+		assertNull(ErrorParserPrefilter.getAnchor(".*"));
+	}
 
+	/**
+	 * Check that only the error parsers that may recognize a line are selected.
+	 *
+	 * @throws Exception...
+	 */
+	public void testErrorParserPrefilter() throws Exception {
+		RegexErrorParser errorParser = new RegexErrorParser();
+		errorParser.addPattern(new RegexErrorPattern("(.*):(\\d+): error: (.*)",
+				"$1", "$2", "$3", null, IMarkerGenerator.SEVERITY_ERROR_RESOURCE, true));
+		RegexErrorParser makeParser = new RegexErrorParser();
+		makeParser.addPattern(new RegexErrorPattern("make\\[(.*)\\]: (.*)",
+				null, null, "$2", null, IMarkerGenerator.SEVERITY_INFO, true));
+		RegexErrorParser anyParser = new RegexErrorParser();
+		anyParser.addPattern(new RegexErrorPattern("(.*)",
+				null, null, "$1", null, IMarkerGenerator.SEVERITY_INFO, true));
+
+		List<IErrorParser> parsers = new ArrayList<IErrorParser>();
+		parsers.add(errorParser);
+		parsers.add(makeParser);
+		parsers.add(new DummyErrorParser());
+		parsers.add(anyParser);
+		ErrorParserPrefilter prefilter = new ErrorParserPrefilter(parsers);
+
+		prefilter.match("file.c:10: error: expected ';'");
+		assertTrue(prefilter.isCandidate(0));
+		assertFalse(prefilter.isCandidate(1));
+		assertTrue(prefilter.isCandidate(2));
+		assertTrue(prefilter.isCandidate(3));
+
+		prefilter.match("make[1]: Nothing to be done for 'all'.");
+		assertFalse(prefilter.isCandidate(0));
+		assertTrue(prefilter.isCandidate(1));
+		assertTrue(prefilter.isCandidate(2));
+		assertTrue(prefilter.isCandidate(3));
+
+		prefilter.match("gcc -c file.c");
+		assertFalse(prefilter.isCandidate(0));
+		assertFalse(prefilter.isCandidate(1));
+		assertTrue(prefilter.isCandidate(2));
+		assertTrue(prefilter.isCandidate(3));
+	}
 }
@@ -22,9 +22,11 @@ import org.eclipse.cdt.core.model.CoreModel;
 import org.eclipse.cdt.core.model.ICProject;
 import org.eclipse.cdt.core.model.ILanguage;
 import org.eclipse.cdt.core.model.ITranslationUnit;
+import org.eclipse.cdt.core.model.IWorkingCopy;
 import org.eclipse.cdt.core.testplugin.CProjectHelper;
 import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
 import org.eclipse.cdt.core.testplugin.util.TestSourceReader;
+import org.eclipse.cdt.internal.core.dom.parser.ASTTranslationUnit;
 import org.eclipse.cdt.internal.core.model.ASTCache;
 import org.eclipse.cdt.internal.core.model.ASTCache.ASTRunnable;
 import org.eclipse.core.resources.IContainer;
@@ -311,6 +313,145 @@ public class ASTCacheTests extends BaseTestCase {
 		}
 	}
 
+	public void testRetainedASTs() throws Exception {
+		final ASTCache cache= new ASTCache(1000 * 1000);
+		final IASTTranslationUnit[] ast1= { null };
+		cache.setActiveElement(fTU1);
+		waitForAST(cache, fTU1, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) {
+				assertNotNull(ast);
+				ast1[0]= ast;
+				return Status.OK_STATUS;
+			}
+		});
+		assertEquals(0, cache.getRetainedNodeCount());
+
+		// The AST of the previously active translation unit is retained.
+		cache.setActiveElement(fTU2);
+		assertTrue(cache.getRetainedNodeCount() > 0);
+		cache.runOnAST(fTU1, false, null, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) {
+				assertSame(ast1[0], ast);
+				return Status.OK_STATUS;
+			}
+		});
+
+		// Switching back reuses the retained AST.
+		cache.setActiveElement(fTU1);
+		cache.runOnAST(fTU1, false, null, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) {
+				assertSame(ast1[0], ast);
+				return Status.OK_STATUS;
+			}
+		});
+		assertEquals(0, cache.getRetainedNodeCount());
+
+		// Without a budget no AST is retained.
+		final ASTCache noRetainCache= new ASTCache(0);
+		noRetainCache.setActiveElement(fTU1);
+		waitForAST(noRetainCache, fTU1, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) {
+				assertNotNull(ast);
+				return Status.OK_STATUS;
+			}
+		});
+		noRetainCache.setActiveElement(fTU2);
+		noRetainCache.runOnAST(fTU1, false, null, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) {
+				assertNull(ast);
+				return Status.OK_STATUS;
+			}
+		});
+	}
+
+	public void testRetainedASTOfReopenedFile() throws Exception {
+		final ASTCache cache= new ASTCache(1000 * 1000);
+		final IASTTranslationUnit[] ast1= { null };
+		IWorkingCopy workingCopy= fTU1.getWorkingCopy();
+		cache.setActiveElement(workingCopy);
+		waitForAST(cache, workingCopy, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) {
+				assertNotNull(ast);
+				ast1[0]= ast;
+				return Status.OK_STATUS;
+			}
+		});
+
+		// Closing the editor discards the working copy, the AST is retained for the file.
+		cache.setActiveElement(null);
+		workingCopy.destroy();
+		assertTrue(cache.getRetainedNodeCount() > 0);
+
+		// Reopening the file reuses the AST.
+		final IWorkingCopy reopened= fTU1.getWorkingCopy();
+		try {
+			cache.setActiveElement(reopened);
+			cache.runOnAST(reopened, false, null, new ASTRunnable() {
+				@Override
+				public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) {
+					assertSame(ast1[0], ast);
+					assertEquals(reopened, ast.getOriginatingTranslationUnit());
+					return Status.OK_STATUS;
+				}
+			});
+		} finally {
+			reopened.destroy();
+		}
+	}
+
+	public void testRetainedASTIsNotModifiedWhileShared() throws Exception {
+		final ASTCache cache= new ASTCache(1000 * 1000);
+		final IASTTranslationUnit[] ast1= { null };
+		IWorkingCopy workingCopy= fTU1.getWorkingCopy();
+		cache.setActiveElement(workingCopy);
+		waitForAST(cache, workingCopy, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) {
+				assertNotNull(ast);
+				ast1[0]= ast;
+				return Status.OK_STATUS;
+			}
+		});
+		cache.setActiveElement(null);
+		workingCopy.destroy();
+
+		// The AST retained for the working copy is not handed out for the plain translation unit.
+		cache.runOnAST(fTU1, false, null, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) {
+				assertNull(ast);
+				return Status.OK_STATUS;
+			}
+		});
+		assertEquals(workingCopy, ast1[0].getOriginatingTranslationUnit());
+
+		// While another thread uses the AST, it is not attached to a reopened working copy.
+		final IWorkingCopy reopened= fTU1.getWorkingCopy();
+		ASTTranslationUnit shared= (ASTTranslationUnit) ast1[0];
+		shared.beginExclusiveAccess();
+		try {
+			cache.setActiveElement(reopened);
+			cache.runOnAST(reopened, false, null, new ASTRunnable() {
+				@Override
+				public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) {
+					assertNull(ast);
+					return Status.OK_STATUS;
+				}
+			});
+			assertEquals(workingCopy, shared.getOriginatingTranslationUnit());
+			assertEquals(0, cache.getRetainedNodeCount());
+		} finally {
+			shared.endExclusiveAccess();
+			reopened.destroy();
+		}
+	}
+
 	private void waitForAST(ASTCache cache, ITranslationUnit tUnit, ASTRunnable runnable) {
 		if (DEBUG) System.out.println("waiting for "+tUnit.getElementName());
 		long start= System.currentTimeMillis();
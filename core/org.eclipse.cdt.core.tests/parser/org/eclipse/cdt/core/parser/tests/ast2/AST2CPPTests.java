@@ -154,6 +154,7 @@ import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPInternalBinding;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.OverloadableOperator;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.CPPSemantics;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.CPPVisitor;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.OverloadResolutionCache;
 import org.eclipse.cdt.internal.core.index.IndexCPPSignatureUtil;
 import org.eclipse.cdt.internal.core.parser.ParserException;
 
@@ -12653,4 +12654,31 @@ public class AST2CPPTests extends AST2CPPTestBase {
 	public void testNestedNamespaceDefinition_490359() throws Exception {
 		parseAndCheckBindings();
 	}
+
+	//	struct S { S(int); };
+	//	void f(S);
+	//	void f(double);
+	//	void g(int&);
+	//	void g(int&&);
+	//	void test() {
+	//		int a, b;
+	//		f(a); g(a); g(1);
+	//		f(S(b)); g(b); g(2);
+	//	}
+	public void testRepeatedOverloadResolution() throws Exception {
+		long hits = OverloadResolutionCache.getResolutionHits();
+		BindingAssertionHelper helper = getAssertionHelper();
+		ICPPFunction fS = helper.assertNonProblem("f(S);", 1);
+		ICPPFunction fDouble = helper.assertNonProblem("f(double);", 1);
+		ICPPFunction gLValue = helper.assertNonProblem("g(int&);", 1);
+		ICPPFunction gRValue = helper.assertNonProblem("g(int&&);", 1);
+		assertSame(fDouble, helper.assertNonProblem("f(a)", 1));
+		assertSame(fS, helper.assertNonProblem("f(S(b))", 1));
+		assertSame(gLValue, helper.assertNonProblem("g(a)", 1));
+		assertSame(gLValue, helper.assertNonProblem("g(b)", 1));
+		assertSame(gRValue, helper.assertNonProblem("g(1)", 1));
+		assertSame(gRValue, helper.assertNonProblem("g(2)", 1));
+		// g(b) and g(2) are resolved like g(a) and g(1).
+		assertTrue(OverloadResolutionCache.getResolutionHits() >= hits + 2);
+	}
 }
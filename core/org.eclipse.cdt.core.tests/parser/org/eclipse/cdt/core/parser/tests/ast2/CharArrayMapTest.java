@@ -239,6 +239,37 @@ public class CharArrayMapTest extends TestCase {
 	}
 
 	
+	public void testGrowAndRemove() {
+		final int count = 1000;
+		char[][] keys = new char[count][];
+		CharArrayMap<Integer> map = new CharArrayMap<Integer>(1);
+		for(int i = 0; i < count; i++) {
+			keys[i] = ("key" + i).toCharArray();
+			map.put(keys[i], i);
+		}
+		assertEquals(count, map.size());
+		assertEquals(count, map.keys().size());
+
+		// remove every other key, the remaining ones must still be found
+		for(int i = 0; i < count; i += 2) {
+			assertEquals(Integer.valueOf(i), map.remove(keys[i]));
+		}
+		assertEquals(count / 2, map.size());
+		for(int i = 0; i < count; i++) {
+			if(i % 2 == 0) {
+				assertFalse(map.containsKey(keys[i]));
+				assertNull(map.get(keys[i]));
+			} else {
+				assertEquals(Integer.valueOf(i), map.get(("key" + i).toCharArray()));
+			}
+		}
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.get(keys[1]));
+	}
+
+
 	public void testOrderedMap() {
 		char[] chars = "alpha beta aaa cappa almost".toCharArray();
 		Slice[] slices = {
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.core.parser.tests.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal microbenchmark harness. Every benchmark is warmed up, then measured in a number of
+ * iterations that each last at least a given time. Only the {@link Benchmark#run()} part of an
+ * operation is timed, its {@link Benchmark#setUp()} is not. The results can be stored as a
+ * baseline and later runs compared against it.
+ */
+public class BenchmarkRunner {
+	private static final String SCORE_SUFFIX = ".score";
+	private static final String ERROR_SUFFIX = ".error";
+
+	/**
+	 * A single benchmark, one invocation of {@link #setUp()} and {@link #run()} is one operation.
+	 */
+	public static abstract class Benchmark {
+		private final String fName;
+
+		protected Benchmark(String name) {
+			fName = name;
+		}
+
+		public String getName() {
+			return fName;
+		}
+
+		/**
+		 * Prepares a single operation, not included in the measurement.
+		 */
+		protected void setUp() throws Exception {
+		}
+
+		/**
+		 * Performs the measured operation. The result is consumed by the runner, such that the JIT
+		 * cannot eliminate the work.
+		 */
+		protected abstract Object run() throws Exception;
+	}
+
+	public static class Result {
+		public final String fName;
+		/** Average time per operation, in nanoseconds. */
+		public final double fScore;
+		/** Standard deviation of the per-iteration averages, in nanoseconds. */
+		public final double fError;
+
+		public Result(String name, double score, double error) {
+			fName = name;
+			fScore = score;
+			fError = error;
+		}
+	}
+
+	private int fWarmupIterations = 5;
+	private int fMeasurementIterations = 10;
+	private long fMinIterationTime = 500 * 1000000L;
+	private double fThreshold = 0.1;
+	private volatile int fSink;
+
+	public void setWarmupIterations(int iterations) {
+		fWarmupIterations = iterations;
+	}
+
+	public void setMeasurementIterations(int iterations) {
+		fMeasurementIterations = Math.max(1, iterations);
+	}
+
+	/**
+	 * Sets the minimum duration of an iteration in milliseconds.
+	 */
+	public void setMinIterationTime(long millis) {
+		fMinIterationTime = millis * 1000000L;
+	}
+
+	/**
+	 * Sets the relative slowdown, compared to the baseline, that is reported as a regression.
+	 */
+	public void setThreshold(double threshold) {
+		fThreshold = threshold;
+	}
+
+	public List<Result> run(List<Benchmark> benchmarks, String filter, PrintStream log) throws Exception {
+		Pattern pattern = filter == null ? null : Pattern.compile(filter);
+		List<Result> results = new ArrayList<>();
+		for (Benchmark benchmark : benchmarks) {
+			if (pattern != null && !pattern.matcher(benchmark.getName()).find())
+				continue;
+			log.println("# Benchmark: " + benchmark.getName());
+			results.add(measure(benchmark, log));
+		}
+		return results;
+	}
+
+	public Result measure(Benchmark benchmark, PrintStream log) throws Exception {
+		for (int i = 0; i < fWarmupIterations; i++) {
+			double score = runIteration(benchmark);
+			log.println(String.format("# Warmup iteration %d: %.3f ms/op", i + 1, score / 1e6));
+		}
+		double[] samples = new double[fMeasurementIterations];
+		double sum = 0;
+		for (int i = 0; i < samples.length; i++) {
+			samples[i] = runIteration(benchmark);
+			sum += samples[i];
+			log.println(String.format("Iteration %d: %.3f ms/op", i + 1, samples[i] / 1e6));
+		}
+		double mean = sum / samples.length;
+		double variance = 0;
+		for (double sample : samples) {
+			variance += (sample - mean) * (sample - mean);
+		}
+		double error = samples.length > 1 ? Math.sqrt(variance / (samples.length - 1)) : 0;
+		return new Result(benchmark.getName(), mean, error);
+	}
+
+	private double runIteration(Benchmark benchmark) throws Exception {
+		long measured = 0;
+		int operations = 0;
+		final long start = System.nanoTime();
+		do {
+			benchmark.setUp();
+			long t = System.nanoTime();
+			Object result = benchmark.run();
+			measured += System.nanoTime() - t;
+			fSink += System.identityHashCode(result);
+			operations++;
+		} while (System.nanoTime() - start < fMinIterationTime);
+		return (double) measured / operations;
+	}
+
+	/**
+	 * Prints the results and, if a baseline is given, their change relative to the baseline.
+	 * @return {@code true} if none of the benchmarks regressed beyond the threshold.
+	 */
+	public boolean report(List<Result> results, Properties baseline, PrintStream out) {
+		boolean ok = true;
+		out.println();
+		out.println(String.format("%-32s %12s %10s %12s %9s",
+				"Benchmark", "ms/op", "Error", "Baseline", "Change"));
+		for (Result result : results) {
+			String line = String.format("%-32s %12.3f %10.3f", result.fName, result.fScore / 1e6,
+					result.fError / 1e6);
+			String base = baseline == null ? null : baseline.getProperty(result.fName + SCORE_SUFFIX);
+			if (base != null) {
+				double baseScore = Double.parseDouble(base);
+				double change = (result.fScore - baseScore) / baseScore;
+				line += String.format(" %12.3f %+8.1f%%", baseScore / 1e6, change * 100);
+				if (change > fThreshold) {
+					line += "  REGRESSION";
+					ok = false;
+				}
+			}
+			out.println(line);
+		}
+		return ok;
+	}
+
+	public static Properties loadBaseline(File file) throws IOException {
+		Properties baseline = new Properties();
+		try (InputStream in = new FileInputStream(file)) {
+			baseline.load(in);
+		}
+		return baseline;
+	}
+
+	public static void saveResults(List<Result> results, File file) throws IOException {
+		Properties properties = new Properties();
+		for (Result result : results) {
+			properties.setProperty(result.fName + SCORE_SUFFIX, Double.toString(result.fScore));
+			properties.setProperty(result.fName + ERROR_SUFFIX, Double.toString(result.fError));
+		}
+		try (OutputStream out = new FileOutputStream(file)) {
+			properties.store(out, "Benchmark results, average time per operation in nanoseconds");
+		}
+	}
+}
@@ -0,0 +1,537 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.core.parser.tests.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.eclipse.cdt.core.dom.ast.ASTVisitor;
+import org.eclipse.cdt.core.dom.ast.IASTName;
+import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
+import org.eclipse.cdt.core.dom.parser.cpp.GPPParserExtensionConfiguration;
+import org.eclipse.cdt.core.dom.parser.cpp.GPPScannerExtensionConfiguration;
+import org.eclipse.cdt.core.parser.EndOfFileException;
+import org.eclipse.cdt.core.parser.FileContent;
+import org.eclipse.cdt.core.parser.IScannerInfo;
+import org.eclipse.cdt.core.parser.IToken;
+import org.eclipse.cdt.core.parser.IncludeFileContentProvider;
+import org.eclipse.cdt.core.parser.NullLogService;
+import org.eclipse.cdt.core.parser.ParserLanguage;
+import org.eclipse.cdt.core.parser.ParserMode;
+import org.eclipse.cdt.core.parser.ScannerInfo;
+import org.eclipse.cdt.core.parser.tests.benchmarks.BenchmarkRunner.Benchmark;
+import org.eclipse.cdt.core.parser.tests.benchmarks.BenchmarkRunner.Result;
+import org.eclipse.cdt.core.parser.tests.scanner.FileCodeReaderFactory;
+import org.eclipse.cdt.core.parser.util.CharArrayMap;
+import org.eclipse.cdt.core.parser.util.CharArrayObjectMap;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPASTTranslationUnit;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.GNUCPPSourceParser;
+import org.eclipse.cdt.internal.core.parser.scanner.CPreprocessor;
+import org.eclipse.cdt.internal.core.parser.scanner.ILexerLog;
+import org.eclipse.cdt.internal.core.parser.scanner.Lexer;
+import org.eclipse.cdt.internal.core.parser.scanner.Lexer.LexerOptions;
+import org.eclipse.cdt.internal.core.parser.scanner.Token;
+
+/**
+ * Benchmarks for the hot paths of the C++ parser: tokenization by the {@link Lexer}, macro expansion
+ * in the {@link CPreprocessor}, parsing with the {@link GNUCPPSourceParser}, name lookup and overload
+ * resolution, template instantiation, and the maps keyed by {@code char[]} that back the macro
+ * dictionary and the scopes.
+ * <p>
+ * Run as a Java application with the classpath of this plug-in. Arguments:
+ * <pre>
+ * -filter &lt;regex&gt;     only run the benchmarks whose name matches
+ * -baseline &lt;file&gt;    compare the results with a baseline, exits with 1 on a regression
+ * -save &lt;file&gt;        store the results, for use as a baseline
+ * -threshold &lt;pct&gt;    slowdown reported as a regression, 10 by default
+ * -warmup &lt;n&gt;         number of warmup iterations, 5 by default
+ * -iterations &lt;n&gt;     number of measurement iterations, 10 by default
+ * -time &lt;ms&gt;          minimum duration of an iteration, 500 by default
+ * </pre>
+ * Real-world headers are parsed when the system property {@code benchmark.includePaths} lists
+ * the include directories of a compiler, separated by {@link File#pathSeparator}. The headers
+ * are taken from {@code benchmark.headers}, a comma separated list.
+ */
+public class ParserBenchmarks {
+	private static final int SIZE = 500;
+
+	public static void main(String[] args) throws Exception {
+		BenchmarkRunner runner = new BenchmarkRunner();
+		String filter = null;
+		File baselineFile = null;
+		File saveFile = null;
+		for (int i = 0; i < args.length - 1; i += 2) {
+			String value = args[i + 1];
+			switch (args[i]) {
+			case "-filter":
+				filter = value;
+				break;
+			case "-baseline":
+				baselineFile = new File(value);
+				break;
+			case "-save":
+				saveFile = new File(value);
+				break;
+			case "-threshold":
+				runner.setThreshold(Double.parseDouble(value) / 100);
+				break;
+			case "-warmup":
+				runner.setWarmupIterations(Integer.parseInt(value));
+				break;
+			case "-iterations":
+				runner.setMeasurementIterations(Integer.parseInt(value));
+				break;
+			case "-time":
+				runner.setMinIterationTime(Long.parseLong(value));
+				break;
+			default:
+				System.err.println("Unknown argument: " + args[i]);
+				System.exit(2);
+			}
+		}
+
+		List<Result> results = runner.run(createBenchmarks(), filter, System.out);
+		Properties baseline = baselineFile == null ? null : BenchmarkRunner.loadBaseline(baselineFile);
+		boolean ok = runner.report(results, baseline, System.out);
+		if (saveFile != null)
+			BenchmarkRunner.saveResults(results, saveFile);
+		System.exit(ok ? 0 : 1);
+	}
+
+	public static List<Benchmark> createBenchmarks() {
+		List<Benchmark> benchmarks = new ArrayList<>();
+		final char[] lexerInput = createDeclarations(SIZE).toCharArray();
+		benchmarks.add(new Benchmark("lexer") {
+			@Override
+			protected Object run() throws Exception {
+				Lexer lexer = new Lexer(lexerInput, new LexerOptions(), ILexerLog.NULL, null);
+				int count = 0;
+				for (Token t = lexer.nextToken(); t.getType() != IToken.tEND_OF_INPUT; t = lexer.nextToken()) {
+					count++;
+				}
+				return count;
+			}
+		});
+
+		final String macroCode = createMacroExpansions(SIZE);
+		benchmarks.add(new Benchmark("preprocessor.macroExpansion") {
+			@Override
+			protected Object run() throws Exception {
+				return preprocess(macroCode);
+			}
+		});
+
+		final String declarations = createDeclarations(SIZE);
+		benchmarks.add(new Benchmark("parser.synthetic") {
+			@Override
+			protected Object run() throws Exception {
+				return parse(declarations, new ScannerInfo(), IncludeFileContentProvider.getEmptyFilesProvider());
+			}
+		});
+
+		final String includePaths = System.getProperty("benchmark.includePaths");
+		if (includePaths != null) {
+			final String headers = System.getProperty("benchmark.headers", "vector,map,string,algorithm,memory");
+			benchmarks.add(new Benchmark("parser.headers") {
+				@Override
+				protected Object run() throws Exception {
+					return parseHeaders(headers.split(","), includePaths.split(File.pathSeparator));
+				}
+			});
+		}
+
+		benchmarks.add(new ResolutionBenchmark("semantics.lookup", createLookups(SIZE)));
+		benchmarks.add(new ResolutionBenchmark("templates.instantiation", createInstantiations(SIZE / 5)));
+
+		final char[][] keys = createKeys(SIZE * 10);
+		final char[][] lookupKeys = new char[keys.length][];
+		for (int i = 0; i < keys.length; i++) {
+			lookupKeys[i] = Arrays.copyOf(keys[i], keys[i].length);
+		}
+		addMapBenchmarks(benchmarks, "util.charArrayMap", keys, lookupKeys, new MapFactory() {
+			@Override
+			public CharKeyedMap create() {
+				return new CharKeyedMap() {
+					private final CharArrayMap<Object> fMap = new CharArrayMap<>();
+
+					@Override
+					public void put(char[] key, Object value) {
+						fMap.put(key, value);
+					}
+
+					@Override
+					public Object get(char[] key) {
+						return fMap.get(key);
+					}
+
+					@Override
+					public Object remove(char[] key) {
+						return fMap.remove(key);
+					}
+				};
+			}
+		});
+		addMapBenchmarks(benchmarks, "util.charArrayObjectMap", keys, lookupKeys, new MapFactory() {
+			@Override
+			public CharKeyedMap create() {
+				return new CharKeyedMap() {
+					private final CharArrayObjectMap<Object> fMap = new CharArrayObjectMap<>(4);
+
+					@Override
+					public void put(char[] key, Object value) {
+						fMap.put(key, value);
+					}
+
+					@Override
+					public Object get(char[] key) {
+						return fMap.get(key);
+					}
+
+					@Override
+					public Object remove(char[] key) {
+						return fMap.remove(key, 0, key.length);
+					}
+				};
+			}
+		});
+		addMapBenchmarks(benchmarks, "util.keyObjectMap", keys, lookupKeys, new MapFactory() {
+			@Override
+			public CharKeyedMap create() {
+				return new KeyObjectMap();
+			}
+		});
+		return benchmarks;
+	}
+
+	/**
+	 * The operations of a map keyed by {@code char[]} that are measured.
+	 */
+	private interface CharKeyedMap {
+		void put(char[] key, Object value);
+
+		Object get(char[] key);
+
+		Object remove(char[] key);
+	}
+
+	private interface MapFactory {
+		CharKeyedMap create();
+	}
+
+	/**
+	 * A {@link HashMap} wrapping every key in an object, the way {@link CharArrayMap} stored its keys
+	 * before it used open addressing. Serves as the baseline for the maps keyed by {@code char[]}.
+	 */
+	private static class KeyObjectMap implements CharKeyedMap {
+		private static final class Key {
+			private final char[] fBuffer;
+			private final int fStart;
+			private final int fLength;
+
+			Key(char[] buffer, int start, int length) {
+				fBuffer = buffer;
+				fStart = start;
+				fLength = length;
+			}
+
+			@Override
+			public boolean equals(Object obj) {
+				if (this == obj)
+					return true;
+				if (!(obj instanceof Key))
+					return false;
+				Key other = (Key) obj;
+				if (fLength != other.fLength)
+					return false;
+				for (int i = 0; i < fLength; i++) {
+					if (fBuffer[fStart + i] != other.fBuffer[other.fStart + i])
+						return false;
+				}
+				return true;
+			}
+
+			@Override
+			public int hashCode() {
+				int result = 17;
+				for (int i = fStart; i < fStart + fLength; i++) {
+					result = 37 * result + fBuffer[i];
+				}
+				return result;
+			}
+		}
+
+		private final Map<Key, Object> fMap = new HashMap<>();
+
+		@Override
+		public void put(char[] key, Object value) {
+			fMap.put(new Key(key, 0, key.length), value);
+		}
+
+		@Override
+		public Object get(char[] key) {
+			return fMap.get(new Key(key, 0, key.length));
+		}
+
+		@Override
+		public Object remove(char[] key) {
+			return fMap.remove(new Key(key, 0, key.length));
+		}
+	}
+
+	/**
+	 * Adds benchmarks for filling a map, looking up all of its keys with equal arrays, and removing
+	 * all of its keys.
+	 */
+	private static void addMapBenchmarks(List<Benchmark> benchmarks, String name, final char[][] keys,
+			final char[][] lookupKeys, final MapFactory factory) {
+		benchmarks.add(new Benchmark(name + ".put") {
+			@Override
+			protected Object run() throws Exception {
+				CharKeyedMap map = factory.create();
+				for (char[] key : keys) {
+					map.put(key, key);
+				}
+				return map;
+			}
+		});
+		benchmarks.add(new Benchmark(name + ".get") {
+			private CharKeyedMap fMap;
+
+			@Override
+			protected void setUp() throws Exception {
+				if (fMap == null) {
+					fMap = factory.create();
+					for (char[] key : keys) {
+						fMap.put(key, key);
+					}
+				}
+			}
+
+			@Override
+			protected Object run() throws Exception {
+				int count = 0;
+				for (char[] key : lookupKeys) {
+					if (fMap.get(key) != null)
+						count++;
+				}
+				return count;
+			}
+		});
+		benchmarks.add(new Benchmark(name + ".remove") {
+			private CharKeyedMap fMap;
+
+			@Override
+			protected void setUp() throws Exception {
+				fMap = factory.create();
+				for (char[] key : keys) {
+					fMap.put(key, key);
+				}
+			}
+
+			@Override
+			protected Object run() throws Exception {
+				int count = 0;
+				for (char[] key : lookupKeys) {
+					if (fMap.remove(key) != null)
+						count++;
+				}
+				return count;
+			}
+		});
+	}
+
+	/**
+	 * Parses the code in {@link #setUp()}, the measured operation resolves all names of the AST.
+	 */
+	private static class ResolutionBenchmark extends Benchmark {
+		private final String fCode;
+		private IASTTranslationUnit fAST;
+
+		ResolutionBenchmark(String name, String code) {
+			super(name);
+			fCode = code;
+		}
+
+		@Override
+		protected void setUp() throws Exception {
+			fAST = parse(fCode, new ScannerInfo(), IncludeFileContentProvider.getEmptyFilesProvider());
+		}
+
+		@Override
+		protected Object run() throws Exception {
+			final int[] count = new int[1];
+			fAST.accept(new ASTVisitor() {
+				{
+					shouldVisitNames = true;
+				}
+
+				@Override
+				public int visit(IASTName name) {
+					if (name.resolveBinding() != null)
+						count[0]++;
+					return PROCESS_CONTINUE;
+				}
+			});
+			return count[0];
+		}
+	}
+
+	static IASTTranslationUnit parse(String code, IScannerInfo info, IncludeFileContentProvider contentProvider)
+			throws Exception {
+		NullLogService log = new NullLogService();
+		CPreprocessor scanner = new CPreprocessor(FileContent.create("<benchmark>", code.toCharArray()), info,
+				ParserLanguage.CPP, log, GPPScannerExtensionConfiguration.getInstance(info), contentProvider);
+		GNUCPPSourceParser parser = new GNUCPPSourceParser(scanner, ParserMode.COMPLETE_PARSE, log,
+				new GPPParserExtensionConfiguration(), null);
+		return parser.parse();
+	}
+
+	static int preprocess(String code) throws Exception {
+		IScannerInfo info = new ScannerInfo();
+		CPreprocessor cpp = new CPreprocessor(FileContent.create("<benchmark>", code.toCharArray()), info,
+				ParserLanguage.CPP, new NullLogService(), GPPScannerExtensionConfiguration.getInstance(info),
+				IncludeFileContentProvider.getEmptyFilesProvider());
+		cpp.getLocationMap().setRootNode(new CPPASTTranslationUnit());
+		int count = 0;
+		try {
+			while (true) {
+				cpp.nextToken();
+				count++;
+			}
+		} catch (EndOfFileException e) {
+		}
+		return count;
+	}
+
+	static IASTTranslationUnit parseHeaders(String[] headers, String[] includePaths) throws Exception {
+		StringBuilder code = new StringBuilder();
+		for (String header : headers) {
+			code.append("#include <").append(header.trim()).append(">\n");
+		}
+		Map<String, String> definitions = new HashMap<>();
+		definitions.put("__GNUC__", "7");
+		definitions.put("__GNUC_MINOR__", "3");
+		definitions.put("__GNUC_PATCHLEVEL__", "0");
+		definitions.put("__x86_64__", "1");
+		definitions.put("__LP64__", "1");
+		definitions.put("__CHAR_BIT__", "8");
+		definitions.put("__SIZE_TYPE__", "unsigned long");
+		definitions.put("__PTRDIFF_TYPE__", "long");
+		definitions.put("__WCHAR_TYPE__", "int");
+		definitions.put("__STDC_HOSTED__", "1");
+		return parse(code.toString(), new ScannerInfo(definitions, includePaths), FileCodeReaderFactory.getInstance());
+	}
+
+	/**
+	 * Creates distinct identifiers resembling the names of macros and declarations.
+	 */
+	static char[][] createKeys(int n) {
+		String[] prefixes = { "__", "get", "m_", "CONFIG_", "is" };
+		char[][] keys = new char[n][];
+		for (int i = 0; i < n; i++) {
+			keys[i] = (prefixes[i % prefixes.length] + "Identifier" + i).toCharArray();
+		}
+		return keys;
+	}
+
+	static String createDeclarations(int n) {
+		StringBuilder buf = new StringBuilder();
+		buf.append("namespace ns {\n");
+		for (int i = 0; i < n; i++) {
+			buf.append("// Class number ").append(i).append('\n');
+			buf.append("class C").append(i).append(" {\n");
+			buf.append("public:\n");
+			buf.append("  C").append(i).append("(int a, double b) : fA(a), fB(b) {}\n");
+			buf.append("  /* Computes a value. */\n");
+			buf.append("  int compute(int x) const { return fA * 0x1F + (int) (fB / 3.5e2) - x % 7 + 'c'; }\n");
+			buf.append("  const char* name() const { return \"C").append(i).append("\"; }\n");
+			buf.append("private:\n");
+			buf.append("  int fA;\n");
+			buf.append("  double fB;\n");
+			buf.append("};\n");
+		}
+		buf.append("}\n");
+		return buf.toString();
+	}
+
+	static String createMacroExpansions(int n) {
+		StringBuilder buf = new StringBuilder();
+		buf.append("#define MAX(a, b) ((a) > (b) ? (a) : (b))\n");
+		buf.append("#define CAT(a, b) a ## b\n");
+		buf.append("#define STR(x) #x\n");
+		buf.append("#define CALL(f, ...) f(__VA_ARGS__)\n");
+		buf.append("#define NESTED(x) MAX(CALL(g, x, x + 1), MAX(x, CAT(v, 0)))\n");
+		buf.append("#define FLAG 1\n");
+		for (int i = 0; i < n; i++) {
+			buf.append("#if defined(FLAG) && FLAG > 0\n");
+			buf.append("int CAT(v, ").append(i).append(") = NESTED(").append(i).append(") + STR(")
+					.append(i).append(")[0];\n");
+			buf.append("#endif\n");
+		}
+		return buf.toString();
+	}
+
+	static String createLookups(int n) {
+		StringBuilder buf = new StringBuilder();
+		buf.append("namespace a { namespace b {\n");
+		buf.append("  struct Base { int value; int get() const; };\n");
+		buf.append("  struct Derived : Base { long other; };\n");
+		buf.append("  void f(int);\n");
+		buf.append("  void f(double);\n");
+		buf.append("  void f(const char*);\n");
+		buf.append("  void f(const Base&);\n");
+		buf.append("  void f(Base*, int);\n");
+		buf.append("}}\n");
+		buf.append("using namespace a::b;\n");
+		buf.append("void test() {\n");
+		buf.append("  Derived d;\n");
+		for (int i = 0; i < n; i++) {
+			buf.append("  int x").append(i).append(" = d.get() + d.value;\n");
+			buf.append("  f(x").append(i).append(");\n");
+			buf.append("  f(1.5 * x").append(i).append(");\n");
+			buf.append("  f(\"text\");\n");
+			buf.append("  f(d);\n");
+			buf.append("  a::b::f(&d, x").append(i).append(");\n");
+		}
+		buf.append("}\n");
+		return buf.toString();
+	}
+
+	static String createInstantiations(int n) {
+		StringBuilder buf = new StringBuilder();
+		buf.append("template<typename T> struct Box {\n");
+		buf.append("  T value;\n");
+		buf.append("  T get() const { return value; }\n");
+		buf.append("  template<typename U> Box<U> convert() const;\n");
+		buf.append("};\n");
+		buf.append("template<typename T, int N> struct Array { T data[N]; T& at(int i) { return data[i]; } };\n");
+		buf.append("template<typename T> T maximum(T a, T b) { return a > b ? a : b; }\n");
+		buf.append("template<typename T> struct Traits { typedef Box<T> type; };\n");
+		buf.append("template<> struct Traits<char> { typedef int type; };\n");
+		for (int i = 0; i < n; i++) {
+			buf.append("struct S").append(i).append(" { int x; bool operator>(const S").append(i)
+					.append("&) const; };\n");
+			buf.append("void test").append(i).append("() {\n");
+			buf.append("  Box<Array<S").append(i).append(", ").append(i + 1).append(">> b;\n");
+			buf.append("  int x = b.get().at(0).x;\n");
+			buf.append("  S").append(i).append(" s = maximum(b.get().at(0), b.value.data[0]);\n");
+			buf.append("  Traits<S").append(i).append(">::type t;\n");
+			buf.append("  Box<double> d = t.convert<double>();\n");
+			buf.append("}\n");
+		}
+		return buf.toString();
+	}
+}
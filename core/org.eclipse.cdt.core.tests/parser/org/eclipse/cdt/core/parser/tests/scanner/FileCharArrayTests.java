@@ -23,6 +23,7 @@ import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
 import org.eclipse.cdt.internal.core.parser.scanner.AbstractCharArray;
 import org.eclipse.cdt.internal.core.parser.scanner.FileCharArray;
 import org.eclipse.cdt.internal.core.parser.scanner.LazyCharArray;
+import org.eclipse.cdt.internal.core.parser.scanner.MappedFileCharArray;
 
 public class FileCharArrayTests extends BaseTestCase {
 	
@@ -63,6 +64,42 @@ public class FileCharArrayTests extends BaseTestCase {
 		testFile(false, LazyCharArray.CHUNK_SIZE*3+1);
 	}
 
+	public void testMappedFile() throws IOException {
+		if (File.separatorChar != '/')
+			return;
+
+		final int charSize = MappedFileCharArray.MIN_FILE_SIZE + 1;
+		createFile(true, charSize);
+
+		AbstractCharArray charArray = createCharArray("utf-8");
+		assertTrue(charArray instanceof MappedFileCharArray);
+		checkContent(charArray, 0, charSize);
+		assertEquals(charSize, charArray.getLength());
+
+		// The file is decoded the same way in a charset that is not mapped.
+		AbstractCharArray lazyArray = createCharArray("windows-1252");
+		assertTrue(lazyArray instanceof LazyCharArray);
+		assertEquals(lazyArray.getContentsHash(), charArray.getContentsHash());
+	}
+
+	public void testMappedFileWithNonASCIIContent() throws IOException {
+		final int charSize = MappedFileCharArray.MIN_FILE_SIZE + 1;
+		createFile(false, charSize);
+
+		AbstractCharArray charArray = createCharArray("utf-8");
+		assertTrue(charArray instanceof LazyCharArray);
+		checkContent(charArray, LazyCharArray.CHUNK_SIZE, charSize);
+	}
+
+	private AbstractCharArray createCharArray(String charSet) throws IOException {
+		final FileInputStream inputStream = new FileInputStream(fFile);
+		try {
+			return FileCharArray.create(fFile.getPath(), charSet, inputStream);
+		} finally {
+			inputStream.close();
+		}
+	}
+
 	private void testFile(boolean aligned, int charSize) throws IOException {
 		createFile(aligned, charSize);
 		
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.core.parser.tests.scanner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.core.parser.IPreprocessorDirective;
+import org.eclipse.cdt.core.parser.util.CharArrayIntMap;
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.internal.core.parser.scanner.CharArray;
+import org.eclipse.cdt.internal.core.parser.scanner.IncludeGuardCache;
+import org.eclipse.cdt.internal.core.parser.scanner.IncludeGuardDetection;
+import org.eclipse.cdt.internal.core.parser.scanner.Lexer.LexerOptions;
+
+public class IncludeGuardCacheTests extends BaseTestCase {
+
+	public static TestSuite suite() {
+		return suite(IncludeGuardCacheTests.class);
+	}
+
+	private File fFile;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fFile = File.createTempFile("includeGuards", ".guards");
+		fFile.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fFile.delete();
+		super.tearDown();
+	}
+
+	private CharArrayIntMap createPPKeywords() {
+		CharArrayIntMap ppKeywords = new CharArrayIntMap(10, -1);
+		ppKeywords.put("ifndef".toCharArray(), IPreprocessorDirective.ppIfndef);
+		ppKeywords.put("define".toCharArray(), IPreprocessorDirective.ppDefine);
+		ppKeywords.put("endif".toCharArray(), IPreprocessorDirective.ppEndif);
+		return ppKeywords;
+	}
+
+	public void testGetAndPut() throws Exception {
+		IncludeGuardCache cache = new IncludeGuardCache();
+		assertNull(cache.get(17, 1));
+
+		cache.put(17, 1, "GUARD_H".toCharArray());
+		cache.put(18, 1, null);
+		assertEquals("GUARD_H", new String(cache.get(17, 1)));
+		assertSame(IncludeGuardCache.NO_GUARD, cache.get(18, 1));
+		assertNull(cache.get(17, 2));
+		assertEquals(2, cache.size());
+	}
+
+	public void testLeastRecentlyUsedIsEvicted() throws Exception {
+		IncludeGuardCache cache = new IncludeGuardCache(3);
+		cache.put(1, 1, "A_H".toCharArray());
+		cache.put(2, 1, "B_H".toCharArray());
+		cache.put(3, 1, "C_H".toCharArray());
+		assertNotNull(cache.get(1, 1));
+
+		// New contents are still cached when the cache is full.
+		cache.put(4, 1, "D_H".toCharArray());
+		cache.put(5, 1, null);
+		assertEquals(3, cache.size());
+		assertEquals("D_H", new String(cache.get(4, 1)));
+		assertSame(IncludeGuardCache.NO_GUARD, cache.get(5, 1));
+		assertEquals("A_H", new String(cache.get(1, 1)));
+		assertNull(cache.get(2, 1));
+		assertNull(cache.get(3, 1));
+
+		// The order of use is kept in the file.
+		cache.save(fFile);
+		IncludeGuardCache loaded = IncludeGuardCache.load(fFile, 3);
+		assertEquals(3, loaded.size());
+		loaded.put(6, 1, "F_H".toCharArray());
+		assertNull(loaded.get(4, 1));
+		assertNotNull(loaded.get(5, 1));
+		assertNotNull(loaded.get(1, 1));
+		assertNotNull(loaded.get(6, 1));
+
+		// A smaller cache keeps the entries used most recently.
+		IncludeGuardCache small = IncludeGuardCache.load(fFile, 1);
+		assertEquals(1, small.size());
+		assertEquals("A_H", new String(small.get(1, 1)));
+	}
+
+	public void testSaveAndLoad() throws Exception {
+		IncludeGuardCache cache = new IncludeGuardCache();
+		cache.put(17, 1, "GUARD_H".toCharArray());
+		cache.put(-5, 3, null);
+		cache.save(fFile);
+		assertTrue(fFile.exists());
+
+		IncludeGuardCache loaded = IncludeGuardCache.load(fFile);
+		assertEquals(2, loaded.size());
+		assertEquals("GUARD_H", new String(loaded.get(17, 1)));
+		assertSame(IncludeGuardCache.NO_GUARD, loaded.get(-5, 3));
+	}
+
+	public void testLoadMissingOrCorruptFile() throws IOException {
+		assertEquals(0, IncludeGuardCache.load(fFile).size());
+
+		FileOutputStream out = new FileOutputStream(fFile);
+		try {
+			out.write(new byte[] { 0, 0, 0, 1, 0, 0 });
+		} finally {
+			out.close();
+		}
+		assertEquals(0, IncludeGuardCache.load(fFile).size());
+	}
+
+	public void testOptionsKey() throws Exception {
+		CharArrayIntMap ppKeywords = createPPKeywords();
+		LexerOptions options = new LexerOptions();
+		int key = IncludeGuardCache.getOptionsKey(options, ppKeywords);
+		assertEquals(key, IncludeGuardCache.getOptionsKey((LexerOptions) options.clone(), createPPKeywords()));
+
+		options.fSupportRawStringLiterals = !options.fSupportRawStringLiterals;
+		assertTrue(key != IncludeGuardCache.getOptionsKey(options, ppKeywords));
+	}
+
+	public void testDetectedGuardIsCached() throws Exception {
+		CharArrayIntMap ppKeywords = createPPKeywords();
+		LexerOptions options = new LexerOptions();
+		CharArray content = new CharArray("#ifndef GUARD_H\n#define GUARD_H\nint x;\n#endif\n");
+		char[] guard = IncludeGuardDetection.detectIncludeGuard(content, options, ppKeywords);
+		assertEquals("GUARD_H", new String(guard));
+
+		IncludeGuardCache cache = new IncludeGuardCache();
+		int key = IncludeGuardCache.getOptionsKey(options, ppKeywords);
+		cache.put(content.getContentsHash(), key, guard);
+		cache.save(fFile);
+		assertEquals("GUARD_H", new String(IncludeGuardCache.load(fFile).get(
+				new CharArray("#ifndef GUARD_H\n#define GUARD_H\nint x;\n#endif\n").getContentsHash(), key)));
+	}
+}
@@ -11,13 +11,18 @@
  *******************************************************************************/
 package org.eclipse.cdt.core.parser.tests.scanner;
 
+import java.util.Arrays;
+
 import junit.framework.TestSuite;
 
 import org.eclipse.cdt.core.parser.IGCCToken;
 import org.eclipse.cdt.core.parser.IProblem;
 import org.eclipse.cdt.core.parser.IToken;
 import org.eclipse.cdt.core.parser.tests.ast2.TestLexerLog;
+import org.eclipse.cdt.core.parser.util.CharArraySet;
 import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.internal.core.parser.scanner.AbstractCharArray;
+import org.eclipse.cdt.internal.core.parser.scanner.LazyCharArray;
 import org.eclipse.cdt.internal.core.parser.scanner.Lexer;
 import org.eclipse.cdt.internal.core.parser.scanner.Lexer.LexerOptions;
 import org.eclipse.cdt.internal.core.parser.scanner.Token;
@@ -836,4 +841,82 @@ public class LexerTests extends BaseTestCase {
 		token(IToken.tPOUND);
 		eof();
 	}
+
+	public void testSharedIdentifierImages() throws Exception {
+		CharArraySet images= new CharArraySet(8);
+		init("abc x abc ab\\\nc abc");
+		// The first token has been lexed before the table is set.
+		fLexer.setIdentifierImageTable(images);
+		Token t0= fLexer.currentToken();
+		id("abc");
+		ws();
+		id("x");
+		ws();
+		Token t2= fLexer.currentToken();
+		id("abc");
+		ws();
+		Token t3= fLexer.currentToken();
+		id("abc");
+		ws();
+		Token t4= fLexer.currentToken();
+		id("abc");
+		eof();
+		assertSame(t2.getCharImage(), t4.getCharImage());
+		assertNotSame(t0.getCharImage(), t4.getCharImage());
+		// The image of an identifier with a line splice is not shared.
+		assertNotSame(t3.getCharImage(), t4.getCharImage());
+		assertEquals(2, images.size());
+	}
+
+	public void testSharedIdentifierImagesOfLazyInput() throws Exception {
+		char[] first= new char[64];
+		char[] second= new char[64];
+		Arrays.fill(first, 'a');
+		Arrays.fill(second, 'b');
+		final String input= new String(first) + ' ' + new String(second) + ' ' + new String(first);
+		AbstractCharArray lazyInput= new LazyCharArray() {
+			private boolean fRead;
+
+			@Override
+			protected Chunk nextChunk() {
+				if (fRead)
+					return null;
+				fRead= true;
+				return newChunk(0, input.length(), 0, input.toCharArray());
+			}
+
+			@Override
+			protected void rereadChunkData(Chunk chunk, char[] data) {
+				input.getChars(0, data.length, data, 0);
+			}
+
+			@Override
+			public boolean hasError() {
+				return false;
+			}
+		};
+		CharArraySet images= new CharArraySet(8);
+		fLog.clear();
+		fLexer= new Lexer(lazyInput, DEFAULT_OPTIONS, fLog, null);
+		fLexer.setIdentifierImageTable(images);
+		fLog.setInput(input);
+		fLexer.nextToken();
+		fLastEndOffset= 0;
+		Token t0= fLexer.currentToken();
+		id(new String(first));
+		ws();
+		Token t1= fLexer.currentToken();
+		id(new String(second));
+		ws();
+		Token t2= fLexer.currentToken();
+		id(new String(first));
+		eof();
+		// The images must not share the buffer the lexer copies the identifiers into.
+		assertTrue(Arrays.equals(first, t0.getCharImage()));
+		assertTrue(Arrays.equals(second, t1.getCharImage()));
+		assertSame(t0.getCharImage(), t2.getCharImage());
+		assertEquals(2, images.size());
+		assertTrue(images.containsKey(first));
+		assertTrue(images.containsKey(second));
+	}
 }
@@ -27,6 +27,7 @@ public class ScannerTestSuite extends TestSuite {
 		suite.addTest(InactiveCodeTests.suite());
 		suite.addTest(StreamHasherTests.suite());
 		suite.addTest(FileCharArrayTests.suite());
+		suite.addTest(IncludeGuardCacheTests.suite());
 		return suite;
 	}	
 }
@@ -17,12 +17,17 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.CCorePreferenceConstants;
 import org.eclipse.cdt.core.dom.ILinkage;
 import org.eclipse.cdt.core.dom.IName;
 import org.eclipse.cdt.core.dom.IPDOMManager;
@@ -84,8 +89,16 @@ import org.eclipse.cdt.core.testplugin.CTestPlugin;
 import org.eclipse.cdt.core.testplugin.TestScannerProvider;
 import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
 import org.eclipse.cdt.core.testplugin.util.TestSourceReader;
+import org.eclipse.cdt.internal.core.CCoreInternals;
 import org.eclipse.cdt.internal.core.dom.parser.ASTNode;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPASTTranslationUnit;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPInstanceCache;
+import org.eclipse.cdt.internal.core.index.IWritableIndex;
 import org.eclipse.cdt.internal.core.pdom.CModelListener;
+import org.eclipse.cdt.internal.core.pdom.PDOM;
+import org.eclipse.cdt.internal.core.pdom.PDOMWriter;
+import org.eclipse.cdt.internal.core.pdom.YieldableIndexLock;
+import org.eclipse.cdt.internal.core.pdom.dom.cpp.PDOMInstanceCache;
 import org.eclipse.cdt.internal.core.pdom.indexer.IndexerPreferences;
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
@@ -105,6 +118,8 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
 
 import junit.framework.TestSuite;
 
@@ -2615,4 +2630,433 @@ public class IndexBugsTests extends BaseTestCase {
 		}
 	}
 
+	//	// header.h
+	//	struct Shared {};
+	//	void shared(Shared* s);
+
+	//	#include "header.h"
+	//	void source(Shared* s) {
+	//	  shared(s);
+	//	}
+	public void testParallelParsing() throws Exception {
+		checkParallelParsing("shared", false);
+	}
+
+	//	// header.h
+	//	template<typename T> struct Shared { void shared(T t); };
+
+	//	#include "header.h"
+	//	void source(Shared<int>& s) {
+	//	  s.shared(1);
+	//	}
+	public void testNameResolutionInParserThreads() throws Exception {
+		checkParallelParsing("Shared", true);
+	}
+
+	//	// header.h
+	//	template<typename T> struct Shared {};
+
+	//	#include "header.h"
+	//	struct Local {};
+	//	Shared<Local> a;
+	//	Shared<Local> b;
+	public void testConfinedIndexTemplateInstances() throws Exception {
+		waitForIndexer();
+		String[] contents= getContentsForTest(2);
+		TestSourceReader.createFile(fCProject.getProject(), "header.h", contents[0]);
+		IFile s1= TestSourceReader.createFile(fCProject.getProject(), "s1.cpp", contents[1]);
+		IFile s2= TestSourceReader.createFile(fCProject.getProject(), "s2.cpp", contents[1]);
+		CCorePlugin.getIndexManager().reindex(fCProject);
+		waitForIndexer();
+		fIndex.acquireReadLock();
+		// The result cache of the index is not cleared while the read lock is held, the
+		// instance created for the first AST must nevertheless not be used by the second one.
+		CPPASTTranslationUnit.setConfineIndexTemplateInstances(true);
+		try {
+			IASTTranslationUnit ast1= TestSourceReader.createIndexBasedAST(fIndex, fCProject, s1);
+			IType a1= getVariableType(ast1, 1);
+			assertFalse(a1 instanceof IIndexBinding);
+			assertSame(a1, getVariableType(ast1, 2));
+
+			IASTTranslationUnit ast2= TestSourceReader.createIndexBasedAST(fIndex, fCProject, s2);
+			IType a2= getVariableType(ast2, 1);
+			assertFalse(a2 instanceof IIndexBinding);
+			assertNotSame(a1, a2);
+			assertSame(a2, getVariableType(ast2, 2));
+		} finally {
+			CPPASTTranslationUnit.setConfineIndexTemplateInstances(false);
+			fIndex.releaseReadLock();
+		}
+	}
+
+	private IType getVariableType(IASTTranslationUnit ast, int declaration) {
+		IASTSimpleDeclaration sdecl= (IASTSimpleDeclaration) ast.getDeclarations()[declaration];
+		return ((IVariable) sdecl.getDeclarators()[0].getName().resolveBinding()).getType();
+	}
+
+	/**
+	 * Indexes a header and many sources including it on multiple parser threads and checks
+	 * the references to a binding of the header and the definitions in the sources.
+	 */
+	private void checkParallelParsing(String sharedName, boolean resolveNamesInParserThreads) throws Exception {
+		waitForIndexer();
+		String[] contents= getContentsForTest(2);
+		IEclipsePreferences prefs= InstanceScope.INSTANCE.getNode(CCorePlugin.PLUGIN_ID);
+		prefs.putInt(CCorePreferenceConstants.SCALABILITY_INDEXER_PARSER_THREADS, 4);
+		prefs.putBoolean(CCorePreferenceConstants.INDEXER_RESOLVE_NAMES_IN_PARSER_THREADS, resolveNamesInParserThreads);
+		try {
+			final int sourceCount= 20;
+			TestSourceReader.createFile(fCProject.getProject(), "header.h", contents[0]);
+			for (int i = 0; i < sourceCount; i++) {
+				TestSourceReader.createFile(fCProject.getProject(), "source" + i + ".cpp",
+						contents[1].replace("source", "source" + i));
+			}
+			CCorePlugin.getIndexManager().reindex(fCProject);
+			waitForIndexer();
+			fIndex.acquireReadLock();
+			try {
+				IIndexBinding[] bindings= fIndex.findBindings(sharedName.toCharArray(), IndexFilter.ALL, npm());
+				assertEquals(1, bindings.length);
+				assertEquals(sourceCount, fIndex.findReferences(bindings[0]).length);
+				for (int i = 0; i < sourceCount; i++) {
+					bindings= fIndex.findBindings(("source" + i).toCharArray(), IndexFilter.ALL, npm());
+					assertEquals(1, bindings.length);
+					assertEquals(1, fIndex.findDefinitions(bindings[0]).length);
+				}
+			} finally {
+				fIndex.releaseReadLock();
+			}
+		} finally {
+			prefs.remove(CCorePreferenceConstants.SCALABILITY_INDEXER_PARSER_THREADS);
+			prefs.remove(CCorePreferenceConstants.INDEXER_RESOLVE_NAMES_IN_PARSER_THREADS);
+		}
+	}
+
+	//	// a.h
+	//	#include "b.h"
+	//	int a();
+
+	//	// b.h
+	//	#include "c.h"
+	//	int b();
+
+	//	// c.h
+	//	int c();
+
+	//	#include "a.h"
+	//	int source() { return a() + b() + c(); }
+	public void testGroupCommitOfHeaders() throws Exception {
+		waitForIndexer();
+		String[] contents= getContentsForTest(4);
+		IEclipsePreferences prefs= InstanceScope.INSTANCE.getNode(CCorePlugin.PLUGIN_ID);
+		prefs.putInt(CCorePreferenceConstants.SCALABILITY_INDEXER_PARSER_THREADS, 4);
+		try {
+			final int sourceCount= 10;
+			IProject project= fCProject.getProject();
+			TestSourceReader.createFile(project, "a.h", contents[0]);
+			TestSourceReader.createFile(project, "b.h", contents[1]);
+			TestSourceReader.createFile(project, "c.h", contents[2]);
+			for (int i = 0; i < sourceCount; i++) {
+				TestSourceReader.createFile(project, "source" + i + ".cpp",
+						contents[3].replace("source", "source" + i));
+			}
+			// Every release of the write lock after storing files reports the files written.
+			final List<Set<IIndexFileLocation>> windows= new ArrayList<>();
+			PDOM.IListener listener= new PDOM.IListener() {
+				@Override
+				public void handleChange(PDOM pdom, PDOM.ChangeEvent event) {
+					if (!event.fFilesWritten.isEmpty()) {
+						synchronized (windows) {
+							windows.add(new HashSet<>(event.fFilesWritten));
+						}
+					}
+				}
+			};
+			PDOM pdom= (PDOM) CCoreInternals.getPDOMManager().getPDOM(fCProject);
+			pdom.addListener(listener);
+			try {
+				CCorePlugin.getIndexManager().reindex(fCProject);
+				waitForIndexer();
+			} finally {
+				pdom.removeListener(listener);
+			}
+			// The headers and the first source including them are stored in a single lock window,
+			// and no source is stored in more than one window.
+			Set<IIndexFileLocation> headerLocations= new HashSet<>();
+			for (String header : new String[] { "a.h", "b.h", "c.h" }) {
+				headerLocations.add(IndexLocationFactory.getWorkspaceIFL(project.getFile(header)));
+			}
+			int headerWindows= 0;
+			for (Set<IIndexFileLocation> window : windows) {
+				if (!Collections.disjoint(window, headerLocations)) {
+					assertTrue(window.containsAll(headerLocations));
+					headerWindows++;
+				}
+			}
+			assertEquals(1, headerWindows);
+			assertTrue(String.valueOf(windows.size()), windows.size() <= sourceCount);
+
+			fIndex.acquireReadLock();
+			try {
+				// All headers are stored together with the first source including them.
+				for (String header : new String[] { "a.h", "b.h", "c.h" }) {
+					IIndexFileLocation location=
+							IndexLocationFactory.getWorkspaceIFL(project.getFile(header));
+					assertEquals(header, 1, fIndex.getFiles(location).length);
+				}
+				for (String function : new String[] { "a", "b", "c" }) {
+					IIndexBinding[] bindings= fIndex.findBindings(function.toCharArray(), IndexFilter.ALL, npm());
+					assertEquals(1, bindings.length);
+					assertEquals(function, sourceCount, fIndex.findReferences(bindings[0]).length);
+				}
+			} finally {
+				fIndex.releaseReadLock();
+			}
+		} finally {
+			prefs.remove(CCorePreferenceConstants.SCALABILITY_INDEXER_PARSER_THREADS);
+		}
+	}
+
+	public void testYieldableIndexLockMaxHoldTime() throws Exception {
+		final int[] counts= new int[2];  // Acquired and released write locks.
+		IWritableIndex index= (IWritableIndex) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { IWritableIndex.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "acquireWriteLock":
+						counts[0]++;
+						return null;
+					case "releaseWriteLock":
+						counts[1]++;
+						return null;
+					case "hasWaitingReaders":
+						return false;
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+		YieldableIndexLock lock= new YieldableIndexLock(index, false, npm());
+		lock.acquire();
+		// Without readers and without a maximum hold time the lock is kept.
+		lock.yield();
+		assertEquals(1, counts[0]);
+		assertEquals(0, counts[1]);
+
+		lock.setMaxHoldTime(PDOMWriter.GROUP_COMMIT_WINDOW_MS);
+		lock.yield();
+		assertEquals(0, counts[1]);
+		Thread.sleep(PDOMWriter.GROUP_COMMIT_WINDOW_MS + 50);
+		// The group commit window has been exceeded, the lock is released and acquired again.
+		lock.yield();
+		assertEquals(2, counts[0]);
+		assertEquals(1, counts[1]);
+		assertTrue(lock.isHeld());
+		assertTrue(lock.getCumulativeLockTime() >= PDOMWriter.GROUP_COMMIT_WINDOW_MS);
+
+		lock.release();
+		assertFalse(lock.isHeld());
+		assertEquals(2, counts[1]);
+	}
+
+	//	// header.h
+	//	int first();
+
+	//	// header.h, only the comment has changed
+	//	int first();
+
+	//	// header.h
+	//	int first();
+	//	int second();
+
+	//	#include "header.h"
+	//	int source() { return first(); }
+	public void testUpdateDependentsOfChangedHeader() throws Exception {
+		waitForIndexer();
+		String[] contents= getContentsForTest(4);
+		IEclipsePreferences prefs= InstanceScope.INSTANCE.getNode(CCorePlugin.PLUGIN_ID);
+		prefs.putBoolean(CCorePreferenceConstants.INDEXER_UPDATE_DEPENDENTS_OF_CHANGED_HEADERS, true);
+		try {
+			IFile header= TestSourceReader.createFile(fCProject.getProject(), "header.h", contents[0]);
+			IFile[] sources= new IFile[2];
+			for (int i = 0; i < sources.length; i++) {
+				sources[i]= TestSourceReader.createFile(fCProject.getProject(), "source" + i + ".cpp",
+						contents[3].replace("source", "source" + i));
+			}
+			CCorePlugin.getIndexManager().reindex(fCProject);
+			waitForIndexer();
+			long[] readTimes= getSourceReadTimes(sources);
+
+			// The header is parsed in the context of one of the sources, the other one is not
+			// affected by the comment.
+			header= TestSourceReader.createFile(fCProject.getProject(), "header.h", contents[1]);
+			waitUntilFileIsIndexed(header, INDEXER_TIMEOUT_SEC * 1000);
+			waitForIndexer();
+			long[] newReadTimes= getSourceReadTimes(sources);
+			assertEquals(1, countChanges(readTimes, newReadTimes));
+
+			// The additional declaration causes both sources to be updated.
+			readTimes= newReadTimes;
+			header= TestSourceReader.createFile(fCProject.getProject(), "header.h", contents[2]);
+			waitUntilFileIsIndexed(header, INDEXER_TIMEOUT_SEC * 1000);
+			waitForIndexer();
+			assertEquals(2, countChanges(readTimes, getSourceReadTimes(sources)));
+		} finally {
+			prefs.remove(CCorePreferenceConstants.INDEXER_UPDATE_DEPENDENTS_OF_CHANGED_HEADERS);
+		}
+	}
+
+	//	// header.h
+	//	enum E { e1 = 1 };
+	//	constexpr int c = 1;
+	//	struct A {}; struct B {}; struct D : A {};
+	//	void f(int i = 1);
+	//	template<typename T = int> struct S {};
+	//	constexpr int g() { return 1; }
+
+	//	// header.h, the value of an enumerator has changed
+	//	enum E { e1 = 2 };
+	//	constexpr int c = 1;
+	//	struct A {}; struct B {}; struct D : A {};
+	//	void f(int i = 1);
+	//	template<typename T = int> struct S {};
+	//	constexpr int g() { return 1; }
+
+	//	// header.h, the initial value of a constexpr variable has changed
+	//	enum E { e1 = 1 };
+	//	constexpr int c = 2;
+	//	struct A {}; struct B {}; struct D : A {};
+	//	void f(int i = 1);
+	//	template<typename T = int> struct S {};
+	//	constexpr int g() { return 1; }
+
+	//	// header.h, a base class has changed
+	//	enum E { e1 = 1 };
+	//	constexpr int c = 1;
+	//	struct A {}; struct B {}; struct D : B {};
+	//	void f(int i = 1);
+	//	template<typename T = int> struct S {};
+	//	constexpr int g() { return 1; }
+
+	//	// header.h, a default argument has changed
+	//	enum E { e1 = 1 };
+	//	constexpr int c = 1;
+	//	struct A {}; struct B {}; struct D : A {};
+	//	void f(int i = 2);
+	//	template<typename T = int> struct S {};
+	//	constexpr int g() { return 1; }
+
+	//	// header.h, the default of a template parameter has changed
+	//	enum E { e1 = 1 };
+	//	constexpr int c = 1;
+	//	struct A {}; struct B {}; struct D : A {};
+	//	void f(int i = 1);
+	//	template<typename T = char> struct S {};
+	//	constexpr int g() { return 1; }
+
+	//	// header.h, the body of a constexpr function has changed
+	//	enum E { e1 = 1 };
+	//	constexpr int c = 1;
+	//	struct A {}; struct B {}; struct D : A {};
+	//	void f(int i = 1);
+	//	template<typename T = int> struct S {};
+	//	constexpr int g() { return 2; }
+
+	//	#include "header.h"
+	//	int source() { char a[g()]; return e1 + c + sizeof(a); }
+	public void testUpdateDependentsOfChangedDeclarations() throws Exception {
+		waitForIndexer();
+		String[] contents= getContentsForTest(8);
+		IEclipsePreferences prefs= InstanceScope.INSTANCE.getNode(CCorePlugin.PLUGIN_ID);
+		prefs.putBoolean(CCorePreferenceConstants.INDEXER_UPDATE_DEPENDENTS_OF_CHANGED_HEADERS, true);
+		try {
+			IFile header= TestSourceReader.createFile(fCProject.getProject(), "header.h", contents[0]);
+			IFile[] sources= new IFile[2];
+			for (int i = 0; i < sources.length; i++) {
+				sources[i]= TestSourceReader.createFile(fCProject.getProject(), "source" + i + ".cpp",
+						contents[7].replace("source", "source" + i));
+			}
+			CCorePlugin.getIndexManager().reindex(fCProject);
+			waitForIndexer();
+			// Each version of the header differs from the first one in a single declaration.
+			for (int version = 1; version < contents.length - 1; version++) {
+				long[] readTimes= getSourceReadTimes(sources);
+				header= TestSourceReader.createFile(fCProject.getProject(), "header.h", contents[version]);
+				waitUntilFileIsIndexed(header, INDEXER_TIMEOUT_SEC * 1000);
+				waitForIndexer();
+				assertEquals(contents[version], 2, countChanges(readTimes, getSourceReadTimes(sources)));
+
+				readTimes= getSourceReadTimes(sources);
+				header= TestSourceReader.createFile(fCProject.getProject(), "header.h", contents[0]);
+				waitUntilFileIsIndexed(header, INDEXER_TIMEOUT_SEC * 1000);
+				waitForIndexer();
+				assertEquals(contents[0], 2, countChanges(readTimes, getSourceReadTimes(sources)));
+			}
+		} finally {
+			prefs.remove(CCorePreferenceConstants.INDEXER_UPDATE_DEPENDENTS_OF_CHANGED_HEADERS);
+		}
+	}
+
+	//	template<typename T> struct Templ {};
+
+	//	#include "header.h"
+	//	Templ<int> a;
+
+	//	#include "header.h"
+	//	Templ<int> a;
+	//	Templ<char> b;
+	public void testPersistedTemplateInstances() throws Exception {
+		waitForIndexer();
+		String[] contents= getContentsForTest(3);
+		IProject project= fCProject.getProject();
+		TestSourceReader.createFile(project, "header.h", contents[0]);
+		IFile source= TestSourceReader.createFile(project, "source.cpp", contents[1]);
+		CCorePlugin.getIndexManager().reindex(fCProject);
+		waitForIndexer();
+
+		assertEquals(1, getTemplateInstances("Templ").length);
+		// The instances found in the index are remembered across read locks.
+		long hits= PDOMInstanceCache.getPersistedInstanceHits();
+		assertEquals(1, getTemplateInstances("Templ").length);
+		assertTrue(PDOMInstanceCache.getPersistedInstanceHits() > hits);
+
+		// Storing a new instance invalidates the remembered ones.
+		source= TestSourceReader.createFile(project, "source.cpp", contents[2]);
+		waitUntilFileIsIndexed(source, INDEXER_TIMEOUT_SEC * 1000);
+		waitForIndexer();
+		assertEquals(2, getTemplateInstances("Templ").length);
+	}
+
+	private ICPPTemplateInstance[] getTemplateInstances(String templateName) throws Exception {
+		fIndex.acquireReadLock();
+		try {
+			// Discard the cached results, like the index does when the write lock is released
+			// between two translation units.
+			((PDOM) CCoreInternals.getPDOMManager().getPDOM(fCProject)).clearResultCache();
+			IIndexBinding[] bindings= fIndex.findBindings(templateName.toCharArray(), IndexFilter.ALL, npm());
+			assertEquals(1, bindings.length);
+			return ((ICPPInstanceCache) bindings[0]).getAllInstances();
+		} finally {
+			fIndex.releaseReadLock();
+		}
+	}
+
+	private long[] getSourceReadTimes(IFile[] files) throws Exception {
+		long[] result= new long[files.length];
+		fIndex.acquireReadLock();
+		try {
+			for (int i = 0; i < files.length; i++) {
+				result[i]= getIndexFile(files[i]).getSourceReadTime();
+			}
+		} finally {
+			fIndex.releaseReadLock();
+		}
+		return result;
+	}
+
+	private static int countChanges(long[] before, long[] after) {
+		int count= 0;
+		for (int i = 0; i < before.length; i++) {
+			if (before[i] != after[i])
+				count++;
+		}
+		return count;
+	}
 }
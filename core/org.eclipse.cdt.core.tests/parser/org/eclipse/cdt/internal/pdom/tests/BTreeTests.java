@@ -13,8 +13,10 @@ package org.eclipse.cdt.internal.pdom.tests;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -117,6 +119,66 @@ public class BTreeTests extends BaseTestCase {
 		}
 	}
 
+	/**
+	 * Builds B-trees of various sizes and degrees with the bulk loader and checks them against
+	 * a TreeSet, also after modifying them.
+	 */
+	public void testBulkLoad() throws Exception {
+		Random random = new Random(4711);
+		int[] sizes = { 0, 1, 7, 15, 16, 17, 100, 1000, 12345 };
+		for (int degree = 2; degree <= 9; degree += 7) {
+			for (int size : sizes) {
+				init(degree);
+				try {
+					SortedSet<Integer> expected = new TreeSet<>();
+					long[] records = new long[size];
+					for (int i = 0; i < size; i++) {
+						int value = random.nextInt(size * 2 + 1);
+						expected.add(value);
+						records[i] = new BTMockRecord(db, value).getRecord();
+					}
+					btree.sort(records, size);
+					btree.bulkLoad(records, size);
+					assertBTreeMatchesSortedSet("[bulk load " + size + "] ", btree, expected);
+					assertBTreeInvariantsHold("[bulk load " + size + "] ");
+
+					// Of records with equal values, the first one has been loaded.
+					Map<Integer, Long> loaded = new HashMap<>();
+					for (int i = 0; i < size; i++) {
+						loaded.putIfAbsent(new BTMockRecord(records[i], db).intValue(), records[i]);
+					}
+					for (int i = 0; i < size / 2; i++) {
+						int value = random.nextInt(size * 2 + 1);
+						if (expected.add(value)) {
+							btree.insert(new BTMockRecord(db, value).getRecord());
+						} else if (loaded.containsKey(value)) {
+							expected.remove(value);
+							btree.delete(loaded.remove(value));
+						}
+					}
+					assertBTreeMatchesSortedSet("[modified " + size + "] ", btree, expected);
+					assertBTreeInvariantsHold("[modified " + size + "] ");
+				} finally {
+					finish();
+				}
+			}
+		}
+	}
+
+	public void testBulkLoadRejectsUnsortedRecords() throws Exception {
+		init(8);
+		try {
+			long[] records = { new BTMockRecord(db, 2).getRecord(), new BTMockRecord(db, 1).getRecord() };
+			try {
+				btree.bulkLoad(records, records.length);
+				fail("Unsorted records were accepted");
+			} catch (IllegalArgumentException e) {
+			}
+		} finally {
+			finish();
+		}
+	}
+
 	/**
 	 * Insert/Delete a random number of records into/from the B-tree
 	 * @param seed the seed for obtaining the deterministic random testing
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.pdom.tests;
+
+import java.io.File;
+import java.util.Random;
+
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.internal.core.pdom.db.ChunkCache;
+import org.eclipse.cdt.internal.core.pdom.db.ChunkCache.EvictionPolicy;
+import org.eclipse.cdt.internal.core.pdom.db.Database;
+
+import junit.framework.Test;
+
+/**
+ * Tests for the {@link ChunkCache} class.
+ */
+public class ChunkCacheTests extends BaseTestCase {
+	private static final int CACHED_CHUNKS = 16;
+	private static final int RECORDS = 2000;
+	private static final int HOT_RECORDS = 8;
+
+	public static Test suite() {
+		return suite(ChunkCacheTests.class);
+	}
+
+	public void testClock() throws Exception {
+		checkPolicy(EvictionPolicy.CLOCK);
+	}
+
+	public void testSegmentedLRU() throws Exception {
+		checkPolicy(EvictionPolicy.SEGMENTED_LRU);
+	}
+
+	public void testTinyLFU() throws Exception {
+		checkPolicy(EvictionPolicy.TINY_LFU);
+	}
+
+	public void testSegmentedLRUScanResistance() throws Exception {
+		checkScanResistance(EvictionPolicy.SEGMENTED_LRU);
+	}
+
+	public void testTinyLFUScanResistance() throws Exception {
+		checkScanResistance(EvictionPolicy.TINY_LFU);
+	}
+
+	public void testChangePolicy() throws Exception {
+		ChunkCache cache = new ChunkCache(CACHED_CHUNKS * Database.CHUNK_SIZE, EvictionPolicy.CLOCK);
+		File file = File.createTempFile("chunkcache", "db");
+		Database db = new Database(file, cache, 0, false);
+		try {
+			db.setExclusiveLock();
+			long[] records = writeRecords(db);
+			cache.setEvictionPolicy(EvictionPolicy.TINY_LFU);
+			assertEquals(EvictionPolicy.TINY_LFU, cache.getEvictionPolicy());
+			cache.setMaxSize(CACHED_CHUNKS / 2 * Database.CHUNK_SIZE);
+			assertTrue(cache.getChunkCount() <= CACHED_CHUNKS / 2);
+			checkRecords(db, records);
+		} finally {
+			db.close();
+			file.delete();
+		}
+	}
+
+	private void checkPolicy(EvictionPolicy policy) throws Exception {
+		ChunkCache cache = new ChunkCache(CACHED_CHUNKS * Database.CHUNK_SIZE, policy);
+		File file = File.createTempFile("chunkcache", "db");
+		Database db = new Database(file, cache, 0, false);
+		try {
+			db.setExclusiveLock();
+			long[] records = writeRecords(db);
+			db.giveUpExclusiveLock(true);
+			cache.resetCounters();
+
+			db.setLocked(true);
+			Random random = new Random(4711);
+			for (int i = 0; i < 10 * RECORDS; i++) {
+				// Skewed access pattern, the low records are read more often.
+				int r = Math.min(random.nextInt(RECORDS), random.nextInt(RECORDS));
+				assertEquals(r, db.getInt(records[r]));
+			}
+			assertTrue(cache.getChunkCount() <= CACHED_CHUNKS);
+			assertTrue(cache.getHits() > 0);
+			assertTrue(cache.getMisses() > 0);
+			assertTrue(cache.getEvictions() > 0);
+			db.setLocked(false);
+
+			db.setExclusiveLock();
+			checkRecords(db, records);
+		} finally {
+			db.close();
+			file.delete();
+		}
+	}
+
+	/**
+	 * Checks that a set of frequently used chunks survives a single pass over all chunks.
+	 */
+	private void checkScanResistance(EvictionPolicy policy) throws Exception {
+		ChunkCache cache = new ChunkCache(CACHED_CHUNKS * Database.CHUNK_SIZE, EvictionPolicy.CLOCK);
+		File file = File.createTempFile("chunkcache", "db");
+		Database db = new Database(file, cache, 0, false);
+		try {
+			db.setExclusiveLock();
+			long[] records = writeRecords(db);
+			db.giveUpExclusiveLock(true);
+			// Start without the history of writing the records.
+			cache.setEvictionPolicy(policy);
+
+			db.setLocked(true);
+			// Records that are several chunks apart.
+			int[] hot = new int[HOT_RECORDS];
+			for (int i = 0; i < hot.length; i++) {
+				hot[i] = i * 8;
+			}
+			for (int i = 0; i < 100; i++) {
+				for (int r : hot) {
+					assertEquals(r, db.getInt(records[r]));
+				}
+			}
+			// Read each chunk once.
+			long lastChunk = -1;
+			for (int r = 0; r < RECORDS; r++) {
+				long chunk = records[r] / Database.CHUNK_SIZE;
+				if (chunk != lastChunk) {
+					assertEquals(r, db.getInt(records[r]));
+					lastChunk = chunk;
+				}
+			}
+
+			cache.resetCounters();
+			for (int r : hot) {
+				assertEquals(r, db.getInt(records[r]));
+			}
+			assertEquals(0, cache.getMisses());
+			db.setLocked(false);
+		} finally {
+			db.close();
+			file.delete();
+		}
+	}
+
+	private long[] writeRecords(Database db) throws Exception {
+		long[] records = new long[RECORDS];
+		for (int i = 0; i < RECORDS; i++) {
+			records[i] = db.malloc(Database.MAX_MALLOC_SIZE / 4);
+			db.putInt(records[i], i);
+		}
+		db.flush();
+		return records;
+	}
+
+	private void checkRecords(Database db, long[] records) throws Exception {
+		for (int i = 0; i < records.length; i++) {
+			assertEquals(i, db.getInt(records[i]));
+		}
+	}
+}
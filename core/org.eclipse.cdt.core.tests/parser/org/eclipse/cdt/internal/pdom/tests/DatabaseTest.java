@@ -13,7 +13,11 @@
 package org.eclipse.cdt.internal.pdom.tests;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 import junit.framework.Test;
 
@@ -25,6 +29,7 @@ import org.eclipse.cdt.internal.core.pdom.db.Database;
 import org.eclipse.cdt.internal.core.pdom.db.IBTreeComparator;
 import org.eclipse.cdt.internal.core.pdom.db.IBTreeVisitor;
 import org.eclipse.cdt.internal.core.pdom.db.IString;
+import org.eclipse.cdt.internal.core.pdom.db.PDOMNameIndex;
 import org.eclipse.cdt.internal.core.pdom.db.ShortString;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
@@ -118,6 +123,110 @@ public class DatabaseTest extends BaseTestCase {
 		}
 	}
 
+	public void testMemoryMappedDatabase() throws Exception {
+		File file= getTestDir().append(getName() + System.currentTimeMillis() + "-mapped.dat").toFile();
+		try {
+			Database mapped= new Database(file, new ChunkCache(), 7, false, true);
+			mapped.setExclusiveLock();
+			long[] records= new long[5000];
+			for (int i= 0; i < records.length; i++) {
+				records[i]= mapped.malloc(16);
+				mapped.putInt(records[i], i);
+				mapped.putLong(records[i] + 4, -i);
+				mapped.putRecPtr(records[i] + 12, records[i]);
+			}
+			IString string= mapped.newString("memory mapped");
+			long stringRecord= string.getRecord();
+			mapped.flush();
+			mapped.close();
+			assertEquals(0, file.length() % Database.CHUNK_SIZE);
+
+			// Read it back with the heap-based access method.
+			Database heap= new Database(file, new ChunkCache(), 0, true, false);
+			heap.setLocked(true);
+			assertEquals(7, heap.getVersion());
+			for (int i= 0; i < records.length; i++) {
+				assertEquals(i, heap.getInt(records[i]));
+				assertEquals(-i, heap.getLong(records[i] + 4));
+				assertEquals(records[i], heap.getRecPtr(records[i] + 12));
+			}
+			assertEquals("memory mapped", heap.getString(stringRecord).getString());
+			heap.setExclusiveLock();
+			heap.close();
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testLargerRecordAlignment() throws Exception {
+		File file= getTestDir().append(getName() + System.currentTimeMillis() + "-aligned.dat").toFile();
+		final int oldBits= Database.getBlockSizeDeltaBitsForNewDatabases();
+		try {
+			Database.setBlockSizeDeltaBitsForNewDatabases(Database.BLOCK_SIZE_DELTA_BITS + 2);
+			Database aligned= new Database(file, new ChunkCache(), 0, false);
+			Database.setBlockSizeDeltaBitsForNewDatabases(oldBits);
+			assertEquals(Database.MAX_DB_SIZE * 4, aligned.getMaxSize());
+			aligned.setExclusiveLock();
+			long[] records= new long[3000];
+			for (int i= 0; i < records.length; i++) {
+				records[i]= aligned.malloc(1 + i % 100);
+				assertEquals(0, (records[i] - Database.BLOCK_HEADER_SIZE) % (Database.BLOCK_SIZE_DELTA * 4));
+				aligned.putRecPtr(records[i], i == 0 ? 0 : records[i - 1]);
+				if (i % 7 == 0) {
+					aligned.free(records[i]);
+					records[i]= 0;
+				}
+			}
+			aligned.flush();
+			aligned.close();
+
+			// The alignment is read from the header.
+			Database reopened= new Database(file, new ChunkCache(), 0, true);
+			reopened.setLocked(true);
+			assertEquals(Database.BLOCK_SIZE_DELTA_BITS + 2, reopened.getBlockSizeDeltaBits());
+			for (int i= 1; i < records.length; i++) {
+				if (records[i] != 0) {
+					assertEquals(records[i - 1], reopened.getRecPtr(records[i]));
+				}
+			}
+			reopened.setExclusiveLock();
+			reopened.close();
+		} finally {
+			Database.setBlockSizeDeltaBitsForNewDatabases(oldBits);
+			file.delete();
+		}
+	}
+
+	public void testRecordAlignmentPaddingCost() throws Exception {
+		// Most records of an index are small, the larger alignment pads them.
+		long size3= getSizeWithAlignment(Database.BLOCK_SIZE_DELTA_BITS);
+		long size4= getSizeWithAlignment(Database.BLOCK_SIZE_DELTA_BITS + 1);
+		long size6= getSizeWithAlignment(Database.MAX_BLOCK_SIZE_DELTA_BITS);
+		assertTrue("64 GB limit: " + size4 + " / " + size3, size4 < size3 * 5 / 4);
+		assertTrue("256 GB limit: " + size6 + " / " + size3, size6 > size3 * 9 / 5);
+	}
+
+	private long getSizeWithAlignment(int bits) throws Exception {
+		File file= getTestDir().append(getName() + System.currentTimeMillis() + "-" + bits + ".dat").toFile();
+		final int oldBits= Database.getBlockSizeDeltaBitsForNewDatabases();
+		try {
+			Database.setBlockSizeDeltaBitsForNewDatabases(bits);
+			Database database= new Database(file, new ChunkCache(), 0, false);
+			Database.setBlockSizeDeltaBitsForNewDatabases(oldBits);
+			database.setExclusiveLock();
+			for (int i= 0; i < 20000; i++) {
+				database.malloc(8 + i % 33);
+			}
+			database.flush();
+			long size= database.getSizeBytes();
+			database.close();
+			return size;
+		} finally {
+			Database.setBlockSizeDeltaBitsForNewDatabases(oldBits);
+			file.delete();
+		}
+	}
+
 	public void testFreeBlockLinking() throws Exception {
 		final int realsize = 42;
 		final int deltas = (realsize + Database.BLOCK_HEADER_SIZE + Database.BLOCK_SIZE_DELTA - 1) / Database.BLOCK_SIZE_DELTA;
@@ -226,6 +335,56 @@ public class DatabaseTest extends BaseTestCase {
 		}
 	}
 
+	public void testNameIndex() throws Exception {
+		PDOMNameIndex index = new PDOMNameIndex(db, Database.DATA_AREA);
+		String[] names = {
+				"getValue",
+				"setValue",
+				"GetValueAsString",
+				"value",
+				"ValueType",
+				"compute",
+				"x",
+				"getValue" // duplicate
+		};
+		for (String name : names) {
+			index.add(name.toCharArray());
+		}
+		for (int i = 0; i < 1000; i++) {
+			index.add(("name" + i).toCharArray());
+		}
+
+		assertNames(index, "get.*", Pattern.CASE_INSENSITIVE, "getValue", "GetValueAsString");
+		assertNames(index, "get.*", 0, "getValue");
+		assertNames(index, ".*Value.*", 0, "getValue", "setValue", "GetValueAsString", "ValueType");
+		assertNames(index, ".*val.*", Pattern.CASE_INSENSITIVE,
+				"getValue", "setValue", "GetValueAsString", "value", "ValueType");
+		assertNames(index, "[gs]et[A-Z].*", 0, "getValue", "setValue");
+		assertNames(index, "comp.t?e", 0, "compute");
+		assertNames(index, "name12.", 0, "name120", "name121", "name122", "name123", "name124", "name125",
+				"name126", "name127", "name128", "name129");
+		assertNames(index, "x|value", 0, "x", "value");
+		assertNames(index, ".", 0, "x");
+		assertNames(index, "missing.*", 0);
+		// The digits and names of escape sequences are not required literals.
+		assertNames(index, "\\x67etValue", 0, "getValue");
+		assertNames(index, "\\x{67}etValue", 0, "getValue");
+		assertNames(index, "\\u0067etValue", 0, "getValue");
+		assertNames(index, "\\0147etValue", 0, "getValue");
+		assertNames(index, "\\p{Lu}etValue.*", 0, "GetValueAsString");
+		assertNames(index, "(g)\\1?etValue", 0, "getValue");
+		assertNames(index, "(?<name>g)\\k<name>?etValue", 0, "getValue");
+	}
+
+	private void assertNames(PDOMNameIndex index, String regex, int flags, String... expected)
+			throws CoreException {
+		Set<String> actual = new HashSet<>();
+		for (char[] name : index.findNames(Pattern.compile(regex, flags), null)) {
+			assertTrue(actual.add(new String(name)));
+		}
+		assertEquals(new HashSet<>(Arrays.asList(expected)), actual);
+	}
+
 	private final int GT = 1, LT = -1, EQ = 0;
 
 	public void testShortStringComparison() throws CoreException {
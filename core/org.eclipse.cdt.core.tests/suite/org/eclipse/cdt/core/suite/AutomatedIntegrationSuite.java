@@ -12,6 +12,8 @@
  *******************************************************************************/
 package org.eclipse.cdt.core.suite;
 
+import org.eclipse.cdt.core.build.CBuildConfigurationTests;
+import org.eclipse.cdt.core.build.ScannerInfoCacheTests;
 import org.eclipse.cdt.core.cdescriptor.tests.CDescriptorOldTests;
 import org.eclipse.cdt.core.cdescriptor.tests.CDescriptorTests;
 import org.eclipse.cdt.core.envvar.IEnvironmentVariableManagerTests;
@@ -92,6 +94,8 @@ public class AutomatedIntegrationSuite extends TestSuite {
 		suite.addTest(ByteUtilsTest.suite());
 		suite.addTest(UNCPathConverterTest.suite());
 		suite.addTest(TestScopeOfBuildConfigResourceChangesPreference.suite());
+		suite.addTest(ScannerInfoCacheTests.suite());
+		suite.addTest(CBuildConfigurationTests.suite());
 
 		// Add in PDOM tests
 		suite.addTest(PDOMTests.suite());
@@ -11,15 +11,25 @@
  ******************************************************************************/
 package org.eclipse.cdt.internal.core.model;
 
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
 import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.CCorePreferenceConstants;
+import org.eclipse.cdt.core.dom.ast.ASTGenericVisitor;
+import org.eclipse.cdt.core.dom.ast.IASTNode;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.cdt.core.index.IIndex;
 import org.eclipse.cdt.core.index.IIndexManager;
+import org.eclipse.cdt.core.model.ICProject;
 import org.eclipse.cdt.core.model.ILanguage;
 import org.eclipse.cdt.core.model.ITranslationUnit;
 import org.eclipse.cdt.internal.core.dom.parser.ASTTranslationUnit;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.CPPSemantics;
+import org.eclipse.cdt.internal.core.parser.scanner.CharArray;
+import org.eclipse.cdt.internal.core.parser.scanner.ILocationResolver;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.IStatus;
@@ -29,7 +39,9 @@ import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.Status;
 
 /**
- * Provides a shared AST of a single translation unit at a time.
+ * Provides a shared AST of the active translation unit. ASTs of translation units that have
+ * been active before, or that have been requested while not being active, are retained as
+ * long as their total number of nodes stays within a budget.
  *
  * @since 4.0
  */
@@ -62,6 +74,21 @@ public class ASTCache {
 		IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) throws CoreException;
 	}
 
+	/**
+	 * An AST retained for a translation unit other than the active one.
+	 */
+	private static class RetainedAST {
+		final IASTTranslationUnit fAST;
+		final long fLastWriteOnIndex;
+		final int fNodeCount;
+
+		RetainedAST(IASTTranslationUnit ast, long lastWriteOnIndex, int nodeCount) {
+			fAST= ast;
+			fLastWriteOnIndex= lastWriteOnIndex;
+			fNodeCount= nodeCount;
+		}
+	}
+
 	private final int fParseMode;
 	private final Object fCacheMutex= new Object();
 
@@ -77,12 +104,36 @@ public class ASTCache {
 	private long fLastWriteOnIndex;
 	/** Indicates whether the AST is currently being computed */
 	private boolean fIsReconciling;
+	/** The number of nodes of the cached AST, or -1 if unknown */
+	private int fNodeCount= -1;
+
+	/**
+	 * Retained ASTs in least recently used order. The ASTs are keyed by the paths of their
+	 * translation units, such that the AST of a file outlives the working copy of an editor
+	 * that has been closed, and can be used again when the file is reopened.
+	 */
+	private final LinkedHashMap<IPath, RetainedAST> fRetainedASTs= new LinkedHashMap<>(16, 0.75f, true);
+	/** The maximum total number of nodes of the retained ASTs */
+	private final int fMaxRetainedNodes;
+	private int fRetainedNodes;
 
 	/**
 	 * Create a new AST cache.
 	 */
 	public ASTCache() {
+		this(CCorePreferenceConstants.getPreference(CCorePreferenceConstants.SCALABILITY_AST_CACHE_NODES,
+				(ICProject) null, CCorePreferenceConstants.DEFAULT_SCALABILITY_AST_CACHE_NODES));
+	}
+
+	/**
+	 * Create a new AST cache retaining ASTs of inactive translation units with the given
+	 * total number of nodes.
+	 *
+	 * @param maxRetainedNodes  the budget for retained ASTs, {@code 0} to retain no ASTs.
+	 */
+	public ASTCache(int maxRetainedNodes) {
 		fParseMode= PARSE_MODE;
+		fMaxRetainedNodes= Math.max(0, maxRetainedNodes);
 	}
 
 	/**
@@ -108,6 +159,7 @@ public class ASTCache {
 			if (progressMonitor != null && progressMonitor.isCanceled())
 				return null;
 
+			final RetainedAST checked= getRetainedASTWithSameContents(tUnit);
 			final boolean isActiveElement;
 			synchronized (fCacheMutex) {
 				isActiveElement= tUnit.equals(fActiveTU);
@@ -124,7 +176,18 @@ public class ASTCache {
 							return fAST;
 						}
 					}
-					// no cached AST
+					// no cached AST, check for a retained one
+					if (!isReconciling(tUnit)) {
+						RetainedAST retained= removeRetainedAST(tUnit, index, checked);
+						if (retained != null) {
+							if (DEBUG)
+								System.out.println(DEBUG_PREFIX + getThreadName() + "returning retained AST:" + toString(retained.fAST) + " for: " + tUnit.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
+							cache(retained.fAST, tUnit);
+							fLastWriteOnIndex= retained.fLastWriteOnIndex;
+							fNodeCount= retained.fNodeCount;
+							return fAST;
+						}
+					}
 					if (!wait) {
 						// no AST, no wait - we are done
 						if (DEBUG)
@@ -150,6 +213,15 @@ public class ASTCache {
 					} catch (InterruptedException e) {
 						return null; // thread has been interrupted don't compute AST
 					}
+				} else if (!isActiveElement) {
+					RetainedAST retained= getRetainedAST(tUnit, index, checked);
+					if (retained != null) {
+						if (DEBUG)
+							System.out.println(DEBUG_PREFIX + getThreadName() + "returning retained AST:" + toString(retained.fAST) + " for: " + tUnit.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
+						return retained.fAST;
+					}
+					if (!wait)
+						return null;
 				} else if (!wait) {
 					return null;
 				}
@@ -169,7 +241,10 @@ public class ASTCache {
 				else if (DEBUG && ast != null)
 					System.err.println(DEBUG_PREFIX + getThreadName() + "created AST for: " + tUnit.getElementName()); //$NON-NLS-1$
 			} finally {
-				if (isActiveElement) {
+				if (!isActiveElement) {
+					if (ast != null && fMaxRetainedNodes > 0)
+						retain(tUnit, ast, index.getLastWriteAccess(), countNodes(ast));
+				} else {
 					if (fAST != null) {
 						if (DEBUG)
 							System.out.println(DEBUG_PREFIX + getThreadName() + "Ignore created AST for " + tUnit.getElementName() + "- AST from reconciler is newer"); //$NON-NLS-1$ //$NON-NLS-2$
@@ -320,6 +395,7 @@ public class ASTCache {
 				System.out.println(DEBUG_PREFIX + getThreadName() + "disposing AST: " + toString(fAST) + " for: " + toString(fActiveTU)); //$NON-NLS-1$ //$NON-NLS-2$
 
 			fAST= null;
+			fNodeCount= -1;
 			cache(null, null);
 		}
 	}
@@ -371,9 +447,17 @@ public class ASTCache {
 			return;
 		}
 		synchronized (fCacheMutex) {
+			final ITranslationUnit previousTU= fActiveTU;
+			final IASTTranslationUnit previousAST= fAST;
+			final int previousNodeCount= fNodeCount;
+			final long previousLastWrite= fLastWriteOnIndex;
+			fAST= null;
+			fNodeCount= -1;
 			fIsReconciling= false;
 			fActiveTU= tUnit;
 			cache(null, tUnit);
+			if (previousAST != null && previousTU != null && previousNodeCount >= 0)
+				retain(previousTU, previousAST, previousLastWrite, previousNodeCount);
 		}
 		if (DEBUG)
 			System.out.println(DEBUG_PREFIX + getThreadName() + "active element is: " + toString(tUnit)); //$NON-NLS-1$
@@ -421,6 +505,8 @@ public class ASTCache {
 	 * @param tUnit  the translation unit
 	 */
 	public void reconciled(IASTTranslationUnit ast, ITranslationUnit tUnit) {
+		// Count the nodes outside of the lock, in case the AST is retained later on.
+		final int nodeCount= ast != null && fMaxRetainedNodes > 0 ? countNodes(ast) : -1;
 		synchronized (fCacheMutex) {
 			if (tUnit == null || !tUnit.equals(fActiveTU)) {
 				if (DEBUG)
@@ -432,7 +518,177 @@ public class ASTCache {
 
 			fIsReconciling= false;
 			cache(ast, tUnit);
+			if (fAST == ast)
+				fNodeCount= nodeCount;
+			removeRetainedAST(tUnit);
+		}
+	}
+
+	/**
+	 * Retains the given AST of an inactive translation unit, evicting the least recently used
+	 * ASTs as far as needed to stay within the node budget.
+	 *
+	 * @param nodeCount  the number of nodes of the AST.
+	 */
+	private void retain(ITranslationUnit tUnit, IASTTranslationUnit ast, long lastWriteOnIndex, int nodeCount) {
+		if (fMaxRetainedNodes == 0)
+			return;
+
+		synchronized (fCacheMutex) {
+			if (tUnit.equals(fActiveTU) || nodeCount > fMaxRetainedNodes)
+				return;
+			removeRetainedAST(tUnit);
+			fRetainedASTs.put(tUnit.getPath(), new RetainedAST(ast, lastWriteOnIndex, nodeCount));
+			fRetainedNodes+= nodeCount;
+			for (Iterator<RetainedAST> it= fRetainedASTs.values().iterator();
+					fRetainedNodes > fMaxRetainedNodes && it.hasNext();) {
+				RetainedAST eldest= it.next();
+				if (DEBUG)
+					System.out.println(DEBUG_PREFIX + getThreadName() + "evicting AST: " + toString(eldest.fAST)); //$NON-NLS-1$
+				fRetainedNodes-= eldest.fNodeCount;
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns the retained AST for the given translation unit, provided it is still valid and
+	 * has been created for the translation unit. A retained AST may be in use by other threads
+	 * and is therefore never modified.
+	 *
+	 * @param checked  the retained AST whose contents have been compared with the translation unit
+	 */
+	private RetainedAST getRetainedAST(ITranslationUnit tUnit, IIndex index, RetainedAST checked) {
+		RetainedAST retained= getValidRetainedAST(tUnit, index, checked);
+		if (retained == null || !tUnit.equals(retained.fAST.getOriginatingTranslationUnit()))
+			return null;
+		return retained;
+	}
+
+	/**
+	 * Removes the retained AST for the given translation unit and returns it, provided it is
+	 * still valid. An AST created for a working copy that no longer exists is attached to the
+	 * given translation unit, unless it is still in use by another thread.
+	 *
+	 * @param checked  the retained AST whose contents have been compared with the translation unit
+	 */
+	private RetainedAST removeRetainedAST(ITranslationUnit tUnit, IIndex index, RetainedAST checked) {
+		RetainedAST retained= getValidRetainedAST(tUnit, index, checked);
+		if (retained == null)
+			return null;
+
+		// After the removal the AST can no longer be obtained from the cache, the caller is its
+		// only owner apart from threads that are still using it.
+		removeRetainedAST(tUnit);
+		if (!tUnit.equals(retained.fAST.getOriginatingTranslationUnit())) {
+			if (!(retained.fAST instanceof ASTTranslationUnit))
+				return null;
+			ASTTranslationUnit ast= (ASTTranslationUnit) retained.fAST;
+			try {
+				if (!ast.tryBeginExclusiveAccess(0))
+					return null;
+			} catch (InterruptedException e) {
+				return null;
+			}
+			try {
+				ast.setOriginatingTranslationUnit(tUnit);
+			} finally {
+				ast.endExclusiveAccess();
+			}
+		}
+		return retained;
+	}
+
+	/**
+	 * Returns the retained AST for the given translation unit, provided it has not been
+	 * invalidated by a write access to the index and is the one whose contents have been
+	 * compared with the translation unit.
+	 */
+	private RetainedAST getValidRetainedAST(ITranslationUnit tUnit, IIndex index, RetainedAST checked) {
+		assert Thread.holdsLock(fCacheMutex);
+		RetainedAST retained= fRetainedASTs.get(tUnit.getPath());
+		if (retained == null)
+			return null;
+
+		if (retained.fLastWriteOnIndex < index.getLastWriteAccess()) {
+			removeRetainedAST(tUnit);
+			return null;
+		}
+		// The AST may have been replaced since its contents were compared.
+		return retained == checked ? retained : null;
+	}
+
+	/**
+	 * Returns the retained AST for the given translation unit if it has been created for the
+	 * current contents of the translation unit, and evicts it otherwise. Reading and hashing
+	 * the contents of a large file takes a while, the contents are therefore compared without
+	 * holding the cache mutex, which the UI thread takes when switching editors.
+	 */
+	private RetainedAST getRetainedASTWithSameContents(ITranslationUnit tUnit) {
+		RetainedAST retained;
+		synchronized (fCacheMutex) {
+			if (tUnit.equals(fActiveTU) && (fAST != null || fIsReconciling))
+				return null; // The retained AST is not used.
+			retained= fRetainedASTs.get(tUnit.getPath());
+		}
+		if (retained == null)
+			return null;
+		if (hasSameContents(retained.fAST, tUnit))
+			return retained;
+
+		synchronized (fCacheMutex) {
+			// Evict the AST unless it has been replaced in the meantime.
+			if (fRetainedASTs.get(tUnit.getPath()) == retained)
+				removeRetainedAST(tUnit);
 		}
+		return null;
+	}
+
+	private void removeRetainedAST(ITranslationUnit tUnit) {
+		assert Thread.holdsLock(fCacheMutex);
+		RetainedAST retained= fRetainedASTs.remove(tUnit.getPath());
+		if (retained != null)
+			fRetainedNodes-= retained.fNodeCount;
+	}
+
+	/**
+	 * Returns the total number of nodes of the retained ASTs.
+	 */
+	public int getRetainedNodeCount() {
+		synchronized (fCacheMutex) {
+			return fRetainedNodes;
+		}
+	}
+
+	/**
+	 * Disposes the ASTs retained for inactive translation units.
+	 */
+	public void disposeRetainedASTs() {
+		synchronized (fCacheMutex) {
+			fRetainedASTs.clear();
+			fRetainedNodes= 0;
+		}
+	}
+
+	private static boolean hasSameContents(IASTTranslationUnit ast, ITranslationUnit tUnit) {
+		ILocationResolver resolver= ast.getAdapter(ILocationResolver.class);
+		if (resolver == null)
+			return false;
+		char[] contents= tUnit.getContents();
+		return contents != null
+				&& new CharArray(contents).getContentsHash() == resolver.getTranslationUnitContentsHash();
+	}
+
+	private static int countNodes(IASTTranslationUnit ast) {
+		final int[] count= { 0 };
+		ast.accept(new ASTGenericVisitor(true) {
+			@Override
+			protected int genericVisit(IASTNode node) {
+				count[0]++;
+				return PROCESS_CONTINUE;
+			}
+		});
+		return count[0];
 	}
 
 	/**
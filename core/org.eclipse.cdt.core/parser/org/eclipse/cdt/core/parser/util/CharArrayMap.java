@@ -11,8 +11,8 @@
 package org.eclipse.cdt.core.parser.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -32,6 +32,8 @@ import java.util.TreeMap;
  * the entire char[] as the key.
  * 
  * This class is intended as a replacement for CharArrayObjectMap.
+ * Unless the map is ordered, the keys are kept in an open addressing table together
+ * with their hash codes, such that lookups do not allocate any objects.
  * 
  * ex:
  * char[] key = "one two three".toCharArray();
@@ -136,14 +138,26 @@ public final class CharArrayMap<V> {
     }
     
     
+    private static final int MIN_CAPACITY = 16;
+
+    /** Backs ordered maps only, {@code null} for hash maps. */
     private final Map<Key,V> map;
 
+    // Open addressing hash table with linear probing, used when the map is not ordered.
+    // Keys are stored as slices, together with their hash codes.
+    private char[][] keyBuffers;
+    private int[] keyStarts;
+    private int[] keyLengths;
+    private int[] hashCodes;
+    private Object[] valueTable;
+    private int count;
+
     
     /**
      * Constructs an empty CharArrayMap with default initial capacity.
      */
     public CharArrayMap() {
-    	map = new HashMap<Key,V>();
+    	this(MIN_CAPACITY);
     }
     
     
@@ -170,9 +184,136 @@ public final class CharArrayMap<V> {
      * @throws IllegalArgumentException if the initial capacity is negative
      */
     public CharArrayMap(int initialCapacity) {
-    	map = new HashMap<Key,V>(initialCapacity);
+    	if (initialCapacity < 0)
+    		throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity); //$NON-NLS-1$
+    	map = null;
+    	allocate(tableSizeFor(initialCapacity));
     }
-    
+
+    private static int tableSizeFor(int capacity) {
+    	// Keep the load factor at or below 3/4.
+    	int size = MIN_CAPACITY;
+    	while (size - (size >> 2) < capacity && size < (1 << 30)) {
+    		size <<= 1;
+    	}
+    	return size;
+    }
+
+    private void allocate(int tableSize) {
+    	keyBuffers = new char[tableSize][];
+    	keyStarts = new int[tableSize];
+    	keyLengths = new int[tableSize];
+    	hashCodes = new int[tableSize];
+    	valueTable = new Object[tableSize];
+    }
+
+    private static int hash(char[] chars, int start, int length) {
+    	int h = CharArrayUtils.hash(chars, start, length);
+    	return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the slot of the given key, or the complement of the free slot where it would be
+     * inserted if the key is not in the map.
+     */
+    private int findSlot(char[] chars, int start, int length, int hashCode) {
+    	final int mask = keyBuffers.length - 1;
+    	for (int i = hashCode & mask;; i = (i + 1) & mask) {
+    		char[] buffer = keyBuffers[i];
+    		if (buffer == null)
+    			return ~i;
+    		if (hashCodes[i] == hashCode && keyLengths[i] == length
+    				&& sliceEquals(buffer, keyStarts[i], chars, start, length)) {
+    			return i;
+    		}
+    	}
+    }
+
+    private static boolean sliceEquals(char[] b1, int s1, char[] b2, int s2, int length) {
+    	if (b1 == b2 && s1 == s2)
+    		return true;
+    	for (int i = 0; i < length; i++) {
+    		if (b1[s1 + i] != b2[s2 + i])
+    			return false;
+    	}
+    	return true;
+    }
+
+    private void doPut(char[] chars, int start, int length, V value) {
+    	int hashCode = hash(chars, start, length);
+    	int slot = findSlot(chars, start, length, hashCode);
+    	if (slot >= 0) {
+    		valueTable[slot] = value;
+    		return;
+    	}
+    	if (count + 1 > keyBuffers.length - (keyBuffers.length >> 2)) {
+    		grow();
+    		slot = findSlot(chars, start, length, hashCode);
+    	}
+    	slot = ~slot;
+    	keyBuffers[slot] = chars;
+    	keyStarts[slot] = start;
+    	keyLengths[slot] = length;
+    	hashCodes[slot] = hashCode;
+    	valueTable[slot] = value;
+    	count++;
+    }
+
+    private void grow() {
+    	char[][] oldBuffers = keyBuffers;
+    	int[] oldStarts = keyStarts;
+    	int[] oldLengths = keyLengths;
+    	int[] oldHashCodes = hashCodes;
+    	Object[] oldValues = valueTable;
+    	allocate(oldBuffers.length << 1);
+    	final int mask = keyBuffers.length - 1;
+    	for (int j = 0; j < oldBuffers.length; j++) {
+    		if (oldBuffers[j] != null) {
+    			int i = oldHashCodes[j] & mask;
+    			while (keyBuffers[i] != null) {
+    				i = (i + 1) & mask;
+    			}
+    			keyBuffers[i] = oldBuffers[j];
+    			keyStarts[i] = oldStarts[j];
+    			keyLengths[i] = oldLengths[j];
+    			hashCodes[i] = oldHashCodes[j];
+    			valueTable[i] = oldValues[j];
+    		}
+    	}
+    }
+
+    @SuppressWarnings("unchecked")
+    private V doRemove(char[] chars, int start, int length) {
+    	int slot = findSlot(chars, start, length, hash(chars, start, length));
+    	if (slot < 0)
+    		return null;
+    	V result = (V) valueTable[slot];
+    	// Shift back the entries following the removed one, there are no tombstones.
+    	final int mask = keyBuffers.length - 1;
+    	int i = slot;
+    	for (int j = (i + 1) & mask; keyBuffers[j] != null; j = (j + 1) & mask) {
+    		int home = hashCodes[j] & mask;
+    		if (((j - home) & mask) >= ((j - i) & mask)) {
+    			keyBuffers[i] = keyBuffers[j];
+    			keyStarts[i] = keyStarts[j];
+    			keyLengths[i] = keyLengths[j];
+    			hashCodes[i] = hashCodes[j];
+    			valueTable[i] = valueTable[j];
+    			i = j;
+    		}
+    	}
+    	keyBuffers[i] = null;
+    	valueTable[i] = null;
+    	count--;
+    	return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V doGet(char[] chars, int start, int length) {
+    	int slot = findSlot(chars, start, length, hash(chars, start, length));
+    	return slot < 0 ? null : (V) valueTable[slot];
+    }
+
     /**
 	 * Creates a new mapping in this map, uses the given array slice as the key.
 	 * If the map previously contained a mapping for this key, the old value is replaced.
@@ -181,7 +322,11 @@ public final class CharArrayMap<V> {
 	 */
     public void put(char[] chars, int start, int length, V value) {
     	checkBoundaries(chars, start, length);
-        map.put(new Key(chars, start, length), value);
+    	if (map != null) {
+    		map.put(new Key(chars, start, length), value);
+    	} else {
+    		doPut(chars, start, length, value);
+    	}
     }
 
     /**
@@ -190,7 +335,11 @@ public final class CharArrayMap<V> {
 	 * @throws NullPointerException if chars is null
 	 */
     public void put(char[] chars, V value) {
-        map.put(new Key(chars), value);
+    	if (map != null) {
+    		map.put(new Key(chars), value);
+    	} else {
+    		doPut(chars, 0, chars.length, value);
+    	}
     }
 
     /**
@@ -201,7 +350,9 @@ public final class CharArrayMap<V> {
 	 */
     public V get(char[] chars, int start, int length) {
     	checkBoundaries(chars, start, length);
-        return map.get(new Key(chars, start, length));
+    	if (map != null)
+    		return map.get(new Key(chars, start, length));
+    	return doGet(chars, start, length);
     }
 
     /**
@@ -210,7 +361,9 @@ public final class CharArrayMap<V> {
 	 * @throws NullPointerException if chars is null
 	 */
     public V get(char[] chars) {
-        return map.get(new Key(chars));
+    	if (map != null)
+    		return map.get(new Key(chars));
+    	return doGet(chars, 0, chars.length);
     }
 
     /**
@@ -222,7 +375,9 @@ public final class CharArrayMap<V> {
 	 */
     public V remove(char[] chars, int start, int length) {
     	checkBoundaries(chars, start, length);
-    	return map.remove(new Key(chars, start, length));
+    	if (map != null)
+    		return map.remove(new Key(chars, start, length));
+    	return doRemove(chars, start, length);
     }
     
     /**
@@ -232,7 +387,9 @@ public final class CharArrayMap<V> {
 	 * @throws NullPointerException if chars is null
 	 */
     public V remove(char[] chars) {
-    	return map.remove(new Key(chars));
+    	if (map != null)
+    		return map.remove(new Key(chars));
+    	return doRemove(chars, 0, chars.length);
     }
 
     /**
@@ -242,7 +399,9 @@ public final class CharArrayMap<V> {
 	 */
     public boolean containsKey(char[] chars, int start, int length) {
     	checkBoundaries(chars, start, length);
-    	return map.containsKey(new Key(chars, start, length));
+    	if (map != null)
+    		return map.containsKey(new Key(chars, start, length));
+    	return findSlot(chars, start, length, hash(chars, start, length)) >= 0;
     }
 
     /**
@@ -250,27 +409,54 @@ public final class CharArrayMap<V> {
 	 * @throws NullPointerException if chars is null
 	 */
     public boolean containsKey(char[] chars) {
-    	return map.containsKey(new Key(chars));
+    	if (map != null)
+    		return map.containsKey(new Key(chars));
+    	return findSlot(chars, 0, chars.length, hash(chars, 0, chars.length)) >= 0;
     }
     
     /**
 	 * Returns true if the given value is contained in the map.
 	 */
     public boolean containsValue(V value) {
-    	return map.containsValue(value);
+    	if (map != null)
+    		return map.containsValue(value);
+    	for (int i = 0; i < keyBuffers.length; i++) {
+    		if (keyBuffers[i] != null) {
+    			Object v = valueTable[i];
+    			if (v == null ? value == null : v.equals(value))
+    				return true;
+    		}
+    	}
+    	return false;
     }
 
     /** 
 	 * Use this in a foreach loop.
 	 */
+    @SuppressWarnings("unchecked")
     public Collection<V> values() {
-        return map.values();
+    	if (map != null)
+    		return map.values();
+    	ArrayList<V> r= new ArrayList<V>(count);
+    	for (int i = 0; i < keyBuffers.length; i++) {
+    		if (keyBuffers[i] != null)
+    			r.add((V) valueTable[i]);
+    	}
+    	return r;
     }
 
     /**
 	 * Returns the keys stored in the map.
 	 */
     public Collection<char[]> keys() {
+    	if (map == null) {
+    		ArrayList<char[]> r= new ArrayList<char[]>(count);
+    		for (int i = 0; i < keyBuffers.length; i++) {
+    			if (keyBuffers[i] != null)
+    				r.add(CharArrayUtils.extract(keyBuffers[i], keyStarts[i], keyLengths[i]));
+    		}
+    		return r;
+    	}
     	Set<Key> keys= map.keySet();
     	ArrayList<char[]> r= new ArrayList<char[]>(keys.size());
     	for (Key key : keys) {
@@ -283,21 +469,27 @@ public final class CharArrayMap<V> {
 	 * Removes all mappings from the map.
 	 */
     public void clear() {
-    	map.clear();
+    	if (map != null) {
+    		map.clear();
+    	} else if (count > 0) {
+    		Arrays.fill(keyBuffers, null);
+    		Arrays.fill(valueTable, null);
+    		count = 0;
+    	}
     }
 
     /**
 	 * Returns the number of mappings.
 	 */
     public int size() {
-    	return map.size();
+    	return map != null ? map.size() : count;
     }
 
     /**
 	 * Returns true if the map is empty.
 	 */
     public boolean isEmpty() {
-    	return map.isEmpty();
+    	return size() == 0;
     }
     
     
@@ -306,7 +498,18 @@ public final class CharArrayMap<V> {
      */
     @Override 
     public String toString() {
-    	return map.toString();
+    	if (map != null)
+    		return map.toString();
+    	StringBuilder buf = new StringBuilder();
+    	buf.append('{');
+    	for (int i = 0; i < keyBuffers.length; i++) {
+    		if (keyBuffers[i] != null) {
+    			if (buf.length() > 1)
+    				buf.append(", "); //$NON-NLS-1$
+    			buf.append(new Key(keyBuffers[i], keyStarts[i], keyLengths[i])).append('=').append(valueTable[i]);
+    		}
+    	}
+    	return buf.append('}').toString();
     }
    
 }
@@ -22,10 +22,16 @@ import java.util.List;
  */
 public class CharTable extends HashTable {
 	protected char[][] keyTable;
+	/**
+	 * Full hash codes of the keys, valid only while the hash table is in use. They avoid
+	 * recomputing the hashes on resize and let lookups skip keys that cannot be equal.
+	 */
+	private int[] hashCodes;
 
 	public CharTable(int initialSize) {
 		super(initialSize);
 		keyTable = new char[capacity()][];
+		hashCodes = new int[capacity()];
 	}
 
 	@Override
@@ -33,9 +39,31 @@ public class CharTable extends HashTable {
 		char[][] oldKeyTable = keyTable;
 		keyTable = new char[size][];
 		System.arraycopy(oldKeyTable, 0, keyTable, 0, Math.min(size, oldKeyTable.length));
+		int[] oldHashCodes = hashCodes;
+		hashCodes = new int[size];
+		if (hashTable == null) {
+			// The keys were kept in a plain list, their hash codes have not been computed yet.
+			int count = Math.min(currEntry + 1, size);
+			for (int i = 0; i < count; i++) {
+				hashCodes[i] = CharArrayUtils.hash(keyTable[i]);
+			}
+		} else {
+			System.arraycopy(oldHashCodes, 0, hashCodes, 0, Math.min(size, oldHashCodes.length));
+		}
 		super.resize(size);
 	}
 
+	@Override
+	protected void rehash() {
+		if (hashTable != null) {
+			// The keys may have been reordered by a subclass.
+			for (int i = 0; i <= currEntry; i++) {
+				hashCodes[i] = CharArrayUtils.hash(keyTable[i]);
+			}
+		}
+		super.rehash();
+	}
+
 	@Override
 	public void clear() {
 		super.clear();
@@ -49,6 +77,8 @@ public class CharTable extends HashTable {
         int size = capacity();
         newTable.keyTable = new char[size][];
         System.arraycopy(keyTable, 0, newTable.keyTable, 0, keyTable.length);
+        newTable.hashCodes = new int[size];
+        System.arraycopy(hashCodes, 0, newTable.hashCodes, 0, hashCodes.length);
 
 	    return newTable;
 	}
@@ -59,7 +89,7 @@ public class CharTable extends HashTable {
 
 	@Override
 	protected final int hash(int pos) {
-	    return hash(keyTable[pos], 0, keyTable[pos].length);
+	    return hashTable == null ? 0 : hashToOffset(hashCodes[pos]);
 	}
 
 	protected final int hash(char[] obj) {
@@ -86,28 +116,30 @@ public class CharTable extends HashTable {
 			currEntry++;
 			keyTable[currEntry] = CharArrayUtils.extract(buffer, start, len);
 		} else {
-			int hash = hash(buffer, start, len);
-			int pos = lookup(buffer, start, len, hash);
+			int hashCode = CharArrayUtils.hash(buffer, start, len);
+			int pos = lookupHashCode(buffer, start, len, hashCode);
 			if (pos != -1)
 				return pos;
 
 			// Key is not here, add it.
 			if (currEntry + 1 >= capacity()) {
 				resize();
-				hash = hash(buffer, start, len);
 			}
 			currEntry++;
 			keyTable[currEntry] = CharArrayUtils.extract(buffer, start, len);
-			linkIntoHashTable(currEntry, hash);
+			hashCodes[currEntry] = hashCode;
+			linkIntoHashTable(currEntry, hashToOffset(hashCode));
 		}
 		return currEntry;
 	}
 
 	protected void removeEntry(int i) {
 		// Remove the entry from the keyTable, shifting everything over if necessary.
-		int hash = hash(keyTable[i]);
-		if (i < currEntry)
+		int hash = hash(i);
+		if (i < currEntry) {
 			System.arraycopy(keyTable, i + 1, keyTable, i, currEntry - i);
+			System.arraycopy(hashCodes, i + 1, hashCodes, i, currEntry - i);
+		}
 
 		keyTable[currEntry] = null;
 
@@ -153,7 +185,7 @@ public class CharTable extends HashTable {
 
 	protected final int lookup(char[] buffer, int start, int len) {
 		if (hashTable != null)
-			return lookup(buffer, start, len, hash(buffer, start, len));
+			return lookupHashCode(buffer, start, len, CharArrayUtils.hash(buffer, start, len));
 		for (int i = 0; i <= currEntry; i++) {
 			if (CharArrayUtils.equals(buffer, start, len, keyTable[i]))
 				return i;
@@ -179,6 +211,24 @@ public class CharTable extends HashTable {
 		return -1;
 	}
 
+	private int lookupHashCode(char[] buffer, int start, int len, int hashCode) {
+		int i = hashTable[hashToOffset(hashCode)];
+		if (i == 0)
+			return -1;
+
+		--i;
+		if (hashCodes[i] == hashCode && CharArrayUtils.equals(buffer, start, len, keyTable[i]))
+			return i;
+
+		// Follow the next chain.
+		for (i = nextTable[i] - 1; i >= 0 && i != nextTable[i] - 1; i = nextTable[i] - 1) {
+			if (hashCodes[i] == hashCode && CharArrayUtils.equals(buffer, start, len, keyTable[i]))
+				return i;
+		}
+
+		return -1;
+	}
+
 	/**
 	 * @since 5.7
 	 */
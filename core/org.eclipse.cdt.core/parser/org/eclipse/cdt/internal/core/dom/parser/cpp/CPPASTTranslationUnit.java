@@ -16,6 +16,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.eclipse.cdt.core.dom.ILinkage;
+import org.eclipse.cdt.core.dom.ast.ASTTypeUtil;
 import org.eclipse.cdt.core.dom.ast.ASTVisitor;
 import org.eclipse.cdt.core.dom.ast.IASTName;
 import org.eclipse.cdt.core.dom.ast.IASTNode;
@@ -34,6 +35,9 @@ import org.eclipse.cdt.core.dom.ast.cpp.ICPPFunctionType;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPNamespace;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPNamespaceScope;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPParameter;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateArgument;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateDefinition;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateInstance;
 import org.eclipse.cdt.core.parser.ParserLanguage;
 import org.eclipse.cdt.core.parser.util.ArrayUtil;
 import org.eclipse.cdt.internal.core.dom.Linkage;
@@ -41,6 +45,7 @@ import org.eclipse.cdt.internal.core.dom.parser.ASTTranslationUnit;
 import org.eclipse.cdt.internal.core.dom.parser.IASTAmbiguityParent;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.CPPInheritance.FinalOverriderMap;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.CPPVisitor;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.OverloadResolutionCache;
 import org.eclipse.cdt.internal.core.index.IIndexScope;
 import org.eclipse.cdt.internal.core.parser.scanner.InternalFileContent;
 
@@ -48,6 +53,8 @@ import org.eclipse.cdt.internal.core.parser.scanner.InternalFileContent;
  * C++-specific implementation of a translation-unit.
  */
 public class CPPASTTranslationUnit extends ASTTranslationUnit implements ICPPASTTranslationUnit, IASTAmbiguityParent {
+	private static final ThreadLocal<Boolean> sConfineIndexTemplateInstances = new ThreadLocal<>();
+
     private CPPNamespaceScope fScope;
     private ICPPNamespace fBinding;
 	private final CPPScopeMapper fScopeMapper;
@@ -55,9 +62,59 @@ public class CPPASTTranslationUnit extends ASTTranslationUnit implements ICPPAST
 
 	// Caches.
 	private final Map<ICPPClassType, FinalOverriderMap> fFinalOverriderMapCache = new HashMap<>();
+	private final OverloadResolutionCache fOverloadResolutionCache = new OverloadResolutionCache();
+	// Instances of templates from the index created for this AST, or null if they are cached
+	// by the templates.
+	private final Map<ICPPTemplateDefinition, Map<String, ICPPTemplateInstance>> fIndexTemplateInstances;
 
 	public CPPASTTranslationUnit() {
 		fScopeMapper= new CPPScopeMapper(this);
+		fIndexTemplateInstances= Boolean.TRUE.equals(sConfineIndexTemplateInstances.get()) ?
+				new HashMap<ICPPTemplateDefinition, Map<String, ICPPTemplateInstance>>() : null;
+	}
+
+	/**
+	 * Specifies whether the ASTs subsequently created by the current thread keep the instances
+	 * of templates from the index they create, rather than caching them with the templates.
+	 * The caches of the templates are shared by all ASTs using the same index, hence this is
+	 * needed when ASTs are built and resolved on several threads at the same time.
+	 */
+	public static void setConfineIndexTemplateInstances(boolean value) {
+		sConfineIndexTemplateInstances.set(value ? Boolean.TRUE : null);
+	}
+
+	/**
+	 * Returns whether this AST keeps the instances of templates from the index it creates.
+	 * @see #setConfineIndexTemplateInstances(boolean)
+	 */
+	public boolean isConfiningIndexTemplateInstances() {
+		return fIndexTemplateInstances != null;
+	}
+
+	/**
+	 * Returns an instance of a template from the index created for this AST, or {@code null}.
+	 */
+	public ICPPTemplateInstance getIndexTemplateInstance(ICPPTemplateDefinition template,
+			ICPPTemplateArgument[] arguments) {
+		if (fIndexTemplateInstances == null)
+			return null;
+		Map<String, ICPPTemplateInstance> instances= fIndexTemplateInstances.get(template);
+		if (instances == null)
+			return null;
+		return instances.get(ASTTypeUtil.getArgumentListString(arguments, true));
+	}
+
+	/**
+	 * Keeps an instance of a template from the index created for this AST.
+	 */
+	public void addIndexTemplateInstance(ICPPTemplateDefinition template,
+			ICPPTemplateArgument[] arguments, ICPPTemplateInstance instance) {
+		Map<String, ICPPTemplateInstance> instances= fIndexTemplateInstances.get(template);
+		if (instances == null) {
+			instances= new HashMap<>();
+			fIndexTemplateInstances.put(template, instances);
+		}
+		instances.put(ASTTypeUtil.getArgumentListString(arguments, true), instance);
 	}
 
 	@Override
@@ -250,6 +307,10 @@ public class CPPASTTranslationUnit extends ASTTranslationUnit implements ICPPAST
 		return fFinalOverriderMapCache;
 	}
 
+	public OverloadResolutionCache getOverloadResolutionCache() {
+		return fOverloadResolutionCache;
+	}
+
 	public void recordPartialSpecialization(ICPPClassTemplatePartialSpecialization indexSpec,
 			ICPPClassTemplatePartialSpecialization astSpec) {
 		fScopeMapper.recordPartialSpecialization(indexSpec, astSpec);
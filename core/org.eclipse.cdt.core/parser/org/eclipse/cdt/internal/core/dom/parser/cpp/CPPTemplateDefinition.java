@@ -110,11 +110,15 @@ public abstract class CPPTemplateDefinition extends PlatformObject implements IC
 		final ICPPClassTemplate ib = getIndexBinding();
 		if (ib instanceof ICPPInstanceCache) {
 			ICPPTemplateInstance cand= ((ICPPInstanceCache) ib).getInstance(arguments);
+			IASTTranslationUnit tu= getTemplateName().getTranslationUnit();
 			if (cand instanceof IIndexBinding) {
-				if (getTemplateName().getTranslationUnit().getIndexFileSet().containsDeclaration((IIndexBinding) cand)) {
+				if (tu.getIndexFileSet().containsDeclaration((IIndexBinding) cand)) {
 					return cand;
 				}
-			} else {
+			} else if (!(tu instanceof CPPASTTranslationUnit)
+					|| !((CPPASTTranslationUnit) tu).isConfiningIndexTemplateInstances()) {
+				// An instance created for another AST is not used while that AST may be in use
+				// by another thread.
 				return cand;
 			}
 		}
@@ -2646,11 +2646,63 @@ public class CPPSemantics {
 		}
 
 		// No arguments to resolve function
-		final IASTNode lookupPoint = data.getLookupPoint();
 		if (!data.hasFunctionArguments()) {
 			return createFunctionSet(fns, data.getTemplateArguments(), lookupName);
 		}
 
+		// Results of overload resolution on non-dependent argument types are cached in the AST.
+		OverloadResolutionCache cache= null;
+		OverloadResolutionCache.Key cacheKey= null;
+		if (isCacheableFunctionCall(data, fns)) {
+			cache= OverloadResolutionCache.getCurrent();
+			if (cache != null) {
+				cacheKey= OverloadResolutionCache.createResolutionKey(fns, data.getFunctionArgumentTypes(),
+						data.getFunctionArgumentValueCategories(), data.argsContainImpliedObject, allowUDC,
+						data.fNoNarrowing);
+				ICPPFunction cached= cache.getResolution(cacheKey);
+				if (cached != null)
+					return cached;
+			}
+		}
+
+		IBinding result= resolveFunctionCall(data, fns, allowUDC, resolveTargetedArgumentTypes);
+		if (cache != null && result instanceof ICPPFunction && !(result instanceof IProblemBinding)
+				&& !(result instanceof ICPPUnknownBinding)) {
+			cache.putResolution(cacheKey, (ICPPFunction) result);
+		}
+		return result;
+	}
+
+	/**
+	 * Checks whether the result of resolving a call to one of the given functions depends on
+	 * nothing but the functions, the types and value categories of the arguments.
+	 */
+	private static boolean isCacheableFunctionCall(LookupData data, ICPPFunction[] fns) throws DOMException {
+		if (data.getTemplateArguments() != null)
+			return false;
+		final IType[] argTypes = data.getFunctionArgumentTypes();
+		final ValueCategory[] valueCategories = data.getFunctionArgumentValueCategories();
+		if (argTypes == null || valueCategories == null || valueCategories.length != argTypes.length)
+			return false;
+		for (IType argType : argTypes) {
+			if (!OverloadResolutionCache.isCacheable(argType))
+				return false;
+		}
+		if (!data.argsContainImpliedObject) {
+			// The implied object is not among the arguments.
+			for (ICPPFunction fn : fns) {
+				if (fn instanceof ICPPMethod && !(fn instanceof ICPPConstructor))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	private static IBinding resolveFunctionCall(LookupData data, ICPPFunction[] fns, boolean allowUDC,
+			boolean resolveTargetedArgumentTypes) throws DOMException {
+		final IASTName lookupName = data.getLookupName();
+		final IASTNode lookupPoint = data.getLookupPoint();
+
 		// Reduce our set of candidate functions to only those who have the right number of parameters.
 		final IType[] argTypes = data.getFunctionArgumentTypes();
 		ICPPFunction[] tmp= selectByArgumentCount(data, fns);
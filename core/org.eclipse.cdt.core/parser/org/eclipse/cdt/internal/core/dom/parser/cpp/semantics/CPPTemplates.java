@@ -134,6 +134,7 @@ import org.eclipse.cdt.internal.core.dom.parser.ProblemBinding;
 import org.eclipse.cdt.internal.core.dom.parser.ProblemFunctionType;
 import org.eclipse.cdt.internal.core.dom.parser.ProblemType;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPASTName;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPASTTranslationUnit;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPAliasTemplateInstance;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPAliasTemplateSpecialization;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPArrayType;
@@ -454,7 +455,7 @@ public class CPPTemplates {
 	private static ICPPTemplateInstance getInstance(ICPPTemplateDefinition template,
 			ICPPTemplateArgument[] args, boolean forDefinition) {
 		if (template instanceof ICPPInstanceCache) {
-			ICPPTemplateInstance result = ((ICPPInstanceCache) template).getInstance(args);
+			ICPPTemplateInstance result = getCachedInstance(template, args);
 			if (forDefinition && result instanceof IIndexBinding)
 				return null;
 			if (result != null && !result.isExplicitSpecialization()) {
@@ -478,8 +479,45 @@ public class CPPTemplates {
 	 */
 	private static void addInstance(ICPPTemplateDefinition template, ICPPTemplateArgument[] args, ICPPTemplateInstance instance) {
 		if (template instanceof ICPPInstanceCache) {
-			((ICPPInstanceCache) template).addInstance(args, instance);
+			CPPASTTranslationUnit ast= getASTConfiningInstances(template);
+			if (ast != null) {
+				ast.addIndexTemplateInstance(template, args, instance);
+			} else {
+				((ICPPInstanceCache) template).addInstance(args, instance);
+			}
+		}
+	}
+
+	private static ICPPTemplateInstance getCachedInstance(ICPPTemplateDefinition template,
+			ICPPTemplateArgument[] args) {
+		CPPASTTranslationUnit ast= getASTConfiningInstances(template);
+		if (ast == null)
+			return ((ICPPInstanceCache) template).getInstance(args);
+
+		ICPPTemplateInstance result= ast.getIndexTemplateInstance(template, args);
+		if (result == null) {
+			result= ((ICPPInstanceCache) template).getInstance(args);
+			// Instances created for other ASTs may be in use by other threads.
+			if (!(result instanceof IIndexBinding))
+				result= null;
 		}
+		return result;
+	}
+
+	/**
+	 * Returns the AST of the current lookup point if the given template is from the index and
+	 * the AST keeps the instances of such templates, or {@code null}.
+	 */
+	private static CPPASTTranslationUnit getASTConfiningInstances(ICPPTemplateDefinition template) {
+		if (!(template instanceof IIndexBinding))
+			return null;
+		IASTNode point= CPPSemantics.getCurrentLookupPoint();
+		if (point != null && point.getTranslationUnit() instanceof CPPASTTranslationUnit) {
+			CPPASTTranslationUnit ast= (CPPASTTranslationUnit) point.getTranslationUnit();
+			if (ast.isConfiningIndexTemplateInstances())
+				return ast;
+		}
+		return null;
 	}
 
 	private static IBinding deferredInstance(ICPPPartiallySpecializable template,
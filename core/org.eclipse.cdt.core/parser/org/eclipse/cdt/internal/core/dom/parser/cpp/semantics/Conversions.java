@@ -96,6 +96,23 @@ public class Conversions {
 	 */
 	public static Cost checkImplicitConversionSequence(IType target, IType exprType,
 			ValueCategory valueCat, UDCMode udc, Context ctx) throws DOMException {
+		OverloadResolutionCache cache= OverloadResolutionCache.getCurrent();
+		if (cache == null || !OverloadResolutionCache.isCacheable(target)
+				|| !OverloadResolutionCache.isCacheable(exprType)) {
+			return computeImplicitConversionSequence(target, exprType, valueCat, udc, ctx);
+		}
+		OverloadResolutionCache.Key key=
+				OverloadResolutionCache.createConversionKey(target, exprType, valueCat, udc, ctx);
+		Cost cost= cache.getConversion(key);
+		if (cost == null) {
+			cost= computeImplicitConversionSequence(target, exprType, valueCat, udc, ctx);
+			cache.putConversion(key, exprType, cost);
+		}
+		return cost;
+	}
+
+	private static Cost computeImplicitConversionSequence(IType target, IType exprType,
+			ValueCategory valueCat, UDCMode udc, Context ctx) throws DOMException {
 		final boolean isImpliedObject=
 				ctx == Context.IMPLICIT_OBJECT_FOR_METHOD_WITHOUT_REF_QUALIFIER ||
 				ctx == Context.IMPLICIT_OBJECT_FOR_METHOD_WITH_REF_QUALIFIER;
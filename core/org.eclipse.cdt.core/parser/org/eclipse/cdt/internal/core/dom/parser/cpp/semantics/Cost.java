@@ -111,6 +111,26 @@ public class Cost {
 		fReferenceBinding= ReferenceBinding.NO_REF;
 	}
 
+	/**
+	 * Creates a copy of the given cost that can be modified independently of the original.
+	 */
+	Cost(Cost other) {
+		source= other.source;
+		target= other.target;
+		fRank= other.fRank;
+		fSecondStandardConversionRank= other.fSecondStandardConversionRank;
+		fAmbiguousUDC= other.fAmbiguousUDC;
+		fDeferredUDC= other.fDeferredUDC;
+		fQualificationAdjustments= other.fQualificationAdjustments;
+		fInheritanceDistance= other.fInheritanceDistance;
+		fImpliedObject= other.fImpliedObject;
+		fUserDefinedConversion= other.fUserDefinedConversion;
+		fReferenceBinding= other.fReferenceBinding;
+		fCouldNarrow= other.fCouldNarrow;
+		fListInitializationTarget= other.fListInitializationTarget;
+		fSelectedFunction= other.fSelectedFunction;
+	}
+
 	public final Rank getRank() {
 		return fRank;
 	}
@@ -373,6 +393,10 @@ public class Cost {
 		fCouldNarrow= true;
 	}
 
+	boolean couldNarrow() {
+		return fCouldNarrow;
+	}
+
 	public ICPPFunction getUserDefinedConversion() {
 		return fUserDefinedConversion;
 	}
@@ -0,0 +1,267 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.dom.parser.cpp.semantics;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.cdt.core.dom.ast.IASTExpression.ValueCategory;
+import org.eclipse.cdt.core.dom.ast.IASTNode;
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.dom.ast.IEnumeration;
+import org.eclipse.cdt.core.dom.ast.IPointerType;
+import org.eclipse.cdt.core.dom.ast.IQualifierType;
+import org.eclipse.cdt.core.dom.ast.IType;
+import org.eclipse.cdt.core.dom.ast.ITypedef;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPClassSpecialization;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPClassType;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPFunction;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPPointerToMemberType;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPReferenceType;
+import org.eclipse.cdt.core.index.IIndexBinding;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPASTTranslationUnit;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPBasicType;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPInternalBinding;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.Conversions.Context;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.Conversions.UDCMode;
+
+/**
+ * Memoizes implicit conversion sequences and the results of overload resolution for the types
+ * used in one translation unit. The cache is owned by the AST. Basic, pointer, reference and
+ * qualifier types are compared structurally, since each expression creates its own objects for
+ * them. For a literal the key records whether it is zero, because that decides whether it is
+ * a null pointer constant. Conversions that could be narrowing are not cached for literals,
+ * and resolutions that must not narrow include the values of literals in the key. Functions,
+ * classes, enumerations and typedefs are compared by identity. Only non-dependent types are
+ * considered, and no results are kept for classes of the AST that are not defined.
+ */
+public class OverloadResolutionCache {
+	private static final int MAX_CONVERSIONS = 20000;
+	private static final int MAX_RESOLUTIONS = 10000;
+	private static final Object SEPARATOR = new Object();
+
+	private static final AtomicLong fConversionHits = new AtomicLong();
+	private static final AtomicLong fConversionMisses = new AtomicLong();
+	private static final AtomicLong fResolutionHits = new AtomicLong();
+	private static final AtomicLong fResolutionMisses = new AtomicLong();
+
+	static final class Key {
+		private final Object[] fParts;
+		private final int fHash;
+
+		Key(Object[] parts) {
+			fParts= parts;
+			int hash= parts.length;
+			for (Object part : parts) {
+				hash= 31 * hash + Objects.hashCode(part);
+			}
+			fHash= hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return fHash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other= (Key) obj;
+			if (fHash != other.fHash || fParts.length != other.fParts.length)
+				return false;
+			for (int i = 0; i < fParts.length; i++) {
+				if (!Objects.equals(fParts[i], other.fParts[i]))
+					return false;
+			}
+			return true;
+		}
+	}
+
+	private static <V> Map<Key, V> createBoundedMap(final int maxSize) {
+		return new LinkedHashMap<Key, V>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, V> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	private final Map<Key, Cost> fConversions= createBoundedMap(MAX_CONVERSIONS);
+	private final Map<Key, ICPPFunction> fResolutions= createBoundedMap(MAX_RESOLUTIONS);
+
+	/**
+	 * Returns the cache of the translation unit of the current lookup point, or {@code null}.
+	 */
+	static OverloadResolutionCache getCurrent() {
+		IASTNode point= CPPSemantics.getCurrentLookupPoint();
+		if (point != null && point.getTranslationUnit() instanceof CPPASTTranslationUnit) {
+			return ((CPPASTTranslationUnit) point.getTranslationUnit()).getOverloadResolutionCache();
+		}
+		return null;
+	}
+
+	/**
+	 * Returns whether conversions from or to the given type can be cached.
+	 */
+	static boolean isCacheable(IType type) {
+		return getTypeKey(type, false) != null && !CPPTemplates.isDependentType(type);
+	}
+
+	/**
+	 * Returns an object that is equal for all types that behave the same in implicit conversions,
+	 * or {@code null} if conversions from or to the type are not cached.
+	 */
+	private static Object getTypeKey(IType type, boolean withValues) {
+		if (type instanceof CPPBasicType) {
+			CPPBasicType basicType= (CPPBasicType) type;
+			Object value= basicType.getAssociatedNumericalValue();
+			if (value != null && !withValues) {
+				value= Boolean.valueOf(((Long) value).longValue() == 0);
+			}
+			return Arrays.asList(basicType.getKind(), basicType.getModifiers(), value);
+		}
+		if (type instanceof ICPPReferenceType) {
+			ICPPReferenceType refType= (ICPPReferenceType) type;
+			Object nested= getTypeKey(refType.getType(), withValues);
+			return nested == null ? null : Arrays.asList(refType.isRValueReference() ? "&&" : "&", nested); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		if (type instanceof ICPPPointerToMemberType)
+			return null;
+		if (type instanceof IPointerType) {
+			IPointerType ptrType= (IPointerType) type;
+			Object nested= getTypeKey(ptrType.getType(), withValues);
+			return nested == null ? null : Arrays.asList("*", ptrType.isConst(), ptrType.isVolatile(), //$NON-NLS-1$
+					ptrType.isRestrict(), nested);
+		}
+		if (type instanceof IQualifierType) {
+			IQualifierType qualType= (IQualifierType) type;
+			Object nested= getTypeKey(qualType.getType(), withValues);
+			return nested == null ? null : Arrays.asList("cv", qualType.isConst(), qualType.isVolatile(), nested); //$NON-NLS-1$
+		}
+		if (type instanceof ITypedef || type instanceof IEnumeration)
+			return type;
+		if (type instanceof ICPPClassType && !isUndefinedClass(type))
+			return type;
+		return null;
+	}
+
+	private static boolean isUndefinedClass(IType type) {
+		if (!(type instanceof ICPPClassType))
+			return false;
+		IBinding binding= (ICPPClassType) type;
+		if (binding instanceof ICPPClassSpecialization) {
+			binding= ((ICPPClassSpecialization) binding).getSpecializedBinding();
+		}
+		if (binding instanceof ICPPInternalBinding && !(binding instanceof IIndexBinding)) {
+			return ((ICPPInternalBinding) binding).getDefinition() == null;
+		}
+		return false;
+	}
+
+	static Key createConversionKey(IType target, IType source, ValueCategory valueCat, UDCMode udc,
+			Context ctx) {
+		return new Key(new Object[] { getTypeKey(target, false), getTypeKey(source, false), valueCat, udc,
+				ctx });
+	}
+
+	static Key createResolutionKey(ICPPFunction[] fns, IType[] argTypes,
+			ValueCategory[] valueCategories, boolean impliedObject, boolean allowUDC,
+			boolean noNarrowing) {
+		Object[] parts= new Object[fns.length + 2 * argTypes.length + 4];
+		int i= 0;
+		for (ICPPFunction fn : fns) {
+			parts[i++]= fn;
+		}
+		parts[i++]= SEPARATOR;
+		for (IType argType : argTypes) {
+			// Whether a conversion narrows can depend on the value of a literal.
+			parts[i++]= getTypeKey(argType, noNarrowing);
+		}
+		for (int j = 0; j < argTypes.length; j++) {
+			parts[i++]= valueCategories[j];
+		}
+		parts[i++]= Boolean.valueOf(impliedObject);
+		parts[i++]= Boolean.valueOf(allowUDC);
+		parts[i++]= Boolean.valueOf(noNarrowing);
+		return new Key(parts);
+	}
+
+	/**
+	 * Returns a copy of the cached cost for the given key, or {@code null}.
+	 */
+	Cost getConversion(Key key) {
+		Cost cost= fConversions.get(key);
+		if (cost == null) {
+			fConversionMisses.incrementAndGet();
+			return null;
+		}
+		fConversionHits.incrementAndGet();
+		return cost == Cost.NO_CONVERSION ? cost : new Cost(cost);
+	}
+
+	void putConversion(Key key, IType source, Cost cost) {
+		if (cost.couldNarrow() && source instanceof CPPBasicType
+				&& ((CPPBasicType) source).getAssociatedNumericalValue() != null) {
+			return;  // Whether the conversion narrows depends on the value of the literal.
+		}
+		fConversions.put(key, cost == Cost.NO_CONVERSION ? cost : new Cost(cost));
+	}
+
+	ICPPFunction getResolution(Key key) {
+		ICPPFunction function= fResolutions.get(key);
+		if (function == null) {
+			fResolutionMisses.incrementAndGet();
+		} else {
+			fResolutionHits.incrementAndGet();
+		}
+		return function;
+	}
+
+	void putResolution(Key key, ICPPFunction function) {
+		fResolutions.put(key, function);
+	}
+
+	/**
+	 * Returns the number of implicit conversion sequences obtained from a cache, summed over
+	 * all translation units.
+	 */
+	public static long getConversionHits() {
+		return fConversionHits.get();
+	}
+
+	/**
+	 * Returns the number of implicit conversion sequences that had to be computed although
+	 * they could have been cached, summed over all translation units.
+	 */
+	public static long getConversionMisses() {
+		return fConversionMisses.get();
+	}
+
+	/**
+	 * Returns the number of overload resolutions obtained from a cache, summed over all
+	 * translation units.
+	 */
+	public static long getResolutionHits() {
+		return fResolutionHits.get();
+	}
+
+	/**
+	 * Returns the number of overload resolutions that had to be performed although they could
+	 * have been cached, summed over all translation units.
+	 */
+	public static long getResolutionMisses() {
+		return fResolutionMisses.get();
+	}
+}
@@ -24,7 +24,11 @@ import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPEvaluation;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPExecution;
 import org.eclipse.core.runtime.CoreException;
 
-class SignatureBuilder implements ITypeMarshalBuffer {
+/**
+ * Computes signatures of types, bindings, evaluations and executions, by marshalling them
+ * into a string.
+ */
+public class SignatureBuilder implements ITypeMarshalBuffer {
 	private static final short NULL_TYPE       = 0x0000;
 	private static final short UNSTORABLE_TYPE = 0x001D;
 
@@ -296,6 +296,9 @@ public class CPreprocessor implements ILexerLog, IScanner, IAdaptable {
 	// Detection of include guards used around an include directive
 	private char[] fExternIncludeGuard;
 	private Set<String> fTracedGuards;
+	private final int fIncludeGuardOptionsKey;
+	// Images of the identifiers in the files of the translation unit, shared by their tokens.
+	private final CharArraySet fIdentifierImages= new CharArraySet(1024);
 
     public CPreprocessor(FileContent fileContent, IScannerInfo info, ParserLanguage language,
     		IParserLogService log, IScannerExtensionConfiguration configuration,
@@ -329,6 +332,7 @@ public class CPreprocessor implements ILexerLog, IScanner, IAdaptable {
         fKeywords= new CharArrayIntMap(40, -1);
         fPPKeywords= new CharArrayIntMap(40, -1);
         configureKeywords(language, configuration);
+        fIncludeGuardOptionsKey= IncludeGuardCache.getOptionsKey(fLexOptions, fPPKeywords);
 
         fExpressionEvaluator= new ExpressionEvaluator(this);
         fMacroDefinitionParser= new MacroDefinitionParser();
@@ -343,7 +347,7 @@ public class CPreprocessor implements ILexerLog, IScanner, IAdaptable {
         setupMacroDictionary(configuration, info, language);		
 
         ILocationCtx ctx= fLocationMap.pushTranslationUnit(fRootContent.getFileLocation(), fRootContent.getSource());
-        Lexer lexer = new Lexer(fRootContent.getSource(), fLexOptions, this, this);
+        Lexer lexer = createFileLexer(fRootContent.getSource());
         fRootContext= fCurrentContext= new ScannerContext(ctx, null, lexer);
         if (info instanceof IExtendedScannerInfo) {
         	final IExtendedScannerInfo einfo= (IExtendedScannerInfo) info;
@@ -352,9 +356,30 @@ public class CPreprocessor implements ILexerLog, IScanner, IAdaptable {
         fFileContentProvider.resetForTranslationUnit();
     }
     
+	private Lexer createFileLexer(AbstractCharArray source) {
+		Lexer lexer= new Lexer(source, fLexOptions, this, this);
+		lexer.setIdentifierImageTable(fIdentifierImages);
+		return lexer;
+	}
+
+	private char[] findIncludeGuard(AbstractCharArray source) {
+		final IncludeGuardCache cache= fFileContentProvider.getIncludeGuardCache();
+		if (cache == null || source.hasError())
+			return IncludeGuardDetection.detectIncludeGuard(source, fLexOptions, fPPKeywords);
+
+		final long hash= source.getContentsHash();
+		char[] guard= cache.get(hash, fIncludeGuardOptionsKey);
+		if (guard == null) {
+			guard= IncludeGuardDetection.detectIncludeGuard(source, fLexOptions, fPPKeywords);
+			cache.put(hash, fIncludeGuardOptionsKey, guard);
+			return guard;
+		}
+		return guard == IncludeGuardCache.NO_GUARD ? null : guard;
+	}
+
 	private char[] detectIncludeGuard(String filePath, AbstractCharArray source, ScannerContext ctx) {
 		if (!fFileContentProvider.shouldIndexAllHeaderVersions(filePath)) {
-			final char[] guard = IncludeGuardDetection.detectIncludeGuard(source, fLexOptions, fPPKeywords);
+			final char[] guard = findIncludeGuard(source);
 			if (guard != null) {
 				IFileNomination nom= fLocationMap.reportPragmaOnceSemantics(ctx.getLocationCtx());
 				fFileContentProvider.reportPragmaOnceSemantics(filePath, nom);
@@ -1647,7 +1672,7 @@ public class CPreprocessor implements ILexerLog, IScanner, IAdaptable {
 				ILocationCtx ctx= fLocationMap.pushInclusion(poundOffset, nameOffsets[0], nameOffsets[1],
 						condEndOffset, source, path, headerName, userInclude, isHeuristic, fi.isSource());
 				ScannerContext fctx= new ScannerContext(ctx, fCurrentContext,
-						new Lexer(source, fLexOptions, this, this));
+						createFileLexer(source));
 				fctx.setFoundOnPath(fi.getFoundOnPath(), includeDirective);
 				detectIncludeGuard(path, source, fctx);
 				fCurrentContext= fctx;
@@ -45,6 +45,11 @@ public class FileCharArray extends LazyCharArray {
 		if (lsize < CHUNK_SIZE) {
 			return decodeSmallFile(channel, (int) lsize, charSet);
 		}
+		if (lsize >= MappedFileCharArray.MIN_FILE_SIZE) {
+			AbstractCharArray mapped= MappedFileCharArray.create(channel, lsize, charSet);
+			if (mapped != null)
+				return mapped;
+		}
 
 		return new FileCharArray(fileName, charSet);
 	}
@@ -78,6 +78,12 @@ public interface ILocationResolver {
      * @see IASTTranslationUnit#getFilePath()
      */
     String getTranslationUnitPath();
+
+	/**
+	 * Returns the hash of the contents of the translation unit file.
+	 * @see AbstractCharArray#getContentsHash()
+	 */
+	long getTranslationUnitContentsHash();
     
     /**
      * @see IASTTranslationUnit#getContainingFilename()
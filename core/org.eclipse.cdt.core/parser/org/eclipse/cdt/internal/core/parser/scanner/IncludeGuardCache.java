@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.parser.scanner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.parser.util.CharArrayIntMap;
+import org.eclipse.cdt.core.parser.util.CharArrayUtils;
+
+/**
+ * Remembers the outcome of include guard detection for file contents. Detecting an include
+ * guard requires lexing the entire file, the result depends on nothing but the contents of
+ * the file and the lexer configuration. Thus the result can be reused for every translation
+ * unit that includes the same contents, even across sessions when the cache is stored in a file.
+ * <p>
+ * Every edit of a header adds the result for new contents. When the cache is full, the entry
+ * used least recently is dropped. The file keeps the entries in the order of their last use.
+ * <p>
+ * The class is thread-safe.
+ */
+public class IncludeGuardCache {
+	/** Returned by {@link #get(long, int)} for contents known to have no include guard. */
+	public static final char[] NO_GUARD = {};
+
+	private static final int FILE_FORMAT_VERSION = 1;
+	private static final int MAX_ENTRIES = 100000;
+
+	private final Map<Long, char[]> fGuards;
+	private boolean fDirty;
+
+	public IncludeGuardCache() {
+		this(MAX_ENTRIES);
+	}
+
+	/**
+	 * @param maxEntries the maximum number of contents the cache remembers
+	 */
+	public IncludeGuardCache(final int maxEntries) {
+		fGuards = new LinkedHashMap<Long, char[]>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, char[]> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Computes the key for the lexer configuration that is relevant for include guard detection.
+	 */
+	public static int getOptionsKey(Lexer.LexerOptions options, CharArrayIntMap ppKeywords) {
+		int key = 0;
+		for (char[] keyword : ppKeywords.keys()) {
+			key += CharArrayUtils.hash(keyword) * 31 + ppKeywords.get(keyword);
+		}
+		key = key * 31 + (options.fSupportDollarInIdentifiers ? 1 : 0);
+		key = key * 31 + (options.fSupportAtSignInIdentifiers ? 1 : 0);
+		key = key * 31 + (options.fSupportMinAndMax ? 1 : 0);
+		key = key * 31 + (options.fSupportSlashPercentComments ? 1 : 0);
+		key = key * 31 + (options.fSupportUTFLiterals ? 1 : 0);
+		key = key * 31 + (options.fSupportRawStringLiterals ? 1 : 0);
+		key = key * 31 + (options.fSupportUserDefinedLiterals ? 1 : 0);
+		return key;
+	}
+
+	/**
+	 * Returns the include guard for the given contents, {@link #NO_GUARD} if the contents are
+	 * known to have no include guard, or {@code null} if the contents are not known to the cache.
+	 *
+	 * @param contentsHash the hash of the contents, see {@link AbstractCharArray#getContentsHash()}
+	 * @param optionsKey the key computed by {@link #getOptionsKey(Lexer.LexerOptions, CharArrayIntMap)}
+	 */
+	public synchronized char[] get(long contentsHash, int optionsKey) {
+		return fGuards.get(toKey(contentsHash, optionsKey));
+	}
+
+	/**
+	 * Stores the outcome of the include guard detection for the given contents.
+	 *
+	 * @param guard the include guard or {@code null} if there is none.
+	 */
+	public synchronized void put(long contentsHash, int optionsKey, char[] guard) {
+		if (fGuards.put(toKey(contentsHash, optionsKey), guard == null ? NO_GUARD : guard) == null)
+			fDirty = true;
+	}
+
+	public synchronized int size() {
+		return fGuards.size();
+	}
+
+	private static Long toKey(long contentsHash, int optionsKey) {
+		return contentsHash ^ (optionsKey * 0x9E3779B97F4A7C15L);
+	}
+
+	/**
+	 * Reads the cache from the given file. A missing or unreadable file results in an empty cache.
+	 */
+	public static IncludeGuardCache load(File file) {
+		return load(file, MAX_ENTRIES);
+	}
+
+	/**
+	 * Reads the cache from the given file, keeping the given number of entries that were used
+	 * most recently. A missing or unreadable file results in an empty cache.
+	 */
+	public static IncludeGuardCache load(File file, int maxEntries) {
+		IncludeGuardCache cache = new IncludeGuardCache(maxEntries);
+		if (!file.exists())
+			return cache;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != FILE_FORMAT_VERSION)
+				return cache;
+			// The entries are stored in the order of their use, the eldest ones are dropped.
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				long key = in.readLong();
+				int length = in.readInt();
+				char[] guard = length == 0 ? NO_GUARD : new char[length];
+				for (int j = 0; j < length; j++) {
+					guard[j] = in.readChar();
+				}
+				cache.fGuards.put(key, guard);
+			}
+		} catch (IOException e) {
+			// The cache is an optimization only, start over with an empty one.
+			cache.fGuards.clear();
+		}
+		return cache;
+	}
+
+	/**
+	 * Writes the cache to the given file, provided it has been modified since it was loaded.
+	 */
+	public synchronized void save(File file) {
+		if (!fDirty)
+			return;
+
+		File tmp = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+				out.writeInt(FILE_FORMAT_VERSION);
+				out.writeInt(fGuards.size());
+				for (Map.Entry<Long, char[]> entry : fGuards.entrySet()) {
+					char[] guard = entry.getValue();
+					out.writeLong(entry.getKey());
+					out.writeInt(guard.length);
+					for (char c : guard) {
+						out.writeChar(c);
+					}
+				}
+			}
+			if ((!file.exists() || file.delete()) && tmp.renameTo(file)) {
+				fDirty = false;
+			}
+		} catch (IOException e) {
+			CCorePlugin.log(e);
+		} finally {
+			tmp.delete();
+		}
+	}
+}
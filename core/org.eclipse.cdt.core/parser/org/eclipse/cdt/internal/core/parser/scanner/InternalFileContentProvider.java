@@ -49,6 +49,7 @@ public abstract class InternalFileContentProvider extends IncludeFileContentProv
 	}
 
 	private IIncludeFileResolutionHeuristics fIncludeResolutionHeuristics;
+	private IncludeGuardCache fIncludeGuardCache;
     private final Map<String, IFileNomination> fPragmaOnce= new HashMap<>();
     private final Map<String, List<ISignificantMacros>> fLoadedVersions= new HashMap<>();
 
@@ -131,6 +132,18 @@ public abstract class InternalFileContentProvider extends IncludeFileContentProv
 		fIncludeResolutionHeuristics= heuristics;
 	}
 
+	/**
+	 * Returns the cache for the outcome of include guard detection, or {@code null} if
+	 * include guards shall be detected for every inclusion.
+	 */
+	public final IncludeGuardCache getIncludeGuardCache() {
+		return fIncludeGuardCache;
+	}
+
+	public final void setIncludeGuardCache(IncludeGuardCache cache) {
+		fIncludeGuardCache= cache;
+	}
+
 	public List<ISignificantMacros> getLoadedVersions(String path) {
 		List<ISignificantMacros> result = fLoadedVersions.get(path);
 		return result == null ? Collections.<ISignificantMacros>emptyList() : result;
@@ -18,6 +18,7 @@ import org.eclipse.cdt.core.parser.IProblem;
 import org.eclipse.cdt.core.parser.IToken;
 import org.eclipse.cdt.core.parser.IncludeExportPatterns;
 import org.eclipse.cdt.core.parser.OffsetLimitReachedException;
+import org.eclipse.cdt.core.parser.util.CharArraySet;
 import org.eclipse.cdt.core.parser.util.CharArrayUtils;
 
 /**
@@ -106,6 +107,10 @@ final public class Lexer implements ITokenSequence {
 	private boolean fMarkInsideIncludeDirective;
 	private Token fMarkToken;
 	private Token fMarkLastToken;
+
+	// Table for sharing the images of identifiers among tokens, may be null.
+	private CharArraySet fIdentifierImages;
+	private char[] fImageBuffer;
 	
 	public Lexer(char[] input, LexerOptions options, ILexerLog log, Object source) {
 		this(new CharArray(input), 0, input.length, options, log, source);
@@ -126,6 +131,15 @@ final public class Lexer implements ITokenSequence {
 		nextCharPhase3();
 	}
 	
+	/**
+	 * Makes the lexer take the images of identifier tokens from the given table, such that
+	 * all occurrences of an identifier share one array. The table is extended with the
+	 * identifiers not yet contained in it and must not be used by other threads meanwhile.
+	 */
+	public void setIdentifierImageTable(CharArraySet table) {
+		fIdentifierImages= table;
+	}
+
 	private boolean isValidOffset(int pos) {
 		if (fLimit < 0)
 			return fInput.isValidOffset(pos);
@@ -663,14 +677,39 @@ final public class Lexer implements ITokenSequence {
     	char[] image;
     	if (sourceLen != imageLength) {
     		image= getCharImage(offset, endOffset, imageLength);
-    	}
-    	else {
+    	} else if (kind == IToken.tIDENTIFIER && fIdentifierImages != null) {
+    		image= getSharedImage(offset, imageLength);
+    	} else {
 			image= new char[imageLength];
 			fInput.arraycopy(offset, image, 0, imageLength);
     	}
     	return new TokenWithImage(kind, fSource, offset, endOffset, image);
     }
 
+    private char[] getSharedImage(final int offset, final int imageLength) {
+    	char[] buffer;
+    	int start;
+    	if (fInput instanceof CharArray) {
+    		buffer= ((CharArray) fInput).getArray();
+    		start= offset;
+    	} else {
+    		if (fImageBuffer == null || fImageBuffer.length < imageLength) {
+    			fImageBuffer= new char[Math.max(imageLength, 64)];
+    		}
+    		fInput.arraycopy(offset, fImageBuffer, 0, imageLength);
+    		buffer= fImageBuffer;
+    		start= 0;
+    	}
+    	char[] image= fIdentifierImages.findKey(buffer, start, imageLength);
+    	if (image == null) {
+    		// The table must not keep a reference to the image buffer or to the input.
+    		image= new char[imageLength];
+    		System.arraycopy(buffer, start, image, 0, imageLength);
+    		fIdentifierImages.addIndex(image, 0, imageLength);
+    	}
+    	return image;
+    }
+
     private void handleProblem(int problemID, char[] arg, int offset) {
     	fLog.handleProblem(problemID, arg, offset, fOffset);
     }
@@ -67,6 +67,10 @@ class LocationCtxContainer extends LocationCtx {
 		return CharArrayUtils.EMPTY;
 	}
 
+	public long getContentsHash() {
+		return fSource.getContentsHash();
+	}
+
 	@Override
 	public final int getSequenceLength() {
 		return fSource.getLength() + fChildSequenceLength;
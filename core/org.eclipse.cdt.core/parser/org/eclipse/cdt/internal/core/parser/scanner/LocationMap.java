@@ -453,6 +453,11 @@ public class LocationMap implements ILocationResolver {
 		return fTranslationUnitPath;
 	}
 
+	@Override
+	public long getTranslationUnitContentsHash() {
+		return fRootContext == null ? 0 : fRootContext.getContentsHash();
+	}
+
 	/**
 	 * Line number of offset in current context.
 	 * @param offset in current context.
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.parser.scanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Implementation of char array for a large file that is mapped into memory. The characters
+ * are taken directly from the mapped bytes, such that the contents of the file are neither
+ * decoded nor copied to the heap. This is possible for files with a single byte encoding and
+ * for UTF-8 files that consist of ASCII characters only, other files are handled by
+ * {@link FileCharArray}.
+ */
+public final class MappedFileCharArray extends AbstractCharArray {
+	/**
+	 * Files smaller than this are not mapped. Every mapping is retained until the buffer is
+	 * garbage collected, mapping only large files keeps the number of mappings low.
+	 */
+	public static final int MIN_FILE_SIZE = 1 << 20;  // 1 MB
+
+	private static final String UTF8_CHARSET_NAME = "UTF-8"; //$NON-NLS-1$
+	private static final String ASCII_CHARSET_NAME = "US-ASCII"; //$NON-NLS-1$
+	private static final String LATIN1_CHARSET_NAME = "ISO-8859-1"; //$NON-NLS-1$
+	private static final long NON_ASCII_MASK = 0x8080808080808080L;
+	/** On Windows a mapped file cannot be modified or deleted until the mapping is released. */
+	private static final boolean SUPPORTED = File.separatorChar == '/';
+
+	/**
+	 * Maps the file accessed by the given channel, or returns {@code null} if the file cannot be
+	 * represented by a mapped char array.
+	 */
+	public static AbstractCharArray create(FileChannel channel, long size, String charSet)
+			throws IOException {
+		if (!SUPPORTED || size > Integer.MAX_VALUE)
+			return null;
+
+		final boolean isUTF8= UTF8_CHARSET_NAME.equalsIgnoreCase(charSet);
+		final boolean isLatin1= LATIN1_CHARSET_NAME.equalsIgnoreCase(charSet);
+		if (!isUTF8 && !isLatin1 && !ASCII_CHARSET_NAME.equalsIgnoreCase(charSet))
+			return null;
+
+		final MappedByteBuffer buffer= channel.map(MapMode.READ_ONLY, 0, size);
+		final int end= (int) size;
+		int start= 0;
+		if (isUTF8 && end >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB &&
+				buffer.get(2) == (byte) 0xBF) {
+			start= 3;
+		}
+		if (!isLatin1 && !isASCII(buffer, start, end))
+			return null;
+
+		return new MappedFileCharArray(buffer, start, end - start);
+	}
+
+	private static boolean isASCII(MappedByteBuffer buffer, int start, int end) {
+		int i= start;
+		for (; i + 8 <= end; i += 8) {
+			if ((buffer.getLong(i) & NON_ASCII_MASK) != 0)
+				return false;
+		}
+		for (; i < end; i++) {
+			if (buffer.get(i) < 0)
+				return false;
+		}
+		return true;
+	}
+
+	private final MappedByteBuffer fBuffer;
+	private final int fStart;
+	private final int fLength;
+	private long fHash64;
+	private boolean fHasHash;
+	private boolean fHasError;
+
+	private MappedFileCharArray(MappedByteBuffer buffer, int start, int length) {
+		fBuffer= buffer;
+		fStart= start;
+		fLength= length;
+	}
+
+	@Override
+	public int getLength() {
+		return fLength;
+	}
+
+	@Override
+	public int tryGetLength() {
+		return fLength;
+	}
+
+	@Override
+	public boolean isValidOffset(int offset) {
+		return offset < fLength;
+	}
+
+	@Override
+	public char get(int offset) {
+		try {
+			return (char) (fBuffer.get(fStart + offset) & 0xff);
+		} catch (InternalError e) {
+			// The file has been truncated after it was mapped.
+			fHasError= true;
+			return 0;
+		}
+	}
+
+	@Override
+	public void arraycopy(int offset, char[] destination, int destinationPos, int length) {
+		try {
+			final int from= fStart + offset;
+			for (int i = 0; i < length; i++) {
+				destination[destinationPos + i]= (char) (fBuffer.get(from + i) & 0xff);
+			}
+		} catch (InternalError e) {
+			// The file has been truncated after it was mapped.
+			fHasError= true;
+		}
+	}
+
+	@Override
+	public long getContentsHash() {
+		if (!fHasHash) {
+			// Hash in chunks of the size used by LazyCharArray, the hash value does not depend
+			// on the chunk size.
+			StreamHasher hasher= new StreamHasher();
+			char[] chunk= null;
+			for (int offset = 0; offset < fLength; offset += LazyCharArray.CHUNK_SIZE) {
+				final int length= Math.min(LazyCharArray.CHUNK_SIZE, fLength - offset);
+				if (chunk == null || chunk.length != length) {
+					chunk= new char[length];
+				}
+				arraycopy(offset, chunk, 0, length);
+				hasher.addChunk(chunk);
+			}
+			fHash64= hasher.computeHash();
+			fHasHash= true;
+		}
+		return fHash64;
+	}
+
+	@Override
+	public boolean hasError() {
+		return fHasError;
+	}
+}
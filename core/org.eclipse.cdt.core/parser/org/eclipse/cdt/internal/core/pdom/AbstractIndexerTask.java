@@ -29,7 +29,14 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -43,6 +50,7 @@ import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit.IDependencyTree;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit.IDependencyTree.IASTInclusionNode;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPUsingDirective;
+import org.eclipse.cdt.core.index.IIndex;
 import org.eclipse.cdt.core.index.IIndexFile;
 import org.eclipse.cdt.core.index.IIndexFileLocation;
 import org.eclipse.cdt.core.index.IIndexInclude;
@@ -61,10 +69,12 @@ import org.eclipse.cdt.core.parser.ISignificantMacros;
 import org.eclipse.cdt.core.parser.IncludeExportPatterns;
 import org.eclipse.cdt.core.parser.IncludeFileContentProvider;
 import org.eclipse.cdt.internal.core.dom.IIncludeFileResolutionHeuristics;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPASTTranslationUnit;
 import org.eclipse.cdt.internal.core.index.FileContentKey;
 import org.eclipse.cdt.internal.core.index.IIndexFragment;
 import org.eclipse.cdt.internal.core.index.IIndexFragmentFile;
 import org.eclipse.cdt.internal.core.index.IWritableIndex;
+import org.eclipse.cdt.internal.core.index.IWritableIndexFragment;
 import org.eclipse.cdt.internal.core.index.IndexBasedFileContentProvider;
 import org.eclipse.cdt.internal.core.model.DebugLogConstants;
 import org.eclipse.cdt.internal.core.parser.IMacroDictionary;
@@ -91,6 +101,7 @@ import org.eclipse.osgi.util.NLS;
 public abstract class AbstractIndexerTask extends PDOMWriter {
 	public static enum UnusedHeaderStrategy { skip, useC, useCPP, useDefaultLanguage, useBoth }
 	private static final int MAX_ERRORS = 500;
+	private static final int PARSER_POLL_INTERVAL_MS = 500;
 
 	// Order of constants is important. Stronger update types have to precede the weaker ones.
 	private static enum UpdateKind { REQUIRED_SOURCE, REQUIRED_HEADER, ONE_LINKAGE_HEADER, OTHER_HEADER }
@@ -301,6 +312,163 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		}
 	}
 
+	/**
+	 * A source file to be parsed by one of the parser threads. Carries the result of parsing
+	 * to the thread writing to the index.
+	 */
+	private static class ParseRequest {
+		final Object fTu;
+		final AbstractLanguage fLanguage;
+		final IIndexFileLocation fLocation;
+		final IScannerInfo fScannerInfo;
+		FileContent fCodeReader;
+		IASTTranslationUnit fAST;
+		Throwable fException;
+		long fParsingTime;
+		long fResolutionTime;
+
+		ParseRequest(Object tu, AbstractLanguage language, IIndexFileLocation location,
+				IScannerInfo scannerInfo) {
+			fTu= tu;
+			fLanguage= language;
+			fLocation= location;
+			fScannerInfo= scannerInfo;
+		}
+
+		/**
+		 * Returns the AST created by the parser thread, or rethrows the exception thrown while
+		 * creating it.
+		 */
+		IASTTranslationUnit getAST() throws CoreException {
+			if (fException instanceof CoreException)
+				throw (CoreException) fException;
+			if (fException instanceof RuntimeException)
+				throw (RuntimeException) fException;
+			if (fException instanceof Error)
+				throw (Error) fException;
+			return fAST;
+		}
+	}
+
+	/**
+	 * The symbols of an AST with resolved names, ready to be stored in the index.
+	 */
+	private static class ASTSymbols {
+		final int fLinkageID;
+		final FileInAST[] fFileKeys;
+		final FileContext fContext;
+		final List<PDOMWriter.Data> fData= new ArrayList<>();
+
+		ASTSymbols(int linkageID, FileInAST[] fileKeys, FileContext context) {
+			fLinkageID= linkageID;
+			fFileKeys= fileKeys;
+			fContext= context;
+		}
+	}
+
+	/**
+	 * Parses source files on multiple threads. The parsed files are passed through a bounded queue
+	 * to the indexer thread, which writes them to the index while holding the write lock of
+	 * the pool. The parser threads read from the index, so they are paused while the indexer
+	 * thread writes to it.
+	 */
+	private class ParserPool {
+		final Queue<ParseRequest> fRequests;
+		final BlockingQueue<ParseRequest> fParsed;
+		final ReentrantReadWriteLock fWriteLock= new ReentrantReadWriteLock(true);
+		private final int fLinkageID;
+		private final IProgressMonitor fMonitor;
+		private final Thread[] fThreads;
+		private volatile boolean fStopped;
+
+		ParserPool(int linkageID, List<ParseRequest> requests, IProgressMonitor monitor) {
+			fLinkageID= linkageID;
+			fMonitor= monitor;
+			fRequests= new ConcurrentLinkedQueue<>(requests);
+			fThreads= new Thread[Math.min(fParserThreads, requests.size())];
+			fParsed= new ArrayBlockingQueue<>(fThreads.length);
+			for (int i = 0; i < fThreads.length; i++) {
+				final IndexerProgress progress= fParserProgress[i];
+				fThreads[i]= new Thread("Indexer parser #" + (i + 1)) { //$NON-NLS-1$
+					@Override
+					public void run() {
+						parse(progress);
+					}
+				};
+				fThreads[i].setDaemon(true);
+				fThreads[i].start();
+			}
+		}
+
+		private void parse(IndexerProgress progress) {
+			// The ASTs built by the parser threads are resolved at the same time. Instances of
+			// templates from the index must not be shared among them.
+			CPPASTTranslationUnit.setConfineIndexTemplateInstances(true);
+			InternalFileContentProvider contentProvider= null;
+			ParseRequest request;
+			while (!fStopped && !fMonitor.isCanceled() && (request= fRequests.poll()) != null) {
+				fWriteLock.readLock().lock();
+				try {
+					if (fShowActivity) {
+						trace("Indexer: parsing " + getLabel(request.fLocation).toOSString()); //$NON-NLS-1$
+					}
+					if (contentProvider == null)
+						contentProvider= createFileContentProvider(fLinkageID);
+					request.fCodeReader= fResolver.getCodeReader(request.fTu);
+					long start= System.currentTimeMillis();
+					request.fAST= createAST(request.fLanguage, request.fCodeReader, request.fScannerInfo,
+							fASTOptions, null, contentProvider, fMonitor);
+					request.fParsingTime= System.currentTimeMillis() - start;
+					if (fResolveNamesInParserThreads && request.fAST != null) {
+						start= System.currentTimeMillis();
+						resolveBindings(request.fAST);
+						request.fResolutionTime= System.currentTimeMillis() - start;
+					}
+				} catch (CoreException | RuntimeException | Error e) {
+					request.fException= e;
+				} finally {
+					fWriteLock.readLock().unlock();
+				}
+				synchronized (progress) {
+					progress.fCompletedSources++;
+					progress.fParsingTime += request.fParsingTime;
+				}
+				try {
+					fParsed.put(request);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Removes the requests that have not been picked up by a parser thread yet.
+		 * @return the number of removed requests.
+		 */
+		int cancelPendingRequests() {
+			int count= 0;
+			while (fRequests.poll() != null) {
+				count++;
+			}
+			return count;
+		}
+
+		/**
+		 * Stops the parser threads and waits for them to finish parsing their current files.
+		 */
+		void shutdown() throws InterruptedException {
+			fStopped= true;
+			fRequests.clear();
+			for (Thread thread : fThreads) {
+				while (thread.isAlive()) {
+					// The thread may be waiting for space in the queue of parsed files.
+					fParsed.clear();
+					thread.join(PARSER_POLL_INTERVAL_MS);
+				}
+			}
+		}
+	}
+
 	protected enum MessageKind { parsingFileTask, errorWhileParsing, tooManyIndexProblems }
 
 	private int fUpdateFlags= IIndexManager.UPDATE_ALL;
@@ -326,6 +494,17 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 	private long fIncludedFileSizeLimit;
 	private InternalFileContentProvider fCodeReaderFactory;
 	private int fSwallowOutOfMemoryError= 5;
+	private int fParserThreads= 1;
+	private IndexerProgress[] fParserProgress;
+	private boolean fUpdateDependents;
+	private boolean fCacheIncludeGuards;
+	private boolean fResolveNamesInParserThreads;
+	// Signatures of headers before they are replaced in the index, see IndexFileSignature.
+	private final Map<FileContentKey, Long> fOldSignatures= new HashMap<>();
+	// Files including headers that export different symbols than before.
+	private final Set<IIndexFileLocation> fDependentsToUpdate= new LinkedHashSet<>();
+	// Files that have been written or scheduled as dependents by this task.
+	private final Set<IIndexFileLocation> fHandledLocations= new HashSet<>();
 	/**
 	 * A queue of urgent indexing tasks that contribute additional files to this task.
 	 * The files from the urgent tasks are indexed before all not yet processed files.
@@ -385,6 +564,45 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		fPragmaPrivatePattern = pattern;
 	}
 
+	/**
+	 * Sets the number of threads used for parsing the required source files. With more than one
+	 * thread the source files are parsed in parallel and written to the index by the thread running
+	 * the task. Header files parsed in the context of a source file are always parsed by the thread
+	 * running the task.
+	 */
+	public final void setParserThreads(int threads) {
+		fParserThreads= Math.max(1, threads);
+	}
+
+	public final int getParserThreads() {
+		return fParserThreads;
+	}
+
+	/**
+	 * Specifies whether the files including a header are updated after the header has been
+	 * written to the index with changed macros, includes or declarations.
+	 */
+	public void setUpdateDependents(boolean value) {
+		fUpdateDependents= value;
+	}
+
+	/**
+	 * Specifies whether the outcome of include guard detection is stored along with the index,
+	 * such that a header is checked for an include guard only once per contents.
+	 */
+	public void setCacheIncludeGuards(boolean value) {
+		fCacheIncludeGuards= value;
+	}
+
+	/**
+	 * Specifies whether the names of a source file parsed by one of the parser threads are
+	 * resolved by that thread, rather than by the thread writing to the index. Has no effect
+	 * unless more than one parser thread is used.
+	 */
+	public void setResolveNamesInParserThreads(boolean value) {
+		fResolveNamesInParserThreads= value;
+	}
+
 	/**
 	 * @see IPDOMIndexerTask#acceptUrgentTask(IPDOMIndexerTask)
 	 */
@@ -480,6 +698,22 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		}
 	}
 
+	/**
+	 * Makes a copy of the progress information of each of the parser threads and returns it.
+	 * The returned array is empty if the task does not parse files in parallel.
+	 */
+	public IndexerProgress[] getParserProgressInformation() {
+		if (fParserProgress == null)
+			return new IndexerProgress[0];
+		IndexerProgress[] result= new IndexerProgress[fParserProgress.length];
+		for (int i = 0; i < result.length; i++) {
+			synchronized (fParserProgress[i]) {
+				result[i]= new IndexerProgress(fParserProgress[i]);
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Updates current progress information with the provided delta.
 	 */
@@ -566,6 +800,12 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 							if (hasUrgentTasks())
 								break;
 						}
+						if (moreFiles == null && !fDependentsToUpdate.isEmpty() && !hasUrgentTasks()) {
+							// Files including headers that changed their exported symbols.
+							files= new HashMap<>();
+							extractDependents(files, indexFilesToRemove, progress.split(1));
+							continue;
+						}
 						synchronized (this) {
 							if (fUrgentTasks.isEmpty()) {
 								if (moreFiles == null) {
@@ -711,6 +951,30 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		}
 	}
 
+	/**
+	 * Requests updates of the files that include headers with changed exported symbols.
+	 */
+	private void extractDependents(HashMap<Integer, List<IIndexFileLocation>> files,
+			List<IIndexFragmentFile> filesToRemove, IProgressMonitor monitor) throws CoreException {
+		List<Object> tus= new ArrayList<>(fDependentsToUpdate.size());
+		for (IIndexFileLocation ifl : fDependentsToUpdate) {
+			Object tu= fResolver.getInputFile(ifl);
+			if (tu != null) {
+				tus.add(tu);
+			}
+		}
+		fDependentsToUpdate.clear();
+		if (fShowActivity) {
+			trace("Indexer: updating " + tus.size() + " dependents of changed headers"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		synchronized (this) {
+			fFilesToUpdate= tus.toArray();
+			fForceNumberFiles= fFilesToUpdate.length;
+			incrementRequestedFilesCount(fFilesToUpdate.length);
+		}
+		extractFiles(files, filesToRemove, monitor);
+	}
+
 	private void addPerLinkage(int linkageID, IIndexFileLocation ifl, HashMap<Integer, List<IIndexFileLocation>> files) {
 		List<IIndexFileLocation> list= files.get(linkageID);
 		if (list == null) {
@@ -782,6 +1046,20 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 	protected void reportFileWrittenToIndex(FileInAST file, IIndexFragmentFile ifile) throws CoreException {
 		final FileContentKey fck = file.fileContentKey;
 		final IIndexFileLocation location = fck.getLocation();
+		if (fUpdateDependents) {
+			fHandledLocations.add(location);
+			Long oldSignature= fOldSignatures.remove(fck);
+			if (oldSignature != null &&
+					IndexFileSignature.isChanged(oldSignature.longValue(), IndexFileSignature.compute(ifile))) {
+				// The files including the header consume symbols that have changed.
+				for (IIndexInclude include : fIndex.findIncludedBy(ifile, IIndex.DEPTH_INFINITE)) {
+					IIndexFileLocation includer= include.getIncludedByLocation();
+					if (fHandledLocations.add(includer)) {
+						fDependentsToUpdate.add(includer);
+					}
+				}
+			}
+		}
 		boolean wasCounted= false;
 		UpdateKind kind= UpdateKind.OTHER_HEADER;
 		LinkageTask map = findRequestMap(fck.getLinkageID());
@@ -883,17 +1161,22 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 				continue;
 
 			// First parse the required sources.
-			for (Iterator<IIndexFileLocation> it= filesAtPriority.iterator(); it.hasNext();) {
-				IIndexFileLocation ifl= it.next();
-				LocationTask locTask = map.find(ifl);
-				if (locTask == null || locTask.isCompleted()) {
-					it.remove();
-				} else if (locTask.fKind == UpdateKind.REQUIRED_SOURCE) {
-					if (hasUrgentTasks())
-						return;
-					final Object tu = locTask.fTu;
-					final IScannerInfo scannerInfo = getScannerInfo(linkageID, tu);
-					parseFile(tu, getLanguage(tu, linkageID), ifl, scannerInfo, null, progress.split(1));
+			if (fParserThreads > 1) {
+				if (!parseRequiredSourcesInParallel(linkageID, map, filesAtPriority, progress))
+					return;
+			} else {
+				for (Iterator<IIndexFileLocation> it= filesAtPriority.iterator(); it.hasNext();) {
+					IIndexFileLocation ifl= it.next();
+					LocationTask locTask = map.find(ifl);
+					if (locTask == null || locTask.isCompleted()) {
+						it.remove();
+					} else if (locTask.fKind == UpdateKind.REQUIRED_SOURCE) {
+						if (hasUrgentTasks())
+							return;
+						final Object tu = locTask.fTu;
+						final IScannerInfo scannerInfo = getScannerInfo(linkageID, tu);
+						parseFile(tu, getLanguage(tu, linkageID), ifl, scannerInfo, null, progress.split(1));
+					}
 				}
 			}
 	
@@ -965,6 +1248,67 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		}
 	}
 
+	/**
+	 * Parses the required sources among the given files using the parser threads and writes them
+	 * to the index.
+	 *
+	 * @return {@code false} if parsing was stopped because of an urgent task.
+	 */
+	private boolean parseRequiredSourcesInParallel(int linkageID, LinkageTask map,
+			List<IIndexFileLocation> files, SubMonitor progress) throws CoreException, InterruptedException {
+		List<ParseRequest> requests= new ArrayList<>();
+		for (Iterator<IIndexFileLocation> it= files.iterator(); it.hasNext();) {
+			IIndexFileLocation ifl= it.next();
+			LocationTask locTask = map.find(ifl);
+			if (locTask == null || locTask.isCompleted()) {
+				it.remove();
+			} else if (locTask.fKind == UpdateKind.REQUIRED_SOURCE) {
+				final Object tu = locTask.fTu;
+				requests.add(new ParseRequest(tu, getLanguage(tu, linkageID), ifl, getScannerInfo(linkageID, tu)));
+			}
+		}
+		if (requests.isEmpty())
+			return true;
+		if (hasUrgentTasks())
+			return false;
+
+		if (fParserProgress == null) {
+			fParserProgress= new IndexerProgress[fParserThreads];
+			for (int i = 0; i < fParserProgress.length; i++) {
+				fParserProgress[i]= new IndexerProgress();
+			}
+		}
+		boolean interrupted= false;
+		ParserPool pool= new ParserPool(linkageID, requests, progress);
+		try {
+			int pending= requests.size();
+			List<ParseRequest> parsed= new ArrayList<>();
+			while (pending > 0) {
+				ParseRequest request= pool.fParsed.poll(PARSER_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+				if (progress.isCanceled())
+					throw new OperationCanceledException();
+				if (request == null)
+					continue;
+				parsed.add(request);
+				pool.fParsed.drainTo(parsed);
+				pending -= parsed.size();
+
+				// Write all files parsed so far in one go, the parser threads are paused while
+				// the symbols are stored.
+				writeParsedFiles(parsed, pool.fWriteLock.writeLock(), progress.split(parsed.size()));
+				parsed.clear();
+				if (!interrupted && hasUrgentTasks()) {
+					// Write the files that are being parsed, but don't start parsing new ones.
+					interrupted= true;
+					pending -= pool.cancelPendingRequests();
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+		return !interrupted;
+	}
+
 	private void parseVersionInContext(int linkageID, LinkageTask map, IIndexFileLocation ifl,
 			final FileVersionTask versionTask, Object tu, LinkedHashSet<IIndexFile> safeGuard,
 			IProgressMonitor monitor) throws CoreException, InterruptedException {
@@ -1130,6 +1474,94 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		return null;
 	}
 
+	/**
+	 * Writes files parsed by the parser threads to the index. The names of all files are resolved
+	 * without holding the write lock, while the parser threads keep parsing. Then the symbols of
+	 * all files are stored under a single write lock that is temporarily released whenever it has
+	 * been held for more than {@link PDOMWriter#GROUP_COMMIT_WINDOW_MS} and index readers are
+	 * waiting. The parser threads are paused only while the symbols are stored.
+	 *
+	 * @param pauseLock the lock that pauses the parser threads
+	 */
+	private void writeParsedFiles(List<ParseRequest> parsedFiles, Lock pauseLock, IProgressMonitor monitor)
+			throws CoreException, InterruptedException {
+		SubMonitor progress = SubMonitor.convert(monitor, parsedFiles.size() * 2 + 1);
+		List<ParseRequest> prepared= new ArrayList<>(parsedFiles.size());
+		List<ASTSymbols> symbols= new ArrayList<>(parsedFiles.size());
+		// Headers selected by an earlier AST of the batch are not yet in the index, when the
+		// symbols of the next AST are extracted. They are written only once.
+		Set<FileContentKey> selectedFiles= new HashSet<>();
+		for (ParseRequest parsed : parsedFiles) {
+			IPath path= getLabel(parsed.fLocation);
+			progress.subTask(getMessage(MessageKind.parsingFileTask,
+					path.lastSegment(), path.removeLastSegments(1).toString()));
+			fStatistics.fParsingTime += parsed.fParsingTime;
+			fStatistics.fResolutionTime += parsed.fResolutionTime;
+			try {
+				IASTTranslationUnit ast= parsed.getAST();
+				if (ast == null) {
+					++fStatistics.fTooManyTokensCount;
+				} else {
+					ASTSymbols astSymbols= extractSymbols(parsed.fLanguage.getLinkageID(), ast,
+							parsed.fCodeReader, null, selectedFiles, progress.split(1));
+					for (FileInAST file : astSymbols.fFileKeys) {
+						selectedFiles.add(file.fileContentKey);
+					}
+					symbols.add(astSymbols);
+					prepared.add(parsed);
+				}
+			} catch (OperationCanceledException e) {
+			} catch (RuntimeException | StackOverflowError | CoreException | AssertionError | OutOfMemoryError e) {
+				handleError(path, e);
+			}
+		}
+
+		Throwable[] errors= new Throwable[symbols.size()];
+		pauseLock.lock();
+		try {
+			YieldableIndexLock lock= new YieldableIndexLock(fIndex, false, progress.split(1));
+			lock.setMaxHoldTime(PDOMWriter.GROUP_COMMIT_WINDOW_MS);
+			lock.acquire();
+			try {
+				for (int i = 0; i < symbols.size(); i++) {
+					try {
+						storeSymbols(symbols.get(i), lock, progress.split(1));
+					} catch (OperationCanceledException e) {
+					} catch (RuntimeException | StackOverflowError | CoreException | AssertionError | OutOfMemoryError e) {
+						errors[i]= e;
+					}
+				}
+			} finally {
+				fIndex.clearResultCache();
+				lock.release();
+			}
+		} finally {
+			pauseLock.unlock();
+		}
+
+		for (int i = 0; i < errors.length; i++) {
+			ParseRequest parsed= prepared.get(i);
+			if (errors[i] != null) {
+				handleError(getLabel(parsed.fLocation), errors[i]);
+			} else if (fShowActivity) {
+				trace("Indexer: processed " + getLabel(parsed.fLocation).toOSString() //$NON-NLS-1$
+						+ " [" + parsed.fParsingTime + " ms parsing]");  //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+
+	/**
+	 * Logs an error that occurred while indexing a file parsed by a parser thread, unless it is to
+	 * be propagated.
+	 */
+	private void handleError(IPath path, Throwable e) throws CoreException {
+		if (e.getCause() instanceof DependsOnOutdatedFileException)
+			return;  // Only headers parsed in context depend on outdated files.
+		if (e instanceof OutOfMemoryError && --fSwallowOutOfMemoryError < 0)
+			throw (OutOfMemoryError) e;
+		swallowError(path, e);
+	}
+
 	private AbstractLanguage getLanguage(Object tu, int linkageID) {
 		for (AbstractLanguage language : fResolver.getLanguages(tu, UnusedHeaderStrategy.useBoth)) {
 			if (language.getLinkageID() == linkageID) {
@@ -1200,6 +1632,15 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 	private final IASTTranslationUnit createAST(AbstractLanguage language, FileContent codeReader,
 			IScannerInfo scanInfo, int options, FileContext ctx, IProgressMonitor monitor)
 			throws CoreException {
+		if (codeReader != null && fCodeReaderFactory == null) {
+			fCodeReaderFactory= createFileContentProvider(language.getLinkageID());
+		}
+		return createAST(language, codeReader, scanInfo, options, ctx, fCodeReaderFactory, monitor);
+	}
+
+	private IASTTranslationUnit createAST(AbstractLanguage language, FileContent codeReader,
+			IScannerInfo scanInfo, int options, FileContext ctx, InternalFileContentProvider contentProvider,
+			IProgressMonitor monitor) throws CoreException {
 		if (codeReader == null) {
 			return null;
 		}
@@ -1209,28 +1650,14 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 			}
 			return null;
 		}
-		final IIndexFile[] ctx2header = ctx == null ? null : new IIndexFile[] {ctx.fContext, ctx.fOldFile};
-		if (fCodeReaderFactory == null) {
-			InternalFileContentProvider fileContentProvider = createInternalFileContentProvider();
-			if (fIsFastIndexer) {
-				IndexBasedFileContentProvider ibfcp = new IndexBasedFileContentProvider(fIndex, fResolver,
-						language.getLinkageID(), fileContentProvider, this);
-				ibfcp.setContextToHeaderGap(ctx2header);
-				ibfcp.setFileSizeLimit(fIncludedFileSizeLimit);
-				ibfcp.setHeadersToIndexAllVersions(fHeadersToIndexAllVersions);
-				ibfcp.setIndexAllHeaderVersions(fIndexAllHeaderVersions);
-				fCodeReaderFactory= ibfcp;
-			} else {
-				fCodeReaderFactory= fileContentProvider;
-			}
-			fCodeReaderFactory.setIncludeResolutionHeuristics(createIncludeHeuristics());
-		} else if (fIsFastIndexer) {
-			final IndexBasedFileContentProvider ibfcp = (IndexBasedFileContentProvider) fCodeReaderFactory;
+		if (fIsFastIndexer) {
+			final IIndexFile[] ctx2header = ctx == null ? null : new IIndexFile[] {ctx.fContext, ctx.fOldFile};
+			final IndexBasedFileContentProvider ibfcp = (IndexBasedFileContentProvider) contentProvider;
 			ibfcp.setContextToHeaderGap(ctx2header);
 			ibfcp.setLinkage(language.getLinkageID());
 		}
 
-		IASTTranslationUnit ast= language.getASTTranslationUnit(codeReader, scanInfo, fCodeReaderFactory,
+		IASTTranslationUnit ast= language.getASTTranslationUnit(codeReader, scanInfo, contentProvider,
 				fIndex, options, getLogService());
 		if (monitor.isCanceled()) {
 			throw new OperationCanceledException();
@@ -1238,6 +1665,26 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		return ast;
 	}
 
+	private InternalFileContentProvider createFileContentProvider(int linkageID) {
+		InternalFileContentProvider fileContentProvider = createInternalFileContentProvider();
+		if (fIsFastIndexer) {
+			IndexBasedFileContentProvider ibfcp = new IndexBasedFileContentProvider(fIndex, fResolver,
+					linkageID, fileContentProvider, this);
+			ibfcp.setFileSizeLimit(fIncludedFileSizeLimit);
+			ibfcp.setHeadersToIndexAllVersions(fHeadersToIndexAllVersions);
+			ibfcp.setIndexAllHeaderVersions(fIndexAllHeaderVersions);
+			fileContentProvider= ibfcp;
+		}
+		fileContentProvider.setIncludeResolutionHeuristics(createIncludeHeuristics());
+		if (fCacheIncludeGuards) {
+			IWritableIndexFragment fragment= fIndex.getWritableFragment();
+			if (fragment instanceof WritablePDOM) {
+				fileContentProvider.setIncludeGuardCache(((WritablePDOM) fragment).getIncludeGuardCache());
+			}
+		}
+		return fileContentProvider;
+	}
+
 	private InternalFileContentProvider createInternalFileContentProvider() {
 		final IncludeFileContentProvider fileContentProvider = createReaderFactory();
 		if (fileContentProvider instanceof InternalFileContentProvider)
@@ -1248,6 +1695,20 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 
 	private void writeToIndex(final int linkageID, IASTTranslationUnit ast, FileContent codeReader,
 			FileContext ctx, IProgressMonitor monitor) throws CoreException, InterruptedException {
+		SubMonitor progress = SubMonitor.convert(monitor, 2);
+		ASTSymbols symbols= extractSymbols(linkageID, ast, codeReader, ctx, null, progress.split(1));
+		storeSymbols(symbols, null, progress.split(1));
+	}
+
+	/**
+	 * Collects the symbols of the given AST and resolves their names. The index is only read,
+	 * such that the method can be called without holding the write lock.
+	 *
+	 * @param selectedFiles the files selected for other ASTs whose symbols are stored together
+	 *     with the ones of this AST, or {@code null}. These files are not selected again.
+	 */
+	private ASTSymbols extractSymbols(final int linkageID, IASTTranslationUnit ast, FileContent codeReader,
+			FileContext ctx, Set<FileContentKey> selectedFiles, IProgressMonitor monitor) throws CoreException {
 		SubMonitor progress = SubMonitor.convert(monitor, 3);
 		HashSet<FileContentKey> enteredFiles= new HashSet<>();
 		ArrayList<FileInAST> orderedFileKeys= new ArrayList<>();
@@ -1272,7 +1733,18 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 			orderedFileKeys.add(new FileInAST(topKey, codeReader));
 		}
 
+		if (selectedFiles != null) {
+			for (Iterator<FileInAST> iter= orderedFileKeys.iterator(); iter.hasNext();) {
+				if (selectedFiles.contains(iter.next().fileContentKey))
+					iter.remove();
+			}
+		}
+
 		FileInAST[] fileKeys= orderedFileKeys.toArray(new FileInAST[orderedFileKeys.size()]);
+		if (fUpdateDependents) {
+			recordSignatures(fileKeys, ast.isHeaderUnit());
+		}
+		ASTSymbols symbols= new ASTSymbols(linkageID, fileKeys, ctx);
 		try {
 			// The default processing is handled by the indexer task.
 			PDOMWriter.Data data = new PDOMWriter.Data(ast, fileKeys, fIndex);
@@ -1281,7 +1753,8 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 				IASTComment[] comments = ast.getComments();
 				data.fReplacementHeaders = extractReplacementHeaders(comments, progress.split(1));
 
-				addSymbols(data, storageLinkageID, ctx, progress.split(1));
+				resolveSymbols(data, storageLinkageID, progress.split(1));
+				symbols.fData.add(data);
 
 				// Update task markers.
 				if (fTodoTaskUpdater != null) {
@@ -1299,14 +1772,55 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 			for (IPDOMASTProcessor processor : processors) {
 				data = new PDOMWriter.Data(ast, fileKeys, fIndex);
 				storageLinkageID = processor.process(ast, data);
-				if (storageLinkageID != ILinkage.NO_LINKAGE_ID)
-					addSymbols(data, storageLinkageID, ctx, progress.split(1));
+				if (storageLinkageID != ILinkage.NO_LINKAGE_ID) {
+					resolveSymbols(data, storageLinkageID, progress.split(1));
+					symbols.fData.add(data);
+				}
 			}
 		} catch (CoreException | RuntimeException | Error e) {
 			// Avoid parsing files again, that caused an exception to be thrown.
 			withdrawRequests(linkageID, fileKeys);
 			throw e;
 		}
+		return symbols;
+	}
+
+	/**
+	 * Records the signatures of the headers about to be replaced in the index, such that
+	 * a change of the symbols they export can be detected once they have been written.
+	 */
+	private void recordSignatures(FileInAST[] fileKeys, boolean isHeaderUnit) throws CoreException {
+		for (FileInAST file : fileKeys) {
+			if (file.includeStatement == null && !isHeaderUnit)
+				continue;  // Nothing includes a source file.
+
+			final FileContentKey key= file.fileContentKey;
+			IIndexFragmentFile oldFile= fIndex.getWritableFile(key.getLinkageID(), key.getLocation(),
+					key.getSignificantMacros());
+			if (oldFile != null && oldFile.hasContent()) {
+				fOldSignatures.put(key, IndexFileSignature.compute(oldFile));
+			}
+		}
+	}
+
+	/**
+	 * Stores the symbols collected by {@link #extractSymbols} in the index.
+	 *
+	 * @param lock the write lock shared by a group of ASTs, or {@code null} to acquire the lock
+	 *     separately for each chunk of data
+	 */
+	private void storeSymbols(ASTSymbols symbols, YieldableIndexLock lock, IProgressMonitor monitor)
+			throws CoreException, InterruptedException {
+		SubMonitor progress = SubMonitor.convert(monitor, symbols.fData.size());
+		try {
+			for (PDOMWriter.Data data : symbols.fData) {
+				storeSymbols(data, symbols.fContext, lock, progress.split(1));
+			}
+		} catch (CoreException | RuntimeException | Error e) {
+			// Avoid parsing files again, that caused an exception to be thrown.
+			withdrawRequests(symbols.fLinkageID, symbols.fFileKeys);
+			throw e;
+		}
 	}
 
 	private void collectOrderedFileKeys(final int linkageID, IASTInclusionNode inclusion,
@@ -1435,10 +1949,16 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 					throw new DependsOnOutdatedFileException(request.fTu, task.fIndexFile);
 			}
 		}
-		IndexFileContent fc= fIndexContentCache.get(file);
+		IndexFileContent fc;
+		// The cache is shared by the parser threads.
+		synchronized (fIndexContentCache) {
+			fc= fIndexContentCache.get(file);
+		}
 		if (fc == null) {
 			fc= new IndexFileContent(file);
-			fIndexContentCache.put(file, fc);
+			synchronized (fIndexContentCache) {
+				fIndexContentCache.put(file, fc);
+			}
 		}
 		return fc;
 	}
@@ -1491,7 +2011,11 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 
 	public IIndexFragmentFile[] getAvailableIndexFiles(int linkageID, IIndexFileLocation ifl)
 			throws CoreException {
-		IIndexFragmentFile[] files= fIndexFilesCache.get(ifl);
+		IIndexFragmentFile[] files;
+		// The cache is shared by the parser threads.
+		synchronized (fIndexFilesCache) {
+			files= fIndexFilesCache.get(ifl);
+		}
 		if (files == null) {
 			IIndexFragmentFile[] fragFiles = fIndex.getWritableFiles(linkageID, ifl);
 			int j= 0;
@@ -1508,7 +2032,9 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 				files= new IIndexFragmentFile[j];
 				System.arraycopy(fragFiles, 0, files, 0, j);
 			}
-			fIndexFilesCache.put(ifl, files);
+			synchronized (fIndexFilesCache) {
+				fIndexFilesCache.put(ifl, files);
+			}
 		}
 		return files;
 	}
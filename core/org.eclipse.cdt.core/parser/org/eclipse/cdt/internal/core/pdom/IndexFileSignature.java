@@ -0,0 +1,394 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.cdt.core.dom.ast.ASTTypeUtil;
+import org.eclipse.cdt.core.dom.ast.DOMException;
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.dom.ast.ICompositeType;
+import org.eclipse.cdt.core.dom.ast.IEnumeration;
+import org.eclipse.cdt.core.dom.ast.IEnumerator;
+import org.eclipse.cdt.core.dom.ast.IFunction;
+import org.eclipse.cdt.core.dom.ast.IParameter;
+import org.eclipse.cdt.core.dom.ast.IProblemBinding;
+import org.eclipse.cdt.core.dom.ast.IScope;
+import org.eclipse.cdt.core.dom.ast.IType;
+import org.eclipse.cdt.core.dom.ast.ITypedef;
+import org.eclipse.cdt.core.dom.ast.IValue;
+import org.eclipse.cdt.core.dom.ast.IVariable;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPAliasTemplate;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPBase;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPClassType;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPEnumeration;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPFunction;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPMember;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPMethod;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPNamespace;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPNamespaceAlias;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPParameter;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPPartialSpecialization;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateArgument;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateDefinition;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateInstance;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateNonTypeParameter;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateParameter;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateTemplateParameter;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPUsingDeclaration;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPUsingDirective;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPVariable;
+import org.eclipse.cdt.core.index.IIndexBinding;
+import org.eclipse.cdt.core.index.IIndexInclude;
+import org.eclipse.cdt.core.index.IIndexMacro;
+import org.eclipse.cdt.core.index.IIndexName;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPFunction;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPExecution;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.SignatureBuilder;
+import org.eclipse.cdt.internal.core.index.IIndexFragmentFile;
+import org.eclipse.cdt.internal.core.index.IIndexFragmentName;
+import org.eclipse.cdt.internal.core.pdom.dom.PDOMFile;
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * Computes a hash of the symbols a file in the index exports to the files including it: the
+ * macro definitions, the include directives, the using directives and the declarations of the
+ * file. The hash does not depend on the offsets of the symbols, such that edits of comments,
+ * formatting or function bodies in most cases leave it unchanged.
+ * <p>
+ * Declarations are summarized by their kind, qualified name and type, together with the parts
+ * of the declaration a file including it can observe: enumerator values, initial values of
+ * variables, default arguments, bodies of constexpr functions, base classes and template
+ * parameters. A file that declares a binding the signature cannot summarize gets the signature
+ * {@link #UNKNOWN}, which is considered to differ from every signature.
+ */
+final class IndexFileSignature {
+	/** Signature of a file containing declarations that cannot be summarized. */
+	static final long UNKNOWN = 0;
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/**
+	 * Signatures of the file versions computed last, keyed by the record of the file. Once
+	 * a header has been written to the index, its signature is computed and kept here, such that
+	 * it does not have to be computed again before the header is replaced by its next version.
+	 * The signature of a file is dropped when the file is cleared.
+	 */
+	private static final Map<PDOM, Map<Long, FileVersion>> fSignatures = new WeakHashMap<>();
+
+	private static class FileVersion {
+		final long fSourceReadTime;
+		final long fContentsHash;
+		final long fSignature;
+
+		FileVersion(long sourceReadTime, long contentsHash, long signature) {
+			fSourceReadTime = sourceReadTime;
+			fContentsHash = contentsHash;
+			fSignature = signature;
+		}
+	}
+
+	private IndexFileSignature() {
+	}
+
+	/**
+	 * Returns {@code true} if the signatures of two versions of a file indicate that the symbols
+	 * exported by the file have changed.
+	 */
+	static boolean isChanged(long oldSignature, long newSignature) {
+		return oldSignature == UNKNOWN || oldSignature != newSignature;
+	}
+
+	/**
+	 * Forgets the signature of a file that has been cleared or removed from the index.
+	 */
+	static void fileCleared(PDOMFile file) {
+		synchronized (fSignatures) {
+			Map<Long, FileVersion> signatures = fSignatures.get(file.getPDOM());
+			if (signatures != null) {
+				signatures.remove(file.getRecord());
+			}
+		}
+	}
+
+	/**
+	 * Forgets the signatures of all files of an index that has been cleared.
+	 */
+	static void indexCleared(PDOM pdom) {
+		synchronized (fSignatures) {
+			fSignatures.remove(pdom);
+		}
+	}
+
+	/**
+	 * Computes the signature of the given file, the caller must hold a read lock on the index.
+	 */
+	static long compute(IIndexFragmentFile file) throws CoreException {
+		if (!(file instanceof PDOMFile))
+			return computeSignature(file);
+
+		final PDOMFile pdomFile = (PDOMFile) file;
+		final long sourceReadTime = file.getSourceReadTime();
+		final long contentsHash = file.getContentsHash();
+		synchronized (fSignatures) {
+			Map<Long, FileVersion> signatures = fSignatures.get(pdomFile.getPDOM());
+			FileVersion version = signatures == null ? null : signatures.get(pdomFile.getRecord());
+			if (version != null && version.fSourceReadTime == sourceReadTime
+					&& version.fContentsHash == contentsHash) {
+				return version.fSignature;
+			}
+		}
+		long signature = computeSignature(file);
+		synchronized (fSignatures) {
+			Map<Long, FileVersion> signatures = fSignatures.get(pdomFile.getPDOM());
+			if (signatures == null) {
+				signatures = new HashMap<>();
+				fSignatures.put(pdomFile.getPDOM(), signatures);
+			}
+			signatures.put(pdomFile.getRecord(), new FileVersion(sourceReadTime, contentsHash, signature));
+		}
+		return signature;
+	}
+
+	private static long computeSignature(IIndexFragmentFile file) throws CoreException {
+		long signature = 0;
+		for (IIndexMacro macro : file.getMacros()) {
+			StringBuilder buf = new StringBuilder("#define "); //$NON-NLS-1$
+			buf.append(macro.getNameCharArray());
+			char[][] params = macro.getParameterList();
+			if (params != null) {
+				buf.append('(');
+				for (char[] param : params) {
+					buf.append(param).append(',');
+				}
+				buf.append(')');
+			}
+			buf.append(' ').append(macro.getExpansion());
+			signature += hash(buf);
+		}
+		for (IIndexInclude include : file.getIncludes()) {
+			StringBuilder buf = new StringBuilder("#include "); //$NON-NLS-1$
+			buf.append(include.getFullName());
+			buf.append(include.isActive() ? " active" : " inactive"); //$NON-NLS-1$ //$NON-NLS-2$
+			if (include.isResolved()) {
+				buf.append(' ').append(include.getIncludesLocation().getURI());
+			}
+			signature += hash(buf);
+		}
+		try {
+			for (ICPPUsingDirective directive : file.getUsingDirectives()) {
+				StringBuilder buf = new StringBuilder("using namespace "); //$NON-NLS-1$
+				IScope scope = directive.getNominatedScope();
+				if (!(scope instanceof IBinding))
+					return UNKNOWN;
+				appendQualifiedName((IBinding) scope, buf);
+				signature += hash(buf);
+			}
+			for (IIndexName name : file.findNames(0, Integer.MAX_VALUE)) {
+				if (!name.isDeclaration())
+					continue;
+				IIndexBinding binding = ((IIndexFragmentName) name).getBinding();
+				if (binding == null || binding instanceof IParameter || binding instanceof ICPPTemplateParameter)
+					continue;  // Covered by the signature of the function or template.
+				StringBuilder buf = new StringBuilder();
+				if (!appendDeclaration(binding, buf))
+					return UNKNOWN;
+				signature += hash(buf);
+			}
+		} catch (DOMException e) {
+			return UNKNOWN;
+		}
+		return signature == UNKNOWN ? UNKNOWN + 1 : signature;
+	}
+
+	/**
+	 * Appends a summary of the declaration of the binding to the buffer. Returns {@code false}
+	 * if the kind of the binding is not known.
+	 */
+	private static boolean appendDeclaration(IBinding binding, StringBuilder buf)
+			throws DOMException, CoreException {
+		if (binding instanceof IProblemBinding)
+			return false;
+
+		buf.append(binding.getClass().getSimpleName()).append(' ');
+		appendQualifiedName(binding, buf);
+		if (binding instanceof ICPPMember) {
+			buf.append(" visibility=").append(((ICPPMember) binding).getVisibility()); //$NON-NLS-1$
+		}
+		if (binding instanceof ICPPTemplateInstance) {
+			buf.append(ASTTypeUtil.getArgumentListString(
+					((ICPPTemplateInstance) binding).getTemplateArguments(), false));
+		} else if (binding instanceof ICPPPartialSpecialization) {
+			buf.append(ASTTypeUtil.getArgumentListString(
+					((ICPPPartialSpecialization) binding).getTemplateArguments(), false));
+		}
+		if (binding instanceof ICPPTemplateDefinition) {
+			appendTemplateParameters(((ICPPTemplateDefinition) binding).getTemplateParameters(), buf);
+		}
+
+		if (binding instanceof IFunction) {
+			IFunction function = (IFunction) binding;
+			buf.append(' ').append(ASTTypeUtil.getType(function.getType(), false));
+			if (function.isStatic())
+				buf.append(" static"); //$NON-NLS-1$
+			if (function.isInline())
+				buf.append(" inline"); //$NON-NLS-1$
+			if (binding instanceof ICPPFunction) {
+				ICPPFunction cppFunction = (ICPPFunction) binding;
+				if (cppFunction.isConstexpr()) {
+					buf.append(" constexpr"); //$NON-NLS-1$
+					// The body is used for the constant evaluation of calls in the including files.
+					ICPPExecution body = CPPFunction.getFunctionBodyExecution(cppFunction);
+					if (body != null) {
+						SignatureBuilder signature = new SignatureBuilder();
+						signature.marshalExecution(body, true);
+						buf.append(" {").append(signature.getSignature()).append('}'); //$NON-NLS-1$
+					}
+				}
+				if (cppFunction.isDeleted())
+					buf.append(" deleted"); //$NON-NLS-1$
+				for (ICPPParameter param : cppFunction.getParameters()) {
+					buf.append(',');
+					if (param.hasDefaultValue()) {
+						appendValue(param.getDefaultValue(), buf);
+					}
+				}
+			}
+			if (binding instanceof ICPPMethod) {
+				ICPPMethod method = (ICPPMethod) binding;
+				if (method.isVirtual())
+					buf.append(" virtual"); //$NON-NLS-1$
+				if (method.isPureVirtual())
+					buf.append(" pure"); //$NON-NLS-1$
+			}
+			return true;
+		}
+		if (binding instanceof IVariable) {
+			IVariable variable = (IVariable) binding;
+			buf.append(' ').append(ASTTypeUtil.getType(variable.getType(), false));
+			if (variable.isStatic())
+				buf.append(" static"); //$NON-NLS-1$
+			if (binding instanceof ICPPVariable && ((ICPPVariable) binding).isConstexpr())
+				buf.append(" constexpr"); //$NON-NLS-1$
+			buf.append(" = "); //$NON-NLS-1$
+			appendValue(variable.getInitialValue(), buf);
+			return true;
+		}
+		if (binding instanceof ITypedef) {
+			buf.append(' ').append(ASTTypeUtil.getType(((ITypedef) binding).getType(), false));
+			return true;
+		}
+		if (binding instanceof ICPPAliasTemplate) {
+			buf.append(' ').append(ASTTypeUtil.getType(((ICPPAliasTemplate) binding).getType(), false));
+			return true;
+		}
+		if (binding instanceof ICompositeType) {
+			buf.append(" key=").append(((ICompositeType) binding).getKey()); //$NON-NLS-1$
+			if (binding instanceof ICPPClassType) {
+				ICPPClassType classType = (ICPPClassType) binding;
+				if (classType.isFinal())
+					buf.append(" final"); //$NON-NLS-1$
+				for (ICPPBase base : classType.getBases()) {
+					buf.append(base.isVirtual() ? " : virtual " : " : "); //$NON-NLS-1$ //$NON-NLS-2$
+					buf.append(base.getVisibility()).append(' ');
+					buf.append(ASTTypeUtil.getType(base.getBaseClassType(), false));
+				}
+			}
+			return true;
+		}
+		if (binding instanceof IEnumeration) {
+			if (binding instanceof ICPPEnumeration) {
+				ICPPEnumeration enumeration = (ICPPEnumeration) binding;
+				if (enumeration.isScoped())
+					buf.append(" scoped"); //$NON-NLS-1$
+				IType fixedType = enumeration.getFixedType();
+				if (fixedType != null)
+					buf.append(" : ").append(ASTTypeUtil.getType(fixedType, false)); //$NON-NLS-1$
+			}
+			return true;
+		}
+		if (binding instanceof IEnumerator) {
+			buf.append(" = "); //$NON-NLS-1$
+			appendValue(((IEnumerator) binding).getValue(), buf);
+			return true;
+		}
+		if (binding instanceof ICPPNamespaceAlias) {
+			buf.append(" = "); //$NON-NLS-1$
+			appendQualifiedName(((ICPPNamespaceAlias) binding).getBinding(), buf);
+			return true;
+		}
+		if (binding instanceof ICPPNamespace) {
+			buf.append(((ICPPNamespace) binding).isInline() ? " inline" : ""); //$NON-NLS-1$ //$NON-NLS-2$
+			return true;
+		}
+		if (binding instanceof ICPPUsingDeclaration) {
+			for (IBinding delegate : ((ICPPUsingDeclaration) binding).getDelegates()) {
+				buf.append(' ');
+				appendQualifiedName(delegate, buf);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private static void appendTemplateParameters(ICPPTemplateParameter[] params, StringBuilder buf)
+			throws DOMException {
+		buf.append('<');
+		for (ICPPTemplateParameter param : params) {
+			if (param instanceof ICPPTemplateNonTypeParameter) {
+				buf.append(ASTTypeUtil.getType(((ICPPTemplateNonTypeParameter) param).getType(), false));
+			} else if (param instanceof ICPPTemplateTemplateParameter) {
+				buf.append("template"); //$NON-NLS-1$
+				appendTemplateParameters(((ICPPTemplateTemplateParameter) param).getTemplateParameters(), buf);
+			} else {
+				buf.append("typename"); //$NON-NLS-1$
+			}
+			if (param.isParameterPack())
+				buf.append("..."); //$NON-NLS-1$
+			ICPPTemplateArgument defaultValue = param.getDefaultValue();
+			if (defaultValue != null)
+				buf.append('=').append(ASTTypeUtil.getArgumentString(defaultValue, false));
+			buf.append(',');
+		}
+		buf.append('>');
+	}
+
+	private static void appendQualifiedName(IBinding binding, StringBuilder buf) throws DOMException {
+		if (binding instanceof IIndexBinding) {
+			for (String segment : ((IIndexBinding) binding).getQualifiedName()) {
+				buf.append("::").append(segment); //$NON-NLS-1$
+			}
+		} else if (binding != null) {
+			buf.append(binding.getName());
+		}
+	}
+
+	private static void appendValue(IValue value, StringBuilder buf) {
+		if (value != null) {
+			buf.append(value.getSignature());
+		}
+	}
+
+	/**
+	 * Returns a 64-bit FNV-1a hash of the characters. The hashes of the individual symbols are
+	 * added up, such that the signature does not depend on the order of the symbols.
+	 */
+	private static long hash(CharSequence chars) {
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = 0; i < chars.length(); i++) {
+			hash = (hash ^ chars.charAt(i)) * FNV_PRIME;
+		}
+		return hash;
+	}
+}
@@ -16,6 +16,7 @@ public class IndexerProgress {
 	public int fPrimaryHeaderCount;	// Headers parsed that were actually requested
 	public int fCompletedHeaders;	// All headers including those found through inclusions
 	public int fTimeEstimate;		// Fall-back for the time where no file-count is available
+	public long fParsingTime;		// Milliseconds spent parsing the completed sources
 
 	public IndexerProgress() {
 	}
@@ -25,9 +26,17 @@ public class IndexerProgress {
 		fCompletedSources= info.fCompletedSources;
 		fCompletedHeaders= info.fCompletedHeaders;
 		fPrimaryHeaderCount= info.fPrimaryHeaderCount;
+		fParsingTime= info.fParsingTime;
 	}
 
 	public int getEstimatedTicks() {
 		return fRequestedFilesCount > 0 ? fRequestedFilesCount : fTimeEstimate;
 	}
+
+	/**
+	 * Returns the number of sources parsed per second, or zero if no time was spent parsing.
+	 */
+	public double getParsingThroughput() {
+		return fParsingTime > 0 ? fCompletedSources * 1000.0 / fParsingTime : 0;
+	}
 }
@@ -293,10 +293,12 @@ public class PDOM extends PlatformObject implements IPDOM {
 	 *  CDT 9.5 development (version not supported on the 9.4.x branch)
 	 *  212.0 - C++ constexpr if and if init-statement evaluation
 	 *  213.0 - C++ switch init-statement evaluation
+	 *  214.0 - Database header stores the alignment of record pointers, compatible with version 213.
+	 *  215.0 - Linkages store an index of binding names for pattern searches.
 	 */
-	private static final int MIN_SUPPORTED_VERSION= version(213, 0);
-	private static final int MAX_SUPPORTED_VERSION= version(213, Short.MAX_VALUE);
-	private static final int DEFAULT_VERSION = version(213, 0);
+	private static final int MIN_SUPPORTED_VERSION= version(215, 0);
+	private static final int MAX_SUPPORTED_VERSION= version(215, Short.MAX_VALUE);
+	private static final int DEFAULT_VERSION = version(215, 0);
 
 	private static int version(int major, int minor) {
 		return (major << 16) + minor;
@@ -798,6 +800,10 @@ public class PDOM extends PlatformObject implements IPDOM {
 			if (prefix != null) {
 				return findBindingsForPrefix(prefix, isFullyQualified, caseSensitive, filter, monitor);
 			}
+
+			if (patterns.length == 1 && !isFullyQualified) {
+				return findBindingsViaNameIndex(patterns[0], filter, monitor);
+			}
 		}
 
 		BindingFinder finder = new BindingFinder(patterns, isFullyQualified, filter, monitor);
@@ -815,6 +821,27 @@ public class PDOM extends PlatformObject implements IPDOM {
 		return finder.getBindings();
 	}
 
+	/**
+	 * Finds the bindings with names matching the pattern, in any scope. The candidate names are
+	 * taken from the name index of the linkages, rather than by visiting all bindings.
+	 */
+	private IIndexFragmentBinding[] findBindingsViaNameIndex(Pattern pattern, IndexFilter filter,
+			final IProgressMonitor monitor) throws CoreException {
+		ArrayList<IIndexFragmentBinding> result= new ArrayList<>();
+		try {
+			for (PDOMLinkage linkage : getLinkageList()) {
+				if (filter.acceptLinkage(linkage)) {
+					for (char[] name : linkage.getNameIndex().findNames(pattern, monitor::isCanceled)) {
+						findBindings(linkage, name, false, true, filter, monitor, result);
+					}
+				}
+			}
+		} catch (OperationCanceledException e) {
+			return IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+		}
+		return result.toArray(new IIndexFragmentBinding[result.size()]);
+	}
+
 	private Boolean getCaseSensitive(Pattern[] patterns) {
 		Boolean caseSensitive= null;
 		for (Pattern p : patterns) {
@@ -1391,39 +1418,45 @@ public class PDOM extends PlatformObject implements IPDOM {
 		try {
 			for (PDOMLinkage linkage : getLinkageList()) {
 				if (filter.acceptLinkage(linkage)) {
-					if (isCaseSensitive) {
-						PDOMBinding[] bindings= linkage.getBindingsViaCache(name, monitor);
-						for (PDOMBinding binding : bindings) {
-							if (filter.acceptBinding(binding)) {
-								result.add(binding);
-							}
-						}
-					}
+					findBindings(linkage, name, filescope, isCaseSensitive, filter, monitor, result);
+				}
+			}
+		} catch (OperationCanceledException e) {
+		}
+		return result.toArray(new IIndexFragmentBinding[result.size()]);
+	}
 
-					if (!isCaseSensitive || !filescope) {
-						BindingCollector visitor=
-								new BindingCollector(linkage, name, filter, false, false, isCaseSensitive);
-						visitor.setMonitor(monitor);
+	private void findBindings(PDOMLinkage linkage, char[] name, boolean filescope, boolean isCaseSensitive,
+			IndexFilter filter, IProgressMonitor monitor, List<IIndexFragmentBinding> result)
+			throws CoreException {
+		if (isCaseSensitive) {
+			PDOMBinding[] bindings= linkage.getBindingsViaCache(name, monitor);
+			for (PDOMBinding binding : bindings) {
+				if (filter.acceptBinding(binding)) {
+					result.add(binding);
+				}
+			}
+		}
 
-						if (!isCaseSensitive)
-							linkage.accept(visitor);
+		if (!isCaseSensitive || !filescope) {
+			BindingCollector visitor=
+					new BindingCollector(linkage, name, filter, false, false, isCaseSensitive);
+			visitor.setMonitor(monitor);
 
-						if (!filescope) {
-							// Avoid adding unscoped enumerator items twice
-							visitor.setSkipGlobalEnumerators(true);
-							linkage.getNestedBindingsIndex().accept(visitor);
-						}
+			if (!isCaseSensitive)
+				linkage.accept(visitor);
 
-						PDOMBinding[] bindings = visitor.getBindings();
-						for (PDOMBinding binding : bindings) {
-							result.add(binding);
-						}
-					}
-				}
+			if (!filescope) {
+				// Avoid adding unscoped enumerator items twice
+				visitor.setSkipGlobalEnumerators(true);
+				linkage.getNestedBindingsIndex().accept(visitor);
+			}
+
+			PDOMBinding[] bindings = visitor.getBindings();
+			for (PDOMBinding binding : bindings) {
+				result.add(binding);
 			}
-		} catch (OperationCanceledException e) {
 		}
-		return result.toArray(new IIndexFragmentBinding[result.size()]);
 	}
 
 	public IIndexFragmentBinding[] findMacroContainers(char[] prefix, boolean isPrefix, boolean isCaseSensitive,
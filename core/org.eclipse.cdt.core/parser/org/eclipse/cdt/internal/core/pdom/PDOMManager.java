@@ -75,6 +75,7 @@ import org.eclipse.cdt.internal.core.index.IndexerStateEvent;
 import org.eclipse.cdt.internal.core.index.provider.IndexProviderManager;
 import org.eclipse.cdt.internal.core.pdom.PDOM.IListener;
 import org.eclipse.cdt.internal.core.pdom.db.ChunkCache;
+import org.eclipse.cdt.internal.core.pdom.db.Database;
 import org.eclipse.cdt.internal.core.pdom.dom.IPDOMLinkageFactory;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMProjectIndexLocationConverter;
 import org.eclipse.cdt.internal.core.pdom.indexer.AbstractPDOMIndexer;
@@ -220,6 +221,8 @@ public class PDOMManager implements IWritableIndexManager, IListener {
 		fInShutDown= false;
 		// Set path canonicalization strategy early on to avoid a race condition.
 		updatePathCanonicalizationStrategy();
+		// Choose the database options before the first database is opened.
+		updateDatabaseOptions();
 
 		Job postStartupJob= new Job(CCorePlugin.getResourceString("CCorePlugin.startupJob")) { //$NON-NLS-1$
 			@Override
@@ -292,8 +295,13 @@ public class PDOMManager implements IWritableIndexManager, IListener {
 	protected void onPreferenceChange(PreferenceChangeEvent event) {
 		String prop = event.getKey();
 		if (prop.equals(CCorePreferenceConstants.INDEX_DB_CACHE_SIZE_PCT)
-				|| prop.equals(CCorePreferenceConstants.MAX_INDEX_DB_CACHE_SIZE_MB)) {
+				|| prop.equals(CCorePreferenceConstants.MAX_INDEX_DB_CACHE_SIZE_MB)
+				|| prop.equals(CCorePreferenceConstants.INDEX_DB_CACHE_EVICTION_POLICY)) {
 			adjustCacheSize();
+		} else if (prop.equals(CCorePreferenceConstants.INDEX_DB_MEMORY_MAPPED)
+				|| prop.equals(CCorePreferenceConstants.INDEX_DB_MAX_SIZE_GB)) {
+			// Takes effect for databases that are opened or rebuilt later on.
+			updateDatabaseOptions();
 		} else if (prop.equals(CCorePreferenceConstants.TODO_TASK_TAGS) ||
 				prop.equals(CCorePreferenceConstants.TODO_TASK_PRIORITIES) ||
 				prop.equals(CCorePreferenceConstants.TODO_TASK_CASE_SENSITIVE)) {
@@ -312,7 +320,25 @@ public class PDOMManager implements IWritableIndexManager, IListener {
 		cacheMax= Math.max(1, cacheMax);                 // >= 1mb
 		long m1= Runtime.getRuntime().maxMemory() / 100L * cachePct;
 		long m2= Math.min(m1, cacheMax * 1024L * 1024L);
-		ChunkCache.getSharedInstance().setMaxSize(m2);
+		String policy= prefs.getString(CCorePlugin.PLUGIN_ID, CCorePreferenceConstants.INDEX_DB_CACHE_EVICTION_POLICY,
+				CCorePreferenceConstants.DEFAULT_INDEX_DB_CACHE_EVICTION_POLICY, null);
+		ChunkCache cache= ChunkCache.getSharedInstance();
+		cache.setMaxSize(m2);
+		cache.setEvictionPolicy(ChunkCache.EvictionPolicy.fromString(policy));
+	}
+
+	private void updateDatabaseOptions() {
+		IPreferencesService prefs = Platform.getPreferencesService();
+		boolean mapped = prefs.getBoolean(CCorePlugin.PLUGIN_ID, CCorePreferenceConstants.INDEX_DB_MEMORY_MAPPED, false, null);
+		Database.setMemoryMappedByDefault(mapped);
+		// The size limit is applied when a database is created or rebuilt.
+		int maxSizeGB= prefs.getInt(CCorePlugin.PLUGIN_ID, CCorePreferenceConstants.INDEX_DB_MAX_SIZE_GB, 32, null);
+		long maxSize= maxSizeGB * (1L << 30);
+		int bits= Database.BLOCK_SIZE_DELTA_BITS;
+		while (bits < Database.MAX_BLOCK_SIZE_DELTA_BITS && (1L << (Integer.SIZE + bits)) < maxSize) {
+			bits++;
+		}
+		Database.setBlockSizeDeltaBitsForNewDatabases(bits);
 	}
 
 	private void updatePathCanonicalizationStrategy() {
@@ -915,6 +941,7 @@ public class PDOMManager implements IWritableIndexManager, IListener {
         					finalpdom.close();
         					if (delete) {
         						finalpdom.getDB().getLocation().delete();
+        						WritablePDOM.getIncludeGuardCacheFile(finalpdom.getPath()).delete();
         					}
         				} catch (CoreException e) {
         					CCorePlugin.log(e);
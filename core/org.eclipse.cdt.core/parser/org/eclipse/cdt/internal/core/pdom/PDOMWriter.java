@@ -62,6 +62,7 @@ import org.eclipse.cdt.core.parser.IProblem;
 import org.eclipse.cdt.core.parser.ISignificantMacros;
 import org.eclipse.cdt.core.parser.util.CharArrayUtils;
 import org.eclipse.cdt.internal.core.dom.parser.ASTInternal;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPASTTranslationUnit;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPInternalDeclaredVariable;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPUnknownBinding;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.CPPSemantics;
@@ -138,6 +139,12 @@ public abstract class PDOMWriter implements IPDOMASTProcessor {
 		}
 	}
 
+	/**
+	 * Maximum time in milliseconds the write lock is held without interruption while storing
+	 * the symbols of several files.
+	 */
+	public static final int GROUP_COMMIT_WINDOW_MS= 200;
+
 	public static int SKIP_ALL_REFERENCES= -1;
 	public static int SKIP_TYPE_REFERENCES= 1;
 	public static int SKIP_MACRO_REFERENCES= 2;
@@ -158,6 +165,7 @@ public abstract class PDOMWriter implements IPDOMASTProcessor {
 		final Set<IASTPreprocessorIncludeStatement> fContextIncludes = new HashSet<>();
 		final List<IStatus> fStatuses = new ArrayList<>();
 		Map<String, String> fReplacementHeaders;  // Replacement headers keyed by file paths. 
+		int fStorageLinkageID = ILinkage.NO_LINKAGE_ID;
 
 		public Data(IASTTranslationUnit ast, FileInAST[] selectedFiles, IWritableIndex index) {
 			fAST= ast;
@@ -267,6 +275,17 @@ public abstract class PDOMWriter implements IPDOMASTProcessor {
 	 */
 	final protected void addSymbols(Data data, int storageLinkageID, FileContext ctx,
 			IProgressMonitor monitor) throws InterruptedException, CoreException {
+		SubMonitor progress = SubMonitor.convert(monitor, 2);
+		resolveSymbols(data, storageLinkageID, progress.split(1));
+		storeSymbols(data, ctx, null, progress.split(1));
+	}
+
+	/**
+	 * Resolves the names of the symbols extracted from an AST, so that they can be stored in
+	 * the index by {@link #storeSymbols}. Does not need a write lock on the index. Ignores Data
+	 * maps that are empty and ones where storageLinkageID == {@link ILinkage#NO_LINKAGE_ID}.
+	 */
+	final protected void resolveSymbols(Data data, int storageLinkageID, IProgressMonitor monitor) {
 		if (data.isEmpty() || storageLinkageID == ILinkage.NO_LINKAGE_ID)
 			return;
 
@@ -276,12 +295,66 @@ public abstract class PDOMWriter implements IPDOMASTProcessor {
 			fShowSyntaxProblems= true;
 		}
 
-		SubMonitor progress = SubMonitor.convert(monitor, 2);
-		// Name resolution.
-		resolveNames(data, progress.split(1));
+		data.fStorageLinkageID= storageLinkageID;
+		resolveNames(data, monitor);
+	}
+
+	/**
+	 * Resolves the bindings of the names in the given AST that are going to be stored in
+	 * the index, without collecting them. The bindings are cached by the names, such that
+	 * {@link #resolveSymbols} finds them resolved. Does not need a write lock on the index
+	 * and does not modify the state of the writer, so that the names of different ASTs can
+	 * be resolved on different threads, provided the ASTs keep the instances of templates from
+	 * the index they create, see {@link CPPASTTranslationUnit#setConfineIndexTemplateInstances}.
+	 * Errors are ignored, they are reported when the names are resolved again by
+	 * {@link #resolveSymbols}.
+	 */
+	final protected void resolveBindings(IASTTranslationUnit ast) {
+		final IndexerASTVisitor visitor = new IndexerASTVisitor((fSkipReferences & SKIP_IMPLICIT_REFERENCES) == 0) {
+			private int cancelationCheckThrottler;
 
-		// Index update.
-		storeSymbolsInIndex(data, storageLinkageID, ctx, progress.split(1));
+			@Override
+			public void visit(IASTName name, IASTName caller) {
+				if (cancelationCheckThrottler <= 0) {
+					if (fCancelState.isCanceled())
+						throw new OperationCanceledException();
+					cancelationCheckThrottler = 100;
+				} else {
+					cancelationCheckThrottler--;
+				}
+
+				if (fSkipReferences == SKIP_ALL_REFERENCES && name.isReference() && !isRequiredReference(name))
+					return;
+				try {
+					name.resolveBinding();
+				} catch (RuntimeException | StackOverflowError e) {
+				}
+			}
+		};
+		CPPSemantics.pushLookupPoint(ast);
+		try {
+			ast.accept(visitor);
+		} finally {
+			CPPSemantics.popLookupPoint();
+		}
+	}
+
+	/**
+	 * Stores the symbols resolved by {@link #resolveSymbols} in the index.
+	 * <p>
+	 * Symbols of several ASTs can be stored in one go by passing the same lock to consecutive
+	 * calls. The lock is yielded when readers are waiting or when it has been held for longer
+	 * than its maximum hold time. Without a lock, the write lock is acquired for the files of
+	 * the given AST.
+	 *
+	 * @param lock the write lock shared by several calls, or {@code null}
+	 */
+	final protected void storeSymbols(Data data, FileContext ctx, YieldableIndexLock lock,
+			IProgressMonitor monitor) throws InterruptedException, CoreException {
+		if (data.isEmpty() || data.fStorageLinkageID == ILinkage.NO_LINKAGE_ID)
+			return;
+
+		storeSymbolsInIndex(data, data.fStorageLinkageID, ctx, lock, monitor);
 
 		if (!data.fStatuses.isEmpty()) {
 			List<IStatus> statuses = data.fStatuses;
@@ -306,9 +379,38 @@ public abstract class PDOMWriter implements IPDOMASTProcessor {
 	}
 
 	private void storeSymbolsInIndex(final Data data, int storageLinkageID, FileContext ctx,
-			IProgressMonitor monitor) throws InterruptedException, CoreException {
+			YieldableIndexLock sharedLock, IProgressMonitor monitor) throws InterruptedException, CoreException {
 		final IIndexFragmentFile newFile= ctx == null ? null : ctx.fNewFile;
-		SubMonitor progress = SubMonitor.convert(monitor, data.fSelectedFiles.length * 10);
+		SubMonitor progress = SubMonitor.convert(monitor, data.fSelectedFiles.length * 9 + 1);
+		YieldableIndexLock lock= sharedLock;
+		if (lock == null) {
+			// All files of the AST are stored under one lock.
+			lock= new YieldableIndexLock(data.fIndex, false, progress.split(1));
+			lock.setMaxHoldTime(GROUP_COMMIT_WINDOW_MS);
+		}
+		final long lockTime= lock.getCumulativeLockTime();
+		if (lock.isHeld()) {
+			lock.yield();
+		} else {
+			lock.acquire();
+		}
+		try {
+			storeFilesInIndex(data, storageLinkageID, ctx, newFile, lock, progress);
+		} finally {
+			if (sharedLock == null) {
+				// Because the caller holds a read-lock, the result cache of the index is never
+				// cleared. Before releasing the lock for the last time in this AST, we clear
+				// the result cache. The owner of a shared lock clears it once for all ASTs.
+				data.fIndex.clearResultCache();
+				lock.release();
+			}
+			fStatistics.fAddToIndexTime += lock.getCumulativeLockTime() - lockTime;
+		}
+	}
+
+	private void storeFilesInIndex(final Data data, int storageLinkageID, FileContext ctx,
+			final IIndexFragmentFile newFile, YieldableIndexLock lock, SubMonitor progress)
+			throws InterruptedException, CoreException {
 		for (int i= 0; i < data.fSelectedFiles.length; i++) {
 			final FileInAST fileInAST= data.fSelectedFiles[i];
 			if (fileInAST != null) {
@@ -316,8 +418,10 @@ public abstract class PDOMWriter implements IPDOMASTProcessor {
 					trace("Indexer: adding " + fileInAST.fileContentKey.getLocation().getURI());  //$NON-NLS-1$
 				}
 				Throwable th= null;
-				YieldableIndexLock lock = new YieldableIndexLock(data.fIndex, false, progress.split(1));
-				lock.acquire();
+				if (i > 0) {
+					// Let waiting readers in between files.
+					lock.yield();
+				}
 				try {
 					final boolean isReplacement= ctx != null && fileInAST.includeStatement == null;
 					IIndexFragmentFile ifile= null;
@@ -342,19 +446,11 @@ public abstract class PDOMWriter implements IPDOMASTProcessor {
 					throw e;
 				} catch (RuntimeException | StackOverflowError | AssertionError e) {
 					th= e;
-				} finally {
-					// Because the caller holds a read-lock, the result cache of the index is never cleared.
-					// Before releasing the lock for the last time in this AST, we clear the result cache.
-					if (i == data.fSelectedFiles.length - 1) {
-						data.fIndex.clearResultCache();
-					}
-					lock.release();
 				}
 				if (th != null) {
 					data.fStatuses.add(createStatus(NLS.bind(Messages.PDOMWriter_errorWhileParsing,
 							fileInAST.fileContentKey.getLocation().getURI().getPath()), th));
 				}
-				fStatistics.fAddToIndexTime += lock.getCumulativeLockTime();
 			}
 		}
 	}
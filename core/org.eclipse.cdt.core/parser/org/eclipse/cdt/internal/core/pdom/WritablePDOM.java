@@ -29,6 +29,8 @@ import org.eclipse.cdt.internal.core.index.IIndexFragmentFile;
 import org.eclipse.cdt.internal.core.index.IWritableIndex.IncludeInformation;
 import org.eclipse.cdt.internal.core.index.IWritableIndexFragment;
 import org.eclipse.cdt.internal.core.model.TranslationUnit;
+import org.eclipse.cdt.internal.core.parser.scanner.IncludeGuardCache;
+import org.eclipse.cdt.internal.core.pdom.db.BTree;
 import org.eclipse.cdt.internal.core.pdom.db.ChunkCache;
 import org.eclipse.cdt.internal.core.pdom.db.DBProperties;
 import org.eclipse.cdt.internal.core.pdom.db.IBTreeVisitor;
@@ -47,12 +49,15 @@ import java.util.List;
 import java.util.Map;
 
 public class WritablePDOM extends PDOM implements IWritableIndexFragment {
+	private static final String INCLUDE_GUARD_CACHE_SUFFIX = ".guards"; //$NON-NLS-1$
+
 	private boolean fClearedBecauseOfVersionMismatch= false;
 	private boolean fCreatedFromScratch= false;
 	private ASTFilePathResolver fPathResolver;
 	private PDOMFile fileBeingUpdated;
 	private PDOMFile uncommittedFile;
 	private FileContentKey uncommittedKey;
+	private IncludeGuardCache fIncludeGuardCache;
 
 	public WritablePDOM(File dbPath, IIndexLocationConverter locationConverter,
 			Map<String, IPDOMLinkageFactory> linkageFactoryMappings) throws CoreException {
@@ -171,6 +176,7 @@ public class WritablePDOM extends PDOM implements IWritableIndexFragment {
 		IIndexFileLocation location = file.getLocation();
 		PDOMFile pdomFile = (PDOMFile) file;
 		pdomFile.clear();
+		IndexFileSignature.fileCleared(pdomFile);
 		IIndexInclude include = pdomFile.getParsedInContext();
 		if (include != null) {
 			PDOMFile includedBy = (PDOMFile) include.getIncludedBy();
@@ -184,11 +190,43 @@ public class WritablePDOM extends PDOM implements IWritableIndexFragment {
 	@Override
 	public void clear() throws CoreException {
 		super.clear();
+		IndexFileSignature.indexCleared(this);
 	}
 
 	@Override
 	public void flush() throws CoreException {
 		super.flush();
+		saveIncludeGuardCache();
+	}
+
+	@Override
+	public void close() throws CoreException {
+		saveIncludeGuardCache();
+		super.close();
+	}
+
+	/**
+	 * Returns the cache for the outcome of include guard detection. The cache is stored in a file
+	 * next to the database and is loaded on first access.
+	 */
+	public synchronized IncludeGuardCache getIncludeGuardCache() {
+		if (fIncludeGuardCache == null) {
+			fIncludeGuardCache= IncludeGuardCache.load(getIncludeGuardCacheFile(getPath()));
+		}
+		return fIncludeGuardCache;
+	}
+
+	private synchronized void saveIncludeGuardCache() {
+		if (fIncludeGuardCache != null) {
+			fIncludeGuardCache.save(getIncludeGuardCacheFile(getPath()));
+		}
+	}
+
+	/**
+	 * Returns the file storing the include guard cache for the given database file.
+	 */
+	public static File getIncludeGuardCacheFile(File dbPath) {
+		return new File(dbPath.getPath() + INCLUDE_GUARD_CACHE_SUFFIX);
 	}
 
 	@Override
@@ -227,15 +265,21 @@ public class WritablePDOM extends PDOM implements IWritableIndexFragment {
 
 		clearFileIndex();
 		final List<PDOMFile> notConverted = new ArrayList<PDOMFile>();
+		long[] converted = new long[pdomfiles.size()];
+		int convertedCount = 0;
 		for (PDOMFile file : pdomfiles) {
 			String internalFormat = newConverter.toInternalFormat(file.getLocation());
 			if (internalFormat != null) {
 				file.setInternalLocation(internalFormat);
-				getFileIndex().insert(file.getRecord());
+				converted[convertedCount++] = file.getRecord();
 			} else {
 				notConverted.add(file);
 			}
 		}
+		// Build the new file index bottom-up rather than inserting the files one by one.
+		BTree index = getFileIndex();
+		index.sort(converted, convertedCount);
+		index.bulkLoad(converted, convertedCount);
 
 		// remove content where converter returns null
 		for (PDOMFile file : notConverted) {
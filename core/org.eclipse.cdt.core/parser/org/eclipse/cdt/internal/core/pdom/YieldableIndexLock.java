@@ -24,6 +24,7 @@ public class YieldableIndexLock {
 	private final IProgressMonitor progressMonitor;
 	private long lastLockTime;
 	private long cumulativeLockTime;
+	private long maxHoldTime;
 
 	public YieldableIndexLock(IWritableIndex index, boolean flushIndex, IProgressMonitor monitor) {
 		this.index = index;
@@ -31,6 +32,23 @@ public class YieldableIndexLock {
 		this.progressMonitor = monitor;
 	}
 
+	/**
+	 * Limits the time the lock is held without interruption. When the limit is exceeded, the lock
+	 * is yielded on the next call to {@link #yield()} even if nobody is waiting for a read lock.
+	 *
+	 * @param millis the maximum hold time in milliseconds, or zero for no limit
+	 */
+	public void setMaxHoldTime(long millis) {
+		maxHoldTime = millis;
+	}
+
+	/**
+	 * Returns {@code true} if the lock is currently held.
+	 */
+	public boolean isHeld() {
+		return lastLockTime != 0;
+	}
+
 	/**
 	 * Acquires the lock.
 	 *
@@ -53,12 +71,13 @@ public class YieldableIndexLock {
 	}
 
 	/**
-	 * Yields the lock temporarily if it was held for YIELD_INTERVAL or more, and somebody is waiting
-	 * for a read lock.
+	 * Yields the lock temporarily if somebody is waiting for a read lock, or the lock was held
+	 * longer than the maximum hold time.
 	 * @throws InterruptedException
 	 */
 	public void yield() throws InterruptedException {
-		if (index.hasWaitingReaders()) {
+		if (index.hasWaitingReaders() ||
+				(maxHoldTime > 0 && System.currentTimeMillis() - lastLockTime >= maxHoldTime)) {
 			index.releaseWriteLock(false);
 			cumulativeLockTime += System.currentTimeMillis() - lastLockTime;
 			lastLockTime = 0;
@@ -67,9 +86,12 @@ public class YieldableIndexLock {
 	}
 
 	/**
-	 * @return Total time the lock was held in milliseconds.
+	 * @return Total time the lock was held in milliseconds, including the time it has been held
+	 *     since it was last acquired.
 	 */
 	public long getCumulativeLockTime() {
+		if (lastLockTime != 0)
+			return cumulativeLockTime + System.currentTimeMillis() - lastLockTime;
 		return cumulativeLockTime;
 	}
 }
@@ -12,6 +12,8 @@
  *******************************************************************************/
 package org.eclipse.cdt.internal.core.pdom.db;
 
+import java.util.Arrays;
+
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
@@ -27,6 +29,8 @@ public class BTree {
 	private static final int DELMODE_NORMAL = 0;
 	private static final int DELMODE_DELETE_MINIMUM = 1;
 	private static final int DELMODE_DELETE_MAXIMUM = 2;
+	// Number of levels below and including the root, for which the node cache is used.
+	private static final int CACHED_LEVELS = 2;
 
 	protected final Database db;
 	protected final long rootPointer;
@@ -39,6 +43,7 @@ public class BTree {
 	protected final int MEDIAN_RECORD;
 
 	protected final IBTreeComparator cmp;
+	private final BTreeNodeCache nodeCache;
 	
 	public BTree(Database db, long rootPointer, IBTreeComparator cmp) {
 		this(db, rootPointer, 8, cmp);
@@ -57,6 +62,7 @@ public class BTree {
 		this.db = db;
 		this.rootPointer = rootPointer;
 		this.cmp = cmp;
+		this.nodeCache = db.getBTreeNodeCache();
 		
 		this.DEGREE = degree;
 		this.MIN_RECORDS = DEGREE - 1;
@@ -71,7 +77,9 @@ public class BTree {
 	}
 
 	protected final void putRecord(Chunk chunk, long node, int index, long record) {
-		chunk.putRecPtr(node + index * Database.INT_SIZE, record);
+		final long address = node + index * Database.INT_SIZE;
+		nodeCache.remove(address);
+		chunk.putRecPtr(address, record);
 	}
 
 	protected final long getRecord(Chunk chunk, long node, int index) {
@@ -79,13 +87,41 @@ public class BTree {
 	}
 
 	protected final void putChild(Chunk chunk, long node, int index, long child) {
-		chunk.putRecPtr(node + OFFSET_CHILDREN + index * Database.INT_SIZE, child);
+		final long address = node + OFFSET_CHILDREN + index * Database.INT_SIZE;
+		nodeCache.remove(address);
+		chunk.putRecPtr(address, child);
 	}
 
 	protected final long getChild(Chunk chunk, long node, int index) {
 		return chunk.getRecPtr(node + OFFSET_CHILDREN + index * Database.INT_SIZE);
 	}
 
+	/**
+	 * Reads a record of a node. When no chunk is passed, the record is read through the node cache.
+	 */
+	private long readRecord(Chunk chunk, long node, int index) throws CoreException {
+		return readSlot(chunk, node + index * Database.INT_SIZE);
+	}
+
+	/**
+	 * Reads a child of a node. When no chunk is passed, the child is read through the node cache.
+	 */
+	private long readChild(Chunk chunk, long node, int index) throws CoreException {
+		return readSlot(chunk, node + OFFSET_CHILDREN + index * Database.INT_SIZE);
+	}
+
+	private long readSlot(Chunk chunk, long address) throws CoreException {
+		if (chunk != null)
+			return chunk.getRecPtr(address);
+
+		long value = nodeCache.get(address);
+		if (value == BTreeNodeCache.MISS) {
+			value = db.getRecPtr(address);
+			nodeCache.put(address, value);
+		}
+		return value;
+	}
+
 	/**
 	 * Inserts the record into the b-tree. We don't insert if the key was already there,
 	 * in which case we return the record that matched. In other cases, we just return
@@ -207,10 +243,133 @@ public class BTree {
 		putRecord(db.getChunk(root), root, 0, record); 
 	}
 
+	/**
+	 * Inserts records sorted according to the comparator of the B-tree. If the B-tree is empty,
+	 * it is built bottom-up, such that every node is written only once. Otherwise the records are
+	 * inserted one by one. As with {@link #insert(long)}, a record is not inserted when an equal
+	 * record is already present.
+	 *
+	 * @param records the records in ascending order, see {@link #sort(long[], int)}
+	 * @param length the number of records to insert
+	 * @throws IllegalArgumentException if the records are not sorted
+	 */
+	public void bulkLoad(long[] records, int length) throws CoreException {
+		if (getRoot() != 0) {
+			for (int i = 0; i < length; i++) {
+				insert(records[i]);
+			}
+			return;
+		}
+
+		long[] keys = new long[length];
+		int keyCount = 0;
+		for (int i = 0; i < length; i++) {
+			final long record = records[i];
+			if (keyCount > 0) {
+				int compare = cmp.compare(keys[keyCount - 1], record);
+				if (compare == 0)
+					continue;
+				if (compare > 0)
+					throw new IllegalArgumentException("Records are not sorted"); //$NON-NLS-1$
+			}
+			keys[keyCount++] = record;
+		}
+		if (keyCount == 0)
+			return;
+
+		// Build the tree level by level, starting with the leaves. The keys of a level are
+		// distributed evenly among its nodes, the key between two adjacent nodes moves up
+		// to the next level. Every node receives at least MIN_RECORDS keys.
+		long[] children = null;
+		while (true) {
+			final int nodeCount = (keyCount + MAX_CHILDREN) / MAX_CHILDREN;
+			if (nodeCount == 1) {
+				db.putRecPtr(rootPointer, writeNode(keys, 0, keyCount, children, 0));
+				return;
+			}
+			final int keysInNodes = keyCount - (nodeCount - 1);
+			long[] nodes = new long[nodeCount];
+			long[] parentKeys = new long[nodeCount - 1];
+			int key = 0;
+			int child = 0;
+			for (int i = 0; i < nodeCount; i++) {
+				int count = keysInNodes / nodeCount + (i < keysInNodes % nodeCount ? 1 : 0);
+				nodes[i] = writeNode(keys, key, count, children, child);
+				key += count;
+				child += count + 1;
+				if (i < nodeCount - 1) {
+					parentKeys[i] = keys[key++];
+				}
+			}
+			keys = parentKeys;
+			keyCount = parentKeys.length;
+			children = nodes;
+		}
+	}
+
+	private long writeNode(long[] keys, int firstKey, int keyCount, long[] children, int firstChild)
+			throws CoreException {
+		long node = allocateNode();
+		Chunk chunk = db.getChunk(node);
+		for (int i = 0; i < keyCount; i++) {
+			putRecord(chunk, node, i, keys[firstKey + i]);
+		}
+		if (children != null) {
+			for (int i = 0; i <= keyCount; i++) {
+				putChild(chunk, node, i, children[firstChild + i]);
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * Sorts records according to the comparator of the B-tree, in preparation for
+	 * {@link #bulkLoad(long[], int)}.
+	 */
+	public void sort(long[] records, int length) throws CoreException {
+		if (length > 1) {
+			mergeSort(records, Arrays.copyOf(records, length), 0, length);
+		}
+	}
+
+	/**
+	 * Sorts dst[from..to) using src[from..to), which has the same content, as scratch space.
+	 */
+	private void mergeSort(long[] dst, long[] src, int from, int to) throws CoreException {
+		if (to - from < 8) {
+			for (int i = from + 1; i < to; i++) {
+				final long record = dst[i];
+				int j = i;
+				for (; j > from && cmp.compare(dst[j - 1], record) > 0; j--) {
+					dst[j] = dst[j - 1];
+				}
+				dst[j] = record;
+			}
+			return;
+		}
+		final int middle = (from + to) >>> 1;
+		mergeSort(src, dst, from, middle);
+		mergeSort(src, dst, middle, to);
+		for (int i = from, left = from, right = middle; i < to; i++) {
+			if (right >= to || (left < middle && cmp.compare(src[left], src[right]) <= 0)) {
+				dst[i] = src[left++];
+			} else {
+				dst[i] = src[right++];
+			}
+		}
+	}
+
 	private long allocateNode() throws CoreException {
 		return db.malloc((2 * MAX_RECORDS + 1) * Database.INT_SIZE);
 	}
 
+	private void freeNode(long node) throws CoreException {
+		for (int i = 0; i < MAX_RECORDS + MAX_CHILDREN; i++) {
+			nodeCache.remove(node + i * Database.INT_SIZE);
+		}
+		db.free(node);
+	}
+
 	/**
 	 * Deletes the specified record from the B-tree.
 	 * <p>
@@ -428,7 +587,7 @@ public class BTree {
 		long midKey = getRecord(keyProvider.chunk, keyProvider.node, kIndex);
 		putRecord(dst.chunk, dst.node, dst.keyCount, midKey);
 		long keySucc = kIndex + 1 == MAX_RECORDS ? 0 : getRecord(keyProvider.chunk, keyProvider.node, kIndex + 1);
-		db.free(getChild(keyProvider.chunk, keyProvider.node,  kIndex + 1));
+		freeNode(getChild(keyProvider.chunk, keyProvider.node,  kIndex + 1));
 		nodeContentDelete(keyProvider, kIndex + 1, 1);
 		putRecord(keyProvider.chunk, keyProvider.node, kIndex, keySucc);
 		if (kIndex == 0 && keySucc == 0) {
@@ -440,7 +599,7 @@ public class BTree {
 			long rootNode = getRoot();
 			if (rootNode == keyProvider.node) {
 				db.putRecPtr(rootPointer, dst.node);
-				db.free(rootNode);
+				freeNode(rootNode);
 			}
 		}
 	}
@@ -528,10 +687,10 @@ public class BTree {
 	 * @param visitor
 	 */
 	public void accept(IBTreeVisitor visitor) throws CoreException {
-		accept(db.getRecPtr(rootPointer), visitor);
+		accept(db.getRecPtr(rootPointer), 0, visitor);
 	}
 
-	private boolean accept(long node, IBTreeVisitor visitor) throws CoreException {
+	private boolean accept(long node, int depth, IBTreeVisitor visitor) throws CoreException {
 		// If found is false, we are still in search mode.
 		// Once found is true visit everything.
 		// Return false when ready to quit.
@@ -542,17 +701,18 @@ public class BTree {
 		visitor.preVisit(node);
 
 		try {
-			Chunk chunk = db.getChunk(node);
+			// The upper levels of the tree are read through the node cache.
+			Chunk chunk = depth < CACHED_LEVELS ? null : db.getChunk(node);
 			
 			// Binary search to find first record greater or equal.
 			int lower= 0; 
 			int upper= MAX_RECORDS - 1;
-			while (lower < upper && getRecord(chunk, node, upper - 1) == 0) {
+			while (lower < upper && readRecord(chunk, node, upper - 1) == 0) {
 				upper--;
 			}
 			while (lower < upper) {
 				int middle= (lower + upper) >>> 1;
-				long checkRec = getRecord(chunk, node, middle);
+				long checkRec = readRecord(chunk, node, middle);
 				if (checkRec == 0) {
 					upper= middle;
 				} else {
@@ -568,22 +728,22 @@ public class BTree {
 			// Start with first record greater or equal, reuse comparison results.
 			int i= lower;
 			for (; i < MAX_RECORDS; ++i) {
-				long record = getRecord(chunk, node, i);
+				long record = readRecord(chunk, node, i);
 				if (record == 0) 
 					break;
 
 				int compare= visitor.compare(record); 
 				if (compare > 0) {
 					// Start point is to the left.
-					return accept(getChild(chunk, node, i), visitor);
+					return accept(readChild(chunk, node, i), depth + 1, visitor);
 				} else if (compare == 0) {
-					if (!accept(getChild(chunk, node, i), visitor)) 
+					if (!accept(readChild(chunk, node, i), depth + 1, visitor)) 
 						return false;
 					if (!visitor.visit(record))
 						return false;
 				}
 			}
-			return accept(getChild(chunk, node, i), visitor);
+			return accept(readChild(chunk, node, i), depth + 1, visitor);
 		} finally {
 			visitor.postVisit(node);
 		}
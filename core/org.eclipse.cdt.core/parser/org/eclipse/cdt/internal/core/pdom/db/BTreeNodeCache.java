@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.db;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A small cache of the slots of B-tree nodes close to the root, mapping the address of a slot to
+ * the record pointer stored in it. Lookups in the upper levels of a B-tree can be served without
+ * going through {@link Database#getChunk(long)}.
+ * <p>
+ * The cache is direct-mapped and each entry is packed into a single long, consisting of the
+ * tag of the address and the compressed record pointer. Readers holding a read lock on the
+ * database may access the cache concurrently. Every modification of a node slot has to be
+ * reported via {@link #remove(long)}.
+ */
+final class BTreeNodeCache {
+	/** Returned by {@link #get(long)} when the address is not in the cache. */
+	static final long MISS = -1;
+
+	private static final int TABLE_BITS = 13;
+	private static final int TABLE_MASK = (1 << TABLE_BITS) - 1;
+	private static final long VALID = 1L << 63;
+
+	private final Database fDatabase;
+	private final AtomicLongArray fEntries = new AtomicLongArray(1 << TABLE_BITS);
+
+	BTreeNodeCache(Database db) {
+		fDatabase = db;
+	}
+
+	/**
+	 * Returns the record pointer stored at the given address, or {@link #MISS}.
+	 */
+	long get(long address) {
+		// Slot addresses are aligned to Database.INT_SIZE.
+		final long key = address >>> 2;
+		final long entry = fEntries.get((int) key & TABLE_MASK);
+		if (entry == 0 || tag(entry) != (key >>> TABLE_BITS))
+			return MISS;
+		long value = fDatabase.expandToFreeRecPtr((int) entry);
+		return value != 0 ? value + Database.BLOCK_HEADER_SIZE : 0;
+	}
+
+	/**
+	 * Stores the record pointer read from the given address.
+	 */
+	void put(long address, long value) {
+		final long key = address >>> 2;
+		final int dense = value == 0 ? 0 : fDatabase.compressFreeRecPtr(value - Database.BLOCK_HEADER_SIZE);
+		fEntries.set((int) key & TABLE_MASK, VALID | ((key >>> TABLE_BITS) << 32) | (dense & 0xFFFFFFFFL));
+	}
+
+	/**
+	 * Removes the given address from the cache, must be called whenever the slot is modified.
+	 */
+	void remove(long address) {
+		final long key = address >>> 2;
+		final int index = (int) key & TABLE_MASK;
+		final long entry = fEntries.get(index);
+		if (entry != 0 && tag(entry) == (key >>> TABLE_BITS)) {
+			fEntries.set(index, 0);
+		}
+	}
+
+	/**
+	 * Removes all entries from the cache.
+	 */
+	void clear() {
+		for (int i = 0; i < fEntries.length(); i++) {
+			fEntries.set(i, 0);
+		}
+	}
+
+	private static long tag(long entry) {
+		return (entry & ~VALID) >>> 32;
+	}
+}
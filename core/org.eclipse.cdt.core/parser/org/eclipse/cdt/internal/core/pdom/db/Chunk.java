@@ -19,10 +19,12 @@ import java.nio.ByteBuffer;
 import org.eclipse.core.runtime.CoreException;
 
 /**
- * Caches the content of a piece of the database.
+ * Caches the content of a piece of the database. The content is either held in a heap buffer
+ * that is read from and written to the file, or it is a slice of a memory-mapped region of the
+ * file that is accessed in place.
  */
 final class Chunk {
-	final private byte[] fBuffer= new byte[Database.CHUNK_SIZE];
+	private ByteBuffer fBuffer;
 
 	final Database fDatabase;
 	final int fSequenceNumber;
@@ -31,15 +33,44 @@ final class Chunk {
 	boolean fDirty;
 	boolean fLocked;	// locked chunks must not be released from cache.
 	int fCacheIndex= -1;
+	// Used by the replacement policy of the cache.
+	Chunk fPrevInCache;
+	Chunk fNextInCache;
+	byte fCacheSegment;
 		
 	Chunk(Database db, int sequenceNumber) {
 		fDatabase= db;
 		fSequenceNumber= sequenceNumber;
 	}
 
+	/**
+	 * Makes the chunk use a heap buffer that is filled with zeros, suitable for a chunk that
+	 * is not yet stored in the file.
+	 */
+	void allocate() {
+		fBuffer= ByteBuffer.allocate(Database.CHUNK_SIZE);
+	}
+
+	/**
+	 * Makes the chunk use the given slice of a memory-mapped region of the database file.
+	 */
+	void map(ByteBuffer mapped) {
+		assert mapped.capacity() == Database.CHUNK_SIZE;
+		fBuffer= mapped;
+	}
+
+	boolean isMapped() {
+		return fBuffer != null && !fBuffer.hasArray();
+	}
+
 	void read() throws CoreException {
+		if (isMapped())
+			return;
+		if (fBuffer == null)
+			allocate();
 		try {
-			final ByteBuffer buf= ByteBuffer.wrap(fBuffer);
+			final ByteBuffer buf= fBuffer.duplicate();
+			buf.clear();
 			fDatabase.read(buf, (long) fSequenceNumber * Database.CHUNK_SIZE);
 		} catch (IOException e) {
 			throw new CoreException(new DBStatus(e));
@@ -47,15 +78,25 @@ final class Chunk {
 	}
 
 	void flush() throws CoreException {
-		try {
-			final ByteBuffer buf= ByteBuffer.wrap(fBuffer);
-			fDatabase.write(buf, (long) fSequenceNumber * Database.CHUNK_SIZE);
-		} catch (IOException e) {
-			throw new CoreException(new DBStatus(e));
+		if (!isMapped()) {
+			try {
+				final ByteBuffer buf= fBuffer.duplicate();
+				buf.clear();
+				fDatabase.write(buf, (long) fSequenceNumber * Database.CHUNK_SIZE);
+			} catch (IOException e) {
+				throw new CoreException(new DBStatus(e));
+			}
 		}
+		// Content of a mapped chunk is written back by the operating system.
 		fDirty= false;
 	}
 
+	private ByteBuffer bufferAt(int idx) {
+		final ByteBuffer buf= fBuffer.duplicate();
+		buf.position(idx);
+		return buf;
+	}
+
 	private static int recPtrToIndex(final long offset) {
 		return (int) (offset & Database.OFFSET_IN_CHUNK_MASK);
 	}
@@ -63,30 +104,29 @@ final class Chunk {
 	public void putByte(final long offset, final byte value) {
 		assert fLocked;
 		fDirty= true;
-		fBuffer[recPtrToIndex(offset)]= value;
+		fBuffer.put(recPtrToIndex(offset), value);
 	}
 	
 	public byte getByte(final long offset) {
-		return fBuffer[recPtrToIndex(offset)];
+		return fBuffer.get(recPtrToIndex(offset));
 	}
 	
 	public byte[] getBytes(final long offset, final int length) {
 		final byte[] bytes = new byte[length];
-		System.arraycopy(fBuffer, recPtrToIndex(offset), bytes, 0, length);
+		bufferAt(recPtrToIndex(offset)).get(bytes, 0, length);
 		return bytes;
 	}
 	
 	public void putBytes(final long offset, final byte[] bytes) {
 		assert fLocked;
 		fDirty= true;
-		System.arraycopy(bytes, 0, fBuffer, recPtrToIndex(offset), bytes.length);
+		bufferAt(recPtrToIndex(offset)).put(bytes, 0, bytes.length);
 	}
 	
 	public void putInt(final long offset, final int value) {
 		assert fLocked;
 		fDirty= true;
-		int idx= recPtrToIndex(offset);
-		putInt(value, fBuffer, idx);
+		fBuffer.putInt(recPtrToIndex(offset), value);
 	}
 
 	static final void putInt(final int value, final byte[] buffer, int idx) {
@@ -97,7 +137,7 @@ final class Chunk {
 	}
 	
 	public int getInt(final long offset) {
-		return getInt(fBuffer, recPtrToIndex(offset));
+		return fBuffer.getInt(recPtrToIndex(offset));
 	}
 
 	static final int getInt(final byte[] buffer, int idx) {
@@ -107,33 +147,6 @@ final class Chunk {
 				((buffer[++idx] & 0xff) <<  0);
 	}
 
-	/**
-	 * A free Record Pointer is a pointer to a raw block, i.e. the
-	 * pointer is not moved past the BLOCK_HEADER_SIZE.
-	 */
-	static int compressFreeRecPtr(final long value) {
-		// This assert verifies the alignment. We expect the low bits to be clear.
-		assert (value & (Database.BLOCK_SIZE_DELTA - 1)) == 0;
-		final int dense = (int) (value >> Database.BLOCK_SIZE_DELTA_BITS);
-		return dense;
-	}
-	
-	/**
-	 * A free Record Pointer is a pointer to a raw block,
-	 * i.e. the pointer is not moved past the BLOCK_HEADER_SIZE.
-	 */
-	static long expandToFreeRecPtr(int value) {
-		/*
-		 * We need to properly manage the integer that was read. The value will be sign-extended 
-		 * so if the most significant bit is set, the resulting long will look negative. By 
-		 * masking it with ((long)1 << 32) - 1 we remove all the sign-extended bits and just 
-		 * have an unsigned 32-bit value as a long. This gives us one more useful bit in the 
-		 * stored record pointers.
-		 */
-		long address = value & 0xFFFFFFFFL;
-		return address << Database.BLOCK_SIZE_DELTA_BITS;
-	}
-
 	/**
 	 * A Record Pointer is a pointer as returned by Database.malloc().
 	 * This is a pointer to a block + BLOCK_HEADER_SIZE.
@@ -141,8 +154,8 @@ final class Chunk {
 	public void putRecPtr(final long offset, final long value) {
 		assert fLocked;
 		fDirty = true;
-		int idx = recPtrToIndex(offset);
-		Database.putRecPtr(value, fBuffer, idx);
+		final int denseValue = value == 0 ? 0 : fDatabase.compressFreeRecPtr(value - Database.BLOCK_HEADER_SIZE);
+		fBuffer.putInt(recPtrToIndex(offset), denseValue);
 	}
 	
 	/**
@@ -152,123 +165,85 @@ final class Chunk {
 	public void putFreeRecPtr(final long offset, final long value) {
 		assert fLocked;
 		fDirty = true;
-		int idx = recPtrToIndex(offset);
-		putInt(compressFreeRecPtr(value), fBuffer, idx);
+		fBuffer.putInt(recPtrToIndex(offset), fDatabase.compressFreeRecPtr(value));
 	}
 
 	public long getRecPtr(final long offset) {
-		final int idx = recPtrToIndex(offset);
-		return Database.getRecPtr(fBuffer, idx);
+		long address = fDatabase.expandToFreeRecPtr(fBuffer.getInt(recPtrToIndex(offset)));
+		return address != 0 ? (address + Database.BLOCK_HEADER_SIZE) : address;
 	}
 	
 	public long getFreeRecPtr(final long offset) {
-		final int idx = recPtrToIndex(offset);
-		int value = getInt(fBuffer, idx);
-		return expandToFreeRecPtr(value);
+		return fDatabase.expandToFreeRecPtr(fBuffer.getInt(recPtrToIndex(offset)));
 	}
 	
 	public void put3ByteUnsignedInt(final long offset, final int value) {
 		assert fLocked;
 		fDirty= true;
 		int idx= recPtrToIndex(offset);
-		fBuffer[idx]= (byte) (value >> 16);
-		fBuffer[++idx]= (byte) (value >> 8);
-		fBuffer[++idx]= (byte) (value);
+		fBuffer.put(idx, (byte) (value >> 16));
+		fBuffer.putShort(idx + 1, (short) value);
 	}
 	
 	public int get3ByteUnsignedInt(final long offset) {
 		int idx= recPtrToIndex(offset);
-		return ((fBuffer[idx] & 0xff) << 16) |
-				((fBuffer[++idx] & 0xff) <<  8) |
-				((fBuffer[++idx] & 0xff) <<  0);
+		return ((fBuffer.get(idx) & 0xff) << 16) | (fBuffer.getShort(idx + 1) & 0xffff);
 	}
 
 	public void putShort(final long offset, final short value) {
 		assert fLocked;
 		fDirty= true;
-		int idx= recPtrToIndex(offset);
-		fBuffer[idx]= (byte) (value >> 8);
-		fBuffer[++idx]= (byte) (value);
+		fBuffer.putShort(recPtrToIndex(offset), value);
 	}
 	
 	public short getShort(final long offset) {
-		int idx= recPtrToIndex(offset);
-		return (short) (((fBuffer[idx] << 8) | (fBuffer[++idx] & 0xff)));
+		return fBuffer.getShort(recPtrToIndex(offset));
 	}
 
 	public long getLong(final long offset) {
-		int idx= recPtrToIndex(offset);
-		return ((((long) fBuffer[idx] & 0xff) << 56) |
-				(((long) fBuffer[++idx] & 0xff) << 48) |
-				(((long) fBuffer[++idx] & 0xff) << 40) |
-				(((long) fBuffer[++idx] & 0xff) << 32) |
-				(((long) fBuffer[++idx] & 0xff) << 24) |
-				(((long) fBuffer[++idx] & 0xff) << 16) |
-				(((long) fBuffer[++idx] & 0xff) <<  8) |
-				(((long) fBuffer[++idx] & 0xff) <<  0));
+		return fBuffer.getLong(recPtrToIndex(offset));
 	}
 
 	public void putLong(final long offset, final long value) {
 		assert fLocked;
 		fDirty= true;
-		int idx= recPtrToIndex(offset);
-
-		fBuffer[idx]=   (byte) (value >> 56);
-		fBuffer[++idx]= (byte) (value >> 48);
-		fBuffer[++idx]= (byte) (value >> 40);
-		fBuffer[++idx]= (byte) (value >> 32);
-		fBuffer[++idx]= (byte) (value >> 24);
-		fBuffer[++idx]= (byte) (value >> 16);
-		fBuffer[++idx]= (byte) (value >> 8);
-		fBuffer[++idx]= (byte) (value);
+		fBuffer.putLong(recPtrToIndex(offset), value);
 	}
 	
 	public void putChar(final long offset, final char value) {
 		assert fLocked;
 		fDirty= true;
-		int idx= recPtrToIndex(offset);
-		fBuffer[idx]= (byte) (value >> 8);
-		fBuffer[++idx]= (byte) (value);
+		fBuffer.putChar(recPtrToIndex(offset), value);
 	}
 	
 	public void putChars(final long offset, char[] chars, int start, int len) {
 		assert fLocked;
 		fDirty= true;
-		int idx= recPtrToIndex(offset)-1;
-		final int end= start + len;
-		for (int i = start; i < end; i++) {
-			char value= chars[i];
-			fBuffer[++idx]= (byte) (value >> 8);
-			fBuffer[++idx]= (byte) (value);
-		}
+		bufferAt(recPtrToIndex(offset)).asCharBuffer().put(chars, start, len);
 	}
 
 	public void putCharsAsBytes(final long offset, char[] chars, int start, int len) {
 		assert fLocked;
 		fDirty= true;
-		int idx= recPtrToIndex(offset)-1;
+		int idx= recPtrToIndex(offset);
 		final int end= start + len;
 		for (int i = start; i < end; i++) {
-			char value= chars[i];
-			fBuffer[++idx]= (byte) (value);
+			fBuffer.put(idx++, (byte) chars[i]);
 		}
 	}
 
 	public char getChar(final long offset) {
-		int idx= recPtrToIndex(offset);
-		return (char) (((fBuffer[idx] << 8) | (fBuffer[++idx] & 0xff)));
+		return fBuffer.getChar(recPtrToIndex(offset));
 	}
 
 	public void getChars(final long offset, final char[] result, int start, int len) {
-		final ByteBuffer buf= ByteBuffer.wrap(fBuffer);
-		buf.position(recPtrToIndex(offset));
-		buf.asCharBuffer().get(result, start, len);
+		bufferAt(recPtrToIndex(offset)).asCharBuffer().get(result, start, len);
 	}
 
 	public void getCharsFromBytes(final long offset, final char[] result, int start, int len) {
 		final int pos = recPtrToIndex(offset);
 		for (int i = 0; i < len; i++) {
-			result[start + i] =  (char) (fBuffer[pos + i] & 0xff);
+			result[start + i] =  (char) (fBuffer.get(pos + i) & 0xff);
 		}
 	}
 
@@ -278,7 +253,7 @@ final class Chunk {
 		int idx = recPtrToIndex(offset);
 		final int end = idx + length;
 		for (; idx < end; idx++) {
-			fBuffer[idx] = 0;
+			fBuffer.put(idx, (byte) 0);
 		}
 	}
 
@@ -289,8 +264,7 @@ final class Chunk {
 	void put(final long offset, final byte[] data, int dataPos, final int len) {
 		assert fLocked;
 		fDirty = true;
-		int idx = recPtrToIndex(offset);
-		System.arraycopy(data, dataPos, fBuffer, idx, len);
+		bufferAt(recPtrToIndex(offset)).put(data, dataPos, len);
 	}
 	
 	public void get(final long offset, byte[] data) {
@@ -298,7 +272,6 @@ final class Chunk {
 	}
 
 	public void get(final long offset, byte[] data, int dataPos, int len) {
-		int idx = recPtrToIndex(offset);
-		System.arraycopy(fBuffer, idx, data, dataPos, len);
+		bufferAt(recPtrToIndex(offset)).get(data, dataPos, len);
 	}
 }
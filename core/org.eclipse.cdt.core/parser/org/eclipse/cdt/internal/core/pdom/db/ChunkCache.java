@@ -10,12 +10,47 @@
  *******************************************************************************/ 
 package org.eclipse.cdt.internal.core.pdom.db;
 
+/**
+ * Cache for the chunks of one or more databases. The cache is also used as the monitor that
+ * protects the chunk tables of the databases using it, therefore all of its methods that modify
+ * the content are synchronized.
+ */
 public final class ChunkCache {
+	/**
+	 * Algorithms for selecting the chunk that is evicted from a full cache.
+	 */
+	public enum EvictionPolicy {
+		/** Evicts the first chunk found that has not been referenced since the last sweep. */
+		CLOCK,
+		/** Least recently used, with a protected segment for chunks referenced more than once. */
+		SEGMENTED_LRU,
+		/** Frequency based admission of chunks leaving a small LRU window to a segmented LRU. */
+		TINY_LFU;
+
+		/**
+		 * Returns the policy with the given name, or {@link #CLOCK} for an unknown name.
+		 */
+		public static EvictionPolicy fromString(String name) {
+			if (name != null) {
+				for (EvictionPolicy policy : values()) {
+					if (policy.name().equalsIgnoreCase(name.trim()))
+						return policy;
+				}
+			}
+			return CLOCK;
+		}
+	}
+
 	private static ChunkCache sSharedInstance= new ChunkCache();
 	
 	private Chunk[] fPageTable;
-	private boolean fTableIsFull;
-	private int fPointer;
+	private int fSize;
+	private EvictionPolicy fEvictionPolicy;
+	private ChunkReplacementPolicy fReplacementPolicy;
+
+	private long fHits;
+	private long fMisses;
+	private long fEvictions;
 	
 	public static ChunkCache getSharedInstance() {
 		return sSharedInstance;
@@ -26,7 +61,25 @@ public final class ChunkCache {
 	}
 	
 	public ChunkCache(long maxSize) {
+		this(maxSize, EvictionPolicy.CLOCK);
+	}
+
+	public ChunkCache(long maxSize, EvictionPolicy policy) {
 		fPageTable= new Chunk[computeLength(maxSize)];
+		fEvictionPolicy= policy;
+		fReplacementPolicy= createReplacementPolicy(policy, fPageTable.length);
+	}
+
+	private static ChunkReplacementPolicy createReplacementPolicy(EvictionPolicy policy, int capacity) {
+		switch (policy) {
+		case SEGMENTED_LRU:
+			return new SegmentedLRUReplacementPolicy(capacity);
+		case TINY_LFU:
+			return new TinyLFUReplacementPolicy(capacity);
+		case CLOCK:
+		default:
+			return new ClockReplacementPolicy();
+		}
 	}
 	
 	public synchronized void add(Chunk chunk, boolean locked) {
@@ -34,67 +87,50 @@ public final class ChunkCache {
 			chunk.fLocked= true;
 		}
 		if (chunk.fCacheIndex >= 0) {
-			chunk.fCacheHitFlag= true;
+			fHits++;
+			fReplacementPolicy.accessed(chunk);
 			return;
 		}
-		if (fTableIsFull) {
+		fMisses++;
+		if (fSize == fPageTable.length) {
 			evictChunk();
-			chunk.fCacheIndex= fPointer;
-			fPageTable[fPointer]= chunk;
-		} else {
-			chunk.fCacheIndex= fPointer;
-			fPageTable[fPointer]= chunk;
-
-			fPointer++;
-			if (fPointer == fPageTable.length) {
-				fPointer= 0;
-				fTableIsFull= true;
-			}
 		}
+		chunk.fCacheIndex= fSize;
+		fPageTable[fSize++]= chunk;
+		fReplacementPolicy.inserted(chunk);
 	}
 	
 	/**                                                                   
-	 * Evicts a chunk from the page table and the chunk table.            
-	 * After this method returns, {@link #fPointer}  will contain
-	 * the index of the evicted chunk within the page table.              
+	 * Evicts a chunk selected by the replacement policy from the page table and the chunk
+	 * table of its database.
 	 */                                                                   
 	private void evictChunk() {
-		/*
-		 * Use the CLOCK algorithm to determine which chunk to evict.
-		 * i.e., if the chunk in the current slot of the page table has been
-		 * recently referenced (i.e. the reference flag is set), unset the
-		 * reference flag and move to the next slot.  Otherwise, evict the
-		 * chunk in the current slot.
-		 */
-		while (true) {
-			Chunk chunk = fPageTable[fPointer];
-			if (chunk.fCacheHitFlag) {
-				chunk.fCacheHitFlag= false;
-				fPointer= (fPointer + 1) % fPageTable.length;
-			} else {
-				chunk.fDatabase.releaseChunk(chunk);
-				chunk.fCacheIndex= -1;
-				fPageTable[fPointer] = null;
-				return;
-			}
-		}
+		final Chunk chunk= fReplacementPolicy.selectVictim(fPageTable, fSize);
+		chunk.fDatabase.releaseChunk(chunk);
+		removeFromPageTable(chunk);
+		fEvictions++;
 	}
 
 	public synchronized void remove(Chunk chunk) {
+		if (chunk.fCacheIndex >= 0) {
+			removeFromPageTable(chunk);
+		}	
+	}
+
+	/**
+	 * Removes the chunk from the page table, the last chunk of the page table is moved to the
+	 * index of the removed chunk.
+	 */
+	private void removeFromPageTable(Chunk chunk) {
+		fReplacementPolicy.removed(chunk);
 		final int idx= chunk.fCacheIndex;
-		if (idx >= 0) {
-			if (fTableIsFull) {
-				fPointer= fPageTable.length-1;
-				fTableIsFull= false;
-			} else {
-				fPointer--;
-			}
-			chunk.fCacheIndex= -1;
-			final Chunk move= fPageTable[fPointer];
+		chunk.fCacheIndex= -1;
+		final Chunk move= fPageTable[--fSize];
+		fPageTable[fSize]= null;
+		if (move != chunk) {
 			fPageTable[idx]= move;
 			move.fCacheIndex= idx;
-			fPageTable[fPointer]= null;
-		}	
+		}
 	}
 
 	/**                                                                           
@@ -105,33 +141,80 @@ public final class ChunkCache {
 	}
 
 	/**                                                                           
-	 * Clears the page table and changes it to hold chunks with
-	 * maximum total memory of <code>maxSize</code>.       
+	 * Changes the page table to hold chunks with maximum total memory of <code>maxSize</code>.
+	 * Chunks are evicted as necessary.
 	 * @param maxSize the total size of the chunks in bytes.                
 	 */                                                                           
 	public synchronized void setMaxSize(long maxSize) {
 		final int newLength= computeLength(maxSize);
-		final int oldLength= fTableIsFull ? fPageTable.length : fPointer;
-		if (newLength > oldLength) {
-			Chunk[] newTable= new Chunk[newLength];
-			System.arraycopy(fPageTable, 0, newTable, 0, oldLength);
-			fTableIsFull= false;
-			fPointer= oldLength;
-			fPageTable= newTable;
-		} else {
-			for (int i= newLength; i < oldLength; i++) {
-				final Chunk chunk= fPageTable[i];
-				chunk.fDatabase.releaseChunk(chunk);
-				chunk.fCacheIndex= -1;
-			}
-			Chunk[] newTable= new Chunk[newLength];
-			System.arraycopy(fPageTable, 0, newTable, 0, newLength);
-			fTableIsFull= true;
-			fPointer= 0;
-			fPageTable= newTable;
-		}       
+		while (fSize > newLength) {
+			evictChunk();
+		}
+		Chunk[] newTable= new Chunk[newLength];
+		System.arraycopy(fPageTable, 0, newTable, 0, fSize);
+		fPageTable= newTable;
+		fReplacementPolicy.capacityChanged(newLength);
 	}                                                                             
 
+	/**
+	 * Returns the algorithm used to select the chunks that are evicted.
+	 */
+	public synchronized EvictionPolicy getEvictionPolicy() {
+		return fEvictionPolicy;
+	}
+
+	/**
+	 * Changes the algorithm used to select the chunks that are evicted. The chunks in the cache
+	 * are kept, their history of accesses is lost.
+	 */
+	public synchronized void setEvictionPolicy(EvictionPolicy policy) {
+		if (policy == fEvictionPolicy)
+			return;
+
+		final ChunkReplacementPolicy oldPolicy= fReplacementPolicy;
+		final ChunkReplacementPolicy newPolicy= createReplacementPolicy(policy, fPageTable.length);
+		for (int i= 0; i < fSize; i++) {
+			final Chunk chunk= fPageTable[i];
+			oldPolicy.removed(chunk);
+			newPolicy.inserted(chunk);
+		}
+		fEvictionPolicy= policy;
+		fReplacementPolicy= newPolicy;
+	}
+
+	/**
+	 * Returns the number of chunks currently held by the cache.
+	 */
+	public synchronized int getChunkCount() {
+		return fSize;
+	}
+
+	/**
+	 * Returns the number of accesses to chunks that were found in the cache, for all databases
+	 * using the cache.
+	 */
+	public synchronized long getHits() {
+		return fHits;
+	}
+
+	/**
+	 * Returns the number of chunks that were added to the cache, for all databases using the cache.
+	 */
+	public synchronized long getMisses() {
+		return fMisses;
+	}
+
+	/**
+	 * Returns the number of chunks that were evicted to make room for other chunks.
+	 */
+	public synchronized long getEvictions() {
+		return fEvictions;
+	}
+
+	public synchronized void resetCounters() {
+		fHits= fMisses= fEvictions= 0;
+	}
+
 	private int computeLength(long maxSize) {
 		long maxLength= Math.min(maxSize / Database.CHUNK_SIZE, Integer.MAX_VALUE);
 		return Math.max(1, (int) maxLength);
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.db;
+
+/**
+ * Decides which chunk is evicted from a {@link ChunkCache}. All methods are called while holding
+ * the lock on the cache.
+ */
+abstract class ChunkReplacementPolicy {
+	/**
+	 * Called when a chunk is added to the cache.
+	 */
+	abstract void inserted(Chunk chunk);
+
+	/**
+	 * Called when a chunk that is in the cache is accessed.
+	 */
+	abstract void accessed(Chunk chunk);
+
+	/**
+	 * Called when a chunk is removed from the cache, either because it was selected as victim
+	 * or because the database removes it.
+	 */
+	abstract void removed(Chunk chunk);
+
+	/**
+	 * Returns the chunk that shall be evicted from the full cache, the chunk is not yet removed.
+	 * @param pageTable the chunks in the cache, at the index stored in {@link Chunk#fCacheIndex}.
+	 * @param size the number of chunks in the cache.
+	 */
+	abstract Chunk selectVictim(Chunk[] pageTable, int size);
+
+	/**
+	 * Called when the capacity of the cache changes.
+	 */
+	void capacityChanged(int capacity) {
+	}
+
+	/**
+	 * A doubly linked list of chunks using the links stored in the chunks.
+	 */
+	static final class ChunkList {
+		private Chunk fHead;	// most recently used
+		private Chunk fTail;	// least recently used
+		private int fSize;
+
+		void addFirst(Chunk chunk) {
+			chunk.fPrevInCache= null;
+			chunk.fNextInCache= fHead;
+			if (fHead != null) {
+				fHead.fPrevInCache= chunk;
+			} else {
+				fTail= chunk;
+			}
+			fHead= chunk;
+			fSize++;
+		}
+
+		void remove(Chunk chunk) {
+			final Chunk prev= chunk.fPrevInCache;
+			final Chunk next= chunk.fNextInCache;
+			if (prev != null) {
+				prev.fNextInCache= next;
+			} else {
+				fHead= next;
+			}
+			if (next != null) {
+				next.fPrevInCache= prev;
+			} else {
+				fTail= prev;
+			}
+			chunk.fPrevInCache= chunk.fNextInCache= null;
+			fSize--;
+		}
+
+		void moveToFront(Chunk chunk) {
+			if (fHead != chunk) {
+				remove(chunk);
+				addFirst(chunk);
+			}
+		}
+
+		Chunk last() {
+			return fTail;
+		}
+
+		int size() {
+			return fSize;
+		}
+	}
+}
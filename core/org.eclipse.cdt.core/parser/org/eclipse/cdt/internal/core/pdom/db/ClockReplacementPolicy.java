@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.db;
+
+/**
+ * The CLOCK algorithm, i.e. a chunk that has been referenced since the hand of the clock has
+ * passed it gets a second chance.
+ */
+final class ClockReplacementPolicy extends ChunkReplacementPolicy {
+	private int fHand;
+
+	@Override
+	void inserted(Chunk chunk) {
+	}
+
+	@Override
+	void accessed(Chunk chunk) {
+		chunk.fCacheHitFlag= true;
+	}
+
+	@Override
+	void removed(Chunk chunk) {
+		chunk.fCacheHitFlag= false;
+	}
+
+	@Override
+	Chunk selectVictim(Chunk[] pageTable, int size) {
+		while (true) {
+			if (fHand >= size) {
+				fHand= 0;
+			}
+			Chunk chunk= pageTable[fHand];
+			if (chunk.fCacheHitFlag) {
+				chunk.fCacheHitFlag= false;
+				fHand++;
+			} else {
+				return chunk;
+			}
+		}
+	}
+}
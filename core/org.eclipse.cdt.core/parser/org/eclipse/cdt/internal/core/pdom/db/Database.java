@@ -22,9 +22,11 @@ import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -59,6 +61,14 @@ import com.ibm.icu.text.MessageFormat;
  * DATA_AREA        | undefined (PDOM stores its own house-keeping data in this area)
  *
  * (1) where 2 <= m <= CHUNK_SIZE / BLOCK_SIZE_DELTA - MIN_BLOCK_DELTAS + 1
+ * GEOMETRY_OFFSET  | number of bits by which record pointers are shifted, 0 for BLOCK_SIZE_DELTA_BITS
+ *
+ * ===== record pointers
+ *
+ * Record pointers are stored in PTR_SIZE bytes as the offset of the block divided by the block size
+ * delta. The default delta of 8 bytes limits the size of the database to 32 GB, new databases may
+ * be created with a larger delta (up to MAX_BLOCK_SIZE_DELTA_BITS) at the expense of more padding
+ * per record. The delta used by a database is stored in its header.
  *
  * ===== block structure
  *
@@ -68,6 +78,12 @@ import com.ibm.icu.text.MessageFormat;
  * PREV_OFFSET      | pointer to previous block (of same size) (only in free blocks)
  * NEXT_OFFSET      | pointer to next block (of same size) (only in free blocks)
  *
+ * ===== memory-mapped access
+ *
+ * Optionally the chunks other than the header chunk are accessed in place through memory-mapped
+ * regions of MAPPED_REGION_SIZE bytes rather than being copied into heap buffers. The header chunk
+ * is always read and written through the file channel, such that the version number that marks
+ * a consistent file is written only after all other modifications.
  */
 public class Database {
 	// Public for tests only, you shouldn't need these.
@@ -89,12 +105,20 @@ public class Database {
 	public static final int EXECUTION_SIZE = TYPE_SIZE;  // size of an execution in the database in bytes
 	public static final int ARGUMENT_SIZE = TYPE_SIZE;  // size of a template argument in the database in bytes
 	public static final long MAX_DB_SIZE= ((long) 1 << (Integer.SIZE + BLOCK_SIZE_DELTA_BITS));
+	public static final int MAX_BLOCK_SIZE_DELTA_BITS = 6;
 
 	public static final int VERSION_OFFSET = 0;
 	public static final int DATA_AREA = (CHUNK_SIZE / BLOCK_SIZE_DELTA - MIN_BLOCK_DELTAS + 2) * INT_SIZE;
 
 	private static final int BLOCK_PREV_OFFSET = BLOCK_HEADER_SIZE;
 	private static final int BLOCK_NEXT_OFFSET = BLOCK_HEADER_SIZE + INT_SIZE;
+	private static final int GEOMETRY_OFFSET = CHUNK_SIZE - INT_SIZE;
+
+	private static final int MAPPED_REGION_SIZE = 1024 * 1024 * 8;
+	private static final int CHUNKS_PER_MAPPED_REGION = MAPPED_REGION_SIZE / CHUNK_SIZE;
+
+	private static volatile boolean sMemoryMappedByDefault;
+	private static volatile int sBlockSizeDeltaBitsForNewDatabases = BLOCK_SIZE_DELTA_BITS;
 
 	private final File fLocation;
 	private final boolean fReadOnly;
@@ -102,6 +126,15 @@ public class Database {
 	private boolean fExclusiveLock;	 // Necessary for any write operation.
 	private boolean fLocked;		 // Necessary for any operation.
 	private boolean fIsMarkedIncomplete;
+	private final boolean fMemoryMapped;
+	private MappedByteBuffer[] fMappedRegions;
+
+	// Geometry of the blocks, stored in the header.
+	private int fBlockSizeDeltaBits;
+	private int fBlockSizeDelta;
+	private int fMinBlockDeltas;
+	private int fMaxBlockDeltas;
+	private long fMaxDbSize;
 
 	private int fVersion;
 	private final Chunk fHeaderChunk;
@@ -109,6 +142,7 @@ public class Database {
 	private int fChunksUsed;
 	private int fChunksAllocated;
 	private ChunkCache fCache;
+	private final BTreeNodeCache fNodeCache= new BTreeNodeCache(this);
 
 	private long malloced;
 	private long freed;
@@ -140,30 +174,115 @@ public class Database {
 	 * @throws CoreException
 	 */
 	public Database(File location, ChunkCache cache, int version, boolean openReadOnly) throws CoreException {
+		this(location, cache, version, openReadOnly, sMemoryMappedByDefault);
+	}
+
+	/**
+	 * Construct a new Database object, creating a backing file if necessary.
+	 * @param location the local file path for the database
+	 * @param cache the cache to be used optimization
+	 * @param version the version number to store in the database (only applicable for new databases)
+	 * @param openReadOnly whether this Database object will ever need writing to
+	 * @param memoryMapped whether the chunks are accessed through memory-mapped regions of the file
+	 * @throws CoreException
+	 */
+	public Database(File location, ChunkCache cache, int version, boolean openReadOnly,
+			boolean memoryMapped) throws CoreException {
 		try {
 			fLocation = location;
 			fReadOnly= openReadOnly;
+			fMemoryMapped= memoryMapped;
+			fMappedRegions= new MappedByteBuffer[0];
 			fCache= cache;
 			openFile();
 
 			int nChunksOnDisk = (int) (fFile.length() / CHUNK_SIZE);
 			fHeaderChunk= new Chunk(this, 0);
+			fHeaderChunk.allocate();
 			fHeaderChunk.fLocked= true;		// Never makes it into the cache, needed to satisfy assertions.
 			if (nChunksOnDisk <= 0) {
 				fVersion= version;
 				fChunks= new Chunk[1];
 				fChunksUsed = fChunksAllocated = fChunks.length;
+				initGeometry(fReadOnly ? BLOCK_SIZE_DELTA_BITS : sBlockSizeDeltaBitsForNewDatabases, !fReadOnly);
 			} else {
 				fHeaderChunk.read();
 				fVersion= fHeaderChunk.getInt(VERSION_OFFSET);
 				fChunks = new Chunk[nChunksOnDisk];	// chunk[0] is unused.
 				fChunksUsed = fChunksAllocated = nChunksOnDisk;
+				int bits= fHeaderChunk.getInt(GEOMETRY_OFFSET);
+				if (bits == 0) {
+					bits= BLOCK_SIZE_DELTA_BITS;
+				} else if (bits < BLOCK_SIZE_DELTA_BITS || bits > MAX_BLOCK_SIZE_DELTA_BITS) {
+					databaseCorruptionDetected();
+				}
+				initGeometry(bits, false);
 			}
 		} catch (IOException e) {
 			throw new CoreException(new DBStatus(e));
 		}
 	}
 
+	/**
+	 * Sets the number of bits by which the record pointers are shifted in databases that are created
+	 * or cleared from now on. Each additional bit doubles the maximum size of the database and the
+	 * alignment of the records.
+	 */
+	public static void setBlockSizeDeltaBitsForNewDatabases(int bits) {
+		sBlockSizeDeltaBitsForNewDatabases=
+				Math.max(BLOCK_SIZE_DELTA_BITS, Math.min(MAX_BLOCK_SIZE_DELTA_BITS, bits));
+	}
+
+	public static int getBlockSizeDeltaBitsForNewDatabases() {
+		return sBlockSizeDeltaBitsForNewDatabases;
+	}
+
+	/**
+	 * Computes the geometry of the blocks.
+	 * @param store whether to store the geometry in the header chunk of an empty database.
+	 */
+	private void initGeometry(int bits, boolean store) {
+		fBlockSizeDeltaBits= bits;
+		fBlockSizeDelta= 1 << bits;
+		// A free block must be able to store the size and the links to the previous and next block.
+		fMinBlockDeltas= (BLOCK_HEADER_SIZE + 2 * INT_SIZE + fBlockSizeDelta - 1) / fBlockSizeDelta;
+		fMaxBlockDeltas= CHUNK_SIZE / fBlockSizeDelta;
+		fMaxDbSize= (long) 1 << (Integer.SIZE + bits);
+		assert getFirstBlockOffset(CHUNK_SIZE) < DATA_AREA;
+		if (store && bits != BLOCK_SIZE_DELTA_BITS) {
+			// Databases with the default geometry keep the format of older versions.
+			fHeaderChunk.putInt(GEOMETRY_OFFSET, bits);
+		}
+	}
+
+	/**
+	 * Returns the maximum size of this database, which depends on the size of the record pointers
+	 * and on the alignment of the blocks.
+	 */
+	public long getMaxSize() {
+		return fMaxDbSize;
+	}
+
+	public int getBlockSizeDeltaBits() {
+		return fBlockSizeDeltaBits;
+	}
+
+	/**
+	 * Sets whether databases constructed without an explicit choice of the access method use
+	 * memory-mapped regions of the file instead of reading the chunks into heap buffers.
+	 */
+	public static void setMemoryMappedByDefault(boolean value) {
+		sMemoryMappedByDefault= value;
+	}
+
+	public static boolean isMemoryMappedByDefault() {
+		return sMemoryMappedByDefault;
+	}
+
+	public boolean isMemoryMapped() {
+		return fMemoryMapped;
+	}
+
 	private void openFile() throws FileNotFoundException {
 		fFile = new RandomAccessFile(fLocation, fReadOnly ? "r" : "rw"); //$NON-NLS-1$ //$NON-NLS-2$
 	}
@@ -202,12 +321,90 @@ public class Database {
 		openFile();
 	}
 
+	/**
+	 * Returns a buffer for the chunk with the given index that is a slice of a memory-mapped
+	 * region of the file. Must be called while holding the lock on {@link #fCache}.
+	 */
+	private ByteBuffer mapChunk(int index) throws CoreException {
+		assert Thread.holdsLock(fCache);
+		final int regionIndex= index / CHUNKS_PER_MAPPED_REGION;
+		if (regionIndex >= fMappedRegions.length) {
+			MappedByteBuffer[] newRegions= new MappedByteBuffer[regionIndex + 1];
+			System.arraycopy(fMappedRegions, 0, newRegions, 0, fMappedRegions.length);
+			fMappedRegions= newRegions;
+		}
+		MappedByteBuffer region= fMappedRegions[regionIndex];
+		if (region == null) {
+			final long position= (long) regionIndex * MAPPED_REGION_SIZE;
+			int retries= 0;
+			while (region == null) {
+				try {
+					if (fReadOnly) {
+						// A read-only mapping cannot extend the file.
+						final long size= Math.min(MAPPED_REGION_SIZE, fFile.length() - position);
+						region= fFile.getChannel().map(MapMode.READ_ONLY, position, size);
+					} else {
+						// Extends the file up to the end of the region, if necessary.
+						region= fFile.getChannel().map(MapMode.READ_WRITE, position, MAPPED_REGION_SIZE);
+					}
+				} catch (ClosedChannelException e) {
+					// Bug 219834 file may have be closed by interrupting a thread during an I/O operation.
+					try {
+						reopen(e, ++retries);
+					} catch (IOException e1) {
+						throw new CoreException(new DBStatus(e1));
+					}
+				} catch (IOException e) {
+					throw new CoreException(new DBStatus(e));
+				}
+			}
+			fMappedRegions[regionIndex]= region;
+		}
+		final int offsetInRegion= (index % CHUNKS_PER_MAPPED_REGION) * CHUNK_SIZE;
+		if (offsetInRegion + CHUNK_SIZE > region.capacity()) {
+			databaseCorruptionDetected();
+		}
+		final ByteBuffer buf= region.duplicate();
+		buf.position(offsetInRegion);
+		buf.limit(offsetInRegion + CHUNK_SIZE);
+		return buf.slice();
+	}
+
+	/**
+	 * Writes the modified contents of the memory-mapped regions to the file.
+	 */
+	private void forceMappedRegions() {
+		final MappedByteBuffer[] regions;
+		synchronized (fCache) {
+			regions= fMappedRegions;
+		}
+		for (MappedByteBuffer region : regions) {
+			if (region != null && !fReadOnly) {
+				region.force();
+			}
+		}
+	}
+
+	/**
+	 * Drops the references to the memory-mapped regions, the mappings are released by the garbage
+	 * collector. Must not be called while chunks of this database are in the cache.
+	 */
+	private void unmapRegions() {
+		synchronized (fCache) {
+			fMappedRegions= new MappedByteBuffer[0];
+		}
+	}
+
 	public void transferTo(FileChannel target) throws IOException {
 		assert fLocked;
         final FileChannel from= fFile.getChannel();
         long nRead = 0;
         long position = 0;
         long size = from.size();
+        if (fMemoryMapped) {
+        	// Don't export the unused tail of the last mapped region.
+        	size= Math.min(size, (long) fChunksUsed * CHUNK_SIZE);
+        }
         while (position < size) {
         	nRead = from.transferTo(position, 4096 * 16, target);
         	if (nRead == 0) {
@@ -235,18 +432,28 @@ public class Database {
 	public void clear(int version) throws CoreException {
 		assert fExclusiveLock;
 		removeChunksFromCache();
+		fNodeCache.clear();
 
 		fVersion= version;
 		// Clear the first chunk.
 		fHeaderChunk.clear(0, CHUNK_SIZE);
+		// The database is empty, so the geometry for new databases can be applied.
+		initGeometry(sBlockSizeDeltaBitsForNewDatabases, true);
 		// Chunks have been removed from the cache, so we may just reset the array of chunks.
 		fChunks = new Chunk[] {null};
 		fChunksUsed = fChunksAllocated = fChunks.length;
+		if (fMemoryMapped) {
+			unmapRegions();
+		}
 		try {
 			fHeaderChunk.flush();	// Zero out header chunk.
 			fFile.getChannel().truncate(CHUNK_SIZE);	// Truncate database.
 		} catch (IOException e) {
-			CCorePlugin.log(e);
+			// A file with live mappings cannot be truncated on some platforms, the content beyond
+			// the header chunk is no longer referenced, in any case.
+			if (!fMemoryMapped) {
+				CCorePlugin.log(e);
+			}
 		}
 		malloced = freed = 0;
 		/*
@@ -297,11 +504,19 @@ public class Database {
 			if (index < 0 || index >= fChunks.length) {
 				databaseCorruptionDetected();
 			}
+			if (fMemoryMapped && fExclusiveLock) {
+				// Modifications of mapped chunks reach the file without an explicit flush.
+				markFileIncomplete();
+			}
 			Chunk chunk= fChunks[index];
 			if (chunk == null) {
 				cacheMisses++;
 				chunk = new Chunk(this, index);
-				chunk.read();
+				if (fMemoryMapped) {
+					chunk.map(mapChunk(index));
+				} else {
+					chunk.read();
+				}
 				// Put the chunk in fChunks after it was read successfully.
 				fChunks[index] = chunk;
 			} else {
@@ -312,6 +527,13 @@ public class Database {
 		}
 	}
 
+	/**
+	 * Returns the cache for the upper levels of the B-trees stored in this database.
+	 */
+	BTreeNodeCache getBTreeNodeCache() {
+		return fNodeCache;
+	}
+
 	private void databaseCorruptionDetected() throws CoreException {
 		String msg = MessageFormat.format(Messages.getString("Database.CorruptedDatabase"), //$NON-NLS-1$
 				new Object[] { fLocation.getName() });
@@ -325,16 +547,16 @@ public class Database {
 		assert fExclusiveLock;
 		assert datasize >= 0 && datasize <= MAX_MALLOC_SIZE;
 
-		int needDeltas= (datasize + BLOCK_HEADER_SIZE + BLOCK_SIZE_DELTA - 1) / BLOCK_SIZE_DELTA;
-		if (needDeltas < MIN_BLOCK_DELTAS) {
-			needDeltas= MIN_BLOCK_DELTAS;
+		int needDeltas= (datasize + BLOCK_HEADER_SIZE + fBlockSizeDelta - 1) / fBlockSizeDelta;
+		if (needDeltas < fMinBlockDeltas) {
+			needDeltas= fMinBlockDeltas;
 		}
 
 		// Which block size.
 		long freeblock = 0;
 		int useDeltas;
-		for (useDeltas= needDeltas; useDeltas <= MAX_BLOCK_DELTAS; useDeltas++) {
-			freeblock = getFirstBlock(useDeltas * BLOCK_SIZE_DELTA);
+		for (useDeltas= needDeltas; useDeltas <= fMaxBlockDeltas; useDeltas++) {
+			freeblock = getFirstBlock(useDeltas * fBlockSizeDelta);
 			if (freeblock != 0)
 				break;
 		}
@@ -344,22 +566,22 @@ public class Database {
 		if (freeblock == 0) {
 			// Allocate a new chunk.
 			freeblock= createNewChunk();
-			useDeltas = MAX_BLOCK_DELTAS;
+			useDeltas = fMaxBlockDeltas;
 			chunk = getChunk(freeblock);
 		} else {
 			chunk = getChunk(freeblock);
-			removeBlock(chunk, useDeltas * BLOCK_SIZE_DELTA, freeblock);
+			removeBlock(chunk, useDeltas * fBlockSizeDelta, freeblock);
 		}
 
 		final int unusedDeltas = useDeltas - needDeltas;
-		if (unusedDeltas >= MIN_BLOCK_DELTAS) {
+		if (unusedDeltas >= fMinBlockDeltas) {
 			// Add in the unused part of our block.
-			addBlock(chunk, unusedDeltas * BLOCK_SIZE_DELTA, freeblock + needDeltas * BLOCK_SIZE_DELTA);
+			addBlock(chunk, unusedDeltas * fBlockSizeDelta, freeblock + needDeltas * fBlockSizeDelta);
 			useDeltas= needDeltas;
 		}
 
 		// Make our size negative to show in use.
-		final int usedSize= useDeltas * BLOCK_SIZE_DELTA;
+		final int usedSize= useDeltas * fBlockSizeDelta;
 		chunk.putShort(freeblock, (short) -usedSize);
 
 		// Clear out the block, lots of people are expecting this.
@@ -375,6 +597,12 @@ public class Database {
 			final int newChunkIndex = fChunksUsed; // fChunks.length;
 
 			final Chunk chunk = new Chunk(this, newChunkIndex);
+			if (fMemoryMapped) {
+				markFileIncomplete();
+				chunk.map(mapChunk(newChunkIndex));
+			} else {
+				chunk.allocate();
+			}
 			chunk.fDirty = true;
 
 			if (newChunkIndex >= fChunksAllocated) {
@@ -390,6 +618,10 @@ public class Database {
 
 			fCache.add(chunk, true);
 			long address = (long) newChunkIndex * CHUNK_SIZE;
+			if (fMemoryMapped) {
+				// The mapped file may contain stale data beyond the used chunks.
+				chunk.clear(address, CHUNK_SIZE);
+			}
 
 			/*
 			 * Non-dense pointers are at most 31 bits dense pointers are at most 35 bits Check the sizes here
@@ -397,8 +629,8 @@ public class Database {
 			 * special status, the indexing operation should be stopped. This is desired since generally, once
 			 * the max size is exceeded, there are lots of errors.
 			 */
-			if (address >= MAX_DB_SIZE) {
-				Object bindings[] = { this.getLocation().getAbsolutePath(), MAX_DB_SIZE };
+			if (address >= fMaxDbSize) {
+				Object bindings[] = { this.getLocation().getAbsolutePath(), fMaxDbSize };
 				throw new CoreException(new Status(IStatus.ERROR, CCorePlugin.PLUGIN_ID,
 						CCorePlugin.STATUS_PDOM_TOO_LARGE, NLS.bind(
 								CCorePlugin.getResourceString("pdom.DatabaseTooLarge"), bindings), null)); //$NON-NLS-1$
@@ -420,6 +652,12 @@ public class Database {
 				newchunks[i]= null;
 			}
 			final Chunk chunk= new Chunk(this, oldLen + numChunks - 1);
+			if (fMemoryMapped) {
+				markFileIncomplete();
+				chunk.map(mapChunk(oldLen + numChunks - 1));
+			} else {
+				chunk.allocate();
+			}
 			chunk.fDirty= true;
 			newchunks[ oldLen + numChunks - 1 ] = chunk;
 			fChunks= newchunks;
@@ -432,12 +670,16 @@ public class Database {
 
 	private long getFirstBlock(int blocksize) throws CoreException {
 		assert fLocked;
-		return fHeaderChunk.getFreeRecPtr((blocksize / BLOCK_SIZE_DELTA - MIN_BLOCK_DELTAS + 1) * INT_SIZE);
+		return fHeaderChunk.getFreeRecPtr(getFirstBlockOffset(blocksize));
+	}
+
+	private int getFirstBlockOffset(int blocksize) {
+		return (blocksize / fBlockSizeDelta - fMinBlockDeltas + 1) * INT_SIZE;
 	}
 
 	private void setFirstBlock(int blocksize, long block) throws CoreException {
 		assert fExclusiveLock;
-		fHeaderChunk.putFreeRecPtr((blocksize / BLOCK_SIZE_DELTA - MIN_BLOCK_DELTAS + 1) * INT_SIZE, block);
+		fHeaderChunk.putFreeRecPtr(getFirstBlockOffset(blocksize), block);
 	}
 
 	private void removeBlock(Chunk chunk, int blocksize, long block) throws CoreException {
@@ -641,7 +883,7 @@ public class Database {
 		System.out.println("free'd: " + freed); //$NON-NLS-1$
 		System.out.println("wasted: " + (fChunksUsed * CHUNK_SIZE - (malloced - freed))); //$NON-NLS-1$
 		System.out.println("Free blocks"); //$NON-NLS-1$
-		for (int bs = MIN_BLOCK_DELTAS*BLOCK_SIZE_DELTA; bs <= CHUNK_SIZE; bs += BLOCK_SIZE_DELTA) {
+		for (int bs = fMinBlockDeltas * fBlockSizeDelta; bs <= CHUNK_SIZE; bs += fBlockSizeDelta) {
 			int count = 0;
 			long block = getFirstBlock(bs);
 			while (block != 0) {
@@ -667,8 +909,22 @@ public class Database {
 		// Chunks have been removed from the cache, so we are fine.
 		fHeaderChunk.clear(0, CHUNK_SIZE);
 		fHeaderChunk.fDirty= false;
+		final long usedSize= (long) fChunksUsed * CHUNK_SIZE;
 		fChunks= new Chunk[] { null };
 		fChunksUsed = fChunksAllocated = fChunks.length;
+		if (fMemoryMapped) {
+			unmapRegions();
+			if (!fReadOnly) {
+				try {
+					// Remove the unused tail of the last mapped region.
+					if (fFile.length() > usedSize) {
+						fFile.getChannel().truncate(usedSize);
+					}
+				} catch (IOException e) {
+					// Not possible on platforms that don't allow truncating files with live mappings.
+				}
+			}
+		}
 		try {
 			fFile.close();
 		} catch (IOException e) {
@@ -815,6 +1071,10 @@ public class Database {
 
 			if (isComplete) {
 				if (fHeaderChunk.fDirty || fIsMarkedIncomplete) {
+					if (fMemoryMapped) {
+						// The chunks must be on disk before the file is marked complete.
+						forceMappedRegions();
+					}
 					fHeaderChunk.putInt(VERSION_OFFSET, fVersion);
 					fHeaderChunk.flush();
 					fIsMarkedIncomplete= false;
@@ -828,7 +1088,7 @@ public class Database {
 			fIsMarkedIncomplete= true;
 			try {
 				final ByteBuffer buf= ByteBuffer.wrap(new byte[4]);
-				fFile.getChannel().write(buf, 0);
+				write(buf, 0);
 			} catch (IOException e) {
 				throw new CoreException(new DBStatus(e));
 			}
@@ -859,8 +1119,8 @@ public class Database {
 	 * A Record Pointer is a pointer as returned by Database.malloc().
 	 * This is a pointer to a block + BLOCK_HEADER_SIZE.
 	 */
-	public static void putRecPtr(final long value, byte[] buffer, int idx) {
-		final int denseValue = value == 0 ? 0 : Chunk.compressFreeRecPtr(value - BLOCK_HEADER_SIZE);
+	public void putRecPtr(final long value, byte[] buffer, int idx) {
+		final int denseValue = value == 0 ? 0 : compressFreeRecPtr(value - BLOCK_HEADER_SIZE);
 		Chunk.putInt(denseValue, buffer, idx);
 	}
 
@@ -868,9 +1128,36 @@ public class Database {
 	 * A Record Pointer is a pointer as returned by Database.malloc().
 	 * This is a pointer to a block + BLOCK_HEADER_SIZE.
 	 */
-	public static long getRecPtr(byte[] buffer, final int idx) {
+	public long getRecPtr(byte[] buffer, final int idx) {
 		int value = Chunk.getInt(buffer, idx);
-		long address = Chunk.expandToFreeRecPtr(value);
+		long address = expandToFreeRecPtr(value);
 		return address != 0 ? (address + BLOCK_HEADER_SIZE) : address;
 	}
+
+	/**
+	 * A free Record Pointer is a pointer to a raw block, i.e. the
+	 * pointer is not moved past the BLOCK_HEADER_SIZE.
+	 */
+	int compressFreeRecPtr(final long value) {
+		// This assert verifies the alignment. We expect the low bits to be clear.
+		assert (value & (fBlockSizeDelta - 1)) == 0;
+		final int dense = (int) (value >> fBlockSizeDeltaBits);
+		return dense;
+	}
+
+	/**
+	 * A free Record Pointer is a pointer to a raw block,
+	 * i.e. the pointer is not moved past the BLOCK_HEADER_SIZE.
+	 */
+	long expandToFreeRecPtr(int value) {
+		/*
+		 * We need to properly manage the integer that was read. The value will be sign-extended
+		 * so if the most significant bit is set, the resulting long will look negative. By
+		 * masking it with ((long)1 << 32) - 1 we remove all the sign-extended bits and just
+		 * have an unsigned 32-bit value as a long. This gives us one more useful bit in the
+		 * stored record pointers.
+		 */
+		long address = value & 0xFFFFFFFFL;
+		return address << fBlockSizeDeltaBits;
+	}
 }
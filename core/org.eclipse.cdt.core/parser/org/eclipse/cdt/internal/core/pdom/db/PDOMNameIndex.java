@@ -0,0 +1,371 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.db;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * A persistent set of names with a trigram index, used to find the names matching a regular
+ * expression without visiting every binding of a linkage.
+ * <p>
+ * The set consists of two b-trees. The first one stores each distinct name once. The second one
+ * maps the case-insensitive trigrams occurring in the names to lists of the names containing them.
+ * A query extracts the literal character sequences the pattern requires, intersects the name lists
+ * of their trigrams and verifies the remaining candidates with the pattern. Patterns without
+ * a usable literal are matched against all distinct names.
+ * <p>
+ * Names are only ever added, like the bindings they are taken from.
+ */
+public class PDOMNameIndex {
+	// Record of a trigram.
+	private static final int TRIGRAM = 0;                                 // long
+	private static final int TRIGRAM_COUNT = TRIGRAM + 8;                 // int
+	private static final int TRIGRAM_NAMES = TRIGRAM_COUNT + 4;           // ptr to first block
+	private static final int TRIGRAM_RECORD_SIZE = TRIGRAM_NAMES + Database.PTR_SIZE;
+
+	// Block of a list of names, new blocks are prepended to the list.
+	private static final int BLOCK_NEXT = 0;                              // ptr
+	private static final int BLOCK_SIZE = BLOCK_NEXT + Database.PTR_SIZE; // int
+	private static final int BLOCK_CAPACITY = BLOCK_SIZE + 4;             // int
+	private static final int BLOCK_NAMES = BLOCK_CAPACITY + 4;            // ptr[capacity]
+	private static final int MIN_BLOCK_CAPACITY = 4;
+	private static final int MAX_BLOCK_CAPACITY = 256;
+
+	/** Size of the record area required by the index. */
+	public static final int RECORD_SIZE = 2 * Database.PTR_SIZE;
+
+	private final Database fDatabase;
+	private final BTree fNames;
+	private final BTree fTrigrams;
+
+	/**
+	 * @param db the database
+	 * @param record the offset of the {@link #RECORD_SIZE} bytes holding the roots of the index
+	 */
+	public PDOMNameIndex(Database db, long record) {
+		fDatabase = db;
+		fNames = new BTree(db, record, new IBTreeComparator() {
+			@Override
+			public int compare(long record1, long record2) throws CoreException {
+				return fDatabase.getString(record1).compare(fDatabase.getString(record2), true);
+			}
+		});
+		fTrigrams = new BTree(db, record + Database.PTR_SIZE, new IBTreeComparator() {
+			@Override
+			public int compare(long record1, long record2) throws CoreException {
+				return Long.compare(fDatabase.getLong(record1 + TRIGRAM), fDatabase.getLong(record2 + TRIGRAM));
+			}
+		});
+	}
+
+	/**
+	 * Adds a name to the set, unless it is already contained.
+	 */
+	public void add(char[] name) throws CoreException {
+		if (name.length == 0 || findName(name) != 0)
+			return;
+
+		long nameRecord = fDatabase.newString(name).getRecord();
+		fNames.insert(nameRecord);
+		for (long trigram : getTrigrams(name)) {
+			addToTrigram(trigram, nameRecord);
+		}
+	}
+
+	/**
+	 * Returns the names in the set that match the given pattern.
+	 */
+	public List<char[]> findNames(Pattern pattern, final ICancellable cancellable) throws CoreException {
+		final List<char[]> result = new ArrayList<>();
+		Set<Long> candidates = findCandidates(pattern);
+		if (candidates != null) {
+			for (long nameRecord : candidates) {
+				checkCancelled(cancellable);
+				char[] name = fDatabase.getString(nameRecord).getChars();
+				if (pattern.matcher(CharBuffer.wrap(name)).matches())
+					result.add(name);
+			}
+		} else {
+			final Pattern p = pattern;
+			fNames.accept(new IBTreeVisitor() {
+				@Override
+				public int compare(long record) throws CoreException {
+					return 0;
+				}
+
+				@Override
+				public boolean visit(long record) throws CoreException {
+					checkCancelled(cancellable);
+					char[] name = fDatabase.getString(record).getChars();
+					if (p.matcher(CharBuffer.wrap(name)).matches())
+						result.add(name);
+					return true;
+				}
+			});
+		}
+		return result;
+	}
+
+	/**
+	 * Allows to abort a query.
+	 */
+	public interface ICancellable {
+		boolean isCanceled();
+	}
+
+	private static void checkCancelled(ICancellable cancellable) {
+		if (cancellable != null && cancellable.isCanceled())
+			throw new OperationCanceledException();
+	}
+
+	private long findName(final char[] name) throws CoreException {
+		final long[] result = new long[1];
+		fNames.accept(new IBTreeVisitor() {
+			@Override
+			public int compare(long record) throws CoreException {
+				return fDatabase.getString(record).compare(name, true);
+			}
+
+			@Override
+			public boolean visit(long record) throws CoreException {
+				result[0] = record;
+				return false;
+			}
+		});
+		return result[0];
+	}
+
+	private long findTrigram(final long trigram) throws CoreException {
+		final long[] result = new long[1];
+		fTrigrams.accept(new IBTreeVisitor() {
+			@Override
+			public int compare(long record) throws CoreException {
+				return Long.compare(fDatabase.getLong(record + TRIGRAM), trigram);
+			}
+
+			@Override
+			public boolean visit(long record) throws CoreException {
+				result[0] = record;
+				return false;
+			}
+		});
+		return result[0];
+	}
+
+	private void addToTrigram(long trigram, long nameRecord) throws CoreException {
+		long record = findTrigram(trigram);
+		if (record == 0) {
+			record = fDatabase.malloc(TRIGRAM_RECORD_SIZE);
+			fDatabase.putLong(record + TRIGRAM, trigram);
+			fTrigrams.insert(record);
+		}
+		long block = fDatabase.getRecPtr(record + TRIGRAM_NAMES);
+		int size = 0;
+		int capacity = 0;
+		if (block != 0) {
+			size = fDatabase.getInt(block + BLOCK_SIZE);
+			capacity = fDatabase.getInt(block + BLOCK_CAPACITY);
+		}
+		if (size == capacity) {
+			int newCapacity = Math.min(MAX_BLOCK_CAPACITY, Math.max(MIN_BLOCK_CAPACITY, 2 * capacity));
+			long newBlock = fDatabase.malloc(BLOCK_NAMES + newCapacity * Database.PTR_SIZE);
+			fDatabase.putRecPtr(newBlock + BLOCK_NEXT, block);
+			fDatabase.putInt(newBlock + BLOCK_CAPACITY, newCapacity);
+			fDatabase.putRecPtr(record + TRIGRAM_NAMES, newBlock);
+			block = newBlock;
+			size = 0;
+		}
+		fDatabase.putRecPtr(block + BLOCK_NAMES + size * Database.PTR_SIZE, nameRecord);
+		fDatabase.putInt(block + BLOCK_SIZE, size + 1);
+		fDatabase.putInt(record + TRIGRAM_COUNT, fDatabase.getInt(record + TRIGRAM_COUNT) + 1);
+	}
+
+	/**
+	 * Returns the records of the names that contain all trigrams required by the pattern, or
+	 * {@code null} if the pattern does not require any trigram.
+	 */
+	private Set<Long> findCandidates(Pattern pattern) throws CoreException {
+		List<String> literals = getRequiredLiterals(pattern.pattern());
+		if (literals == null)
+			return null;
+		Set<Long> trigrams = new HashSet<>();
+		for (String literal : literals) {
+			trigrams.addAll(getTrigrams(literal.toCharArray()));
+		}
+		if (trigrams.isEmpty())
+			return null;
+
+		// Start with the least frequent trigram.
+		List<long[]> records = new ArrayList<>(trigrams.size());
+		for (long trigram : trigrams) {
+			long record = findTrigram(trigram);
+			if (record == 0)
+				return new HashSet<>();
+			records.add(new long[] { fDatabase.getInt(record + TRIGRAM_COUNT), record });
+		}
+		records.sort((r1, r2) -> Long.compare(r1[0], r2[0]));
+		Set<Long> result = null;
+		for (long[] entry : records) {
+			// Once the candidates are few, checking them with the pattern is cheaper than
+			// reading long lists of names.
+			if (result != null && entry[0] > 8 * result.size())
+				break;
+			long record = entry[1];
+			Set<Long> names = new HashSet<>();
+			for (long block = fDatabase.getRecPtr(record + TRIGRAM_NAMES); block != 0;
+					block = fDatabase.getRecPtr(block + BLOCK_NEXT)) {
+				int size = fDatabase.getInt(block + BLOCK_SIZE);
+				for (int i = 0; i < size; i++) {
+					Long name = fDatabase.getRecPtr(block + BLOCK_NAMES + i * Database.PTR_SIZE);
+					if (result == null || result.contains(name))
+						names.add(name);
+				}
+			}
+			result = names;
+			if (result.isEmpty())
+				break;
+		}
+		return result;
+	}
+
+	static Set<Long> getTrigrams(char[] chars) {
+		Set<Long> result = new HashSet<>();
+		for (int i = 0; i + 3 <= chars.length; i++) {
+			long trigram = Character.toLowerCase(chars[i]);
+			trigram = (trigram << 16) | Character.toLowerCase(chars[i + 1]);
+			trigram = (trigram << 16) | Character.toLowerCase(chars[i + 2]);
+			result.add(trigram);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns sequences of identifier characters that occur in every string matching the given
+	 * regular expression, or {@code null} if the expression is too complex to be analyzed.
+	 */
+	static List<String> getRequiredLiterals(String regex) {
+		List<String> result = new ArrayList<>();
+		StringBuilder literal = new StringBuilder();
+		for (int i = 0; i < regex.length(); i++) {
+			char c = regex.charAt(i);
+			if (Character.isLetterOrDigit(c) || c == '_') {
+				literal.append(c);
+				continue;
+			}
+			switch (c) {
+			case '|':
+			case '(':
+			case ')':
+				// Alternatives and groups may make literals optional.
+				return null;
+			case '*':
+			case '?':
+				// The preceding character is optional.
+				if (literal.length() > 0)
+					literal.setLength(literal.length() - 1);
+				break;
+			case '{':
+				// The preceding character may be repeated zero times.
+				if (literal.length() > 0)
+					literal.setLength(literal.length() - 1);
+				while (i < regex.length() && regex.charAt(i) != '}') {
+					i++;
+				}
+				break;
+			case '\\':
+				// Escaped characters are not taken into account, quoting is not supported.
+				i = skipEscape(regex, i + 1);
+				if (i < 0)
+					return null;
+				break;
+			case '[':
+				// Skip the character class, including an optional quantifier.
+				for (i++; i < regex.length() && regex.charAt(i) != ']'; i++) {
+					if (regex.charAt(i) == '\\')
+						i++;
+				}
+				break;
+			default:
+				break;
+			}
+			addLiteral(result, literal);
+		}
+		addLiteral(result, literal);
+		return result;
+	}
+
+	/**
+	 * Returns the index of the last character of the escape sequence that starts at the given
+	 * index, just after the backslash, or -1 if the escape sequence is not supported.
+	 */
+	private static int skipEscape(String regex, int i) {
+		if (i >= regex.length())
+			return -1;
+		char c = regex.charAt(i);
+		switch (c) {
+		case 'Q':
+			return -1;
+		case 'x':
+			if (i + 1 < regex.length() && regex.charAt(i + 1) == '{')
+				return regex.indexOf('}', i);
+			return skipDigits(regex, i, 2, 16);
+		case 'u':
+			return skipDigits(regex, i, 4, 16);
+		case '0':
+			return skipDigits(regex, i, 3, 8);
+		case 'c':
+			return i + 1 < regex.length() ? i + 1 : -1;
+		case 'k':
+			if (i + 1 < regex.length() && regex.charAt(i + 1) == '<')
+				return regex.indexOf('>', i);
+			return -1;
+		case 'p':
+		case 'P':
+		case 'N':
+			if (i + 1 < regex.length() && regex.charAt(i + 1) == '{')
+				return regex.indexOf('}', i);
+			return i + 1 < regex.length() ? i + 1 : -1;
+		default:
+			if (c >= '1' && c <= '9') {
+				// A back reference, all following digits may belong to the group number.
+				return skipDigits(regex, i, Integer.MAX_VALUE, 10);
+			}
+			return i;
+		}
+	}
+
+	/**
+	 * Returns the index of the last of at most {@code max} digits in the given radix that follow
+	 * the given index, or the index itself if no digits follow.
+	 */
+	private static int skipDigits(String regex, int i, int max, int radix) {
+		int end = i;
+		while (end - i < max && end + 1 < regex.length() && Character.digit(regex.charAt(end + 1), radix) >= 0) {
+			end++;
+		}
+		return end;
+	}
+
+	private static void addLiteral(List<String> result, StringBuilder literal) {
+		if (literal.length() > 0) {
+			result.add(literal.toString());
+			literal.setLength(0);
+		}
+	}
+}
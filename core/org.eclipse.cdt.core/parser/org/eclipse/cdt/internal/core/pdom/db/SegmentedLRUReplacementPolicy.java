@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.db;
+
+/**
+ * Segmented LRU: chunks enter a probationary segment and are promoted to a protected segment
+ * when they are accessed again. Chunks are evicted from the probationary segment first, such
+ * that a scan over many chunks does not flush the frequently used ones.
+ */
+class SegmentedLRUReplacementPolicy extends ChunkReplacementPolicy {
+	static final byte PROBATION= 0;
+	static final byte PROTECTED= 1;
+
+	private static final int PROTECTED_PERCENTAGE= 80;
+
+	final ChunkList fProbation= new ChunkList();
+	final ChunkList fProtected= new ChunkList();
+	private int fMaxProtected;
+
+	SegmentedLRUReplacementPolicy(int capacity) {
+		fMaxProtected= computeMaxProtected(capacity);
+	}
+
+	private static int computeMaxProtected(int capacity) {
+		return Math.max(1, (int) ((long) capacity * PROTECTED_PERCENTAGE / 100));
+	}
+
+	@Override
+	void capacityChanged(int capacity) {
+		fMaxProtected= computeMaxProtected(capacity);
+	}
+
+	@Override
+	void inserted(Chunk chunk) {
+		chunk.fCacheSegment= PROBATION;
+		fProbation.addFirst(chunk);
+	}
+
+	@Override
+	void accessed(Chunk chunk) {
+		if (chunk.fCacheSegment == PROTECTED) {
+			fProtected.moveToFront(chunk);
+		} else {
+			fProbation.remove(chunk);
+			promote(chunk);
+		}
+	}
+
+	/**
+	 * Adds the chunk to the protected segment, the least recently used protected chunk is moved
+	 * back to the probationary segment if necessary.
+	 */
+	void promote(Chunk chunk) {
+		chunk.fCacheSegment= PROTECTED;
+		fProtected.addFirst(chunk);
+		if (fProtected.size() > fMaxProtected) {
+			Chunk demoted= fProtected.last();
+			fProtected.remove(demoted);
+			demoted.fCacheSegment= PROBATION;
+			fProbation.addFirst(demoted);
+		}
+	}
+
+	@Override
+	void removed(Chunk chunk) {
+		if (chunk.fCacheSegment == PROTECTED) {
+			fProtected.remove(chunk);
+		} else {
+			fProbation.remove(chunk);
+		}
+	}
+
+	@Override
+	Chunk selectVictim(Chunk[] pageTable, int size) {
+		Chunk victim= fProbation.last();
+		return victim != null ? victim : fProtected.last();
+	}
+}
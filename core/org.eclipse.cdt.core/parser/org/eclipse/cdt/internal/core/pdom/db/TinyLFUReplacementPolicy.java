@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.db;
+
+/**
+ * Window TinyLFU: new chunks enter a small LRU window, chunks leaving the window are admitted to
+ * the segmented LRU main area only if they have been accessed more frequently than the chunk they
+ * would replace. The access frequencies are estimated with a count-min sketch that is aged
+ * periodically, so the history of chunks that have already been evicted is taken into account.
+ */
+final class TinyLFUReplacementPolicy extends SegmentedLRUReplacementPolicy {
+	static final byte WINDOW= 2;
+
+	private static final int WINDOW_PERCENTAGE= 1;
+
+	private final ChunkList fWindow= new ChunkList();
+	private int fMaxWindow;
+	private final FrequencySketch fSketch= new FrequencySketch();
+
+	TinyLFUReplacementPolicy(int capacity) {
+		super(capacity);
+		capacityChanged(capacity);
+	}
+
+	@Override
+	void capacityChanged(int capacity) {
+		super.capacityChanged(capacity);
+		fMaxWindow= Math.max(1, (int) ((long) capacity * WINDOW_PERCENTAGE / 100));
+		fSketch.ensureCapacity(capacity);
+	}
+
+	@Override
+	void inserted(Chunk chunk) {
+		fSketch.increment(hash(chunk));
+		chunk.fCacheSegment= WINDOW;
+		fWindow.addFirst(chunk);
+		if (fWindow.size() > fMaxWindow) {
+			// The cache is not full yet, the main area has room for the chunk leaving the window.
+			final Chunk overflow= fWindow.last();
+			fWindow.remove(overflow);
+			super.inserted(overflow);
+		}
+	}
+
+	@Override
+	void accessed(Chunk chunk) {
+		fSketch.increment(hash(chunk));
+		if (chunk.fCacheSegment == WINDOW) {
+			fWindow.moveToFront(chunk);
+		} else {
+			super.accessed(chunk);
+		}
+	}
+
+	@Override
+	void removed(Chunk chunk) {
+		if (chunk.fCacheSegment == WINDOW) {
+			fWindow.remove(chunk);
+		} else {
+			super.removed(chunk);
+		}
+	}
+
+	@Override
+	Chunk selectVictim(Chunk[] pageTable, int size) {
+		final Chunk victim= super.selectVictim(pageTable, size);
+		if (victim == null)
+			return fWindow.last();
+		if (fWindow.size() < fMaxWindow)
+			return victim;
+
+		// The window is full, its least recently used chunk competes with the victim of the main area.
+		final Chunk candidate= fWindow.last();
+		if (fSketch.frequency(hash(candidate)) > fSketch.frequency(hash(victim))) {
+			fWindow.remove(candidate);
+			super.inserted(candidate);
+			return victim;
+		}
+		return candidate;
+	}
+
+	private static int hash(Chunk chunk) {
+		int h= System.identityHashCode(chunk.fDatabase) * 31 + chunk.fSequenceNumber;
+		h*= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Count-min sketch with four 4-bit counters per key. All counters are halved after a number
+	 * of increments proportional to the size of the sketch.
+	 */
+	static final class FrequencySketch {
+		private static final long RESET_MASK= 0x7777777777777777L;
+		private static final int[] SEEDS= { 0x97CB3127, 0xB492B66F, 0x9AE16A3B, 0xC3A5C85C };
+
+		private long[] fTable= new long[16];
+		private int fSampleSize= 10 * 16 * 16;
+		private int fIncrements;
+
+		void ensureCapacity(int capacity) {
+			int length= Integer.highestOneBit(Math.max(16, capacity / 4) - 1) << 1;
+			if (length > fTable.length) {
+				fTable= new long[length];
+				fSampleSize= 10 * 16 * length;
+				fIncrements= 0;
+			}
+		}
+
+		int frequency(int hash) {
+			int frequency= Integer.MAX_VALUE;
+			for (int i= 0; i < SEEDS.length; i++) {
+				final int index= index(hash, i);
+				final int shift= counterShift(hash, i);
+				frequency= Math.min(frequency, (int) ((fTable[index] >>> shift) & 0xf));
+			}
+			return frequency;
+		}
+
+		void increment(int hash) {
+			boolean added= false;
+			for (int i= 0; i < SEEDS.length; i++) {
+				final int index= index(hash, i);
+				final int shift= counterShift(hash, i);
+				if (((fTable[index] >>> shift) & 0xf) != 0xf) {
+					fTable[index]+= 1L << shift;
+					added= true;
+				}
+			}
+			if (added && ++fIncrements >= fSampleSize) {
+				reset();
+			}
+		}
+
+		private void reset() {
+			for (int i= 0; i < fTable.length; i++) {
+				fTable[i]= (fTable[i] >>> 1) & RESET_MASK;
+			}
+			fIncrements/= 2;
+		}
+
+		private int index(int hash, int i) {
+			int h= (hash + SEEDS[i]) * SEEDS[i];
+			h^= h >>> 17;
+			return h & (fTable.length - 1);
+		}
+
+		private static int counterShift(int hash, int i) {
+			// Each of the four hash functions uses a different quarter of the 16 counters in a long.
+			return ((i << 2) + ((hash >>> (i << 3)) & 3)) << 2;
+		}
+	}
+}
@@ -371,7 +371,7 @@ public final class TypeMarshalBuffer implements ITypeMarshalBuffer {
 
 	private void putRecordPointer(long record) {
 		request(Database.PTR_SIZE);
-		Database.putRecPtr(record, fBuffer, fPos);
+		fLinkage.getDB().putRecPtr(record, fBuffer, fPos);
 		fPos += Database.PTR_SIZE;
 	}
 
@@ -382,7 +382,7 @@ public final class TypeMarshalBuffer implements ITypeMarshalBuffer {
 			fPos= fBuffer.length;
 			throw unmarshallingError();
 		}
-		return Database.getRecPtr(fBuffer, pos);
+		return fLinkage.getDB().getRecPtr(fBuffer, pos);
 	}
 
 	@Override
@@ -194,6 +194,7 @@ class PDOMCPPLinkage extends PDOMLinkage implements IIndexCPPBindingConstants {
 
 	// Only used when writing to database, which is single-threaded
 	private final LinkedList<Runnable> postProcesses = new LinkedList<Runnable>();
+	private final PDOMPersistedInstances fPersistedInstances = new PDOMPersistedInstances();
 	
 	public PDOMCPPLinkage(PDOM pdom, long record) {
 		super(pdom, record);
@@ -203,6 +204,14 @@ class PDOMCPPLinkage extends PDOMLinkage implements IIndexCPPBindingConstants {
 		super(pdom, CPP_LINKAGE_NAME, CPP_LINKAGE_NAME.toCharArray());
 	}
 
+	/**
+	 * Returns the cache of the template instances stored in this linkage, shared by all
+	 * translation units.
+	 */
+	PDOMPersistedInstances getPersistedInstances() {
+		return fPersistedInstances;
+	}
+
 	@Override
 	public String getLinkageName() {
 		return CPP_LINKAGE_NAME;
@@ -969,6 +978,9 @@ class PDOMCPPLinkage extends PDOMLinkage implements IIndexCPPBindingConstants {
 			} else if (special instanceof ICPPAliasTemplateInstance && orig instanceof ICPPAliasTemplate) {
 				result = new PDOMCPPAliasTemplateInstance(this, parent, orig, (ICPPAliasTemplateInstance) special);
 			}
+			if (result != null) {
+				fPersistedInstances.invalidate(orig.getRecord());
+			}
 		} else if (special instanceof ICPPField) {
 			result= new PDOMCPPFieldSpecialization(this, parent, (ICPPField) special, orig);
 		} else if (special instanceof ICPPFunctionTemplate) {
@@ -11,6 +11,7 @@
 package org.eclipse.cdt.internal.core.pdom.dom.cpp;
 
 import java.util.HashMap;
+import java.util.Map;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.dom.ast.DOMException;
@@ -21,6 +22,7 @@ import org.eclipse.cdt.internal.core.index.IndexCPPSignatureUtil;
 import org.eclipse.cdt.internal.core.pdom.PDOM;
 import org.eclipse.cdt.internal.core.pdom.dom.NamedNodeCollector;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMBinding;
+import org.eclipse.cdt.internal.core.pdom.dom.PDOMLinkage;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMNamedNode;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMNode;
 import org.eclipse.core.runtime.CoreException;
@@ -76,6 +78,22 @@ public class PDOMInstanceCache {
 	}
 	
 	private void populate(PDOMBinding binding) throws CoreException {
+		PDOMPersistedInstances persisted= null;
+		if (binding.getLinkage() instanceof PDOMCPPLinkage) {
+			persisted= ((PDOMCPPLinkage) binding.getLinkage()).getPersistedInstances();
+			PDOMPersistedInstances.Entry entry= persisted.get(binding.getRecord());
+			if (entry != null) {
+				PDOMLinkage linkage= binding.getLinkage();
+				for (int i = 0; i < entry.fRecords.length; i++) {
+					PDOMBinding inst= linkage.getBinding(entry.fRecords[i]);
+					if (inst instanceof ICPPTemplateInstance) {
+						fMap.put(entry.fKeys[i], (ICPPTemplateInstance) inst);
+					}
+				}
+				return;
+			}
+		}
+
 		PDOMNode parent= binding.getParentNode();
 		if (parent == null) {
 			parent= binding.getLinkage();
@@ -92,6 +110,32 @@ public class PDOMInstanceCache {
 				}
 			}
 		}
+
+		if (persisted != null) {
+			String[] keys= new String[fMap.size()];
+			long[] records= new long[fMap.size()];
+			int i= 0;
+			for (Map.Entry<String, ICPPTemplateInstance> e : fMap.entrySet()) {
+				keys[i]= e.getKey();
+				records[i++]= ((PDOMNode) e.getValue()).getRecord();
+			}
+			persisted.put(binding.getRecord(), new PDOMPersistedInstances.Entry(keys, records));
+		}
+	}
+
+	/**
+	 * Returns the number of times the instances of a template stored in an index could be
+	 * obtained without searching the index.
+	 */
+	public static long getPersistedInstanceHits() {
+		return PDOMPersistedInstances.getHits();
+	}
+
+	/**
+	 * Returns the number of times an index had to be searched for the instances of a template.
+	 */
+	public static long getPersistedInstanceMisses() {
+		return PDOMPersistedInstances.getMisses();
 	}
 
 	synchronized public ICPPTemplateInstance[] getAllInstances() {
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.dom.cpp;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the template instances stored in the index for each template, such that the
+ * {@link PDOMInstanceCache} of a template does not have to search the index again for every
+ * translation unit. Only database records are kept, the instances themselves are loaded from
+ * the index on demand. Bindings are never removed from the index other than by clearing the
+ * entire database, which discards the linkage and this cache with it. When a new instance is
+ * stored in the index, the entry of its template is invalidated.
+ */
+final class PDOMPersistedInstances {
+	/** Maximum number of templates for which the instances are remembered. */
+	private static final int MAX_TEMPLATES = 50000;
+
+	private static final AtomicLong fHits = new AtomicLong();
+	private static final AtomicLong fMisses = new AtomicLong();
+
+	static final class Entry {
+		final String[] fKeys;
+		final long[] fRecords;
+
+		Entry(String[] keys, long[] records) {
+			fKeys= keys;
+			fRecords= records;
+		}
+	}
+
+	private final HashMap<Long, Entry> fEntries= new HashMap<>();
+
+	/**
+	 * Returns the instances recorded for the template with the given record, or {@code null}
+	 * if the index has to be searched for them.
+	 */
+	synchronized Entry get(long templateRecord) {
+		Entry entry= fEntries.get(templateRecord);
+		if (entry != null) {
+			fHits.incrementAndGet();
+		} else {
+			fMisses.incrementAndGet();
+		}
+		return entry;
+	}
+
+	synchronized void put(long templateRecord, Entry entry) {
+		if (fEntries.size() >= MAX_TEMPLATES)
+			fEntries.clear();
+		fEntries.put(templateRecord, entry);
+	}
+
+	/**
+	 * Called when a new instance of the template with the given record is added to the index.
+	 */
+	synchronized void invalidate(long templateRecord) {
+		fEntries.remove(templateRecord);
+	}
+
+	synchronized int size() {
+		return fEntries.size();
+	}
+
+	/**
+	 * Returns the number of times the instances of a template were obtained without searching
+	 * the index, summed over all indexes.
+	 */
+	static long getHits() {
+		return fHits.get();
+	}
+
+	/**
+	 * Returns the number of times the index had to be searched for the instances of a template,
+	 * summed over all indexes.
+	 */
+	static long getMisses() {
+		return fMisses.get();
+	}
+}
@@ -29,6 +29,7 @@ import org.eclipse.cdt.core.index.IIndexManager;
 import org.eclipse.cdt.core.model.ICProject;
 import org.eclipse.cdt.core.model.ITranslationUnit;
 import org.eclipse.cdt.core.parser.IncludeExportPatterns;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.OverloadResolutionCache;
 import org.eclipse.cdt.internal.core.index.IWritableIndex;
 import org.eclipse.cdt.internal.core.index.IWritableIndexManager;
 import org.eclipse.cdt.internal.core.model.CProject;
@@ -36,6 +37,7 @@ import org.eclipse.cdt.internal.core.pdom.AbstractIndexerTask;
 import org.eclipse.cdt.internal.core.pdom.ITodoTaskUpdater;
 import org.eclipse.cdt.internal.core.pdom.IndexerProgress;
 import org.eclipse.cdt.internal.core.pdom.db.ChunkCache;
+import org.eclipse.cdt.internal.core.pdom.dom.cpp.PDOMInstanceCache;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -116,6 +118,24 @@ public abstract class PDOMIndexerTask extends AbstractIndexerTask implements IPD
 				CCorePlugin.log(e);
 			}
 		}
+
+		int parserThreads= CCorePreferenceConstants.getPreference(
+				CCorePreferenceConstants.SCALABILITY_INDEXER_PARSER_THREADS, project,
+				CCorePreferenceConstants.DEFAULT_SCALABILITY_INDEXER_PARSER_THREADS);
+		if (parserThreads <= 0) {
+			parserThreads= Runtime.getRuntime().availableProcessors();
+		}
+		setParserThreads(parserThreads);
+
+		setUpdateDependents(CCorePreferenceConstants.getPreference(
+				CCorePreferenceConstants.INDEXER_UPDATE_DEPENDENTS_OF_CHANGED_HEADERS, project,
+				CCorePreferenceConstants.DEFAULT_INDEXER_UPDATE_DEPENDENTS_OF_CHANGED_HEADERS));
+		setCacheIncludeGuards(CCorePreferenceConstants.getPreference(
+				CCorePreferenceConstants.INDEXER_CACHE_INCLUDE_GUARDS, project,
+				CCorePreferenceConstants.DEFAULT_INDEXER_CACHE_INCLUDE_GUARDS));
+		setResolveNamesInParserThreads(CCorePreferenceConstants.getPreference(
+				CCorePreferenceConstants.INDEXER_RESOLVE_NAMES_IN_PARSER_THREADS, project,
+				CCorePreferenceConstants.DEFAULT_INDEXER_RESOLVE_NAMES_IN_PARSER_THREADS));
 	}
 
 	private static ITranslationUnit[] concat(ITranslationUnit[] added, ITranslationUnit[] changed) {
@@ -319,6 +339,33 @@ public abstract class PDOMIndexerTask extends AbstractIndexerTask implements IPD
 					+ ChunkCache.getSharedInstance().getMaxSize() / 1024 / 1024 + "MB]: " +    //$NON-NLS-1$
 					+ hits + " hits, "      //$NON-NLS-1$
 					+ misses + "(" + nfPercent.format(missPct) + ") misses.");      //$NON-NLS-1$ //$NON-NLS-2$
+			ChunkCache cache= ChunkCache.getSharedInstance();
+			System.out.println(indent + " Shared cache["    //$NON-NLS-1$
+					+ cache.getEvictionPolicy() + ", " + cache.getChunkCount() + " chunks]: "    //$NON-NLS-1$ //$NON-NLS-2$
+					+ cache.getHits() + " hits, "      //$NON-NLS-1$
+					+ cache.getMisses() + " misses, "      //$NON-NLS-1$
+					+ cache.getEvictions() + " evictions.");      //$NON-NLS-1$
+			long instanceHits= PDOMInstanceCache.getPersistedInstanceHits();
+			long instanceMisses= PDOMInstanceCache.getPersistedInstanceMisses();
+			long instanceTries= instanceHits + instanceMisses;
+			double instanceHitPct= instanceTries == 0 ? 0.0 : (double) instanceHits / (double) instanceTries;
+			System.out.println(indent + " Template instances: "    //$NON-NLS-1$
+					+ instanceHits + "(" + nfPercent.format(instanceHitPct) + ") hits, "      //$NON-NLS-1$ //$NON-NLS-2$
+					+ instanceMisses + " misses.");      //$NON-NLS-1$
+			System.out.println(indent + " Overload resolution: "    //$NON-NLS-1$
+					+ OverloadResolutionCache.getResolutionHits() + " cached, "      //$NON-NLS-1$
+					+ OverloadResolutionCache.getResolutionMisses() + " computed; conversions: "      //$NON-NLS-1$
+					+ OverloadResolutionCache.getConversionHits() + " cached, "      //$NON-NLS-1$
+					+ OverloadResolutionCache.getConversionMisses() + " computed.");      //$NON-NLS-1$
+			IndexerProgress[] parsers= getParserProgressInformation();
+			NumberFormat nfThroughput= NumberFormat.getNumberInstance();
+			nfThroughput.setMaximumFractionDigits(1);
+			for (int i = 0; i < parsers.length; i++) {
+				System.out.println(indent + " Parser #" + (i + 1) + ": "    //$NON-NLS-1$ //$NON-NLS-2$
+						+ parsers[i].fCompletedSources + " sources in "    //$NON-NLS-1$
+						+ parsers[i].fParsingTime + " ms ("    //$NON-NLS-1$
+						+ nfThroughput.format(parsers[i].getParsingThroughput()) + " sources/s).");    //$NON-NLS-1$
+			}
 
 			if (Boolean.parseBoolean(System.getProperty("SHOW_COMPRESSED_INDEXER_INFO"))) {    //$NON-NLS-1$
 				Calendar cal = Calendar.getInstance();
@@ -12,7 +12,8 @@
 package org.eclipse.cdt.internal.core.pdom.indexer;
 
 import java.io.File;
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.index.IIndexFileLocation;
@@ -52,7 +53,7 @@ public class ProjectIndexerInputAdapter extends IndexerInputAdapter {
 	private static final AbstractLanguage[] NO_LANGUAGE = new AbstractLanguage[0];
 
 	private final ICProject fCProject;
-	private final HashMap<String, IIndexFileLocation> fIflCache;
+	private final Map<String, IIndexFileLocation> fIflCache;
 	private final FileExistsCache fExistsCache;
 	private AbstractLanguage fLangC;
 	private AbstractLanguage fLangCpp;
@@ -66,7 +67,8 @@ public class ProjectIndexerInputAdapter extends IndexerInputAdapter {
 		fCProject= cproject;
 		fProjectPrefix= cproject.getProject().getFullPath().toString() + IPath.SEPARATOR;
 		if (useCache) {
-			fIflCache= new HashMap<String, IIndexFileLocation>();
+			// The cache is shared by the parser threads of the indexer.
+			fIflCache= new ConcurrentHashMap<String, IIndexFileLocation>();
 			fExistsCache= new FileExistsCache(isCaseInsensitiveFileSystem());
 		} else {
 			fIflCache= null;
@@ -327,9 +329,10 @@ public class ProjectIndexerInputAdapter extends IndexerInputAdapter {
 			return null;
 
 		final FileContent reader= FileContent.create(tu);
-		if (reader != null) {
+		if (reader != null && fIflCache != null) {
 			IIndexFileLocation ifl= IndexLocationFactory.getIFL(tu);
-			fIflCache.put(reader.getFileLocation(), ifl);
+			if (ifl != null)
+				fIflCache.put(reader.getFileLocation(), ifl);
 		}
 		return reader;
 	}
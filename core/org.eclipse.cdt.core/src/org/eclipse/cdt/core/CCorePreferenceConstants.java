@@ -131,6 +131,51 @@ public class CCorePreferenceConstants {
 	 */
 	public static final String DEFAULT_MAX_INDEX_DB_CACHE_SIZE_MB = "256"; //$NON-NLS-1$
 
+	/**
+	 * Algorithm used for evicting chunks from the index-db cache, one of "clock",
+	 * "segmented_lru" or "tiny_lfu".
+	 * @since 6.5
+	 */
+	public static final String INDEX_DB_CACHE_EVICTION_POLICY = CCorePlugin.PLUGIN_ID + ".indexDBCacheEvictionPolicy"; //$NON-NLS-1$
+
+	/**
+	 * Default algorithm used for evicting chunks from the index-db cache.
+	 * @since 6.5
+	 */
+	public static final String DEFAULT_INDEX_DB_CACHE_EVICTION_POLICY = "clock"; //$NON-NLS-1$
+
+	/**
+	 * Maximum size of an index-db in gigabytes, one of 32, 64, 128 or 256. The limit is applied when
+	 * a database is created or rebuilt.
+	 * <p>
+	 * Larger limits are reached by a coarser allocation granularity: every record is padded to
+	 * a multiple of 16, 32 or 64 bytes instead of 8 bytes. Since most records of an index are
+	 * smaller than 40 bytes, the same index takes about 10% more space with a limit of 64 GB,
+	 * 40% more with 128 GB and about twice the space with 256 GB. Choose a larger limit only for
+	 * an index that does not fit otherwise.
+	 * @since 6.5
+	 */
+	public static final String INDEX_DB_MAX_SIZE_GB = CCorePlugin.PLUGIN_ID + ".indexDBMaxSizeGB"; //$NON-NLS-1$
+
+	/**
+	 * Default maximum size of an index-db in gigabytes.
+	 * @since 6.5
+	 */
+	public static final String DEFAULT_INDEX_DB_MAX_SIZE_GB = "32"; //$NON-NLS-1$
+
+	/**
+	 * Boolean preference controlling whether the index-db is accessed through memory-mapped
+	 * regions of the file rather than by copying its chunks into the heap.
+	 * @since 6.5
+	 */
+	public static final String INDEX_DB_MEMORY_MAPPED = CCorePlugin.PLUGIN_ID + ".indexDBMemoryMapped"; //$NON-NLS-1$
+
+	/**
+	 * Default for accessing the index-db through memory-mapped regions of the file.
+	 * @since 6.5
+	 */
+	public static final String DEFAULT_INDEX_DB_MEMORY_MAPPED = "false"; //$NON-NLS-1$
+
 	/**
 	 * Boolean preference controlling whether paths of non-workspace files are stored in index in canonical
 	 * form or not. Canonicalization is performed by calling {@link java.io.File#getCanonicalPath()}.
@@ -349,6 +394,103 @@ public class CCorePreferenceConstants {
 	// NOTE: This default came from measurements using a 1Gb heap on a 64-bit VM.  The test project was
 	//       boost-1.55.0.  This default will index all but 9 files without running out of memory.
 
+	/**
+	 * A named preference that specifies the number of threads the indexer uses for parsing source
+	 * files. A value of zero uses one thread per available processor. Every additional thread keeps
+	 * the AST of the file it parses in memory.
+	 * <p>
+	 * Value is of type <code>int</code>.
+	 * </p>
+	 *
+	 * @since 6.5
+	 */
+	public static final String SCALABILITY_INDEXER_PARSER_THREADS = "scalability.indexerParserThreads"; //$NON-NLS-1$
+
+	/**
+	 * Default value for {@link #SCALABILITY_INDEXER_PARSER_THREADS}.
+	 *
+	 * @since 6.5
+	 */
+	public static final int DEFAULT_SCALABILITY_INDEXER_PARSER_THREADS = 1;
+
+	/**
+	 * A named preference that limits the total number of AST nodes that the editor AST cache
+	 * retains for translation units other than the one of the active editor. A value of zero
+	 * keeps only the AST of the active editor.
+	 * <p>
+	 * Value is of type <code>int</code>.
+	 * </p>
+	 *
+	 * @since 6.5
+	 */
+	public static final String SCALABILITY_AST_CACHE_NODES = "scalability.astCacheNodes"; //$NON-NLS-1$
+
+	/**
+	 * Default value for {@link #SCALABILITY_AST_CACHE_NODES}.
+	 *
+	 * @since 6.5
+	 */
+	public static final int DEFAULT_SCALABILITY_AST_CACHE_NODES = 1000 * 1000;
+
+	/**
+	 * A named preference that specifies whether the indexer updates the files that include a changed
+	 * header. The files are updated only if the macros, includes or declarations the header exports
+	 * have changed, edits that leave them alone do not cause any files besides the header to be
+	 * parsed.
+	 * <p>
+	 * Value is of type <code>boolean</code>.
+	 * </p>
+	 *
+	 * @since 6.5
+	 */
+	public static final String INDEXER_UPDATE_DEPENDENTS_OF_CHANGED_HEADERS = "indexer.updateDependentsOfChangedHeaders"; //$NON-NLS-1$
+
+	/**
+	 * Default value for {@link #INDEXER_UPDATE_DEPENDENTS_OF_CHANGED_HEADERS}.
+	 *
+	 * @since 6.5
+	 */
+	public static final boolean DEFAULT_INDEXER_UPDATE_DEPENDENTS_OF_CHANGED_HEADERS = false;
+
+	/**
+	 * A named preference that specifies whether the indexer remembers which headers are protected by
+	 * include guards. The information is stored next to the index and saves lexing every header
+	 * that is parsed for a translation unit a second time.
+	 * <p>
+	 * Value is of type <code>boolean</code>.
+	 * </p>
+	 *
+	 * @since 6.5
+	 */
+	public static final String INDEXER_CACHE_INCLUDE_GUARDS = "indexer.cacheIncludeGuards"; //$NON-NLS-1$
+
+	/**
+	 * Default value for {@link #INDEXER_CACHE_INCLUDE_GUARDS}.
+	 *
+	 * @since 6.5
+	 */
+	public static final boolean DEFAULT_INDEXER_CACHE_INCLUDE_GUARDS = true;
+
+	/**
+	 * A named preference that specifies whether the names of a source file are resolved by the
+	 * parser thread that parsed the file, such that the names of several files are resolved in
+	 * parallel. Only effective when {@link #SCALABILITY_INDEXER_PARSER_THREADS} specifies more
+	 * than one thread.
+	 * <p>
+	 * Value is of type <code>boolean</code>.
+	 * </p>
+	 *
+	 * @since 6.5
+	 */
+	public static final String INDEXER_RESOLVE_NAMES_IN_PARSER_THREADS = "indexer.resolveNamesInParserThreads"; //$NON-NLS-1$
+
+	/**
+	 * Default value for {@link #INDEXER_RESOLVE_NAMES_IN_PARSER_THREADS}.
+	 *
+	 * @since 6.5
+	 */
+	public static final boolean DEFAULT_INDEXER_RESOLVE_NAMES_IN_PARSER_THREADS = false;
+
 	/**
 	 * A named preference that specifies whether the const qualifier is written to the right (or left) of
 	 * the type in a declaration specifier.
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +35,7 @@ import org.eclipse.cdt.internal.core.IErrorMarkeredOutputStream;
 import org.eclipse.cdt.internal.core.ProblemMarkerFilterManager;
 import org.eclipse.cdt.internal.core.resources.ResourceLookup;
 import org.eclipse.cdt.internal.errorparsers.ErrorParserExtensionManager;
+import org.eclipse.cdt.internal.errorparsers.ErrorParserPrefilter;
 import org.eclipse.cdt.utils.EFSExtensionManager;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
@@ -76,6 +78,7 @@ public class ErrorParserManager extends OutputStream implements IConsoleParser,
 	public static final String BUILD_CONTEXT = "build"; //$NON-NLS-1$
 
 	private static final Pattern ANSI_ESCAPE_RE = Pattern.compile("\\e\\[[\\d;]*[^\\d;]"); //$NON-NLS-1$
+	private static final char ESCAPE = '\u001b';
 
 	private int nOpens;
 	private int lineCounter=0;
@@ -87,6 +90,7 @@ public class ErrorParserManager extends OutputStream implements IConsoleParser,
 	private final IMarkerGenerator fMarkerGenerator;
 
 	private Map<String, IErrorParser[]> fErrorParsers;
+	private ErrorParserPrefilter fPrefilter;
 	private final List<ProblemMarkerInfo> fErrors;
 
 	private final Vector<URI> fDirectoryStack;
@@ -190,6 +194,12 @@ public class ErrorParserManager extends OutputStream implements IConsoleParser,
 				fErrorParsers.put(parsersID, new IErrorParser[] {errorParser} );
 			}
 		}
+
+		List<IErrorParser> parsers = new ArrayList<IErrorParser>();
+		for (IErrorParser[] p : fErrorParsers.values()) {
+			parsers.addAll(Arrays.asList(p));
+		}
+		fPrefilter = new ErrorParserPrefilter(parsers);
 	}
 
 	/**
@@ -329,14 +339,26 @@ public class ErrorParserManager extends OutputStream implements IConsoleParser,
 		 * If the tool outputs colored text, it will contain ANSI escape
 		 * sequences. Remove them, since they can confuse the error parsers.
 		 */
-		String lineTrimmed = ANSI_ESCAPE_RE.matcher(line).replaceAll("").trim(); //$NON-NLS-1$
+		String lineTrimmed = line;
+		if (line.indexOf(ESCAPE) >= 0) {
+			lineTrimmed = ANSI_ESCAPE_RE.matcher(line).replaceAll(""); //$NON-NLS-1$
+		}
+		lineTrimmed = lineTrimmed.trim();
 		lineCounter++;
 
+		// Find the error parsers that may recognize the line in a single pass
+		fPrefilter.match(lineTrimmed);
+
 		ProblemMarkerInfo marker=null;
 
+		int index = -1;
 outer:
 		for (IErrorParser[] parsers : fErrorParsers.values()) {
 			for (IErrorParser parser : parsers) {
+				index++;
+				if (!fPrefilter.isCandidate(index)) {
+					continue;
+				}
 				IErrorParser curr = parser;
 				if (parser instanceof ErrorParserNamedWrapper) {
 					curr = ((ErrorParserNamedWrapper)parser).getErrorParser();
@@ -673,7 +695,9 @@ outer:
 	@Override
 	public synchronized void write(int b) throws IOException {
 		currentLine.append((char) b);
-		checkLine(false);
+		if (b == '\n') {
+			checkLine(false);
+		}
 	}
 
 	@Override
@@ -694,26 +718,28 @@ outer:
 	// parsers (processLine method).
 	// If flush is true rest of line is checked by error parsers.
 	private void checkLine(boolean flush) {
-		String buffer = currentLine.toString();
-		int i = 0;
-		while ((i = buffer.indexOf('\n')) != -1) {
-			String line = buffer.substring(0, i);
+		int start = 0;
+		int i;
+		while ((i = currentLine.indexOf("\n", start)) != -1) { //$NON-NLS-1$
+			int end = i;
 			// get rid of any trailing '\r'
-			if (line.endsWith("\r")) { //$NON-NLS-1$
-				line=line.substring(0,line.length()-1);
+			if (end > start && currentLine.charAt(end - 1) == '\r') {
+				end--;
 			}
+			String line = currentLine.substring(start, end);
 			processLine(line);
 			previousLine = line;
-			buffer = buffer.substring(i + 1); // skip the \n and advance
+			start = i + 1; // skip the \n and advance
 		}
-		currentLine.setLength(0);
 		if (flush) {
-			if (buffer.length() > 0) {
-				processLine(buffer);
-				previousLine = buffer;
+			if (start < currentLine.length()) {
+				String line = currentLine.substring(start);
+				processLine(line);
+				previousLine = line;
 			}
+			currentLine.setLength(0);
 		} else {
-			currentLine.append(buffer);
+			currentLine.delete(0, start);
 		}
 	}
 
@@ -10,7 +10,6 @@ package org.eclipse.cdt.core.build;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -28,6 +27,13 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -553,6 +559,14 @@ public abstract class CBuildConfiguration extends PlatformObject
 	}
 
 	private File getScannerInfoCacheFile() {
+		return CCorePlugin.getDefault().getStateLocation().append("infoCache") //$NON-NLS-1$
+				.append(getProject().getName()).append(name + ".bin").toFile(); //$NON-NLS-1$
+	}
+
+	/**
+	 * The JSON form of the cache written by earlier versions, only read to migrate it.
+	 */
+	private File getJsonScannerInfoCacheFile() {
 		return CCorePlugin.getDefault().getStateLocation().append("infoCache") //$NON-NLS-1$
 				.append(getProject().getName()).append(name + ".json").toFile(); //$NON-NLS-1$
 	}
@@ -621,21 +635,32 @@ public abstract class CBuildConfiguration extends PlatformObject
 		synchronized (scannerInfoLock) {
 			if (scannerInfoCache == null) {
 				File cacheFile = getScannerInfoCacheFile();
+				File jsonCacheFile = getJsonScannerInfoCacheFile();
 				if (cacheFile.exists()) {
-					try (FileReader reader = new FileReader(cacheFile)) {
-						GsonBuilder gsonBuilder = new GsonBuilder();
-						gsonBuilder.registerTypeAdapter(IExtendedScannerInfo.class,
-								new IExtendedScannerInfoCreator());
-						Gson gson = gsonBuilder.create();
-						scannerInfoCache = gson.fromJson(reader, ScannerInfoCache.class);
+					try {
+						scannerInfoCache = ScannerInfoCache.read(cacheFile);
 					} catch (IOException e) {
 						CCorePlugin.log(e);
 						scannerInfoCache = new ScannerInfoCache();
+						scannerInfoCache.initCache();
 					}
 				} else {
-					scannerInfoCache = new ScannerInfoCache();
+					if (jsonCacheFile.exists()) {
+						try (FileReader reader = new FileReader(jsonCacheFile)) {
+							GsonBuilder gsonBuilder = new GsonBuilder();
+							gsonBuilder.registerTypeAdapter(IExtendedScannerInfo.class,
+									new IExtendedScannerInfoCreator());
+							Gson gson = gsonBuilder.create();
+							scannerInfoCache = gson.fromJson(reader, ScannerInfoCache.class);
+						} catch (IOException e) {
+							CCorePlugin.log(e);
+							scannerInfoCache = new ScannerInfoCache();
+						}
+					} else {
+						scannerInfoCache = new ScannerInfoCache();
+					}
+					scannerInfoCache.initCache();
 				}
-				scannerInfoCache.initCache();
 			}
 		}
 	}
@@ -654,11 +679,11 @@ public abstract class CBuildConfiguration extends PlatformObject
 			}
 		}
 
-		try (FileWriter writer = new FileWriter(getScannerInfoCacheFile())) {
-			Gson gson = new Gson();
+		try {
 			synchronized (scannerInfoLock) {
-				gson.toJson(scannerInfoCache, writer);
+				scannerInfoCache.write(cacheFile);
 			}
+			Files.deleteIfExists(getJsonScannerInfoCacheFile().toPath());
 		} catch (IOException e) {
 			CCorePlugin.log(e);
 		}
@@ -763,6 +788,12 @@ public abstract class CBuildConfiguration extends PlatformObject
 		}
 	}
 
+	private static final Pattern ARG_SINGLE_QUOTED = Pattern.compile("('(.*?)').*"); //$NON-NLS-1$
+	private static final Pattern ARG_OPTION_DOUBLE_QUOTED = Pattern.compile("([\\-](\\w|[\\-])+[=]\\\".*?\\\").*"); //$NON-NLS-1$
+	private static final Pattern ARG_OPTION_SINGLE_QUOTED = Pattern.compile("([\\-](\\w|[\\-])+[=]'.*?').*"); //$NON-NLS-1$
+	private static final Pattern ARG_OPTION = Pattern.compile("([\\-](\\w|[\\-])+[=][^\\s]+).*"); //$NON-NLS-1$
+	private static final Pattern ARG = Pattern.compile("([^\\s]+).*"); //$NON-NLS-1$
+
 	/**
 	 * Parse a string containing compile options into individual argument strings.
 	 * 
@@ -770,56 +801,44 @@ public abstract class CBuildConfiguration extends PlatformObject
 	 * @return List of arg Strings
 	 */
 	private List<String> stripArgs(String argString) {
-		Pattern p0 = Pattern.compile("('(.*?)').*"); //$NON-NLS-1$
-		Pattern p1 = Pattern.compile("([\\-](\\w|[\\-])+[=]\\\".*?\\\").*"); //$NON-NLS-1$
-		Pattern p2 = Pattern.compile("([\\-](\\w|[\\-])+[=]'.*?').*"); //$NON-NLS-1$
-		Pattern p3 = Pattern.compile("([\\-](\\w|[\\-])+[=][^\\s]+).*"); //$NON-NLS-1$
-		Pattern p4 = Pattern.compile("([^\\s]+).*"); //$NON-NLS-1$
-		boolean finished = false;
 		List<String> args = new ArrayList<>();
-		while (!finished) {
-			Matcher m0 = p0.matcher(argString);
-			if (m0.matches()) {
-				argString = argString.replaceFirst("'.*?'", "").trim(); //$NON-NLS-1$ //$NON-NLS-2$
-				String s = m0.group(2).trim(); // strip single quotes
-				args.add(s);
+		while (!argString.isEmpty()) {
+			Matcher m = ARG_SINGLE_QUOTED.matcher(argString);
+			if (m.matches()) {
+				args.add(m.group(2).trim()); // strip single quotes
 			} else {
-				Matcher m1 = p1.matcher(argString);
-				if (m1.matches()) {
-					argString = argString.replaceFirst("[\\-](\\w|[\\-])+[=]\\\".*?\\\"","").trim(); //$NON-NLS-1$ //$NON-NLS-2$
-					String s = m1.group(1).trim();
-					args.add(s);
-				} else {
-					Matcher m2 = p2.matcher(argString);
-					if (m2.matches()) {
-						argString = argString.replaceFirst("[\\-](\\w|[\\-])+[=]'.*?'", "").trim(); //$NON-NLS-1$ //$NON-NLS-2$
-						String s = m2.group(1).trim();
-						args.add(s);
-					} else {
-						Matcher m3 = p3.matcher(argString);
-						if (m3.matches()) {
-							argString = argString.replaceFirst("[\\-](\\w|[\\-])+[=][^\\s]+", "").trim(); //$NON-NLS-1$ //$NON-NLS-2$
-							args.add(m3.group(1).trim());
-						} else {
-							Matcher m4 = p4.matcher(argString);
-							if (m4.matches()) {
-								argString = argString.replaceFirst("[^\\s]+", "").trim(); //$NON-NLS-1$ //$NON-NLS-2$
-								args.add(m4.group(1).trim());
-							} else {
-								finished = true;
+				m = ARG_OPTION_DOUBLE_QUOTED.matcher(argString);
+				if (!m.matches()) {
+					m = ARG_OPTION_SINGLE_QUOTED.matcher(argString);
+					if (!m.matches()) {
+						m = ARG_OPTION.matcher(argString);
+						if (!m.matches()) {
+							m = ARG.matcher(argString);
+							if (!m.matches()) {
+								break;
 							}
 						}
 					}
 				}
+				args.add(m.group(1).trim());
 			}
+			// The matched argument is always a prefix, drop it without searching for it again
+			argString = argString.substring(m.end(1)).trim();
 		}
 		return args;
 	}
 
 	private boolean infoChanged = false;
 
-	@Override
-	public boolean processLine(String line) {
+	/**
+	 * Split a line into args and check that it invokes one of the compile commands of the
+	 * toolchain.
+	 * 
+	 * @param line - line to parse
+	 * @return the args of the compile command, or <code>null</code> if the line is not a compile
+	 *         command
+	 */
+	private List<String> parseCompileCommand(String line) {
 		// Split line into args, taking into account quotes
 		List<String> command = stripArgs(line);
 		
@@ -831,7 +850,7 @@ public abstract class CBuildConfiguration extends PlatformObject
 			// TODO we should really ask the toolchain, not all args start with '-'
 			if (arg.startsWith("-")) { //$NON-NLS-1$
 				// option found, missed our command
-				return false;
+				return null;
 			}
 
 			for (String cc : compileCommands) {
@@ -856,7 +875,13 @@ public abstract class CBuildConfiguration extends PlatformObject
 			}
 		}
 
-		if (!found) {
+		return found ? command : null;
+	}
+
+	@Override
+	public boolean processLine(String line) {
+		List<String> command = parseCompileCommand(line);
+		if (command == null) {
 			return false;
 		}
 
@@ -940,43 +965,8 @@ public abstract class CBuildConfiguration extends PlatformObject
 	 * @since 6.5
 	 */
 	protected boolean processLine(String line, List<Job> jobsArray) {
-		// Split line into args, taking into account quotes
-		List<String> command = stripArgs(line);
-		
-		// Make sure it's a compile command
-		String[] compileCommands = toolChain.getCompileCommands();
-		boolean found = false;
-		loop:
-		for (String arg : command) {
-			// TODO we should really ask the toolchain, not all args start with '-'
-			if (arg.startsWith("-")) { //$NON-NLS-1$
-				// option found, missed our command
-				return false;
-			}
-
-			for (String cc : compileCommands) {
-				if (arg.endsWith(cc)
-						&& (arg.equals(cc) || arg.endsWith("/" + cc) || arg.endsWith("\\" + cc))) { //$NON-NLS-1$ //$NON-NLS-2$
-					found = true;
-					break loop;
-				}
-			}
-
-
-			if (Platform.getOS().equals(Platform.OS_WIN32) && !arg.endsWith(".exe")) { //$NON-NLS-1$
-				// Try with exe
-				arg = arg + ".exe"; //$NON-NLS-1$
-				for (String cc : compileCommands) {
-					if (arg.endsWith(cc)
-							&& (arg.equals(cc) || arg.endsWith("/" + cc) || arg.endsWith("\\" + cc))) { //$NON-NLS-1$ //$NON-NLS-2$
-						found = true;
-						break loop;
-					}
-				}
-			}
-		}
-
-		if (!found) {
+		List<String> command = parseCompileCommand(line);
+		if (command == null) {
 			return false;
 		}
 
@@ -1019,6 +1009,150 @@ public abstract class CBuildConfiguration extends PlatformObject
 		}
 	}
 
+	/**
+	 * The last compile command seen for a resource while processing compile commands.
+	 */
+	private static class ResourceCommand {
+		final long sequence;
+		final List<String> commandStrings;
+
+		ResourceCommand(long sequence, List<String> commandStrings) {
+			this.sequence = sequence;
+			this.commandStrings = commandStrings;
+		}
+	}
+
+	/**
+	 * Process the compile lines of a compilation database, e.g. a <code>compile_commands.json</code>
+	 * file, for Scanner info. The lines are pulled from the iterator as they are needed and parsed
+	 * in parallel. The Scanner info is computed once for each distinct set of flags and the same
+	 * instance is shared by all resources compiled with that set. If a resource is compiled by more
+	 * than one line, the last one wins.
+	 * 
+	 * @param lines - lines to process, in the order of the database
+	 * @param monitor - progress monitor, checked for cancellation
+	 * @throws CoreException if the build directory cannot be determined
+	 * 
+	 * @since 6.5
+	 */
+	protected void processCompileCommands(Iterator<String> lines, IProgressMonitor monitor)
+			throws CoreException {
+		loadScannerInfoCache();
+		URI buildDirectoryURI = getBuildDirectoryURI();
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		// Bounds the number of lines read ahead of the parsers
+		Semaphore pending = new Semaphore(4 * threads);
+		Map<List<String>, List<String>> flagSets = new ConcurrentHashMap<>();
+		Map<List<String>, FutureTask<IExtendedScannerInfo>> infos = new ConcurrentHashMap<>();
+		Map<IResource, ResourceCommand> resourceCommands = new ConcurrentHashMap<>();
+		try {
+			for (long sequence = 0; lines.hasNext() && !monitor.isCanceled(); sequence++) {
+				String line = lines.next();
+				long lineSequence = sequence;
+				pending.acquire();
+				executor.execute(() -> {
+					try {
+						processCompileCommand(line, lineSequence, buildDirectoryURI, flagSets, infos,
+								resourceCommands);
+					} catch (RuntimeException e) {
+						CCorePlugin.log(e);
+					} finally {
+						pending.release();
+					}
+				});
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+		if (monitor.isCanceled() || Thread.currentThread().isInterrupted()) {
+			return;
+		}
+
+		for (Entry<IResource, ResourceCommand> entry : resourceCommands.entrySet()) {
+			IResource resource = entry.getKey();
+			List<String> commandStrings = entry.getValue().commandStrings;
+			synchronized (scannerInfoLock) {
+				if (scannerInfoCache.hasCommand(commandStrings)) {
+					if (!scannerInfoCache.hasResource(commandStrings, resource)) {
+						scannerInfoCache.addResource(commandStrings, resource);
+						infoChanged = true;
+					}
+					continue;
+				}
+			}
+			IExtendedScannerInfo info = null;
+			FutureTask<IExtendedScannerInfo> task = infos.get(commandStrings);
+			if (task != null) {
+				try {
+					info = task.get();
+				} catch (InterruptedException | ExecutionException e) {
+					// Report the failure once, not for every resource with these flags
+					infos.remove(commandStrings);
+					CCorePlugin.log(e);
+				}
+			}
+			if (info != null) {
+				synchronized (scannerInfoLock) {
+					scannerInfoCache.addScannerInfo(commandStrings, info, resource);
+					infoChanged = true;
+				}
+			}
+		}
+	}
+
+	private void processCompileCommand(String line, long sequence, URI buildDirectoryURI,
+			Map<List<String>, List<String>> flagSets, Map<List<String>, FutureTask<IExtendedScannerInfo>> infos,
+			Map<IResource, ResourceCommand> resourceCommands) {
+		List<String> command = parseCompileCommand(line);
+		if (command == null) {
+			return;
+		}
+
+		IResource[] resources = toolChain.getResourcesFromCommand(command, buildDirectoryURI);
+		if (resources == null || resources.length == 0) {
+			return;
+		}
+
+		// Lines with the same flags share a single list
+		List<String> strings = toolChain.stripCommand(command, resources);
+		List<String> commandStrings = flagSets.putIfAbsent(strings, strings);
+		if (commandStrings == null) {
+			commandStrings = strings;
+		}
+
+		ResourceCommand resourceCommand = new ResourceCommand(sequence, commandStrings);
+		for (IResource resource : resources) {
+			resourceCommands.merge(resource, resourceCommand,
+					(current, next) -> current.sequence > next.sequence ? current : next);
+		}
+
+		boolean hasCommand;
+		synchronized (scannerInfoLock) {
+			hasCommand = scannerInfoCache.hasCommand(commandStrings);
+		}
+		if (!hasCommand && !infos.containsKey(commandStrings)) {
+			IResource resource = resources[0];
+			FutureTask<IExtendedScannerInfo> task = new FutureTask<>(() -> {
+				Path commandPath = findCommand(command.get(0));
+				if (commandPath == null) {
+					return null;
+				}
+				command.set(0, commandPath.toString());
+				return getToolChain().getScannerInfo(getBuildConfiguration(), command, null, resource,
+						buildDirectoryURI);
+			});
+			// Only the first line with a new set of flags runs the toolchain for it
+			if (infos.putIfAbsent(commandStrings, task) == null) {
+				task.run();
+			}
+		}
+	}
+
 	/**
 	 * @since 6.5
 	 */
@@ -7,31 +7,87 @@
  *******************************************************************************/
 package org.eclipse.cdt.core.build;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
 
+import org.eclipse.cdt.core.parser.ExtendedScannerInfo;
 import org.eclipse.cdt.core.parser.IExtendedScannerInfo;
+import org.eclipse.cdt.core.parser.IParserSettings;
+import org.eclipse.cdt.core.parser.IParserSettings2;
+import org.eclipse.cdt.core.parser.IncludeExportPatterns;
+import org.eclipse.cdt.core.parser.ParserSettings;
 import org.eclipse.core.resources.IResource;
 
 /**
  * Scanner info for a given build configuration.
+ * <p>
+ * Flag sets are interned, all resources compiled with the same flags share a single command
+ * and its scanner info. The cache can be stored in a compact binary form, see {@link #write(File)}
+ * and {@link #read(File)}, in which strings and string arrays, e.g. include paths and macros,
+ * are stored once no matter how many commands use them.
  * 
  * @since 6.1
  */
 public class ScannerInfoCache {
 
+	private static final int MAGIC = 0x43534943; // CSIC
+	private static final int VERSION = 2;
+	private static final int NONE = -1;
+	private static final int PARSER_SETTINGS = 0;
+	private static final int PARSER_SETTINGS2 = 1;
+
 	private static class Command {
 		public List<String> command;
 		public IExtendedScannerInfo info;
-		public List<String> resourcePaths;
+		public Set<String> resourcePaths;
+	}
+
+	/**
+	 * Parser settings restored from the binary form.
+	 */
+	private static class StoredParserSettings extends IParserSettings2.Default {
+		private final boolean limitTokensPerTU;
+		private final int maxTokensPerTU;
+
+		StoredParserSettings(boolean limitTokensPerTU, int maxTokensPerTU) {
+			this.limitTokensPerTU = limitTokensPerTU;
+			this.maxTokensPerTU = maxTokensPerTU;
+		}
+
+		@Override
+		public boolean shouldLimitTokensPerTranslationUnit() {
+			return limitTokensPerTU;
+		}
+
+		@Override
+		public int getMaximumTokensPerTranslationUnit() {
+			return maxTokensPerTU;
+		}
 	}
 
 	private List<Command> commands;
 
 	private transient Map<List<String>, Command> commandMap = new HashMap<>();
 	private transient Map<String, Command> resourceMap = new HashMap<>();
+	private transient Map<String, String> strings = new HashMap<>();
 
 	/**
 	 * Initialize the cache of scanner info. Call this after loading this info
@@ -43,6 +99,7 @@ public class ScannerInfoCache {
 		}
 
 		for (Command command : commands) {
+			command.command = intern(command.command);
 			commandMap.put(command.command, command);
 			for (String resourcePath : command.resourcePaths) {
 				resourceMap.put(resourcePath, command);
@@ -50,6 +107,23 @@ public class ScannerInfoCache {
 		}
 	}
 
+	private String intern(String string) {
+		String interned = strings.putIfAbsent(string, string);
+		return interned != null ? interned : string;
+	}
+
+	/**
+	 * Returns an immutable copy of the flags sharing the strings with the other flag sets of the
+	 * cache.
+	 */
+	private List<String> intern(List<String> commandStrings) {
+		String[] interned = new String[commandStrings.size()];
+		for (int i = 0; i < interned.length; i++) {
+			interned[i] = intern(commandStrings.get(i));
+		}
+		return Collections.unmodifiableList(Arrays.asList(interned));
+	}
+
 	public IExtendedScannerInfo getScannerInfo(IResource resource) {
 		String resourcePath = resource.getLocation().toOSString();
 		Command command = resourceMap.get(resourcePath);
@@ -91,12 +165,12 @@ public class ScannerInfoCache {
 			resourceMap.put(resourcePath, command);
 		} else {
 			command = new Command();
-			command.command = commandStrings;
+			command.command = intern(commandStrings);
 			command.info = info;
-			command.resourcePaths = new ArrayList<>();
+			command.resourcePaths = new LinkedHashSet<>();
 			command.resourcePaths.add(resourcePath);
 			commands.add(command);
-			commandMap.put(commandStrings, command);
+			commandMap.put(command.command, command);
 			resourceMap.put(resourcePath, command);
 		}
 	}
@@ -166,4 +240,255 @@ public class ScannerInfoCache {
 		}
 	}
 
+	/**
+	 * Writes the cache in its binary form. The file is replaced atomically, where the platform
+	 * supports it.
+	 * 
+	 * @param file - file to write
+	 * @throws IOException if writing the file fails
+	 * @since 6.5
+	 */
+	public void write(File file) throws IOException {
+		// Assign ids to the distinct strings, arrays and infos
+		Map<String, Integer> stringIds = new HashMap<>();
+		List<String> stringTable = new ArrayList<>();
+		Map<List<Integer>, Integer> arrayIds = new HashMap<>();
+		List<List<Integer>> arrayTable = new ArrayList<>();
+		Map<IExtendedScannerInfo, Integer> infoIds = new IdentityHashMap<>();
+		List<int[]> infoTable = new ArrayList<>();
+		List<int[]> commandTable = new ArrayList<>(commands.size());
+		for (Command command : commands) {
+			Integer infoId = infoIds.get(command.info);
+			if (infoId == null) {
+				infoId = infoTable.size();
+				infoIds.put(command.info, infoId);
+				infoTable.add(toInfoRecord(command.info, stringIds, stringTable, arrayIds, arrayTable));
+			}
+			int[] record = new int[2 + command.resourcePaths.size()];
+			record[0] = arrayId(command.command.toArray(new String[command.command.size()]), stringIds,
+					stringTable, arrayIds, arrayTable);
+			record[1] = infoId;
+			int i = 2;
+			for (String resourcePath : command.resourcePaths) {
+				record[i++] = stringId(resourcePath, stringIds, stringTable);
+			}
+			commandTable.add(record);
+		}
+
+		Path path = file.toPath();
+		Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp"); //$NON-NLS-1$
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(stringTable.size());
+			for (String string : stringTable) {
+				byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+			out.writeInt(arrayTable.size());
+			for (List<Integer> array : arrayTable) {
+				out.writeInt(array.size());
+				for (int id : array) {
+					out.writeInt(id);
+				}
+			}
+			out.writeInt(infoTable.size());
+			for (int[] record : infoTable) {
+				for (int id : record) {
+					out.writeInt(id);
+				}
+			}
+			out.writeInt(commandTable.size());
+			for (int[] record : commandTable) {
+				out.writeInt(record[0]);
+				out.writeInt(record[1]);
+				out.writeInt(record.length - 2);
+				for (int i = 2; i < record.length; i++) {
+					out.writeInt(record[i]);
+				}
+			}
+		}
+		try {
+			Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Reads a cache written by {@link #write(File)}. The file is read into memory and decoded in
+	 * a single pass, identical strings, arrays and macro maps are shared by all scanner infos
+	 * referring to them.
+	 * 
+	 * @param file - file to read
+	 * @return the initialized cache
+	 * @throws IOException if the file cannot be read or is not a valid cache
+	 * @since 6.5
+	 */
+	public static ScannerInfoCache read(File file) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+		try {
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("Unsupported scanner info cache: " + file); //$NON-NLS-1$
+			}
+
+			String[] stringTable = new String[buffer.getInt()];
+			for (int i = 0; i < stringTable.length; i++) {
+				byte[] bytes = new byte[buffer.getInt()];
+				buffer.get(bytes);
+				stringTable[i] = new String(bytes, StandardCharsets.UTF_8);
+			}
+			String[][] arrayTable = new String[buffer.getInt()][];
+			for (int i = 0; i < arrayTable.length; i++) {
+				String[] array = new String[buffer.getInt()];
+				for (int j = 0; j < array.length; j++) {
+					array[j] = getString(stringTable, buffer.getInt());
+				}
+				arrayTable[i] = array;
+			}
+			Map<Integer, Map<String, String>> symbolMaps = new HashMap<>();
+			IExtendedScannerInfo[] infoTable = new IExtendedScannerInfo[buffer.getInt()];
+			for (int i = 0; i < infoTable.length; i++) {
+				int symbolsId = buffer.getInt();
+				Map<String, String> symbols = symbolMaps.get(symbolsId);
+				if (symbols == null && symbolsId != NONE) {
+					String[] pairs = arrayTable[symbolsId];
+					symbols = new HashMap<>();
+					for (int j = 0; j + 1 < pairs.length; j += 2) {
+						symbols.put(pairs[j], pairs[j + 1]);
+					}
+					symbolMaps.put(symbolsId, symbols);
+				}
+				String[] includePaths = getArray(arrayTable, buffer.getInt());
+				String[] macroFiles = getArray(arrayTable, buffer.getInt());
+				String[] includeFiles = getArray(arrayTable, buffer.getInt());
+				String[] localIncludePaths = getArray(arrayTable, buffer.getInt());
+				ExtendedScannerInfo info = new ExtendedScannerInfo(symbols, includePaths, macroFiles,
+						includeFiles, localIncludePaths);
+				String exportPattern = getString(stringTable, buffer.getInt());
+				String beginExportsPattern = getString(stringTable, buffer.getInt());
+				String endExportsPattern = getString(stringTable, buffer.getInt());
+				if (exportPattern != null || beginExportsPattern != null || endExportsPattern != null) {
+					info.setIncludeExportPatterns(
+							new IncludeExportPatterns(exportPattern, beginExportsPattern, endExportsPattern));
+				}
+				int settingsKind = buffer.getInt();
+				int maxTrivialExpressions = buffer.getInt();
+				boolean limitTokens = buffer.getInt() != 0;
+				int maxTokens = buffer.getInt();
+				if (settingsKind != NONE) {
+					ParserSettings settings = settingsKind == PARSER_SETTINGS2
+							? new StoredParserSettings(limitTokens, maxTokens)
+							: new ParserSettings();
+					settings.setMaximumTrivialExpressionsInAggregateInitializers(maxTrivialExpressions);
+					info.setParserSettings(settings);
+				}
+				infoTable[i] = info;
+			}
+
+			ScannerInfoCache cache = new ScannerInfoCache();
+			int commandCount = buffer.getInt();
+			cache.commands = new ArrayList<>(commandCount);
+			for (int i = 0; i < commandCount; i++) {
+				Command command = new Command();
+				command.command = Arrays.asList(arrayTable[buffer.getInt()]);
+				command.info = infoTable[buffer.getInt()];
+				int resourceCount = buffer.getInt();
+				command.resourcePaths = new LinkedHashSet<>(resourceCount * 4 / 3 + 1);
+				for (int j = 0; j < resourceCount; j++) {
+					command.resourcePaths.add(stringTable[buffer.getInt()]);
+				}
+				cache.commands.add(command);
+			}
+			for (String string : stringTable) {
+				cache.strings.put(string, string);
+			}
+			cache.initCache();
+			return cache;
+		} catch (RuntimeException e) {
+			// Truncated file or dangling ids
+			throw new IOException("Corrupt scanner info cache: " + file, e); //$NON-NLS-1$
+		}
+	}
+
+	private static String getString(String[] stringTable, int id) {
+		return id == NONE ? null : stringTable[id];
+	}
+
+	private static String[] getArray(String[][] arrayTable, int id) {
+		return id == NONE ? null : arrayTable[id];
+	}
+
+	private static int[] toInfoRecord(IExtendedScannerInfo info, Map<String, Integer> stringIds,
+			List<String> stringTable, Map<List<Integer>, Integer> arrayIds, List<List<Integer>> arrayTable) {
+		Map<String, String> symbols = info.getDefinedSymbols();
+		String[] pairs = null;
+		if (symbols != null) {
+			pairs = new String[2 * symbols.size()];
+			int i = 0;
+			for (Map.Entry<String, String> entry : symbols.entrySet()) {
+				pairs[i++] = entry.getKey();
+				pairs[i++] = entry.getValue();
+			}
+		}
+
+		IParserSettings settings = info instanceof ExtendedScannerInfo
+				? ((ExtendedScannerInfo) info).getParserSettings()
+				: null;
+		IParserSettings2 settings2 = settings instanceof IParserSettings2 ? (IParserSettings2) settings : null;
+
+		IncludeExportPatterns patterns = info instanceof ExtendedScannerInfo
+				? ((ExtendedScannerInfo) info).getIncludeExportPatterns()
+				: null;
+		return new int[] {
+				arrayId(pairs, stringIds, stringTable, arrayIds, arrayTable),
+				arrayId(info.getIncludePaths(), stringIds, stringTable, arrayIds, arrayTable),
+				arrayId(info.getMacroFiles(), stringIds, stringTable, arrayIds, arrayTable),
+				arrayId(info.getIncludeFiles(), stringIds, stringTable, arrayIds, arrayTable),
+				arrayId(info.getLocalIncludePath(), stringIds, stringTable, arrayIds, arrayTable),
+				patternId(patterns != null ? patterns.getIncludeExportPattern() : null, stringIds, stringTable),
+				patternId(patterns != null ? patterns.getIncludeBeginExportsPattern() : null, stringIds,
+						stringTable),
+				patternId(patterns != null ? patterns.getIncludeEndExportsPattern() : null, stringIds,
+						stringTable),
+				settings == null ? NONE : settings2 != null ? PARSER_SETTINGS2 : PARSER_SETTINGS,
+				settings != null ? settings.getMaximumTrivialExpressionsInAggregateInitializers() : 0,
+				settings2 != null && settings2.shouldLimitTokensPerTranslationUnit() ? 1 : 0,
+				settings2 != null ? settings2.getMaximumTokensPerTranslationUnit() : 0 };
+	}
+
+	private static int patternId(Pattern pattern, Map<String, Integer> stringIds, List<String> stringTable) {
+		return pattern != null ? stringId(pattern.pattern(), stringIds, stringTable) : NONE;
+	}
+
+	private static int stringId(String string, Map<String, Integer> stringIds, List<String> stringTable) {
+		if (string == null)
+			return NONE;
+		Integer id = stringIds.get(string);
+		if (id == null) {
+			id = stringTable.size();
+			stringIds.put(string, id);
+			stringTable.add(string);
+		}
+		return id;
+	}
+
+	private static int arrayId(String[] array, Map<String, Integer> stringIds, List<String> stringTable,
+			Map<List<Integer>, Integer> arrayIds, List<List<Integer>> arrayTable) {
+		if (array == null)
+			return NONE;
+		List<Integer> ids = new ArrayList<>(array.length);
+		for (String string : array) {
+			ids.add(stringId(string, stringIds, stringTable));
+		}
+		Integer id = arrayIds.get(ids);
+		if (id == null) {
+			id = arrayTable.size();
+			arrayIds.put(ids, id);
+			arrayTable.add(ids);
+		}
+		return id;
+	}
+
 }
@@ -19,6 +19,7 @@ import java.util.regex.Pattern;
 import org.eclipse.cdt.core.ErrorParserManager;
 import org.eclipse.cdt.core.IMarkerGenerator;
 import org.eclipse.cdt.internal.core.Cygwin;
+import org.eclipse.cdt.internal.errorparsers.ErrorParserPrefilter;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
@@ -59,6 +60,8 @@ public class RegexErrorPattern implements Cloneable {
 	private static final String EMPTY_STR=""; //$NON-NLS-1$
 
 	private Pattern pattern;
+	/** Literal text every matching line contains, or {@code null} */
+	private String anchor;
 	private String fileExpression;
 	private String lineExpression;
 	private String descriptionExpression;
@@ -94,6 +97,7 @@ public class RegexErrorPattern implements Cloneable {
 				int severity,
 				boolean eat) {
 		this.pattern = Pattern.compile(pattern!=null ? pattern : EMPTY_STR);
+		this.anchor = ErrorParserPrefilter.getAnchor(this.pattern.pattern());
 		this.fileExpression = fileExpression!=null ? fileExpression : EMPTY_STR;
 		this.lineExpression = lineExpression!=null ? lineExpression : EMPTY_STR;
 		this.descriptionExpression = descriptionExpression!=null ? descriptionExpression : EMPTY_STR;
@@ -160,6 +164,7 @@ public class RegexErrorPattern implements Cloneable {
 	 */
 	public void setPattern(String pattern) {
 		this.pattern = Pattern.compile(pattern);
+		this.anchor = ErrorParserPrefilter.getAnchor(pattern);
 	}
 
 	/**
@@ -276,6 +281,11 @@ public class RegexErrorPattern implements Cloneable {
 	 * @return {@code true} if error/warning/info problem was found.
 	 */
 	public boolean processLine(String line, ErrorParserManager eoParser) {
+		// Rule out lines quickly which cannot match
+		if (anchor != null && !line.contains(anchor)) {
+			return false;
+		}
+
 		Matcher matcher = getMatcher(line);
 		if (!matcher.matches()) {
 			return false;
@@ -42,6 +42,9 @@ public class CCorePreferenceInitializer extends AbstractPreferenceInitializer {
 		defaultOptionsMap.put(CCorePreferenceConstants.CODE_FORMATTER, CCorePreferenceConstants.DEFAULT_CODE_FORMATTER);
 		defaultOptionsMap.put(CCorePreferenceConstants.INDEX_DB_CACHE_SIZE_PCT, CCorePreferenceConstants.DEFAULT_INDEX_DB_CACHE_SIZE_PCT);
 		defaultOptionsMap.put(CCorePreferenceConstants.MAX_INDEX_DB_CACHE_SIZE_MB, CCorePreferenceConstants.DEFAULT_MAX_INDEX_DB_CACHE_SIZE_MB);
+		defaultOptionsMap.put(CCorePreferenceConstants.INDEX_DB_CACHE_EVICTION_POLICY, CCorePreferenceConstants.DEFAULT_INDEX_DB_CACHE_EVICTION_POLICY);
+		defaultOptionsMap.put(CCorePreferenceConstants.INDEX_DB_MEMORY_MAPPED, CCorePreferenceConstants.DEFAULT_INDEX_DB_MEMORY_MAPPED);
+		defaultOptionsMap.put(CCorePreferenceConstants.INDEX_DB_MAX_SIZE_GB, CCorePreferenceConstants.DEFAULT_INDEX_DB_MAX_SIZE_GB);
 		defaultOptionsMap.put(CCorePreferenceConstants.WORKSPACE_LANGUAGE_MAPPINGS, CCorePreferenceConstants.DEFAULT_WORKSPACE_LANGUAGE_MAPPINGS);
 		defaultOptionsMap.put(CodeReaderCache.CODE_READER_BUFFER, CodeReaderCache.DEFAULT_CACHE_SIZE_IN_MB_STRING);
 
@@ -75,6 +78,11 @@ public class CCorePreferenceInitializer extends AbstractPreferenceInitializer {
 		defaultPreferences.putInt(CCorePreferenceConstants.SCALABILITY_MAXIMUM_TRIVIAL_EXPRESSIONS, CCorePreferenceConstants.DEFAULT_SCALABILITY_MAXIMUM_TRIVIAL_EXPRESSIONS);
 		defaultPreferences.putBoolean(CCorePreferenceConstants.SCALABILITY_LIMIT_TOKENS_PER_TU, CCorePreferenceConstants.DEFAULT_SCALABILITY_LIMIT_TOKENS_PER_TU);
 		defaultPreferences.putInt(CCorePreferenceConstants.SCALABILITY_MAXIMUM_TOKENS, CCorePreferenceConstants.DEFAULT_SCALABILITY_MAXIMUM_TOKENS);
+		defaultPreferences.putInt(CCorePreferenceConstants.SCALABILITY_INDEXER_PARSER_THREADS, CCorePreferenceConstants.DEFAULT_SCALABILITY_INDEXER_PARSER_THREADS);
+		defaultPreferences.putInt(CCorePreferenceConstants.SCALABILITY_AST_CACHE_NODES, CCorePreferenceConstants.DEFAULT_SCALABILITY_AST_CACHE_NODES);
+		defaultPreferences.putBoolean(CCorePreferenceConstants.INDEXER_UPDATE_DEPENDENTS_OF_CHANGED_HEADERS, CCorePreferenceConstants.DEFAULT_INDEXER_UPDATE_DEPENDENTS_OF_CHANGED_HEADERS);
+		defaultPreferences.putBoolean(CCorePreferenceConstants.INDEXER_CACHE_INCLUDE_GUARDS, CCorePreferenceConstants.DEFAULT_INDEXER_CACHE_INCLUDE_GUARDS);
+		defaultPreferences.putBoolean(CCorePreferenceConstants.INDEXER_RESOLVE_NAMES_IN_PARSER_THREADS, CCorePreferenceConstants.DEFAULT_INDEXER_RESOLVE_NAMES_IN_PARSER_THREADS);
 		defaultPreferences.putBoolean(CCorePreferenceConstants.PLACE_CONST_RIGHT_OF_TYPE, CCorePreferenceConstants.DEFAULT_PLACE_CONST_RIGHT_OF_TYPE);
 	}
 }
@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.Assert;
 
@@ -35,6 +36,7 @@ public class ProcessClosure {
 		private OutputStream fOutputStream;
 		private boolean fFinished = false;
 		private String lineSeparator;
+		private Runnable fCompletionListener;
 
 		public ReaderThread(ThreadGroup group, String name, InputStream in, OutputStream out) {
 			super(group, name);
@@ -72,9 +74,19 @@ public class ProcessClosure {
 				}
 			} finally {
 				complete();
+				if (fCompletionListener != null) {
+					fCompletionListener.run();
+				}
 			}
 		}
 
+		/**
+		 * Sets a listener that is called on this thread after it has finished reading.
+		 */
+		public void setCompletionListener(Runnable listener) {
+			fCompletionListener = listener;
+		}
+
 		public synchronized boolean finished() {
 			return fFinished;
 		}
@@ -112,6 +124,8 @@ public class ProcessClosure {
 	protected ReaderThread fOutputReader;
 	protected ReaderThread fErrorReader;
 
+	private Runnable fTerminationListener;
+
 	/**
 	 * Creates a process closure and connects the launched process with a
 	 * console document.
@@ -140,6 +154,21 @@ public class ProcessClosure {
 		fOutputReader = new ReaderThread(group, "OutputReader", stdin, fOutput); //$NON-NLS-1$
 		fErrorReader = new ReaderThread(group, "ErrorReader", stderr, fError); //$NON-NLS-1$
 
+		if (fTerminationListener != null) {
+			final Runnable listener = fTerminationListener;
+			final AtomicInteger runningReaders = new AtomicInteger(2);
+			Runnable readerListener = new Runnable() {
+				@Override
+				public void run() {
+					if (runningReaders.decrementAndGet() == 0) {
+						listener.run();
+					}
+				}
+			};
+			fOutputReader.setCompletionListener(readerListener);
+			fErrorReader.setCompletionListener(readerListener);
+		}
+
 		fOutputReader.start();
 		fErrorReader.start();
 	}
@@ -181,9 +210,18 @@ public class ProcessClosure {
 		fErrorReader = null;
 	}
 
+	/**
+	 * Sets a listener that is notified once the process has closed its output and error streams,
+	 * i.e. as soon as {@link #isRunning()} returns <code>false</code>. The listener is called on
+	 * one of the reader threads. It has to be set before the closure is run.
+	 */
+	public void setTerminationListener(Runnable listener) {
+		fTerminationListener = listener;
+	}
+
 	public boolean isAlive() {
 		if (fProcess != null) {
-			if (fOutputReader.isAlive() || fErrorReader.isAlive()) {
+			if (!fOutputReader.finished() || !fErrorReader.finished()) {
 				return true;
 			}
 			fProcess = null;
@@ -202,7 +240,7 @@ public class ProcessClosure {
 	 */
 	public boolean isRunning() {
 		if (fProcess != null) {
-			if (fOutputReader.isAlive() || fErrorReader.isAlive()) {
+			if (!fOutputReader.finished() || !fErrorReader.finished()) {
 				return true;
 			}
 			fProcess = null;
@@ -0,0 +1,373 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.errorparsers;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.cdt.core.IErrorParser;
+import org.eclipse.cdt.core.errorparsers.ErrorParserNamedWrapper;
+import org.eclipse.cdt.core.errorparsers.RegexErrorParser;
+import org.eclipse.cdt.core.errorparsers.RegexErrorPattern;
+
+/**
+ * Selects the error parsers that may recognize a line of build output, without trying their
+ * patterns on it.
+ * <p>
+ * Every {@link RegexErrorPattern} has to match a whole line, thus it can only match lines
+ * containing the literal text the regular expression requires, like {@code "error: "} or
+ * {@code "make["}. The anchors of the patterns of all {@link RegexErrorParser}s are searched
+ * in a single pass over the line, and a regex error parser is a candidate only if the anchor
+ * of one of its patterns occurs. Other error parsers, and regex error parsers with a pattern
+ * without an anchor, are candidates for every line.
+ */
+public class ErrorParserPrefilter {
+	private final MultiStringMatcher fMatcher;
+	/** The anchors of the patterns of each error parser, {@code null} for parsers that always apply. */
+	private final BitSet[] fParserAnchors;
+	private final BitSet fFound = new BitSet();
+
+	/**
+	 * @param parsers the error parsers, in the order in which they are offered the lines
+	 */
+	public ErrorParserPrefilter(List<IErrorParser> parsers) {
+		Map<String, Integer> anchorIds = new LinkedHashMap<String, Integer>();
+		fParserAnchors = new BitSet[parsers.size()];
+		for (int i = 0; i < parsers.size(); i++) {
+			IErrorParser parser = parsers.get(i);
+			if (parser instanceof ErrorParserNamedWrapper) {
+				parser = ((ErrorParserNamedWrapper)parser).getErrorParser();
+			}
+			// Subclasses may process lines differently
+			if (parser == null || parser.getClass() != RegexErrorParser.class)
+				continue;
+
+			BitSet anchors = new BitSet();
+			for (RegexErrorPattern pattern : ((RegexErrorParser)parser).getPatterns()) {
+				String anchor = pattern.getClass() == RegexErrorPattern.class ? getAnchor(pattern.getPattern()) : null;
+				if (anchor == null) {
+					anchors = null;
+					break;
+				}
+				Integer id = anchorIds.get(anchor);
+				if (id == null) {
+					id = anchorIds.size();
+					anchorIds.put(anchor, id);
+				}
+				anchors.set(id);
+			}
+			fParserAnchors[i] = anchors;
+		}
+		fMatcher = anchorIds.isEmpty() ? null : new MultiStringMatcher(new ArrayList<String>(anchorIds.keySet()));
+	}
+
+	/**
+	 * Searches the anchors of the parsers in a line. Not thread-safe, the result is valid
+	 * until the next line is searched.
+	 *
+	 * @param line the line as it is given to the error parsers
+	 */
+	public void match(CharSequence line) {
+		fFound.clear();
+		if (fMatcher != null) {
+			fMatcher.match(line, fFound);
+		}
+	}
+
+	/**
+	 * @param index the index of the parser as given to the constructor
+	 * @return whether the parser may recognize the last line searched
+	 */
+	public boolean isCandidate(int index) {
+		BitSet anchors = fParserAnchors[index];
+		return anchors == null || anchors.intersects(fFound);
+	}
+
+	/**
+	 * Returns the longest literal text occurring in every string that matches the regular
+	 * expression, or {@code null} if there is none or the expression cannot be analyzed.
+	 */
+	public static String getAnchor(String regex) {
+		List<String> literals = new LiteralCollector(regex).collect();
+		String anchor = null;
+		if (literals != null) {
+			for (String literal : literals) {
+				if (anchor == null || literal.length() > anchor.length()) {
+					anchor = literal;
+				}
+			}
+		}
+		return anchor;
+	}
+
+	/**
+	 * Collects the literal texts required by a regular expression. Only constructs that are
+	 * commonly used in error patterns are understood: alternatives, optional parts and
+	 * non-literal constructs simply do not contribute literals. Case-insensitive and comments
+	 * modes, and quotations, are not supported.
+	 */
+	private static class LiteralCollector {
+		private final String fRegex;
+		private int fPos;
+		private boolean fUnsupported;
+
+		LiteralCollector(String regex) {
+			fRegex = regex;
+		}
+
+		/**
+		 * @return the required literals, or {@code null} if the expression is not supported.
+		 */
+		List<String> collect() {
+			List<String> literals = new ArrayList<String>();
+			try {
+				parseAlternatives(literals);
+				if (fPos < fRegex.length()) {
+					// Unbalanced parenthesis
+					return null;
+				}
+			} catch (IndexOutOfBoundsException e) {
+				return null;
+			}
+			return fUnsupported ? null : literals;
+		}
+
+		/**
+		 * Parses alternatives up to the end of the enclosing group. Adds the literals if
+		 * there is a single alternative.
+		 */
+		private void parseAlternatives(List<String> result) {
+			List<String> literals = new ArrayList<String>();
+			boolean alternatives = false;
+			StringBuilder run = new StringBuilder();
+			while (fPos < fRegex.length()) {
+				char c = fRegex.charAt(fPos);
+				if (c == ')')
+					break;
+				fPos++;
+				switch (c) {
+				case '|':
+					alternatives = true;
+					flush(run, literals);
+					break;
+				case '(':
+					flush(run, literals);
+					parseGroup(literals);
+					break;
+				case '[':
+					flush(run, literals);
+					skipCharacterClass();
+					skipQuantifier();
+					break;
+				case '.':
+				case '^':
+				case '$':
+					flush(run, literals);
+					skipQuantifier();
+					break;
+				case '\\':
+					int literal = parseEscape();
+					if (literal < 0) {
+						flush(run, literals);
+						skipQuantifier();
+					} else {
+						appendAtom(run, literals, (char)literal);
+					}
+					break;
+				default:
+					if (c >= ' ' && c < 0x7f) {
+						appendAtom(run, literals, c);
+					} else {
+						flush(run, literals);
+						skipQuantifier();
+					}
+					break;
+				}
+			}
+			flush(run, literals);
+			if (!alternatives) {
+				result.addAll(literals);
+			}
+		}
+
+		private void parseGroup(List<String> result) {
+			boolean required = true;
+			if (fRegex.charAt(fPos) == '?') {
+				fPos++;
+				char c = fRegex.charAt(fPos);
+				if (c == ':' || c == '>') {
+					fPos++;
+				} else if (c == '<' && Character.isLetter(fRegex.charAt(fPos + 1))) {
+					// Named group
+					fPos = fRegex.indexOf('>', fPos) + 1;
+				} else if (c == '=' || c == '!' || c == '<') {
+					// Lookaround
+					required = false;
+					fPos += c == '<' ? 2 : 1;
+				} else {
+					// Flags, possibly applying to a non-capturing group
+					int start = fPos;
+					while (fRegex.charAt(fPos) != ')' && fRegex.charAt(fPos) != ':') {
+						fPos++;
+					}
+					String flags = fRegex.substring(start, fPos);
+					int minus = flags.indexOf('-');
+					String set = minus < 0 ? flags : flags.substring(0, minus);
+					if (set.indexOf('i') >= 0 || set.indexOf('x') >= 0) {
+						fUnsupported = true;
+					}
+					if (fRegex.charAt(fPos) == ')') {
+						fPos++;
+						return;
+					}
+					fPos++;
+				}
+			}
+			List<String> literals = new ArrayList<String>();
+			parseAlternatives(literals);
+			if (fRegex.charAt(fPos) != ')')
+				throw new IndexOutOfBoundsException();
+			fPos++;
+			if (skipQuantifier() == 0)
+				required = false;
+			if (required) {
+				result.addAll(literals);
+			}
+		}
+
+		private void skipCharacterClass() {
+			int depth = 1;
+			if (fRegex.charAt(fPos) == '^')
+				fPos++;
+			if (fRegex.charAt(fPos) == ']')
+				fPos++;
+			while (depth > 0) {
+				char c = fRegex.charAt(fPos++);
+				if (c == '\\') {
+					fPos++;
+				} else if (c == '[') {
+					depth++;
+				} else if (c == ']') {
+					depth--;
+				}
+			}
+		}
+
+		/**
+		 * Parses an escape sequence following a backslash.
+		 *
+		 * @return the literal character, or -1 if the escape sequence is not a literal.
+		 */
+		private int parseEscape() {
+			char c = fRegex.charAt(fPos++);
+			if (!Character.isLetterOrDigit(c))
+				return c < 0x7f ? c : -1;
+
+			switch (c) {
+			case 'Q':
+				fUnsupported = true;
+				break;
+			case 'p':
+			case 'P':
+			case 'x':
+				if (fRegex.charAt(fPos) == '{') {
+					fPos = fRegex.indexOf('}', fPos) + 1;
+				} else {
+					fPos += c == 'x' ? 2 : 1;
+				}
+				break;
+			case 'u':
+				fPos += 4;
+				break;
+			case 'c':
+				fPos++;
+				break;
+			case 'k':
+				fPos = fRegex.indexOf('>', fPos) + 1;
+				break;
+			case '0':
+				for (int i = 0; i < 3 && fPos < fRegex.length() && Character.isDigit(fRegex.charAt(fPos)); i++) {
+					fPos++;
+				}
+				break;
+			default:
+				// Character classes, back references, boundaries and control characters
+				while (Character.isDigit(c) && fPos < fRegex.length() && Character.isDigit(fRegex.charAt(fPos))) {
+					fPos++;
+				}
+				break;
+			}
+			return -1;
+		}
+
+		/**
+		 * Appends a literal character to the current run of literal text, taking its
+		 * quantifier into account.
+		 */
+		private void appendAtom(StringBuilder run, List<String> literals, char c) {
+			int min = skipQuantifier();
+			if (min == 0) {
+				flush(run, literals);
+			} else {
+				run.append(c);
+				if (min > 0) {
+					// Repeated, the following text does not immediately follow this character
+					flush(run, literals);
+				}
+			}
+		}
+
+		/**
+		 * Skips the quantifier of the previous atom.
+		 *
+		 * @return the minimum number of repetitions, -1 if there is no quantifier
+		 */
+		private int skipQuantifier() {
+			if (fPos >= fRegex.length())
+				return -1;
+			int min;
+			char c = fRegex.charAt(fPos);
+			if (c == '?' || c == '*') {
+				min = 0;
+				fPos++;
+			} else if (c == '+') {
+				min = 1;
+				fPos++;
+			} else if (c == '{') {
+				int end = fRegex.indexOf('}', fPos);
+				String bounds = fRegex.substring(fPos + 1, end);
+				int comma = bounds.indexOf(',');
+				try {
+					min = Integer.parseInt((comma < 0 ? bounds : bounds.substring(0, comma)).trim());
+				} catch (NumberFormatException e) {
+					min = 0;
+				}
+				fPos = end + 1;
+			} else {
+				return -1;
+			}
+			// Reluctant or possessive quantifier
+			if (fPos < fRegex.length() && (fRegex.charAt(fPos) == '?' || fRegex.charAt(fPos) == '+'))
+				fPos++;
+			return min;
+		}
+
+		private static void flush(StringBuilder run, List<String> literals) {
+			if (run.length() > 0) {
+				literals.add(run.toString());
+				run.setLength(0);
+			}
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eclipse CDT contributors - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.errorparsers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Finds which of a set of ASCII strings occur in a text, in a single pass over the text.
+ * The strings are compiled into an Aho-Corasick automaton with a complete transition table.
+ */
+public class MultiStringMatcher {
+	private static final int ALPHABET = 128;
+
+	/** Transitions, {@code ALPHABET} entries per state. State 0 is the initial state. */
+	private final int[] fTransitions;
+	/** The strings recognized in a state, including those that are suffixes of longer ones. */
+	private final int[][] fOutputs;
+
+	/**
+	 * @param strings non-empty strings consisting of ASCII characters
+	 */
+	public MultiStringMatcher(List<String> strings) {
+		// Build the trie
+		List<int[]> transitions = new ArrayList<int[]>();
+		List<int[]> outputs = new ArrayList<int[]>();
+		transitions.add(newState());
+		outputs.add(new int[0]);
+		for (int i = 0; i < strings.size(); i++) {
+			String str = strings.get(i);
+			if (str.isEmpty())
+				throw new IllegalArgumentException();
+			int state = 0;
+			for (int j = 0; j < str.length(); j++) {
+				char c = str.charAt(j);
+				if (c >= ALPHABET)
+					throw new IllegalArgumentException(str);
+				int next = transitions.get(state)[c];
+				if (next <= 0) {
+					next = transitions.size();
+					transitions.get(state)[c] = next;
+					transitions.add(newState());
+					outputs.add(new int[0]);
+				}
+				state = next;
+			}
+			outputs.set(state, append(outputs.get(state), i));
+		}
+
+		// Compute the failure links breadth first and turn them into transitions
+		int[] failure = new int[transitions.size()];
+		ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+		int[] root = transitions.get(0);
+		for (int c = 0; c < ALPHABET; c++) {
+			if (root[c] > 0) {
+				failure[root[c]] = 0;
+				queue.add(root[c]);
+			} else {
+				root[c] = 0;
+			}
+		}
+		while (!queue.isEmpty()) {
+			int state = queue.remove();
+			int[] trans = transitions.get(state);
+			int[] fail = transitions.get(failure[state]);
+			outputs.set(state, merge(outputs.get(state), outputs.get(failure[state])));
+			for (int c = 0; c < ALPHABET; c++) {
+				if (trans[c] > 0) {
+					failure[trans[c]] = fail[c];
+					queue.add(trans[c]);
+				} else {
+					trans[c] = fail[c];
+				}
+			}
+		}
+
+		fTransitions = new int[transitions.size() * ALPHABET];
+		for (int i = 0; i < transitions.size(); i++) {
+			System.arraycopy(transitions.get(i), 0, fTransitions, i * ALPHABET, ALPHABET);
+		}
+		fOutputs = outputs.toArray(new int[outputs.size()][]);
+	}
+
+	private static int[] newState() {
+		int[] state = new int[ALPHABET];
+		Arrays.fill(state, -1);
+		return state;
+	}
+
+	private static int[] append(int[] array, int value) {
+		int[] result = Arrays.copyOf(array, array.length + 1);
+		result[array.length] = value;
+		return result;
+	}
+
+	private static int[] merge(int[] array1, int[] array2) {
+		if (array2.length == 0)
+			return array1;
+		int[] result = Arrays.copyOf(array1, array1.length + array2.length);
+		System.arraycopy(array2, 0, result, array1.length, array2.length);
+		return result;
+	}
+
+	/**
+	 * Sets the bits of the strings that occur in the text.
+	 *
+	 * @param text the text to search
+	 * @param result receives the indices of the strings found, as given to the constructor
+	 */
+	public void match(CharSequence text, BitSet result) {
+		int state = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			state = c < ALPHABET ? fTransitions[state * ALPHABET + c] : 0;
+			for (int found : fOutputs[state]) {
+				result.set(found);
+			}
+		}
+	}
+}
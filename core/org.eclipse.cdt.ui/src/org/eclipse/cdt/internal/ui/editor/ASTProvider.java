@@ -304,6 +304,7 @@ public final class ASTProvider {
 			fActivationListener= null;
 		}
 		fCache.setActiveElement(null);
+		fCache.disposeRetainedASTs();
 	}
 
 	/**